@@ -0,0 +1,195 @@
+/*
+ * TestCoverageSaveLoad.java
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ *
+ * Saves a coverage analyzer half way through an analysis the way scenarios are saved
+ * (XStream, with both reflection providers), loads it and finishes the analysis, the results
+ * must be the same as without the save. Also loads it with the settings older scenarios do
+ * not have removed. Exits with 1 if a check fails.
+ */
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.reflection.PureJavaReflectionProvider;
+import com.thoughtworks.xstream.converters.reflection.Sun14ReflectionProvider;
+import java.awt.image.BufferedImage;
+import java.util.Hashtable;
+import jsattrak.coverage.CoverageAnalyzer;
+import jsattrak.objects.AbstractSatellite;
+import jsattrak.objects.SatelliteTleSGP4;
+import name.gano.astro.time.Time;
+
+/**
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class TestCoverageSaveLoad
+{
+    // settings added after scenarios were first saved
+    static final String[] NEW_SETTINGS = {"parallelAnalysis", "numThreads", "minSatsPerThread", "accessAlgorithm",
+        "coverageStatistics", "numFoldBins", "displayLayer", "displayFold", "gridType", "equalAreaCellSize",
+        "refineLatBounds", "refineLongBounds", "refineLevels", "maxImageWidth", "maxImageHeight"};
+
+    static final int STEPS = 60; // 1 minute steps
+    static final int SAVE_STEP = 30;
+
+    public static void main(String[] args)
+    {
+        // a few satellites (enough for more than one worker thread)
+        Hashtable<String,AbstractSatellite> satHash = new Hashtable<String,AbstractSatellite>();
+        String[] raan = {"348.2892", "258.2892", "168.2892", " 78.2892", " 18.2892", "108.2892", "198.2892", "288.2892"};
+        try
+        {
+            for(int i = 0; i < raan.length; i++)
+            {
+                SatelliteTleSGP4 sat = new SatelliteTleSGP4("SAT" + i, "1 25544U 98067A   09160.12255947  .00017740  00000-0  12823-3 0    24",
+                        "2 25544  51.6405 " + raan[i] + " 0009223  92.2562   9.3141 15.73542580604683");
+                sat.setShowGroundTrack(false);
+                satHash.put(sat.getName(), sat);
+            }
+        }
+        catch(Exception e)
+        {
+            System.out.println("Error Creating SGP4 Satellite");
+            System.exit(1);
+        }
+
+        // without the constructor (Sun VMs) and with the default constructor run first
+        boolean failed = false;
+        failed |= !checkSaveLoad(new XStream(new Sun14ReflectionProvider()), satHash);
+        failed |= !checkSaveLoad(new XStream(new PureJavaReflectionProvider()), satHash);
+
+        if(failed)
+        {
+            System.exit(1);
+        }
+        System.out.println("PASSED");
+        System.exit(0); // worker threads
+    } // main
+
+    // saves and loads an analyzer half way through the analysis, false if a check fails
+    static boolean checkSaveLoad(XStream xstream, Hashtable<String,AbstractSatellite> satHash)
+    {
+        CoverageAnalyzer reference = newAnalyzer(satHash);
+        CoverageAnalyzer saved = newAnalyzer(satHash);
+        CoverageAnalyzer loaded = null;
+        CoverageAnalyzer loadedOld = null;
+
+        Time time = new Time(2009, 6, 9, 12, 0, 0.0);
+        boolean failed = false;
+
+        for(int step = 0; step <= STEPS; step++)
+        {
+            for(AbstractSatellite sat : satHash.values())
+            {
+                sat.propogate2JulDate(time.getJulianDate());
+            }
+
+            if(step < SAVE_STEP)
+            {
+                saved.performCoverageAnalysis(time, satHash);
+            }
+            else if(step == SAVE_STEP)
+            {
+                String xml = xstream.toXML(saved);
+                loaded = (CoverageAnalyzer)xstream.fromXML(xml);
+
+                String oldXml = xml;
+                for(String setting : NEW_SETTINGS)
+                {
+                    oldXml = oldXml.replaceAll("(?s)\\s*<" + setting + "( [^>]*)?>.*?</" + setting + ">", "");
+                    oldXml = oldXml.replaceAll("\\s*<" + setting + "( [^>]*)?/>", "");
+                }
+                loadedOld = (CoverageAnalyzer)xstream.fromXML(oldXml);
+
+                if(loadedOld.getNumThreads() < 1 || loadedOld.getMinSatsPerThread() != 4
+                        || loadedOld.getAccessAlgorithm() != CoverageAnalyzer.ACCESS_SPHERICAL_CAP
+                        || loadedOld.getCoverageStatistics() == null)
+                {
+                    System.out.println("FAILED: settings missing from an older scenario were not defaulted");
+                    failed = true;
+                }
+            }
+
+            if(step >= SAVE_STEP)
+            {
+                loaded.performCoverageAnalysis(time, satHash);
+                loadedOld.performCoverageAnalysis(time, satHash);
+            }
+            reference.performCoverageAnalysis(time, satHash);
+
+            time.addSeconds(60.0);
+        }
+
+        // the loaded analyzer has to carry on exactly where the saved one stopped
+        double maxDiff = maxDifference(reference.getCoverageCumTime(), loaded.getCoverageCumTime());
+        System.out.println("Max coverage time difference after loading [days]: " + maxDiff);
+        if(maxDiff != 0.0 || loaded.getCoverageStatistics().getSteps() != reference.getCoverageStatistics().getSteps())
+        {
+            System.out.println("FAILED: loaded coverage analysis does not match");
+            failed = true;
+        }
+
+        // the analysis has to carry on after loading an older scenario (its saved data is cleared if it does not fit)
+        double oldMax = maxDifference(new double[loadedOld.getTessellation().getRows()][loadedOld.getTessellation().getColumns()],
+                loadedOld.getCoverageCumTime());
+        if(!(oldMax > 0.0))
+        {
+            System.out.println("FAILED: no coverage after loading an older scenario");
+            failed = true;
+        }
+
+        BufferedImage image = loaded.getCoverageImage();
+        BufferedImage oldImage = loadedOld.getCoverageImage();
+        if(image == null || oldImage == null)
+        {
+            System.out.println("FAILED: no coverage image after loading");
+            failed = true;
+        }
+
+        return !failed;
+    } // checkSaveLoad
+
+    // analyzer of all the satellites
+    static CoverageAnalyzer newAnalyzer(Hashtable<String,AbstractSatellite> satHash)
+    {
+        CoverageAnalyzer ca = new CoverageAnalyzer();
+        ca.setLatPanels(18); // not the default grid
+        ca.setLongPanels(36);
+        ca.clearCoverageData();
+        for(String name : satHash.keySet())
+        {
+            ca.addSatToCoverageAnaylsis(name);
+        }
+        return ca;
+    } // newAnalyzer
+
+    static double maxDifference(double[][] a, double[][] b)
+    {
+        double maxDiff = 0;
+        for(int i = 0; i < a.length; i++)
+        {
+            for(int j = 0; j < a[i].length; j++)
+            {
+                maxDiff = Math.max(maxDiff, Math.abs(a[i][j] - b[i][j]));
+            }
+        }
+        return maxDiff;
+    } // maxDifference
+}
@@ -0,0 +1,106 @@
+/*
+ * TestGeodeticLLA.java
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ *
+ * Compares the closed form and the iterative GeodeticLLA solvers (and both with the
+ * geodetic point the position was made from) from 50 km to 400 000 km altitude over
+ * all latitudes, exits with 1 if a difference is larger than the bounds.
+ */
+
+import name.gano.astro.AstroConst;
+import name.gano.astro.GeoFunctions;
+
+/**
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class TestGeodeticLLA
+{
+    // bounds of the difference between the two solvers
+    static final double MAX_LAT_DIFF = 1.0E-12; // [rad]
+    static final double MAX_LON_DIFF = 0.0; // [rad] both use atan2(Y,X)
+    static final double MAX_ALT_DIFF = 1.0E-5; // [m]
+
+    // bounds of the difference of each solver with the point the position was made from
+    static final double MAX_LAT_ERROR = 1.0E-12; // [rad]
+    static final double MAX_ALT_ERROR = 1.0E-5; // [m]
+
+    public static void main(String[] args)
+    {
+        double[] altitudes = {50.0E3, 100.0E3, 200.0E3, 400.0E3, 800.0E3, 1000.0E3, 2000.0E3, 5000.0E3,
+                              20200.0E3, 35786.0E3, 100000.0E3, 400000.0E3}; // [m]
+        double mjd = 57311.0; // any time, both solvers get the same one
+
+        double a = AstroConst.R_Earth;
+        double f = AstroConst.f_Earth;
+        double e2 = f*(2.0 - f);
+
+        int savedMode = GeoFunctions.getGeodeticMode();
+        boolean failed = false;
+
+        System.out.println("     alt [km]  max lat diff [rad]  max alt diff [m]  max lat err [rad]  max alt err [m]");
+        for(double alt : altitudes)
+        {
+            double maxLatDiff = 0, maxLonDiff = 0, maxAltDiff = 0, maxLatErr = 0, maxAltErr = 0;
+
+            for(int iLat = 0; iLat <= 360; iLat++)
+            {
+                double lat = (-90.0 + 0.5*iLat)*Math.PI/180.0;
+                for(int iLon = 0; iLon < 12; iLon++)
+                {
+                    double lon = (-180.0 + 30.0*iLon + 7.0)*Math.PI/180.0;
+
+                    // position of the geodetic point
+                    double n = a/Math.sqrt(1.0 - e2*Math.sin(lat)*Math.sin(lat));
+                    double[] pos = new double[] {(n + alt)*Math.cos(lat)*Math.cos(lon),
+                                                 (n + alt)*Math.cos(lat)*Math.sin(lon),
+                                                 (n*(1.0 - e2) + alt)*Math.sin(lat)};
+
+                    GeoFunctions.setGeodeticMode(GeoFunctions.GEODETIC_ITERATIVE);
+                    double[] iterative = GeoFunctions.GeodeticLLA(pos, mjd);
+                    GeoFunctions.setGeodeticMode(GeoFunctions.GEODETIC_CLOSED_FORM);
+                    double[] closedForm = GeoFunctions.GeodeticLLA(pos, mjd);
+
+                    maxLatDiff = Math.max(maxLatDiff, Math.abs(closedForm[0] - iterative[0]));
+                    maxLonDiff = Math.max(maxLonDiff, Math.abs(closedForm[1] - iterative[1]));
+                    maxAltDiff = Math.max(maxAltDiff, Math.abs(closedForm[2] - iterative[2]));
+                    maxLatErr = Math.max(maxLatErr, Math.max(Math.abs(closedForm[0] - lat), Math.abs(iterative[0] - lat)));
+                    maxAltErr = Math.max(maxAltErr, Math.max(Math.abs(closedForm[2] - alt), Math.abs(iterative[2] - alt)));
+                }
+            }
+
+            System.out.printf("%13.0f  %18.3e  %16.3e  %17.3e  %15.3e%n", alt/1000.0, maxLatDiff, maxAltDiff, maxLatErr, maxAltErr);
+            if(!(maxLatDiff <= MAX_LAT_DIFF && maxLonDiff <= MAX_LON_DIFF && maxAltDiff <= MAX_ALT_DIFF
+                    && maxLatErr <= MAX_LAT_ERROR && maxAltErr <= MAX_ALT_ERROR))
+            {
+                System.out.println("FAILED at altitude " + alt/1000.0 + " km (longitude diff " + maxLonDiff + " rad)");
+                failed = true;
+            }
+        }
+
+        GeoFunctions.setGeodeticMode(savedMode);
+
+        if(failed)
+        {
+            System.exit(1);
+        }
+        System.out.println("PASSED");
+    } // main
+}
@@ -0,0 +1,93 @@
+/*
+ * Conjunction.java
+ *
+ * A close approach of two satellites found by ConjunctionScreener: time of
+ * closest approach, miss distance and relative velocity.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.analysis;
+
+/**
+ * A close approach found by ConjunctionScreener, the time of closest approach (TCA)
+ * is where the distance between the two satellites has a minimum. Distances are
+ * meters, velocities meters per second, times julian dates.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class Conjunction
+{
+    private final String satelliteName1;
+    private final String satelliteName2;
+    private final double tcaJulDate;
+    private final double missDistance;
+    private final double relativeVelocity;
+
+    Conjunction(String satelliteName1, String satelliteName2, double tcaJulDate, double missDistance, double relativeVelocity)
+    {
+        this.satelliteName1 = satelliteName1;
+        this.satelliteName2 = satelliteName2;
+        this.tcaJulDate = tcaJulDate;
+        this.missDistance = missDistance;
+        this.relativeVelocity = relativeVelocity;
+    } // Conjunction
+
+    public String getSatelliteName1()
+    {
+        return satelliteName1;
+    }
+
+    public String getSatelliteName2()
+    {
+        return satelliteName2;
+    }
+
+    /**
+     * @return time of closest approach
+     */
+    public double getTcaJulDate()
+    {
+        return tcaJulDate;
+    }
+
+    /**
+     * @return distance between the satellites at the time of closest approach [m]
+     */
+    public double getMissDistance()
+    {
+        return missDistance;
+    }
+
+    /**
+     * @return speed of one satellite relative to the other at the time of closest approach [m/s]
+     */
+    public double getRelativeVelocity()
+    {
+        return relativeVelocity;
+    }
+
+    @Override
+    public String toString()
+    {
+        return satelliteName1 + " - " + satelliteName2 + ": TCA " + tcaJulDate + ", miss distance " + missDistance
+                + " m, relative velocity " + relativeVelocity + " m/s";
+    }
+
+} // Conjunction
@@ -0,0 +1,738 @@
+/*
+ * ConjunctionScreener.java
+ *
+ * Close approach screening of a whole satellite catalog over a time interval:
+ * positions are bucketed into a 3D spatial hash at each coarse time step so
+ * only neighbouring objects are compared, candidates are refined to the time
+ * of closest approach. The time steps are split between the threads of a pool.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import jsattrak.objects.AbstractSatellite;
+import jsattrak.objects.SatelliteTleSGP4;
+import jsattrak.utilities.DaemonThreadFactory;
+import jsattrak.utilities.TLE;
+import name.gano.astro.AstroConst;
+import name.gano.astro.propogators.sgp4_cssi.SGP4SatData;
+import name.gano.astro.propogators.sgp4_cssi.SGP4batch;
+import name.gano.astro.propogators.sgp4_cssi.SGP4unit;
+import name.gano.astro.propogators.sgp4_cssi.SGP4utils;
+
+/**
+ * Finds every approach of two satellites closer than the screening distance between
+ * two times, e.g. for all the satellites loaded: new ConjunctionScreener(start, stop, satHash.values()).
+ * <p>
+ * The interval is cut into coarse time steps, all satellites are propagated to the
+ * middle of each (TLE satellites with SGP4batch). Over half a step a pair can close in
+ * at most by the largest relative speed (twice the highest speed at perigee of all
+ * satellites) and by what the gravity can change that speed, so positions are bucketed
+ * into a spatial hash with cells that size plus the screening distance and only pairs
+ * in neighbouring cells are compared. A pair is then
+ * <ul>
+ * <li>dropped by the apogee/perigee filter if the radius ranges of the two orbits (with
+ * margins, see OrbitBounds) are further apart than the screening distance,</li>
+ * <li>dropped by the path filter if the closest approach of their relative straight line
+ * path over the step, less the bound of the gravity bending it, is beyond the screening
+ * distance,</li>
+ * <li>otherwise refined: if the range rate changes sign within the step the time of closest
+ * approach (TCA) is found (Illinois false position, to 1 ms) and reported if the miss
+ * distance is within the screening distance.</li>
+ * </ul>
+ * The steps of a pair do not overlap so each approach is found once. Approaches at the
+ * very start or end of the interval (range rate not changing sign) are not reported, nor
+ * is a second minimum within the same step (satellites flying in formation).
+ * <p>
+ * Non TLE satellites are propagated with calculateTemePositionFromUT (which does not
+ * change them), their velocity by a central difference, their radius is not bounded and
+ * their speed is assumed below 12 km/s.
+ * <p>
+ * The satellites are read when the screener is created, run() can be called from any
+ * thread (it blocks until done or cancelled). The conjunctions are sorted by TCA.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class ConjunctionScreener
+{
+    /**
+     * Progress of a running screening (called from the worker threads)
+     */
+    public interface ProgressListener
+    {
+        /**
+         * @param stepsDone time steps finished so far
+         * @param totalSteps time steps of the screening
+         */
+        void progress(int stepsDone, int totalSteps);
+    }
+
+    private static final double UNKNOWN_MAX_SPEED = 12000.0; // [m/s] non TLE satellites
+    private static final double TCA_TOLERANCE = 1.0E-3/(24.0*60.0*60.0); // 1 ms (in units of a day)
+    private static final double VELOCITY_STEP = 0.5/(24.0*60.0*60.0); // central difference half step for non TLE satellites [days]
+    private static final int MAX_TCA_ITERATIONS = 100;
+
+    // time interval
+    private final double startJulDate;
+    private final double stopJulDate;
+
+    // satellites as read at creation: TLE satellites (in batch order) then the others
+    private final TLE[] tles;
+    private final AbstractSatellite[] others;
+    private final String[] names;
+    private final double[] rMin; // [m]
+    private final double[] rMax; // [m]
+    private final double maxRelativeSpeed; // [m/s]
+    private final double maxRelativeAcceleration; // [m/s^2]
+
+    // settings
+    private double screeningDistance = 10000.0; // [m]
+    private double timeStepSec = 60.0; // coarse time step
+
+    // threading
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private int tasksPerThread = 4; // more tasks than threads to balance the load
+
+    private ProgressListener progressListener;
+    private final AtomicInteger stepsDone = new AtomicInteger();
+    private final AtomicLong pairsCompared = new AtomicLong();
+    private final AtomicLong pairsRefined = new AtomicLong();
+    private volatile boolean cancelled = false;
+    private volatile boolean failed = false; // a task threw an error
+
+    // results
+    private List<Conjunction> conjunctions;
+
+    /**
+     * Creates a screening
+     * @param startJulDate start julian date
+     * @param stopJulDate stop julian date
+     * @param satellites satellites (TLEs that can not be loaded are left out)
+     */
+    public ConjunctionScreener(double startJulDate, double stopJulDate, Collection<AbstractSatellite> satellites)
+    {
+        this.startJulDate = startJulDate;
+        this.stopJulDate = Math.max(startJulDate, stopJulDate);
+
+        List<TLE> tleList = new ArrayList<TLE>();
+        List<AbstractSatellite> otherList = new ArrayList<AbstractSatellite>();
+        List<OrbitBounds> bounds = new ArrayList<OrbitBounds>();
+        for(AbstractSatellite sat : satellites)
+        {
+            if(sat instanceof SatelliteTleSGP4)
+            {
+                TLE tle = ((SatelliteTleSGP4)sat).getTle();
+                SGP4SatData data = loadTle(tle);
+                if(data != null)
+                {
+                    tleList.add(tle);
+                    bounds.add(new OrbitBounds(data));
+                }
+            }
+            else
+            {
+                otherList.add(sat);
+            }
+        }
+
+        tles = tleList.toArray(new TLE[tleList.size()]);
+        others = otherList.toArray(new AbstractSatellite[otherList.size()]);
+        int n = tles.length + others.length;
+        names = new String[n];
+        rMin = new double[n];
+        rMax = new double[n];
+
+        double maxSpeed = (others.length > 0) ? UNKNOWN_MAX_SPEED : 0.0;
+        double lowest = AstroConst.R_Earth;
+        for(int i = 0; i < tles.length; i++)
+        {
+            OrbitBounds b = bounds.get(i);
+            names[i] = tles[i].getSatName();
+            rMin[i] = b.rMin;
+            rMax[i] = b.rMax;
+            maxSpeed = Math.max(maxSpeed, b.vMax);
+            lowest = Math.min(lowest, b.rMin);
+        }
+        for(int i = 0; i < others.length; i++)
+        {
+            names[tles.length + i] = others[i].getName();
+            rMin[tles.length + i] = 0.0;
+            rMax[tles.length + i] = Double.POSITIVE_INFINITY;
+        }
+
+        maxRelativeSpeed = 2.0*maxSpeed;
+        // both satellites pulled by the Earth (plus 1% for J2)
+        maxRelativeAcceleration = 2.0*1.01*AstroConst.GM_Earth/(lowest*lowest);
+    } // ConjunctionScreener
+
+    /**
+     * Runs the screening, blocks until all time steps are done
+     * @return true if finished, false if cancelled, interrupted or a task failed (see isFailed)
+     */
+    public boolean run()
+    {
+        stepsDone.set(0);
+        pairsCompared.set(0);
+        pairsRefined.set(0);
+        int nThreads = Math.max(1, numThreads);
+
+        // tasks of consecutive time steps
+        double stepDays = timeStepSec/(24.0*60.0*60.0);
+        final int numSteps = Math.max(1, (int)Math.ceil((stopJulDate - startJulDate)/stepDays - 1.0E-9));
+        int numTasks = Math.min(numSteps, (nThreads == 1) ? 1 : nThreads*tasksPerThread);
+        List<Callable<List<Conjunction>>> tasks = new ArrayList<Callable<List<Conjunction>>>();
+        for(int t = 0; t < numTasks; t++)
+        {
+            final int from = (int)((long)numSteps*t/numTasks);
+            final int to = (int)((long)numSteps*(t + 1)/numTasks);
+            tasks.add(new Callable<List<Conjunction>>()
+            {
+                public List<Conjunction> call()
+                {
+                    return screen(from, to, numSteps);
+                }
+            });
+        }
+
+        List<Conjunction> all = new ArrayList<Conjunction>();
+        if(tasks.size() <= 1)
+        {
+            for(Callable<List<Conjunction>> task : tasks)
+            {
+                try
+                {
+                    List<Conjunction> found = task.call();
+                    if(found != null)
+                    {
+                        all.addAll(found);
+                    }
+                }
+                catch(Exception e)
+                {
+                    DaemonThreadFactory.printTaskError("conjunction screening", e);
+                    failed = true;
+                    break;
+                }
+            }
+        }
+        else
+        {
+            ExecutorService executor = createExecutor(Math.min(nThreads, tasks.size()));
+            try
+            {
+                List<Future<List<Conjunction>>> results = executor.invokeAll(tasks);
+                for(Future<List<Conjunction>> f : results)
+                {
+                    List<Conjunction> found = f.get(); // re-throws any error from the task
+                    if(found != null)
+                    {
+                        all.addAll(found);
+                    }
+                }
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            }
+            catch(ExecutionException e)
+            {
+                DaemonThreadFactory.printTaskError("conjunction screening", e);
+                failed = true;
+            }
+            finally
+            {
+                executor.shutdown();
+            }
+        }
+
+        if(cancelled || failed)
+        {
+            return false; // no partial results
+        }
+
+        Collections.sort(all, new Comparator<Conjunction>()
+        {
+            public int compare(Conjunction c1, Conjunction c2)
+            {
+                return Double.compare(c1.getTcaJulDate(), c2.getTcaJulDate());
+            }
+        });
+        conjunctions = all;
+        return true;
+    } // run
+
+    // screens the time steps from .. to-1 (step k is start + k*step to start + (k+1)*step), null if cancelled
+    private List<Conjunction> screen(int from, int to, int numSteps)
+    {
+        List<Conjunction> found = new ArrayList<Conjunction>();
+        Propagator prop = new Propagator();
+        int n = names.length;
+        double stepDays = timeStepSec/(24.0*60.0*60.0);
+
+        double[] pos = new double[3*n]; // [m] at the middle of the step
+        double[] vel = new double[3*n]; // [m/s]
+        boolean[] known = new boolean[n];
+
+        // spatial hash: open addressing on the cell key, the satellites of a cell are chained through next
+        int tableSize = Integer.highestOneBit(Math.max(16, 2*n))*2;
+        int tableBits = Integer.numberOfTrailingZeros(tableSize);
+        long[] cellKeys = new long[tableSize];
+        int[] heads = new int[tableSize];
+        int[] next = new int[n];
+        long[] satCell = new long[n];
+
+        for(int k = from; k < to; k++)
+        {
+            if(cancelled)
+            {
+                return null;
+            }
+
+            double stepStart = startJulDate + k*stepDays;
+            double stepStop = Math.min(stopJulDate, stepStart + stepDays);
+            double julDate = (stepStart + stepStop)/2.0;
+            double halfStep = (stepStop - stepStart)/2.0*(24.0*60.0*60.0); // [s]
+
+            prop.propagateAll(julDate, pos, vel, known);
+
+            // cells large enough that a pair which can get within the screening distance is in neighbouring cells
+            double bending = 0.5*maxRelativeAcceleration*halfStep*halfStep;
+            double cellSize = screeningDistance + maxRelativeSpeed*halfStep + bending;
+
+            Arrays.fill(heads, -1);
+            for(int i = 0; i < n; i++)
+            {
+                if(!known[i])
+                {
+                    continue;
+                }
+                long key = cellKey((long)Math.floor(pos[3*i]/cellSize), (long)Math.floor(pos[3*i+1]/cellSize), (long)Math.floor(pos[3*i+2]/cellSize));
+                satCell[i] = key;
+                int slot = findSlot(cellKeys, heads, key, tableBits);
+                cellKeys[slot] = key;
+                next[i] = heads[slot];
+                heads[slot] = i;
+            }
+
+            // pairs in neighbouring cells
+            long compared = 0;
+            for(int i = 0; i < n; i++)
+            {
+                if(!known[i])
+                {
+                    continue;
+                }
+                long key = satCell[i];
+                for(long dx = -1; dx <= 1; dx++)
+                {
+                    for(long dy = -1; dy <= 1; dy++)
+                    {
+                        for(long dz = -1; dz <= 1; dz++)
+                        {
+                            long neighbour = key + (dx << 42) + (dy << 21) + dz;
+                            int slot = findSlot(cellKeys, heads, neighbour, tableBits);
+                            for(int j = heads[slot]; j >= 0; j = next[j])
+                            {
+                                if(j <= i)
+                                {
+                                    continue;
+                                }
+                                compared++;
+
+                                // apogee/perigee filter
+                                if(rMin[j] > rMax[i] + screeningDistance || rMin[i] > rMax[j] + screeningDistance)
+                                {
+                                    continue;
+                                }
+
+                                // path filter: closest approach of the straight relative path over the step
+                                double rx = pos[3*j] - pos[3*i];
+                                double ry = pos[3*j+1] - pos[3*i+1];
+                                double rz = pos[3*j+2] - pos[3*i+2];
+                                double vx = vel[3*j] - vel[3*i];
+                                double vy = vel[3*j+1] - vel[3*i+1];
+                                double vz = vel[3*j+2] - vel[3*i+2];
+                                double vv = vx*vx + vy*vy + vz*vz;
+                                double tau = (vv > 0) ? -(rx*vx + ry*vy + rz*vz)/vv : 0.0;
+                                tau = Math.max(-halfStep, Math.min(halfStep, tau));
+                                double cx = rx + vx*tau;
+                                double cy = ry + vy*tau;
+                                double cz = rz + vz*tau;
+                                if(Math.sqrt(cx*cx + cy*cy + cz*cz) - bending > screeningDistance)
+                                {
+                                    continue;
+                                }
+
+                                pairsRefined.incrementAndGet();
+                                Conjunction c = prop.findTca(i, j, stepStart, stepStop);
+                                if(c != null)
+                                {
+                                    found.add(c);
+                                }
+                            }
+                        }
+                    }
+                }
+            } // pairs
+            pairsCompared.addAndGet(compared);
+
+            int done = stepsDone.incrementAndGet();
+            ProgressListener listener = progressListener;
+            if(listener != null)
+            {
+                listener.progress(done, numSteps);
+            }
+        } // for each step
+
+        return found;
+    } // screen
+
+    // key of a cell, 21 bits per coordinate (cells up to 2^20 away from the center of the Earth)
+    private static long cellKey(long ix, long iy, long iz)
+    {
+        return ((ix + (1L << 20)) << 42) + ((iy + (1L << 20)) << 21) + (iz + (1L << 20));
+    }
+
+    // slot of a cell key in the hash table, or the empty slot it would go in
+    private static int findSlot(long[] cellKeys, int[] heads, long key, int tableBits)
+    {
+        int mask = (1 << tableBits) - 1;
+        int slot = (int)((key*0x9E3779B97F4A7C15L) >>> (64 - tableBits));
+        while(heads[slot] >= 0 && cellKeys[slot] != key)
+        {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    } // findSlot
+
+    // own propagators of one task (SGP4 writes into the deep space satellite data)
+    private class Propagator
+    {
+        private final SGP4batch batch;
+        private final double[] batchPos;
+        private final double[] batchVel;
+
+        // states of a pair during the TCA search
+        private final double[] r1 = new double[3];
+        private final double[] v1 = new double[3];
+        private final double[] r2 = new double[3];
+        private final double[] v2 = new double[3];
+
+        Propagator()
+        {
+            SGP4SatData[] data = new SGP4SatData[tles.length];
+            for(int i = 0; i < tles.length; i++)
+            {
+                data[i] = loadTle(tles[i]);
+            }
+            batch = new SGP4batch(data);
+            batchPos = new double[3*tles.length];
+            batchVel = new double[3*tles.length];
+        }
+
+        // all satellites at a time [m], [m/s]
+        void propagateAll(double julDate, double[] pos, double[] vel, boolean[] known)
+        {
+            batch.sgp4Prop2JD(julDate, batchPos, batchVel);
+            for(int i = 0; i < tles.length; i++)
+            {
+                known[i] = batch.getError(i) == 0;
+                for(int c = 3*i; c < 3*i + 3; c++)
+                {
+                    pos[c] = batchPos[c]*1000.0;
+                    vel[c] = batchVel[c]*1000.0;
+                }
+            }
+            double[] r = new double[3];
+            double[] v = new double[3];
+            for(int i = tles.length; i < names.length; i++)
+            {
+                known[i] = state(i, julDate, r, v);
+                System.arraycopy(r, 0, pos, 3*i, 3);
+                System.arraycopy(v, 0, vel, 3*i, 3);
+            }
+        } // propagateAll
+
+        // one satellite at a time [m], [m/s], false if the position is not known
+        boolean state(int i, double julDate, double[] r, double[] v)
+        {
+            if(i < tles.length)
+            {
+                if(batch.sgp4Prop2JD(julDate, batchPos, batchVel, i, i + 1) > 0)
+                {
+                    return false;
+                }
+                for(int c = 0; c < 3; c++)
+                {
+                    r[c] = batchPos[3*i + c]*1000.0;
+                    v[c] = batchVel[3*i + c]*1000.0;
+                }
+                return true;
+            }
+
+            AbstractSatellite sat = others[i - tles.length];
+            double[] p = sat.calculateTemePositionFromUT(julDate);
+            double[] pMinus = sat.calculateTemePositionFromUT(julDate - VELOCITY_STEP);
+            double[] pPlus = sat.calculateTemePositionFromUT(julDate + VELOCITY_STEP);
+            if(!isKnown(p) || !isKnown(pMinus) || !isKnown(pPlus))
+            {
+                return false;
+            }
+            for(int c = 0; c < 3; c++)
+            {
+                r[c] = p[c];
+                v[c] = (pPlus[c] - pMinus[c])/(2.0*VELOCITY_STEP*24.0*60.0*60.0);
+            }
+            return true;
+        } // state
+
+        // range rate times range (relative position dot relative velocity) [m^2/s], NaN if a position is not known
+        private double rangeRate(int i, int j, double julDate)
+        {
+            if(!state(i, julDate, r1, v1) || !state(j, julDate, r2, v2))
+            {
+                return Double.NaN;
+            }
+            return (r2[0] - r1[0])*(v2[0] - v1[0]) + (r2[1] - r1[1])*(v2[1] - v1[1]) + (r2[2] - r1[2])*(v2[2] - v1[2]);
+        }
+
+        // closest approach of a pair within a step, null if the distance has no minimum in it or it is beyond the screening distance
+        Conjunction findTca(int i, int j, double time0, double time1)
+        {
+            double f0 = rangeRate(i, j, time0);
+            double f1 = rangeRate(i, j, time1);
+            if(!(f0 < 0 && f1 >= 0)) // closing at the start, opening at the end (NaN fails too)
+            {
+                return null;
+            }
+
+            // Illinois false position on the range rate
+            int side = 0;
+            for(int iter = 0; iter < MAX_TCA_ITERATIONS && time1 - time0 > TCA_TOLERANCE; iter++)
+            {
+                double t = time1 - f1*(time1 - time0)/(f1 - f0);
+                if(!(t > time0 && t < time1))
+                {
+                    t = (time0 + time1)/2.0;
+                }
+                double ft = rangeRate(i, j, t);
+                if(Double.isNaN(ft))
+                {
+                    return null;
+                }
+                if(ft < 0)
+                {
+                    time0 = t;
+                    f0 = ft;
+                    if(side == -1)
+                    {
+                        f1 /= 2.0;
+                    }
+                    side = -1;
+                }
+                else
+                {
+                    time1 = t;
+                    f1 = ft;
+                    if(side == 1)
+                    {
+                        f0 /= 2.0;
+                    }
+                    side = 1;
+                }
+            }
+
+            double tca = (Math.abs(f0) < Math.abs(f1)) ? time0 : time1;
+            if(Double.isNaN(rangeRate(i, j, tca)))
+            {
+                return null;
+            }
+            double dx = r2[0] - r1[0];
+            double dy = r2[1] - r1[1];
+            double dz = r2[2] - r1[2];
+            double missDistance = Math.sqrt(dx*dx + dy*dy + dz*dz);
+            if(missDistance > screeningDistance)
+            {
+                return null;
+            }
+            double wx = v2[0] - v1[0];
+            double wy = v2[1] - v1[1];
+            double wz = v2[2] - v1[2];
+            return new Conjunction(names[i], names[j], tca, missDistance, Math.sqrt(wx*wx + wy*wy + wz*wz));
+        } // findTca
+    } // Propagator
+
+    private static boolean isKnown(double[] p)
+    {
+        return p != null && !(p[0] == 0 && p[1] == 0 && p[2] == 0);
+    }
+
+    // new SGP4 data for a TLE, null if it can not be loaded
+    private static SGP4SatData loadTle(TLE tle)
+    {
+        // options - hard coded (as SatelliteTleSGP4)
+        char opsmode = SGP4utils.OPSMODE_IMPROVED;
+        SGP4unit.Gravconsttype gravconsttype = SGP4unit.Gravconsttype.wgs72;
+        SGP4SatData data = new SGP4SatData();
+        if(!SGP4utils.readTLEandIniSGP4(tle.getSatName(), tle.getLine1(), tle.getLine2(), opsmode, gravconsttype, data))
+        {
+            System.out.println("Error loading TLE for conjunction screening: " + tle.getSatName() + ", error code: " + data.error);
+            return null;
+        }
+        return data;
+    } // loadTle
+
+    private static ExecutorService createExecutor(int nThreads)
+    {
+        return Executors.newFixedThreadPool(nThreads, new DaemonThreadFactory("JSatTrak-conjunctions-"));
+    } // createExecutor
+
+    /**
+     * Stops a running screening (run() returns false)
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * @return true if a task of the last run failed with an error (run() returned false without being cancelled, no conjunctions are kept)
+     */
+    public boolean isFailed()
+    {
+        return failed;
+    }
+
+    /**
+     * @return conjunctions sorted by time of closest approach, null until run() finishes
+     */
+    public List<Conjunction> getConjunctions()
+    {
+        return conjunctions;
+    }
+
+    public double getStartJulDate()
+    {
+        return startJulDate;
+    }
+
+    public double getStopJulDate()
+    {
+        return stopJulDate;
+    }
+
+    public double getScreeningDistance()
+    {
+        return screeningDistance;
+    }
+
+    /**
+     * @param screeningDistance approaches closer than this are reported [m]
+     */
+    public void setScreeningDistance(double screeningDistance)
+    {
+        this.screeningDistance = screeningDistance;
+    }
+
+    public double getTimeStepSec()
+    {
+        return timeStepSec;
+    }
+
+    /**
+     * @param timeStepSec coarse time step [sec], longer steps mean larger cells (more pairs compared) but fewer propagations
+     */
+    public void setTimeStepSec(double timeStepSec)
+    {
+        this.timeStepSec = timeStepSec;
+    }
+
+    public void setProgressListener(ProgressListener progressListener)
+    {
+        this.progressListener = progressListener;
+    }
+
+    public int getNumThreads()
+    {
+        return numThreads;
+    }
+
+    /**
+     * @param numThreads number of worker threads (1 runs all steps in the calling thread)
+     */
+    public void setNumThreads(int numThreads)
+    {
+        this.numThreads = numThreads;
+    }
+
+    public int getTasksPerThread()
+    {
+        return tasksPerThread;
+    }
+
+    public void setTasksPerThread(int tasksPerThread)
+    {
+        this.tasksPerThread = tasksPerThread;
+    }
+
+    /**
+     * @return number of satellites screened (TLEs that could not be loaded are left out)
+     */
+    public int getNumSatellites()
+    {
+        return names.length;
+    }
+
+    /**
+     * @return pairs in neighbouring cells compared in the last run (over all time steps)
+     */
+    public long getNumPairsCompared()
+    {
+        return pairsCompared.get();
+    }
+
+    /**
+     * @return pairs that passed the filters and were refined in the last run (over all time steps)
+     */
+    public long getNumPairsRefined()
+    {
+        return pairsRefined.get();
+    }
+
+} // ConjunctionScreener
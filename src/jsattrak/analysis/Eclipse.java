@@ -0,0 +1,134 @@
+/*
+ * Eclipse.java
+ *
+ * One pass of a satellite through the Earth's shadow found by EclipseFinder:
+ * penumbra and umbra entry and exit times.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.analysis;
+
+/**
+ * An eclipse found by EclipseFinder. The satellite is in the penumbra from the penumbra
+ * entry to the penumbra exit (part of the Sun hidden by the Earth) and in the umbra from
+ * the umbra entry to the umbra exit (all of it hidden), a penumbral eclipse never enters
+ * the umbra. An eclipse already going on at the start of the search has no entry (NaN)
+ * and one still going on at the end has no exit (NaN). Times are julian dates.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class Eclipse
+{
+    private final String satelliteName;
+
+    private final double penumbraEntryJulDate;
+    private final double umbraEntryJulDate;
+    private final double umbraExitJulDate;
+    private final double penumbraExitJulDate;
+    private final boolean umbra;
+
+    Eclipse(String satelliteName, double penumbraEntryJulDate, double umbraEntryJulDate,
+            double umbraExitJulDate, double penumbraExitJulDate, boolean umbra)
+    {
+        this.satelliteName = satelliteName;
+        this.penumbraEntryJulDate = penumbraEntryJulDate;
+        this.umbraEntryJulDate = umbraEntryJulDate;
+        this.umbraExitJulDate = umbraExitJulDate;
+        this.penumbraExitJulDate = penumbraExitJulDate;
+        this.umbra = umbra;
+    } // Eclipse
+
+    public String getSatelliteName()
+    {
+        return satelliteName;
+    }
+
+    /**
+     * @return time the satellite enters the penumbra (NaN if already in the shadow at the start of the search)
+     */
+    public double getPenumbraEntryJulDate()
+    {
+        return penumbraEntryJulDate;
+    }
+
+    /**
+     * @return time the satellite enters the umbra (NaN if penumbral or already in the umbra at the start of the search)
+     */
+    public double getUmbraEntryJulDate()
+    {
+        return umbraEntryJulDate;
+    }
+
+    /**
+     * @return time the satellite leaves the umbra (NaN if penumbral or still in the umbra at the end of the search)
+     */
+    public double getUmbraExitJulDate()
+    {
+        return umbraExitJulDate;
+    }
+
+    /**
+     * @return time the satellite leaves the penumbra (NaN if still in the shadow at the end of the search)
+     */
+    public double getPenumbraExitJulDate()
+    {
+        return penumbraExitJulDate;
+    }
+
+    /**
+     * @return true if the satellite is in the umbra during the eclipse, false for a penumbral eclipse
+     */
+    public boolean isUmbral()
+    {
+        return umbra;
+    }
+
+    /**
+     * @return true if both the entry and the exit are inside the search interval
+     */
+    public boolean isComplete()
+    {
+        return !Double.isNaN(penumbraEntryJulDate) && !Double.isNaN(penumbraExitJulDate);
+    }
+
+    /**
+     * @return time from penumbra entry to exit [sec] (NaN if the eclipse is not complete)
+     */
+    public double getDurationSec()
+    {
+        return (penumbraExitJulDate - penumbraEntryJulDate)*24.0*60.0*60.0;
+    }
+
+    /**
+     * @return time from umbra entry to exit [sec] (0 for a penumbral eclipse, NaN if the umbra is not complete)
+     */
+    public double getUmbraDurationSec()
+    {
+        return umbra ? (umbraExitJulDate - umbraEntryJulDate)*24.0*60.0*60.0 : 0.0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return satelliteName + ": penumbra " + penumbraEntryJulDate + " - " + penumbraExitJulDate
+                + (umbra ? ", umbra " + umbraEntryJulDate + " - " + umbraExitJulDate : ", penumbral");
+    }
+
+} // Eclipse
@@ -0,0 +1,879 @@
+/*
+ * EclipseFinder.java
+ *
+ * Eclipse (Earth shadow) entry and exit times and beta angle history of many
+ * satellites over a time interval, with a cached Sun ephemeris. The satellites
+ * are split between the threads of a pool.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.analysis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import jsattrak.objects.AbstractSatellite;
+import jsattrak.objects.SatelliteTleSGP4;
+import jsattrak.utilities.DaemonThreadFactory;
+import jsattrak.utilities.TLE;
+import name.gano.astro.AstroConst;
+import name.gano.astro.bodies.Sun;
+import name.gano.astro.coordinates.CoordinateConversion;
+import name.gano.astro.propogators.sgp4_cssi.SGP4SatData;
+import name.gano.astro.propogators.sgp4_cssi.SGP4unit;
+import name.gano.astro.propogators.sgp4_cssi.SGP4utils;
+import name.gano.astro.time.Time;
+
+/**
+ * Finds the eclipses of satellites between two times and their beta angle (angle between
+ * the orbit plane and the Sun direction) at regular times, e.g. for all the satellites
+ * loaded: new EclipseFinder(start, stop, satHash.values()).
+ * <p>
+ * The shadow is the cone of the Earth (a sphere of the equatorial radius) and the Sun:
+ * seen from the satellite the two disks overlap in the penumbra and the Earth's disk
+ * covers the Sun's in the umbra. The Sun position (low precision series, TEME) is
+ * computed once every hour over the interval and interpolated, it turns less than
+ * 0.05 degrees in that time.
+ * <p>
+ * Each satellite is sampled every time step (TLE satellites through the SGP4 time series
+ * call in blocks, no allocation per point). A sign change of the angle between the disks
+ * less the sum (or difference) of their radii brackets a penumbra (or umbra) entry or
+ * exit, which is refined by false position (Illinois) to 10 ms. A shadow function with
+ * a lowest sample still outside the shadow, but closer to it than the function can change
+ * in a time step (from the orbit bounds, see OrbitBounds), is minimized by a golden
+ * section search so short grazing eclipses are not missed. Other satellites are searched
+ * at every lowest sample.
+ * <p>
+ * The beta angle is found from the angular momentum (TEME position cross velocity, by a
+ * central difference for non TLE satellites) every beta time step, NaN where the position
+ * is not known. The search of a satellite stops at the first time its position is not
+ * known (e.g. decayed).
+ * <p>
+ * Each satellite is a task propagating its own copy (TLE satellites are re-initialized
+ * from their TLE, other satellites are asked for calculateTemePositionFromUT which does
+ * not change them). The eclipses are listed by satellite (in the order given), then time,
+ * whatever the number of threads. The satellites are read when the finder is created,
+ * run() can be called from any thread (it blocks until done or cancelled).
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class EclipseFinder
+{
+    /**
+     * Progress of a running search (called from the worker threads)
+     */
+    public interface ProgressListener
+    {
+        /**
+         * @param satellitesDone satellites finished so far
+         * @param totalSatellites satellites of the search
+         */
+        void progress(int satellitesDone, int totalSatellites);
+    }
+
+    private static final double ROOT_TOLERANCE = 1.0E-2/(24.0*60.0*60.0); // 10 ms (in units of a day)
+    private static final double MINIMUM_TOLERANCE = 0.1/(24.0*60.0*60.0); // golden section search of a graze
+    private static final double GOLDEN = (Math.sqrt(5.0) - 1.0)/2.0;
+    private static final double SUN_STEP = 1.0/24.0; // Sun ephemeris step [days]
+    private static final double SUN_RATE = 1.0E-6; // [rad/s] more than the Sun's direction and radius, seen from the satellite, can change
+    private static final double VELOCITY_STEP = 0.5/(24.0*60.0*60.0); // central difference half step for non TLE satellites [days]
+    private static final int MAX_ROOT_ITERATIONS = 100;
+    private static final int BLOCK_SIZE = 720; // time series points propagated in one call
+
+    // time interval
+    private final double startJulDate;
+    private final double stopJulDate;
+
+    // satellites as read at creation
+    private final SatelliteSource[] satellites;
+
+    // Sun ephemeris: TEME position [m] at sunStartJulDate + k*SUN_STEP
+    private final double sunStartJulDate;
+    private final double[] sunTeme;
+
+    // settings
+    private double timeStepSec = 30.0; // shadow sampling step
+    private double betaStepSec = 60.0*60.0; // beta angle output step
+
+    // threading
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+
+    private ProgressListener progressListener;
+    private final AtomicInteger satellitesDone = new AtomicInteger();
+    private volatile boolean cancelled = false;
+    private volatile boolean failed = false; // a task threw an error
+
+    // results
+    private List<Eclipse> eclipses;
+    private Map<String, double[]> betaAngles;
+    private int numBetaSteps;
+
+    // a satellite as read at creation
+    private static class SatelliteSource
+    {
+        final String name;
+        final TLE tle; // null for non TLE satellites
+        final AbstractSatellite sat;
+
+        SatelliteSource(AbstractSatellite sat)
+        {
+            this.name = sat.getName();
+            this.tle = (sat instanceof SatelliteTleSGP4) ? ((SatelliteTleSGP4)sat).getTle() : null;
+            this.sat = sat;
+        }
+    }
+
+    // eclipses and beta angles of one satellite
+    private static class SatelliteResult
+    {
+        final String name;
+        final List<Eclipse> eclipses = new ArrayList<Eclipse>();
+        double[] betaAngles;
+
+        SatelliteResult(String name)
+        {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Creates an eclipse search
+     * @param startJulDate start julian date
+     * @param stopJulDate stop julian date
+     * @param satellites satellites
+     */
+    public EclipseFinder(double startJulDate, double stopJulDate, Collection<AbstractSatellite> satellites)
+    {
+        this.startJulDate = startJulDate;
+        this.stopJulDate = Math.max(startJulDate, stopJulDate);
+
+        this.satellites = new SatelliteSource[satellites.size()];
+        int s = 0;
+        for(AbstractSatellite sat : satellites)
+        {
+            this.satellites[s++] = new SatelliteSource(sat);
+        }
+
+        // Sun ephemeris with a step to spare on both sides
+        sunStartJulDate = this.startJulDate - SUN_STEP;
+        int numSun = (int)Math.ceil((this.stopJulDate - this.startJulDate)/SUN_STEP) + 3;
+        sunTeme = new double[3*numSun];
+        for(int k = 0; k < numSun; k++)
+        {
+            double mjd = sunStartJulDate + k*SUN_STEP - AstroConst.JDminusMJD;
+            double[] j2k = Sun.calculateSunPositionLowTT(mjd + Time.deltaT(mjd)); // TT from UT
+            double[] teme = CoordinateConversion.J2000toTEME(mjd, j2k);
+            System.arraycopy(teme, 0, sunTeme, 3*k, 3);
+        }
+    } // EclipseFinder
+
+    /**
+     * Runs the search, blocks until all satellites are done
+     * @return true if finished, false if cancelled, interrupted or a task failed (see isFailed)
+     */
+    public boolean run()
+    {
+        satellitesDone.set(0);
+        int nThreads = Math.max(1, numThreads);
+
+        final int numBeta = Math.max(1, (int)Math.ceil((stopJulDate - startJulDate)*24.0*60.0*60.0/betaStepSec - 1.0E-9));
+
+        List<Callable<SatelliteResult>> tasks = new ArrayList<Callable<SatelliteResult>>();
+        for(final SatelliteSource sat : satellites)
+        {
+            tasks.add(new Callable<SatelliteResult>()
+            {
+                public SatelliteResult call()
+                {
+                    return search(sat, numBeta);
+                }
+            });
+        }
+
+        List<SatelliteResult> results = new ArrayList<SatelliteResult>();
+        if(nThreads == 1 || tasks.size() <= 1)
+        {
+            for(Callable<SatelliteResult> task : tasks)
+            {
+                try
+                {
+                    SatelliteResult result = task.call();
+                    if(result != null)
+                    {
+                        results.add(result);
+                    }
+                }
+                catch(Exception e)
+                {
+                    DaemonThreadFactory.printTaskError("eclipse search", e);
+                    failed = true;
+                    break;
+                }
+            }
+        }
+        else
+        {
+            ExecutorService executor = createExecutor(Math.min(nThreads, tasks.size()));
+            try
+            {
+                List<Future<SatelliteResult>> futures = executor.invokeAll(tasks);
+                for(Future<SatelliteResult> f : futures)
+                {
+                    SatelliteResult result = f.get(); // re-throws any error from the task
+                    if(result != null)
+                    {
+                        results.add(result);
+                    }
+                }
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            }
+            catch(ExecutionException e)
+            {
+                DaemonThreadFactory.printTaskError("eclipse search", e);
+                failed = true;
+            }
+            finally
+            {
+                executor.shutdown();
+            }
+        }
+
+        if(cancelled || failed)
+        {
+            return false; // no partial results
+        }
+
+        List<Eclipse> all = new ArrayList<Eclipse>();
+        Map<String, double[]> beta = new LinkedHashMap<String, double[]>();
+        for(SatelliteResult result : results)
+        {
+            all.addAll(result.eclipses);
+            if(result.betaAngles != null)
+            {
+                beta.put(result.name, result.betaAngles);
+            }
+        }
+        eclipses = all;
+        betaAngles = beta;
+        numBetaSteps = numBeta;
+        return true;
+    } // run
+
+    // eclipses and beta angles of one satellite, null if cancelled
+    private SatelliteResult search(SatelliteSource source, int numBeta)
+    {
+        SatelliteResult result = new SatelliteResult(source.name);
+        Propagator prop = createPropagator(source);
+        if(prop != null)
+        {
+            double[] pos = new double[3*BLOCK_SIZE];
+            double[] vel = new double[3*BLOCK_SIZE];
+            if(!findEclipses(source, prop, pos, result.eclipses))
+            {
+                return null;
+            }
+            result.betaAngles = findBetaAngles(prop, numBeta, pos, vel);
+            if(result.betaAngles == null)
+            {
+                return null;
+            }
+        }
+
+        int done = satellitesDone.incrementAndGet();
+        ProgressListener listener = progressListener;
+        if(listener != null)
+        {
+            listener.progress(done, satellites.length);
+        }
+        return result;
+    } // search
+
+    // shadow search over the whole interval, false if cancelled
+    private boolean findEclipses(SatelliteSource source, Propagator prop, double[] pos, List<Eclipse> found)
+    {
+        int n = Math.max(1, (int)Math.ceil((stopJulDate - startJulDate)*24.0*60.0*60.0/timeStepSec - 1.0E-9));
+        double step = (stopJulDate - startJulDate)/n;
+        double grazeLimit = prop.maxShadowRate*step*24.0*60.0*60.0; // most a shadow function can dip below a sample [rad]
+
+        double[] sun = new double[3];
+        double[] g = new double[2];
+
+        // last two samples: time, penumbra and umbra functions
+        double t1 = Double.NaN;
+        double p1 = Double.NaN;
+        double u1 = Double.NaN;
+        double t2 = Double.NaN;
+        double p2 = Double.NaN;
+        double u2 = Double.NaN;
+
+        // eclipse going on
+        boolean inPenumbra = false;
+        boolean inUmbra = false;
+        boolean umbra = false;
+        double penumbraEntry = Double.NaN;
+        double umbraEntry = Double.NaN;
+        double umbraExit = Double.NaN;
+
+        for(int from = 0; from <= n; from += BLOCK_SIZE)
+        {
+            if(cancelled)
+            {
+                return false;
+            }
+
+            int count = Math.min(BLOCK_SIZE, n + 1 - from);
+            int known = prop.states(startJulDate + from*step, step, count, pos, null);
+            for(int i = 0; i < known; i++)
+            {
+                double t = (from + i == n) ? stopJulDate : startJulDate + (from + i)*step;
+                sunPosition(t, sun);
+                shadow(pos, i, sun, g);
+                double p0 = g[0];
+                double u0 = g[1];
+
+                if(Double.isNaN(t1))
+                {
+                    // already in the shadow at the start
+                    inPenumbra = p0 < 0;
+                    inUmbra = u0 < 0;
+                    umbra = inUmbra;
+                }
+                else
+                {
+                    // a graze between the samples around the last one
+                    if(!Double.isNaN(t2) && !inPenumbra && p1 < p2 && p1 <= p0 && p1 < grazeLimit)
+                    {
+                        double tm = findMinimum(prop, 0, t2, t);
+                        if(prop.shadow(0, tm) < 0)
+                        {
+                            double entry = findRoot(prop, 0, t2, tm);
+                            double exit = findRoot(prop, 0, tm, t);
+                            boolean grazeUmbra = prop.shadow(1, tm) < 0;
+                            double grazeUmbraEntry = grazeUmbra ? findRoot(prop, 1, t2, tm) : Double.NaN;
+                            double grazeUmbraExit = grazeUmbra ? findRoot(prop, 1, tm, t) : Double.NaN;
+                            found.add(new Eclipse(source.name, entry, grazeUmbraEntry, grazeUmbraExit, exit, grazeUmbra));
+                        }
+                    }
+                    else if(!Double.isNaN(t2) && inPenumbra && !inUmbra && u1 < u2 && u1 <= u0 && u1 < grazeLimit)
+                    {
+                        double tm = findMinimum(prop, 1, t2, t);
+                        if(prop.shadow(1, tm) < 0)
+                        {
+                            double entry = findRoot(prop, 1, t2, tm);
+                            if(!umbra)
+                            {
+                                umbraEntry = entry;
+                            }
+                            umbraExit = findRoot(prop, 1, tm, t);
+                            umbra = true;
+                        }
+                    }
+
+                    // exits, then entries (the umbra is always inside the penumbra)
+                    if(inUmbra && u0 >= 0)
+                    {
+                        umbraExit = findRoot(prop, 1, t1, t);
+                        inUmbra = false;
+                    }
+                    if(inPenumbra && p0 >= 0)
+                    {
+                        double exit = findRoot(prop, 0, t1, t);
+                        found.add(new Eclipse(source.name, penumbraEntry, umbraEntry, umbraExit, exit, umbra));
+                        inPenumbra = false;
+                    }
+                    if(!inPenumbra && p0 < 0)
+                    {
+                        penumbraEntry = findRoot(prop, 0, t1, t);
+                        umbraEntry = Double.NaN;
+                        umbraExit = Double.NaN;
+                        umbra = false;
+                        inPenumbra = true;
+                    }
+                    if(inPenumbra && !inUmbra && u0 < 0)
+                    {
+                        double entry = findRoot(prop, 1, t1, t);
+                        if(!umbra)
+                        {
+                            umbraEntry = entry;
+                        }
+                        umbraExit = Double.NaN;
+                        umbra = true;
+                        inUmbra = true;
+                    }
+                }
+
+                t2 = t1;
+                p2 = p1;
+                u2 = u1;
+                t1 = t;
+                p1 = p0;
+                u1 = u0;
+            } // for each sample
+
+            if(known < count)
+            {
+                System.out.println("Eclipse search of " + source.name + " stopped, position not known at JD: " + (startJulDate + (from + known)*step));
+                break;
+            }
+        } // for each block
+
+        // still in the shadow at the end of the search
+        if(inPenumbra)
+        {
+            found.add(new Eclipse(source.name, penumbraEntry, umbraEntry, inUmbra ? Double.NaN : umbraExit, Double.NaN, umbra));
+        }
+        return true;
+    } // findEclipses
+
+    // beta angles [deg] at startJulDate + k*step, k = 0..numBeta, null if cancelled
+    private double[] findBetaAngles(Propagator prop, int numBeta, double[] pos, double[] vel)
+    {
+        double step = (stopJulDate - startJulDate)/numBeta;
+        double[] beta = new double[numBeta + 1];
+        double[] sun = new double[3];
+
+        for(int from = 0; from <= numBeta; from += BLOCK_SIZE)
+        {
+            if(cancelled)
+            {
+                return null;
+            }
+
+            int count = Math.min(BLOCK_SIZE, numBeta + 1 - from);
+            int known = prop.states(startJulDate + from*step, step, count, pos, vel);
+            for(int i = 0; i < count; i++)
+            {
+                if(i >= known)
+                {
+                    beta[from + i] = Double.NaN;
+                    continue;
+                }
+                double t = (from + i == numBeta) ? stopJulDate : startJulDate + (from + i)*step;
+                sunPosition(t, sun);
+
+                // angular momentum
+                double hx = pos[3*i+1]*vel[3*i+2] - pos[3*i+2]*vel[3*i+1];
+                double hy = pos[3*i+2]*vel[3*i] - pos[3*i]*vel[3*i+2];
+                double hz = pos[3*i]*vel[3*i+1] - pos[3*i+1]*vel[3*i];
+                double sinBeta = (hx*sun[0] + hy*sun[1] + hz*sun[2])
+                        /Math.sqrt((hx*hx + hy*hy + hz*hz)*(sun[0]*sun[0] + sun[1]*sun[1] + sun[2]*sun[2]));
+                beta[from + i] = Math.asin(Math.max(-1.0, Math.min(1.0, sinBeta)))*180.0/Math.PI;
+            }
+        }
+        return beta;
+    } // findBetaAngles
+
+    // interpolated Sun TEME position [m]
+    private void sunPosition(double julDate, double[] sun)
+    {
+        int last = sunTeme.length/3 - 2;
+        double x = (julDate - sunStartJulDate)/SUN_STEP;
+        int k = Math.max(0, Math.min(last, (int)Math.floor(x)));
+        double f = x - k;
+        for(int c = 0; c < 3; c++)
+        {
+            sun[c] = sunTeme[3*k + c] + f*(sunTeme[3*k + 3 + c] - sunTeme[3*k + c]);
+        }
+    } // sunPosition
+
+    // angle between the Earth's and the Sun's disks seen from the satellite (point i of pos) less the sum (g[0], penumbra)
+    // and the difference (g[1], umbra) of their radii [rad], negative in the shadow
+    private static void shadow(double[] pos, int i, double[] sun, double[] g)
+    {
+        double rx = pos[3*i];
+        double ry = pos[3*i+1];
+        double rz = pos[3*i+2];
+        double r2 = rx*rx + ry*ry + rz*rz;
+
+        // satellite to Sun
+        double dx = sun[0] - rx;
+        double dy = sun[1] - ry;
+        double dz = sun[2] - rz;
+
+        // angle between -r and the direction to the Sun
+        double cx = ry*sun[2] - rz*sun[1];
+        double cy = rz*sun[0] - rx*sun[2];
+        double cz = rx*sun[1] - ry*sun[0];
+        double separation = Math.atan2(Math.sqrt(cx*cx + cy*cy + cz*cz), r2 - (rx*sun[0] + ry*sun[1] + rz*sun[2]));
+
+        double sunRadius = Math.asin(AstroConst.R_Sun/Math.sqrt(dx*dx + dy*dy + dz*dz));
+        double earthRadius = Math.asin(Math.min(1.0, AstroConst.R_Earth/Math.sqrt(r2)));
+        g[0] = separation - (earthRadius + sunRadius);
+        g[1] = separation - (earthRadius - sunRadius);
+    } // shadow
+
+    // root of a shadow function (0 penumbra, 1 umbra) with a sign change between time0 and time1 (Illinois false position)
+    private static double findRoot(Propagator prop, int which, double time0, double time1)
+    {
+        double f0 = prop.shadow(which, time0);
+        double f1 = prop.shadow(which, time1);
+        if(Double.isNaN(f0) || Double.isNaN(f1))
+        {
+            return (time0 + time1)/2.0;
+        }
+
+        int side = 0;
+        for(int iter = 0; iter < MAX_ROOT_ITERATIONS && time1 - time0 > ROOT_TOLERANCE; iter++)
+        {
+            double t = time1 - f1*(time1 - time0)/(f1 - f0);
+            if(!(t > time0 && t < time1))
+            {
+                t = (time0 + time1)/2.0;
+            }
+            double ft = prop.shadow(which, t);
+            if(Double.isNaN(ft))
+            {
+                break;
+            }
+            if((ft < 0) == (f0 < 0))
+            {
+                time0 = t;
+                f0 = ft;
+                if(side == -1)
+                {
+                    f1 /= 2.0;
+                }
+                side = -1;
+            }
+            else
+            {
+                time1 = t;
+                f1 = ft;
+                if(side == 1)
+                {
+                    f0 /= 2.0;
+                }
+                side = 1;
+            }
+        }
+        return (Math.abs(f0) < Math.abs(f1)) ? time0 : time1;
+    } // findRoot
+
+    // time of the lowest value of a shadow function between time0 and time1 (golden section)
+    private static double findMinimum(Propagator prop, int which, double time0, double time1)
+    {
+        double a = time0;
+        double b = time1;
+        double c = b - GOLDEN*(b - a);
+        double d = a + GOLDEN*(b - a);
+        double fc = prop.shadow(which, c);
+        double fd = prop.shadow(which, d);
+        while(b - a > MINIMUM_TOLERANCE)
+        {
+            if(fc < fd || Double.isNaN(fd))
+            {
+                b = d;
+                d = c;
+                fd = fc;
+                c = b - GOLDEN*(b - a);
+                fc = prop.shadow(which, c);
+            }
+            else
+            {
+                a = c;
+                c = d;
+                fc = fd;
+                d = a + GOLDEN*(b - a);
+                fd = prop.shadow(which, d);
+            }
+        }
+        return (fc < fd) ? c : d;
+    } // findMinimum
+
+    // own propagator of one task (SGP4 writes into the deep space satellite data)
+    private class Propagator
+    {
+        private final SGP4SatData data; // null for non TLE satellites
+        private final AbstractSatellite sat;
+        final double maxShadowRate; // [rad/s] most a shadow function can change
+
+        private final double[] r = new double[3];
+        private final double[] v = new double[3];
+        private final double[] sun = new double[3];
+        private final double[] g = new double[2];
+
+        Propagator(SGP4SatData data, AbstractSatellite sat)
+        {
+            this.data = data;
+            this.sat = sat;
+
+            if(data != null)
+            {
+                // angular rate of the Earth's direction plus the rate of its radius
+                OrbitBounds bounds = new OrbitBounds(data);
+                double re = AstroConst.R_Earth;
+                double earthRadiusRate = (bounds.rMin > re) ? re*bounds.vMax/(bounds.rMin*Math.sqrt(bounds.rMin*bounds.rMin - re*re)) : Double.POSITIVE_INFINITY;
+                maxShadowRate = bounds.vMax/bounds.rMin + earthRadiusRate + SUN_RATE;
+            }
+            else
+            {
+                maxShadowRate = Double.POSITIVE_INFINITY;
+            }
+        }
+
+        // TEME positions [m] (and velocities [m/s] if vel is not null) at start + i*step, i = 0..count-1,
+        // returns how many from the start are known
+        int states(double start, double step, int count, double[] pos, double[] vel)
+        {
+            if(data != null)
+            {
+                if(!SGP4unit.sgp4Prop2JD(data, start, step, count, pos, vel))
+                {
+                    // find the first point not known
+                    for(int i = 0; i < count; i++)
+                    {
+                        if(!SGP4unit.sgp4Prop2JD(data, start + i*step, r, v))
+                        {
+                            count = i;
+                            break;
+                        }
+                    }
+                }
+                for(int c = 0; c < 3*count; c++)
+                {
+                    pos[c] *= 1000.0;
+                    if(vel != null)
+                    {
+                        vel[c] *= 1000.0;
+                    }
+                }
+                return count;
+            }
+
+            for(int i = 0; i < count; i++)
+            {
+                double julDate = start + i*step;
+                if(!position(julDate, r))
+                {
+                    return i;
+                }
+                System.arraycopy(r, 0, pos, 3*i, 3);
+                if(vel != null)
+                {
+                    double[] pMinus = sat.calculateTemePositionFromUT(julDate - VELOCITY_STEP);
+                    double[] pPlus = sat.calculateTemePositionFromUT(julDate + VELOCITY_STEP);
+                    if(!isKnown(pMinus) || !isKnown(pPlus))
+                    {
+                        return i;
+                    }
+                    for(int c = 0; c < 3; c++)
+                    {
+                        vel[3*i + c] = (pPlus[c] - pMinus[c])/(2.0*VELOCITY_STEP*24.0*60.0*60.0);
+                    }
+                }
+            }
+            return count;
+        } // states
+
+        // TEME position [m], false if it is not known (e.g. decayed or outside of the ephemeris)
+        boolean position(double julDate, double[] pos)
+        {
+            if(data != null)
+            {
+                if(!SGP4unit.sgp4Prop2JD(data, julDate, pos, v))
+                {
+                    return false;
+                }
+                pos[0] *= 1000.0;
+                pos[1] *= 1000.0;
+                pos[2] *= 1000.0;
+                return true;
+            }
+
+            double[] p = sat.calculateTemePositionFromUT(julDate);
+            if(!isKnown(p))
+            {
+                return false;
+            }
+            System.arraycopy(p, 0, pos, 0, 3);
+            return true;
+        } // position
+
+        // shadow function (0 penumbra, 1 umbra) at a time [rad], NaN if the position is not known
+        double shadow(int which, double julDate)
+        {
+            if(!position(julDate, r))
+            {
+                return Double.NaN;
+            }
+            sunPosition(julDate, sun);
+            EclipseFinder.shadow(r, 0, sun, g);
+            return g[which];
+        } // shadow
+    } // Propagator
+
+    private static boolean isKnown(double[] p)
+    {
+        return p != null && !(p[0] == 0 && p[1] == 0 && p[2] == 0);
+    }
+
+    // own propagator for a task, null if the TLE can not be loaded
+    private Propagator createPropagator(SatelliteSource source)
+    {
+        if(source.tle == null)
+        {
+            return new Propagator(null, source.sat);
+        }
+
+        // options - hard coded (as SatelliteTleSGP4)
+        char opsmode = SGP4utils.OPSMODE_IMPROVED;
+        SGP4unit.Gravconsttype gravconsttype = SGP4unit.Gravconsttype.wgs72;
+        SGP4SatData data = new SGP4SatData();
+        if(!SGP4utils.readTLEandIniSGP4(source.tle.getSatName(), source.tle.getLine1(), source.tle.getLine2(), opsmode, gravconsttype, data))
+        {
+            System.out.println("Error loading TLE for eclipse search: " + source.tle.getSatName() + ", error code: " + data.error);
+            return null;
+        }
+        return new Propagator(data, null);
+    } // createPropagator
+
+    private static ExecutorService createExecutor(int nThreads)
+    {
+        return Executors.newFixedThreadPool(nThreads, new DaemonThreadFactory("JSatTrak-eclipses-"));
+    } // createExecutor
+
+    /**
+     * Stops a running search (run() returns false)
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * @return true if a task of the last run failed with an error (run() returned false without being cancelled, no eclipses are kept)
+     */
+    public boolean isFailed()
+    {
+        return failed;
+    }
+
+    /**
+     * @return eclipses by satellite, then time, null until run() finishes
+     */
+    public List<Eclipse> getEclipses()
+    {
+        return eclipses;
+    }
+
+    /**
+     * @param satelliteName satellite name
+     * @return beta angles [deg] at getBetaJulDate(k), k = 0..getNumBetaSteps() (NaN where the position is not known),
+     *         null if the satellite was not searched
+     */
+    public double[] getBetaAngles(String satelliteName)
+    {
+        if(betaAngles == null)
+        {
+            return null;
+        }
+        double[] beta = betaAngles.get(satelliteName);
+        return (beta != null) ? beta.clone() : null;
+    }
+
+    /**
+     * @return number of beta angle steps of the last run (there are one more beta angles)
+     */
+    public int getNumBetaSteps()
+    {
+        return numBetaSteps;
+    }
+
+    /**
+     * @param k beta angle index
+     * @return julian date of beta angle k of the last run (the steps evenly divide the interval)
+     */
+    public double getBetaJulDate(int k)
+    {
+        return (k == numBetaSteps) ? stopJulDate : startJulDate + k*(stopJulDate - startJulDate)/numBetaSteps;
+    }
+
+    public double getStartJulDate()
+    {
+        return startJulDate;
+    }
+
+    public double getStopJulDate()
+    {
+        return stopJulDate;
+    }
+
+    public double getTimeStepSec()
+    {
+        return timeStepSec;
+    }
+
+    /**
+     * @param timeStepSec shadow sampling step [sec] (rounded down to evenly divide the interval)
+     */
+    public void setTimeStepSec(double timeStepSec)
+    {
+        this.timeStepSec = timeStepSec;
+    }
+
+    public double getBetaStepSec()
+    {
+        return betaStepSec;
+    }
+
+    /**
+     * @param betaStepSec beta angle output step [sec] (rounded down to evenly divide the interval)
+     */
+    public void setBetaStepSec(double betaStepSec)
+    {
+        this.betaStepSec = betaStepSec;
+    }
+
+    public void setProgressListener(ProgressListener progressListener)
+    {
+        this.progressListener = progressListener;
+    }
+
+    public int getNumThreads()
+    {
+        return numThreads;
+    }
+
+    /**
+     * @param numThreads number of worker threads (1 runs all satellites in the calling thread)
+     */
+    public void setNumThreads(int numThreads)
+    {
+        this.numThreads = numThreads;
+    }
+
+} // EclipseFinder
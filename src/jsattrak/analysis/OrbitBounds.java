@@ -0,0 +1,58 @@
+/*
+ * OrbitBounds.java
+ *
+ * Bounds on the radius, speed and latitude of a TLE satellite over an analysis
+ * from its mean elements, with margins for what SGP4 adds to the mean orbit.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.analysis;
+
+import name.gano.astro.AstroConst;
+import name.gano.astro.propogators.sgp4_cssi.SGP4SatData;
+
+/**
+ * Perigee/apogee radius, speed at perigee and highest latitude of an SGP4 satellite.
+ * The margins (2% of the radius and 20 km, 5% for deep space satellites, 10% of the
+ * speed) cover the short periodic terms, drag and the sun and moon over analyses of
+ * days to weeks.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+class OrbitBounds
+{
+    final double rMin; // [m]
+    final double rMax; // [m]
+    final double vMax; // [m/s]
+    final double maxLatitude; // [rad] geocentric
+
+    /**
+     * @param data satellite initialized with SGP4utils.readTLEandIniSGP4
+     */
+    OrbitBounds(SGP4SatData data)
+    {
+        double margin = (data.method == 'd') ? 0.05 : 0.02;
+        rMin = Math.max((data.altp + 1.0)*AstroConst.R_Earth*(1.0 - margin) - 20000.0, 0.5*AstroConst.R_Earth);
+        rMax = (data.alta + 1.0)*AstroConst.R_Earth*(1.0 + margin) + 20000.0;
+        vMax = 1.1*Math.sqrt(AstroConst.GM_Earth*(2.0/rMin - 1.0/rMax)); // vis-viva at perigee, a < rMax
+        maxLatitude = Math.min(Math.PI/2.0, Math.min(data.inclo, Math.PI - data.inclo) + ((data.method == 'd') ? 2.0 : 0.5)*Math.PI/180.0);
+    } // OrbitBounds
+
+} // OrbitBounds
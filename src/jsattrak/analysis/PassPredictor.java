@@ -0,0 +1,1285 @@
+/*
+ * PassPredictor.java
+ *
+ * Headless pass prediction for sets of satellites and ground stations over a
+ * time interval: rise, culmination and set of every pass with its visibility,
+ * the satellite/station pairs are split between the threads of a pool.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import jsattrak.objects.AbstractSatellite;
+import jsattrak.objects.GroundStation;
+import jsattrak.objects.SatelliteTleSGP4;
+import jsattrak.utilities.DaemonThreadFactory;
+import jsattrak.utilities.TLE;
+import name.gano.astro.AER;
+import name.gano.astro.AstroConst;
+import name.gano.astro.MathUtils;
+import name.gano.astro.Sidereal;
+import name.gano.astro.bodies.Sun;
+import name.gano.astro.propogators.sgp4_cssi.SGP4SatData;
+import name.gano.astro.propogators.sgp4_cssi.SGP4unit;
+import name.gano.astro.propogators.sgp4_cssi.SGP4utils;
+
+/**
+ * Passes of every satellite over every ground station between two times, computed
+ * without the GUI and without changing the scenario's satellites.
+ * <p>
+ * The elevation of the satellite above each station's elevation limit is sampled, a
+ * sign change brackets a rise or set which is found by bisection (to 1/4 sec). The
+ * visibility of each pass is found at its middle (see SatellitePass).
+ * <p>
+ * TLE satellites are searched with an adaptive step (unless setAdaptiveStep(false)).
+ * From the bounds of the orbit (perigee, apogee and the speed at perigee, with margins)
+ * and the range of the satellite, each step is the time the satellite surely stays on
+ * the same side of the limit: the line of sight can not turn faster than the relative
+ * speed over the range (which shrinks at most as fast), and the angle at the center of
+ * the Earth between the station and the satellite can not change faster than the
+ * satellite's and the Earth's rates. So a GEO or MEO satellite is sampled every few
+ * hours while well below (or above) the limit, and a LEO one closes in on its rise.
+ * Steps are never shorter than the minimum step, between two such samples a highest
+ * (or lowest) point is bracketed by the elevation rate (from the SGP4 velocity) and
+ * found by bisection, so grazing passes are not missed. The culmination is the highest
+ * of the samples and the refined highest points of the pass.
+ * <p>
+ * Before the adaptive search a pre-filter (unless setPreFilter(false)) rules out pairs
+ * and times. A station further from the equator than the inclination plus the widest
+ * angle the satellite can be seen in (from its apogee) never sees it. Otherwise the
+ * satellite is propagated on a coarse grid (it turns at most 30 degrees between samples)
+ * shared by all stations of the task, and only the intervals the angle to a station
+ * could get within that widest angle are searched. Pairs are counted as never, always
+ * or possibly visible (see getNumNeverPairs etc).
+ * <p>
+ * Other satellites are sampled every time step from the start, the culmination is
+ * found by a golden section search around the highest sample.
+ * <p>
+ * The pairs are split into tasks of one satellite and a block of stations (each time
+ * step is propagated once for the whole block), run on a thread pool. Each task
+ * propagates its own copy of the satellite (TLE satellites are re-initialized from
+ * their TLE, other satellites are asked for calculateTemePositionFromUT which does not
+ * change them). The passes are listed by satellite, then station (in the order given),
+ * then time, whatever the number of threads.
+ * <p>
+ * The satellites and stations are read when the predictor is created, run() can be
+ * called from any thread (it blocks until done or cancelled).
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class PassPredictor
+{
+    /**
+     * Progress of a running prediction (called from the worker threads)
+     */
+    public interface ProgressListener
+    {
+        /**
+         * @param pairsDone satellite/station pairs finished so far
+         * @param totalPairs satellite/station pairs of the prediction
+         */
+        void progress(int pairsDone, int totalPairs);
+    }
+
+    private static final double ROOT_TOLERANCE = (1.157407E-5)/4; // 1/4 a sec (in units of a day)
+    private static final double EARTH_RATE = 360.98564736629*Math.PI/180.0/(24.0*60.0*60.0); // [rad/s] (as Sidereal)
+    private static final double VERTICAL_MARGIN = 0.2; // [deg] more than the angle between the geodetic and geocentric vertical
+    private static final double WINDOW_ANGLE = 30.0*Math.PI/180.0; // [rad] most the satellite can turn between pre-filter samples
+
+    // time interval
+    private final double startJulDate;
+    private final double stopJulDate;
+
+    // satellites and stations as read at creation
+    private final SatelliteSource[] satellites;
+    private final Station[] stations;
+
+    // settings
+    private double timeStepSec = 60.0; // elevation sampling step (fixed step search)
+    private boolean adaptiveStep = true; // adaptive step search for TLE satellites
+    private double minStepSec = 1.0; // shortest adaptive step, below it the elevation rate is used
+    private boolean preFilter = true; // candidate windows before the adaptive search
+    private double twilightOffset = 6.0; // degrees the sun has to be below the horizon for darkness (6 is used by heavens-above.com)
+    private boolean visibleOnly = false; // only keep VISIBILITY_VISIBLE passes
+
+    // threading
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private int tasksPerThread = 4; // more tasks than threads to balance the load
+
+    private ProgressListener progressListener;
+    private final AtomicInteger pairsDone = new AtomicInteger();
+    private final AtomicInteger neverPairs = new AtomicInteger();
+    private final AtomicInteger alwaysPairs = new AtomicInteger();
+    private final AtomicInteger possiblePairs = new AtomicInteger();
+    private volatile boolean cancelled = false;
+    private volatile boolean failed = false; // a task threw an error
+
+    // results
+    private List<SatellitePass> passes;
+
+    // a satellite as read at creation
+    private static class SatelliteSource
+    {
+        final String name;
+        final TLE tle; // null for non TLE satellites
+        final AbstractSatellite sat;
+
+        SatelliteSource(AbstractSatellite sat)
+        {
+            this.name = sat.getName();
+            this.tle = (sat instanceof SatelliteTleSGP4) ? ((SatelliteTleSGP4)sat).getTle() : null;
+            this.sat = sat;
+        }
+    }
+
+    // a ground station as read at creation
+    private static class Station
+    {
+        final String name;
+        final double[] lla; // deg, deg, m
+        final double elevationLimit; // deg
+
+        // as AER: distance from the Earth's axis and the equator, distance from the center [m], up direction
+        final double equatorialRadius;
+        final double polarHeight;
+        final double radius;
+        final double cosLat;
+        final double sinLat;
+
+        Station(GroundStation gs)
+        {
+            this.name = gs.getStationName();
+            this.lla = gs.getLla_deg_m().clone();
+            this.elevationLimit = gs.getElevationConst();
+
+            double[] eci = AER.calculateECIposition(AstroConst.JDminusMJD + AstroConst.MJD_J2000, lla);
+            this.equatorialRadius = Math.sqrt(eci[0]*eci[0] + eci[1]*eci[1]);
+            this.polarHeight = eci[2];
+            this.radius = MathUtils.norm(eci);
+            this.cosLat = Math.cos(lla[0]*Math.PI/180.0);
+            this.sinLat = Math.sin(lla[0]*Math.PI/180.0);
+        }
+    }
+
+    // positions of one satellite for one task (own SGP4 data, SGP4 writes into it)
+    private static class Propagator
+    {
+        private final SGP4SatData data; // null for non TLE satellites
+        private final AbstractSatellite sat;
+        private final double[] vel = new double[3];
+
+        // bounds over the whole search from the mean elements (TLE satellites only): radius [m], speed [m/s]
+        final double rMin;
+        final double rMax;
+        final double vMax;
+        final double maxLatitude; // [rad] geocentric
+
+        Propagator(SGP4SatData data, AbstractSatellite sat)
+        {
+            this.data = data;
+            this.sat = sat;
+
+            if(data != null)
+            {
+                OrbitBounds bounds = new OrbitBounds(data);
+                rMin = bounds.rMin;
+                rMax = bounds.rMax;
+                vMax = bounds.vMax;
+                maxLatitude = bounds.maxLatitude;
+            }
+            else
+            {
+                rMin = Double.NaN;
+                rMax = Double.NaN;
+                vMax = Double.NaN;
+                maxLatitude = Double.NaN;
+            }
+        }
+
+        // true if the orbit bounds (and velocity) are known
+        boolean hasOrbitBounds()
+        {
+            return data != null;
+        }
+
+        // TEME position [m] and velocity [m/s] (TLE satellites only), false if it is not known (e.g. decayed)
+        boolean temeState(double julDate, double[] pos, double[] vel)
+        {
+            if(!SGP4unit.sgp4Prop2JD(data, julDate, pos, vel))
+            {
+                return false;
+            }
+            for(int i = 0; i < 3; i++)
+            {
+                pos[i] *= 1000.0;
+                vel[i] *= 1000.0;
+            }
+            return true;
+        } // temeState
+
+        // TEME position [m], false if it is not known (e.g. decayed or outside of the ephemeris)
+        boolean temePosition(double julDate, double[] pos)
+        {
+            if(data != null)
+            {
+                if(!SGP4unit.sgp4Prop2JD(data, julDate, pos, vel))
+                {
+                    return false;
+                }
+                pos[0] *= 1000.0;
+                pos[1] *= 1000.0;
+                pos[2] *= 1000.0;
+                return true;
+            }
+
+            double[] p = sat.calculateTemePositionFromUT(julDate);
+            if(p == null || (p[0] == 0 && p[1] == 0 && p[2] == 0))
+            {
+                return false;
+            }
+            System.arraycopy(p, 0, pos, 0, 3);
+            return true;
+        } // temePosition
+    } // Propagator
+
+    /**
+     * Creates a pass prediction
+     * @param startJulDate start julian date
+     * @param stopJulDate stop julian date
+     * @param satellites satellites
+     * @param stations ground stations (their elevation limits are used)
+     */
+    public PassPredictor(double startJulDate, double stopJulDate, Collection<AbstractSatellite> satellites, Collection<GroundStation> stations)
+    {
+        this.startJulDate = startJulDate;
+        this.stopJulDate = Math.max(startJulDate, stopJulDate);
+
+        this.satellites = new SatelliteSource[satellites.size()];
+        int s = 0;
+        for(AbstractSatellite sat : satellites)
+        {
+            this.satellites[s++] = new SatelliteSource(sat);
+        }
+
+        this.stations = new Station[stations.size()];
+        s = 0;
+        for(GroundStation gs : stations)
+        {
+            this.stations[s++] = new Station(gs);
+        }
+    } // PassPredictor
+
+    /**
+     * Runs the prediction, blocks until all pairs are done
+     * @return true if finished, false if cancelled, interrupted or a task failed (see isFailed)
+     */
+    public boolean run()
+    {
+        pairsDone.set(0);
+        neverPairs.set(0);
+        alwaysPairs.set(0);
+        possiblePairs.set(0);
+        int nThreads = Math.max(1, numThreads);
+
+        // tasks of one satellite and a block of stations, blocks are only split up to keep the threads busy
+        List<Callable<List<SatellitePass>>> tasks = new ArrayList<Callable<List<SatellitePass>>>();
+        if(satellites.length > 0 && stations.length > 0)
+        {
+            int blocks = Math.max(1, Math.min(stations.length, (nThreads*tasksPerThread + satellites.length - 1)/satellites.length));
+            int blockSize = (stations.length + blocks - 1)/blocks;
+            for(final SatelliteSource sat : satellites)
+            {
+                for(int from = 0; from < stations.length; from += blockSize)
+                {
+                    final int blockFrom = from;
+                    final int blockTo = Math.min(stations.length, from + blockSize);
+                    tasks.add(new Callable<List<SatellitePass>>()
+                    {
+                        public List<SatellitePass> call()
+                        {
+                            return predict(sat, blockFrom, blockTo);
+                        }
+                    });
+                }
+            }
+        }
+
+        List<SatellitePass> all = new ArrayList<SatellitePass>();
+        if(nThreads == 1 || tasks.size() <= 1)
+        {
+            for(Callable<List<SatellitePass>> task : tasks)
+            {
+                try
+                {
+                    List<SatellitePass> found = task.call();
+                    if(found != null)
+                    {
+                        all.addAll(found);
+                    }
+                }
+                catch(Exception e)
+                {
+                    DaemonThreadFactory.printTaskError("pass prediction", e);
+                    failed = true;
+                    break;
+                }
+            }
+        }
+        else
+        {
+            ExecutorService executor = createExecutor(Math.min(nThreads, tasks.size()));
+            try
+            {
+                List<Future<List<SatellitePass>>> results = executor.invokeAll(tasks);
+                for(Future<List<SatellitePass>> f : results)
+                {
+                    List<SatellitePass> found = f.get(); // re-throws any error from the task
+                    if(found != null)
+                    {
+                        all.addAll(found);
+                    }
+                }
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            }
+            catch(ExecutionException e)
+            {
+                DaemonThreadFactory.printTaskError("pass prediction", e);
+                failed = true;
+            }
+            finally
+            {
+                executor.shutdown();
+            }
+        }
+
+        if(cancelled || failed)
+        {
+            return false; // no partial results
+        }
+
+        if(visibleOnly)
+        {
+            List<SatellitePass> visible = new ArrayList<SatellitePass>();
+            for(SatellitePass pass : all)
+            {
+                if(pass.getVisibility() == SatellitePass.VISIBILITY_VISIBLE)
+                {
+                    visible.add(pass);
+                }
+            }
+            all = visible;
+        }
+        passes = all;
+        return true;
+    } // run
+
+    // passes of one satellite over the stations stationFrom .. stationTo-1 (by station, then time), null if cancelled
+    private List<SatellitePass> predict(SatelliteSource source, int stationFrom, int stationTo)
+    {
+        int n = stationTo - stationFrom;
+        List<List<SatellitePass>> found = new ArrayList<List<SatellitePass>>();
+        for(int i = 0; i < n; i++)
+        {
+            found.add(new ArrayList<SatellitePass>());
+        }
+
+        Propagator prop = createPropagator(source);
+        if(prop != null)
+        {
+            Sun sun = new Sun(startJulDate - AstroConst.JDminusMJD); // for the visibility
+            if(adaptiveStep && prop.hasOrbitBounds())
+            {
+                List<List<double[]>> windows = findWindows(prop, stationFrom, stationTo);
+                if(windows == null)
+                {
+                    return null;
+                }
+                for(int i = 0; i < n; i++)
+                {
+                    for(double[] window : windows.get(i))
+                    {
+                        if(!searchAdaptive(source, prop, sun, stations[stationFrom + i], window[0], window[1], found.get(i)))
+                        {
+                            return null;
+                        }
+                    }
+                }
+            }
+            else
+            {
+                possiblePairs.addAndGet(n);
+                if(!searchFixed(source, prop, sun, stationFrom, stationTo, found))
+                {
+                    return null;
+                }
+            }
+        }
+
+        int done = pairsDone.addAndGet(n);
+        ProgressListener listener = progressListener;
+        if(listener != null)
+        {
+            listener.progress(done, satellites.length*stations.length);
+        }
+
+        List<SatellitePass> list = new ArrayList<SatellitePass>();
+        for(List<SatellitePass> stationPasses : found)
+        {
+            list.addAll(stationPasses);
+        }
+        return list;
+    } // predict
+
+    // fixed time step search over a block of stations (each time step is propagated once), false if cancelled
+    private boolean searchFixed(SatelliteSource source, Propagator prop, Sun sun, int stationFrom, int stationTo, List<List<SatellitePass>> found)
+    {
+        int n = stationTo - stationFrom;
+        double stepDays = timeStepSec/(24.0*60.0*60.0);
+        double[] pos = new double[3];
+        double[] aer = new double[3];
+
+        double[] h0 = new double[n]; // elevation above the limit at the last sample
+        boolean[] inView = new boolean[n];
+        double[] rise = new double[n];
+        double[] bestTime = new double[n]; // sample with the highest elevation of the pass
+        double[] bestElevation = new double[n];
+
+        // at the start
+        double time0 = startJulDate;
+        boolean known = prop.temePosition(time0, pos);
+        for(int i = 0; i < n; i++)
+        {
+            Station st = stations[stationFrom + i];
+            h0[i] = known ? AER.calculate_AER(st.lla, pos, time0, aer)[1] - st.elevationLimit : -90.0 - st.elevationLimit;
+            if(h0[i] > 0)
+            {
+                inView[i] = true;
+                rise[i] = Double.NaN; // already in view
+                bestTime[i] = time0;
+                bestElevation[i] = h0[i];
+            }
+        }
+
+        // linear search
+        for(int k = 1; time0 < stopJulDate; k++)
+        {
+            if(cancelled)
+            {
+                return false;
+            }
+
+            double time1 = Math.min(startJulDate + k*stepDays, stopJulDate);
+            known = prop.temePosition(time1, pos);
+            for(int i = 0; i < n; i++)
+            {
+                Station st = stations[stationFrom + i];
+                double h1 = known ? AER.calculate_AER(st.lla, pos, time1, aer)[1] - st.elevationLimit : -90.0 - st.elevationLimit;
+
+                // rise
+                if(h0[i] <= 0 && h1 > 0)
+                {
+                    rise[i] = findCrossing(prop, st, time0, time1, h0[i], h1);
+                    inView[i] = true;
+                    bestTime[i] = time1;
+                    bestElevation[i] = h1;
+                }
+                else if(inView[i] && h1 > bestElevation[i])
+                {
+                    bestTime[i] = time1;
+                    bestElevation[i] = h1;
+                }
+
+                // set
+                if(h0[i] > 0 && h1 <= 0)
+                {
+                    double set = findCrossing(prop, st, time0, time1, h0[i], h1);
+                    double from = Double.isNaN(rise[i]) ? startJulDate : rise[i];
+                    double culmination = findCulmination(prop, st, Math.max(from, bestTime[i] - stepDays), Math.min(set, bestTime[i] + stepDays));
+                    found.get(i).add(createPass(source, prop, sun, st, rise[i], set, culmination));
+                    inView[i] = false;
+                }
+
+                h0[i] = h1;
+            }
+            time0 = time1;
+        } // linear search
+
+        // passes still in view at the end
+        for(int i = 0; i < n; i++)
+        {
+            if(inView[i])
+            {
+                Station st = stations[stationFrom + i];
+                double from = Double.isNaN(rise[i]) ? startJulDate : rise[i];
+                double culmination = findCulmination(prop, st, Math.max(from, bestTime[i] - stepDays), Math.min(stopJulDate, bestTime[i] + stepDays));
+                found.get(i).add(createPass(source, prop, sun, st, rise[i], Double.NaN, culmination));
+            }
+        }
+        return true;
+    } // searchFixed
+
+    // candidate windows {from, to} of each station of the block, the satellite is surely below the station's limit outside
+    // of them (pre-filter, the satellite is propagated on a coarse grid shared by the stations), null if cancelled
+    private List<List<double[]>> findWindows(Propagator prop, int stationFrom, int stationTo)
+    {
+        int n = stationTo - stationFrom;
+        List<List<double[]>> windows = new ArrayList<List<double[]>>();
+        for(int i = 0; i < n; i++)
+        {
+            windows.add(new ArrayList<double[]>());
+        }
+
+        if(!preFilter)
+        {
+            for(int i = 0; i < n; i++)
+            {
+                windows.get(i).add(new double[] {startJulDate, stopJulDate});
+            }
+            possiblePairs.addAndGet(n);
+            return windows;
+        }
+
+        // widest angle at the center of the Earth between station and satellite the satellite can be above the limit
+        // in, and narrowest it is surely above the limit in (as safeStep)
+        double[] lambdaMax = new double[n];
+        double[] lambdaMin = new double[n];
+        boolean[] possible = new boolean[n];
+        int numPossible = 0;
+        for(int i = 0; i < n; i++)
+        {
+            Station st = stations[stationFrom + i];
+            double e = (st.elevationLimit - VERTICAL_MARGIN)*Math.PI/180.0;
+            lambdaMax[i] = Math.acos(Math.min(1.0, st.radius*Math.cos(e)/prop.rMax)) - e;
+            e = (st.elevationLimit + VERTICAL_MARGIN)*Math.PI/180.0;
+            lambdaMin[i] = Math.acos(Math.min(1.0, st.radius*Math.cos(e)/prop.rMin)) - e;
+
+            // the satellite's latitude never gets beyond the inclination (with a margin for the perturbations)
+            double stationLat = Math.abs(Math.asin(st.polarHeight/st.radius));
+            possible[i] = lambdaMax[i] > 0 && stationLat - prop.maxLatitude <= lambdaMax[i];
+            if(possible[i])
+            {
+                numPossible++;
+            }
+        }
+        neverPairs.addAndGet(n - numPossible);
+        if(numPossible == 0)
+        {
+            return windows;
+        }
+
+        // coarse grid: between two samples the angle to a station is at least their mean less rate*step/2
+        double rate = prop.vMax/prop.rMin + EARTH_RATE; // [rad/s]
+        double stepDays = Math.max(minStepSec, WINDOW_ANGLE/rate)/(24.0*60.0*60.0);
+        double[] pos = new double[3];
+        double[] lambda0 = new double[n];
+        double[] lambda1 = new double[n];
+        boolean[] always = new boolean[n];
+        Arrays.fill(always, true);
+
+        double time0 = startJulDate;
+        boolean known0 = windowAngles(prop, stationFrom, possible, time0, pos, lambda0);
+        for(int k = 1; time0 < stopJulDate; k++)
+        {
+            if(cancelled)
+            {
+                return null;
+            }
+
+            double time1 = Math.min(startJulDate + k*stepDays, stopJulDate);
+            boolean known1 = windowAngles(prop, stationFrom, possible, time1, pos, lambda1);
+            double halfTurn = rate*(time1 - time0)*(24.0*60.0*60.0)/2.0;
+            for(int i = 0; i < n; i++)
+            {
+                if(!possible[i])
+                {
+                    continue;
+                }
+                double mean = (lambda0[i] + lambda1[i])/2.0;
+                boolean knownBoth = known0 && known1;
+                if(!knownBoth || mean + halfTurn >= lambdaMin[i])
+                {
+                    always[i] = false;
+                }
+                if(!knownBoth || mean - halfTurn <= lambdaMax[i])
+                {
+                    // candidate, joined to the last window if it ends here
+                    List<double[]> list = windows.get(i);
+                    double[] last = list.isEmpty() ? null : list.get(list.size() - 1);
+                    if(last != null && last[1] == time0)
+                    {
+                        last[1] = time1;
+                    }
+                    else
+                    {
+                        list.add(new double[] {time0, time1});
+                    }
+                }
+            }
+
+            // next step
+            double[] swap = lambda0;
+            lambda0 = lambda1;
+            lambda1 = swap;
+            known0 = known1;
+            time0 = time1;
+        } // coarse grid
+
+        for(int i = 0; i < n; i++)
+        {
+            if(!possible[i])
+            {
+                continue;
+            }
+            if(windows.get(i).isEmpty())
+            {
+                neverPairs.incrementAndGet();
+            }
+            else if(always[i])
+            {
+                alwaysPairs.incrementAndGet();
+            }
+            else
+            {
+                possiblePairs.incrementAndGet();
+            }
+        }
+        return windows;
+    } // findWindows
+
+    // angle at the center of the Earth between the satellite and each possible station of the block [rad], false if the position is not known
+    private boolean windowAngles(Propagator prop, int stationFrom, boolean[] possible, double julDate, double[] pos, double[] lambda)
+    {
+        if(!prop.temePosition(julDate, pos))
+        {
+            return false;
+        }
+        double r = MathUtils.norm(pos);
+        double greenwich = Sidereal.Greenwich_Mean_Sidereal_Deg(julDate - AstroConst.JDminusMJD);
+        for(int i = 0; i < possible.length; i++)
+        {
+            if(possible[i])
+            {
+                Station st = stations[stationFrom + i];
+                double theta = (greenwich + st.lla[1])*Math.PI/180.0;
+                double cosLambda = (pos[0]*st.equatorialRadius*Math.cos(theta) + pos[1]*st.equatorialRadius*Math.sin(theta)
+                        + pos[2]*st.polarHeight)/(r*st.radius);
+                lambda[i] = Math.acos(Math.max(-1.0, Math.min(1.0, cosLambda)));
+            }
+        }
+        return true;
+    } // windowAngles
+
+    // adaptive time step search of one station from time from to time to, false if cancelled
+    private boolean searchAdaptive(SatelliteSource source, Propagator prop, Sun sun, Station st, double from, double to, List<SatellitePass> found)
+    {
+        double minStepDays = minStepSec/(24.0*60.0*60.0);
+        double unknownStepDays = timeStepSec/(24.0*60.0*60.0); // while the position is not known
+        double[] pos = new double[3];
+        double[] vel = new double[3];
+        double[] aer = new double[3];
+        double[] s0 = new double[4]; // horizon state at the last sample (see horizonState)
+        double[] s1 = new double[4];
+        double[] sm = new double[4];
+
+        // at the start
+        double time0 = from;
+        boolean known0 = horizonState(prop, st, time0, pos, vel, aer, s0);
+        if(!known0)
+        {
+            s0[0] = -90.0 - st.elevationLimit;
+        }
+        boolean inView = s0[0] > 0;
+        double rise = Double.NaN; // already in view
+        double bestTime = time0; // highest elevation of the pass so far
+        double bestElevation = s0[0];
+
+        while(time0 < to)
+        {
+            if(cancelled)
+            {
+                return false;
+            }
+
+            // step the satellite can not cross the elevation limit in, below the shortest step use the elevation rate
+            double step = known0 ? safeStep(prop, st, s0) : unknownStepDays;
+            boolean forced = step < minStepDays;
+            if(forced)
+            {
+                step = minStepDays;
+            }
+            double time1 = Math.min(time0 + step, to);
+            boolean known1 = horizonState(prop, st, time1, pos, vel, aer, s1);
+            if(!known1)
+            {
+                s1[0] = -90.0 - st.elevationLimit;
+            }
+            boolean bothKnown = known0 && known1;
+            boolean maxInside = bothKnown && s0[1] > 0 && s1[1] < 0; // elevation rate brackets a highest point
+            boolean minInside = bothKnown && s0[1] < 0 && s1[1] > 0; // elevation rate brackets a lowest point
+
+            if(!inView)
+            {
+                if(s1[0] > 0) // rise
+                {
+                    rise = findCrossing(prop, st, time0, time1, s0[0], s1[0]);
+                    inView = true;
+                    bestTime = time1;
+                    bestElevation = s1[0];
+                    if(maxInside)
+                    {
+                        double tm = findRateRoot(prop, st, time0, time1, s0[1]);
+                        double hm = elevation(prop, st, tm, pos, aer);
+                        if(hm > bestElevation)
+                        {
+                            bestTime = tm;
+                            bestElevation = hm;
+                        }
+                    }
+                }
+                else if(forced && maxInside) // short step: pass could rise and set between the samples
+                {
+                    double tm = findRateRoot(prop, st, time0, time1, s0[1]);
+                    double hm = elevation(prop, st, tm, pos, aer);
+                    if(hm > 0)
+                    {
+                        double graze0 = findCrossing(prop, st, time0, tm, s0[0], hm);
+                        double graze1 = findCrossing(prop, st, tm, time1, hm, s1[0]);
+                        found.add(createPass(source, prop, sun, st, graze0, graze1, tm));
+                    }
+                }
+            }
+            else
+            {
+                if(maxInside)
+                {
+                    double tm = findRateRoot(prop, st, time0, time1, s0[1]);
+                    double hm = elevation(prop, st, tm, pos, aer);
+                    if(hm > bestElevation)
+                    {
+                        bestTime = tm;
+                        bestElevation = hm;
+                    }
+                }
+
+                if(s1[0] <= 0) // set
+                {
+                    double set = findCrossing(prop, st, time0, time1, s0[0], s1[0]);
+                    found.add(createPass(source, prop, sun, st, rise, set, bestTime));
+                    inView = false;
+                }
+                else
+                {
+                    if(s1[0] > bestElevation)
+                    {
+                        bestTime = time1;
+                        bestElevation = s1[0];
+                    }
+
+                    if(forced && minInside) // short step: pass could set and rise again between the samples
+                    {
+                        double tm = findRateRoot(prop, st, time0, time1, s0[1]);
+                        double hm = horizonState(prop, st, tm, pos, vel, aer, sm) ? sm[0] : -90.0 - st.elevationLimit;
+                        if(hm <= 0)
+                        {
+                            double set = findCrossing(prop, st, time0, tm, s0[0], hm);
+                            found.add(createPass(source, prop, sun, st, rise, set, bestTime));
+                            rise = findCrossing(prop, st, tm, time1, hm, s1[0]);
+                            bestTime = time1;
+                            bestElevation = s1[0];
+                        }
+                    }
+                }
+            }
+
+            // next step
+            double[] swap = s0;
+            s0 = s1;
+            s1 = swap;
+            known0 = known1;
+            time0 = time1;
+        } // adaptive search
+
+        // pass still in view at the end
+        if(inView)
+        {
+            found.add(createPass(source, prop, sun, st, rise, Double.NaN, bestTime));
+        }
+        return true;
+    } // searchAdaptive
+
+    // time the satellite surely stays on the same side of the station's elevation limit [days], from the horizon state
+    private static double safeStep(Propagator prop, Station st, double[] state)
+    {
+        // the line of sight turns at most vRel/range (plus the horizon, at the earth rate) and the range shrinks
+        // at most vRel, integrated from the current range this is the time to turn as far as the limit
+        double vRel = prop.vMax + EARTH_RATE*st.radius;
+        double range = state[2];
+        double angle = Math.abs(state[0])*Math.PI/180.0;
+        double step = range/vRel*(1.0 - Math.exp(-angle*vRel/(vRel + EARTH_RATE*range)));
+
+        // angle at the center of the Earth between the station and the satellite, a satellite at radius r is above
+        // elevation e only within acos(rs*cos(e)/r) - e, the angle changes at most by the satellite's and the earth's rate
+        double rate = prop.vMax/prop.rMin + EARTH_RATE;
+        if(state[0] <= 0)
+        {
+            double e = (st.elevationLimit - VERTICAL_MARGIN)*Math.PI/180.0;
+            double lambdaMax = Math.acos(Math.min(1.0, st.radius*Math.cos(e)/prop.rMax)) - e;
+            step = Math.max(step, (state[3] - lambdaMax)/rate);
+        }
+        else
+        {
+            double e = (st.elevationLimit + VERTICAL_MARGIN)*Math.PI/180.0;
+            double lambdaMin = Math.acos(Math.min(1.0, st.radius*Math.cos(e)/prop.rMin)) - e;
+            step = Math.max(step, (lambdaMin - state[3])/rate);
+        }
+
+        return step/(24.0*60.0*60.0);
+    } // safeStep
+
+    // own propagator for a satellite (null if its TLE can not be loaded)
+    private static Propagator createPropagator(SatelliteSource source)
+    {
+        if(source.tle == null)
+        {
+            return new Propagator(null, source.sat);
+        }
+
+        // options - hard coded (as SatelliteTleSGP4)
+        char opsmode = SGP4utils.OPSMODE_IMPROVED;
+        SGP4unit.Gravconsttype gravconsttype = SGP4unit.Gravconsttype.wgs72;
+        SGP4SatData data = new SGP4SatData();
+        if(!SGP4utils.readTLEandIniSGP4(source.tle.getSatName(), source.tle.getLine1(), source.tle.getLine2(), opsmode, gravconsttype, data))
+        {
+            System.out.println("Error loading TLE for pass prediction: " + source.tle.getSatName() + ", error code: " + data.error);
+            return null;
+        }
+        return new Propagator(data, null);
+    } // createPropagator
+
+    // elevation above the station's limit [deg], aer is filled in (-90 and NaN azimuth if the position is not known)
+    private static double elevation(Propagator prop, Station st, double julDate, double[] pos, double[] aer)
+    {
+        if(!prop.temePosition(julDate, pos))
+        {
+            aer[0] = Double.NaN;
+            aer[1] = -90.0;
+            aer[2] = Double.NaN;
+        }
+        else
+        {
+            AER.calculate_AER(st.lla, pos, julDate, aer);
+        }
+        return aer[1] - st.elevationLimit;
+    } // elevation
+
+    // bisection method, crossing time should be bracketed by time0 and time1
+    private static double findCrossing(Propagator prop, Station st, double time0, double time1, double f0, double f1)
+    {
+        double[] pos = new double[3];
+        double[] aer = new double[3];
+        while(Math.abs(time1 - time0) > 2*ROOT_TOLERANCE)
+        {
+            double timeMid = (time1 + time0) / 2.0;
+            double fmid = elevation(prop, st, timeMid, pos, aer);
+            if(f0 * fmid > 0) // same sign
+            {
+                f0 = fmid;
+                time0 = timeMid;
+            }
+            else
+            {
+                f1 = fmid;
+                time1 = timeMid;
+            }
+        }
+
+        // best guess using linear interpolation between last two points
+        double a = (f1 - f0)/(time1 - time0);
+        double b = f1 - a*time1;
+        return -b/a;
+    } // findCrossing
+
+    // elevation above the station's limit [deg] and its rate [deg/day], range [m] and the angle at the center of the
+    // Earth between the station and the satellite [rad] into state, aer is filled in, false if the position is not known
+    private static boolean horizonState(Propagator prop, Station st, double julDate, double[] pos, double[] vel, double[] aer, double[] state)
+    {
+        if(!prop.temeState(julDate, pos, vel))
+        {
+            return false;
+        }
+        AER.calculate_AER(st.lla, pos, julDate, aer);
+
+        // station and its up direction (as AER) turning with the Earth
+        double theta = Sidereal.Mean_Sidereal_Deg(julDate - AstroConst.JDminusMJD, st.lla[1])*Math.PI/180.0;
+        double cosTheta = Math.cos(theta);
+        double sinTheta = Math.sin(theta);
+        double gx = st.equatorialRadius*cosTheta;
+        double gy = st.equatorialRadius*sinTheta;
+        double gz = st.polarHeight;
+        double ux = st.cosLat*cosTheta;
+        double uy = st.cosLat*sinTheta;
+        double uz = st.sinLat;
+
+        // line of sight and its rate
+        double rx = pos[0] - gx;
+        double ry = pos[1] - gy;
+        double rz = pos[2] - gz;
+        double rdx = vel[0] + EARTH_RATE*gy;
+        double rdy = vel[1] - EARTH_RATE*gx;
+        double rdz = vel[2];
+        double range = Math.sqrt(rx*rx + ry*ry + rz*rz);
+
+        // d(sin(el))/dt
+        double rDotU = rx*ux + ry*uy + rz*uz;
+        double sinEl = rDotU/range;
+        double dSinEl = (rdx*ux + rdy*uy + rdz*uz + EARTH_RATE*(-rx*uy + ry*ux))/range
+                - rDotU*(rx*rdx + ry*rdy + rz*rdz)/(range*range*range);
+        double cosEl = Math.max(1.0E-9, Math.sqrt(Math.max(0.0, 1.0 - sinEl*sinEl)));
+
+        double r = Math.sqrt(pos[0]*pos[0] + pos[1]*pos[1] + pos[2]*pos[2]);
+        double cosLambda = (pos[0]*gx + pos[1]*gy + pos[2]*gz)/(r*st.radius);
+
+        state[0] = aer[1] - st.elevationLimit;
+        state[1] = dSinEl/cosEl*(180.0/Math.PI)*(24.0*60.0*60.0);
+        state[2] = range;
+        state[3] = Math.acos(Math.max(-1.0, Math.min(1.0, cosLambda)));
+        return true;
+    } // horizonState
+
+    // bisection method on the elevation rate, a highest or lowest point should be bracketed by time0 and time1
+    private static double findRateRoot(Propagator prop, Station st, double time0, double time1, double rate0)
+    {
+        double[] pos = new double[3];
+        double[] vel = new double[3];
+        double[] aer = new double[3];
+        double[] state = new double[4];
+        while(Math.abs(time1 - time0) > 2*ROOT_TOLERANCE)
+        {
+            double timeMid = (time1 + time0) / 2.0;
+            if(!horizonState(prop, st, timeMid, pos, vel, aer, state))
+            {
+                break;
+            }
+            if(rate0 * state[1] > 0) // same sign
+            {
+                rate0 = state[1];
+                time0 = timeMid;
+            }
+            else
+            {
+                time1 = timeMid;
+            }
+        }
+        return (time0 + time1)/2.0;
+    } // findRateRoot
+
+    // golden section search for the highest elevation between time0 and time1
+    private static double findCulmination(Propagator prop, Station st, double time0, double time1)
+    {
+        double[] pos = new double[3];
+        double[] aer = new double[3];
+        final double invPhi = (Math.sqrt(5.0) - 1.0)/2.0;
+        double c = time1 - invPhi*(time1 - time0);
+        double d = time0 + invPhi*(time1 - time0);
+        double fc = elevation(prop, st, c, pos, aer);
+        double fd = elevation(prop, st, d, pos, aer);
+        while(time1 - time0 > 2*ROOT_TOLERANCE)
+        {
+            if(fc > fd)
+            {
+                time1 = d;
+                d = c;
+                fd = fc;
+                c = time1 - invPhi*(time1 - time0);
+                fc = elevation(prop, st, c, pos, aer);
+            }
+            else
+            {
+                time0 = c;
+                c = d;
+                fc = fd;
+                d = time0 + invPhi*(time1 - time0);
+                fd = elevation(prop, st, d, pos, aer);
+            }
+        }
+        return (time0 + time1)/2.0;
+    } // findCulmination
+
+    // pass from rise to set (NaN if outside of the search) with its highest elevation at culmination
+    private SatellitePass createPass(SatelliteSource source, Propagator prop, Sun sun, Station st, double rise, double set, double culmination)
+    {
+        double[] pos = new double[3];
+        double[] aer = new double[3];
+        double from = Double.isNaN(rise) ? startJulDate : rise;
+        double to = Double.isNaN(set) ? stopJulDate : set;
+
+        elevation(prop, st, culmination, pos, aer);
+        double culminationAz = aer[0];
+        double maxElevation = aer[1];
+
+        double riseAz = Double.NaN;
+        if(!Double.isNaN(rise))
+        {
+            elevation(prop, st, rise, pos, aer);
+            riseAz = aer[0];
+        }
+        double setAz = Double.NaN;
+        if(!Double.isNaN(set))
+        {
+            elevation(prop, st, set, pos, aer);
+            setAz = aer[0];
+        }
+
+        int visibility = findVisibility(prop, sun, st, (from + to)/2.0, pos);
+
+        return new SatellitePass(source.name, st.name, rise, riseAz, culmination, culminationAz, maxElevation, set, setAz, visibility);
+    } // createPass
+
+    // Visible, Radar Sun or Radar Night at a time
+    private int findVisibility(Propagator prop, Sun sun, Station st, double julDate, double[] pos)
+    {
+        // set the suns time
+        sun.setCurrentMJD(julDate - AstroConst.JDminusMJD);
+        double[] sunPos = sun.getCurrentPositionTEME();
+
+        // sun dot site positions to determine if station is in sunlight, angle between sun -> center of Earth -> Ground Station for twilight
+        double[] gsECI = AER.calculateECIposition(julDate, st.lla);
+        double sunDotSite = MathUtils.dot(sunPos, gsECI);
+        double sinFinalSigmaGS = MathUtils.norm(MathUtils.cross(sunPos, gsECI)) / (MathUtils.norm(sunPos) * MathUtils.norm(gsECI));
+        double finalSigmaGS = Math.asin(sinFinalSigmaGS)*180.0/Math.PI; // in degrees
+
+        if(sunDotSite > 0 || (90.0 - finalSigmaGS) < twilightOffset)
+        {
+            return SatellitePass.VISIBILITY_RADAR_SUN;
+        }
+
+        // now we know the site is in darkness - need to figure out if the satelite is in light
+        // use predict algorithm from Vallado 2nd ed.
+        if(!prop.temePosition(julDate, pos))
+        {
+            return SatellitePass.VISIBILITY_RADAR_NIGHT;
+        }
+        double sinFinalSigma = MathUtils.norm(MathUtils.cross(sunPos, pos)) / (MathUtils.norm(sunPos) * MathUtils.norm(pos));
+        double finalSigma = Math.asin(sinFinalSigma);
+        double dist = MathUtils.norm(pos) * Math.cos(finalSigma - Math.PI/2.0);
+
+        return (dist > AstroConst.R_Earth_mean) ? SatellitePass.VISIBILITY_VISIBLE : SatellitePass.VISIBILITY_RADAR_NIGHT;
+    } // findVisibility
+
+    private static ExecutorService createExecutor(int nThreads)
+    {
+        return Executors.newFixedThreadPool(nThreads, new DaemonThreadFactory("JSatTrak-passes-"));
+    } // createExecutor
+
+    /**
+     * Stops a running prediction (run() returns false)
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * @return true if a task of the last run failed with an error (run() returned false without being cancelled, no passes are kept)
+     */
+    public boolean isFailed()
+    {
+        return failed;
+    }
+
+    /**
+     * @return passes by satellite, station (in the order given) and time, null until run() finishes
+     */
+    public List<SatellitePass> getPasses()
+    {
+        return passes;
+    }
+
+    public double getStartJulDate()
+    {
+        return startJulDate;
+    }
+
+    public double getStopJulDate()
+    {
+        return stopJulDate;
+    }
+
+    public double getTimeStepSec()
+    {
+        return timeStepSec;
+    }
+
+    /**
+     * @param timeStepSec elevation sampling step [sec] of the fixed step search (passes shorter than this can be missed),
+     *        also the step while the position of a satellite is not known in the adaptive search
+     */
+    public void setTimeStepSec(double timeStepSec)
+    {
+        this.timeStepSec = timeStepSec;
+    }
+
+    public boolean isAdaptiveStep()
+    {
+        return adaptiveStep;
+    }
+
+    /**
+     * @param adaptiveStep true to search TLE satellites with the adaptive step (no pass is missed), false for the fixed time step
+     */
+    public void setAdaptiveStep(boolean adaptiveStep)
+    {
+        this.adaptiveStep = adaptiveStep;
+    }
+
+    public double getMinStepSec()
+    {
+        return minStepSec;
+    }
+
+    /**
+     * @param minStepSec shortest adaptive step [sec], passes are found between samples this close from the elevation rate
+     */
+    public void setMinStepSec(double minStepSec)
+    {
+        this.minStepSec = minStepSec;
+    }
+
+    public boolean isPreFilter()
+    {
+        return preFilter;
+    }
+
+    /**
+     * @param preFilter true to rule out the times a satellite is surely below a station's limit before the adaptive search
+     */
+    public void setPreFilter(boolean preFilter)
+    {
+        this.preFilter = preFilter;
+    }
+
+    /**
+     * @return satellite/station pairs of the last run the pre-filter found never visible (no search was done)
+     */
+    public int getNumNeverPairs()
+    {
+        return neverPairs.get();
+    }
+
+    /**
+     * @return satellite/station pairs of the last run the pre-filter found visible all of the time
+     */
+    public int getNumAlwaysPairs()
+    {
+        return alwaysPairs.get();
+    }
+
+    /**
+     * @return satellite/station pairs of the last run that were searched for passes (not never or always visible)
+     */
+    public int getNumPossiblePairs()
+    {
+        return possiblePairs.get();
+    }
+
+    public double getTwilightOffset()
+    {
+        return twilightOffset;
+    }
+
+    /**
+     * @param twilightOffset degrees the sun has to be below the station's horizon for the station to be dark
+     */
+    public void setTwilightOffset(double twilightOffset)
+    {
+        this.twilightOffset = twilightOffset;
+    }
+
+    public boolean isVisibleOnly()
+    {
+        return visibleOnly;
+    }
+
+    /**
+     * @param visibleOnly only keep the passes that are visible (station dark, satellite sunlit)
+     */
+    public void setVisibleOnly(boolean visibleOnly)
+    {
+        this.visibleOnly = visibleOnly;
+    }
+
+    public void setProgressListener(ProgressListener progressListener)
+    {
+        this.progressListener = progressListener;
+    }
+
+    public int getNumThreads()
+    {
+        return numThreads;
+    }
+
+    /**
+     * @param numThreads number of worker threads (1 runs all pairs in the calling thread)
+     */
+    public void setNumThreads(int numThreads)
+    {
+        this.numThreads = numThreads;
+    }
+
+    public int getTasksPerThread()
+    {
+        return tasksPerThread;
+    }
+
+    public void setTasksPerThread(int tasksPerThread)
+    {
+        this.tasksPerThread = tasksPerThread;
+    }
+
+    public int getNumSatellites()
+    {
+        return satellites.length;
+    }
+
+    public int getNumStations()
+    {
+        return stations.length;
+    }
+
+} // PassPredictor
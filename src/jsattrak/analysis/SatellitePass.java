@@ -0,0 +1,189 @@
+/*
+ * SatellitePass.java
+ *
+ * One pass of a satellite over a ground station: rise, culmination and set
+ * events and how well the pass can be seen.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.analysis;
+
+/**
+ * A pass found by PassPredictor. Rise and set are the times the elevation crosses the
+ * station's elevation limit, a pass already in view at the start of the search has no
+ * rise (NaN) and one still in view at the end has no set (NaN). Times are julian dates,
+ * angles degrees.
+ * <p>
+ * The visibility is found at the middle of the pass (of the part inside the search
+ * interval): VISIBILITY_RADAR_SUN if the station is in daylight or twilight,
+ * VISIBILITY_VISIBLE if the station is dark and the satellite sunlit,
+ * VISIBILITY_RADAR_NIGHT if both are dark.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class SatellitePass
+{
+    // visibility
+    public static final int VISIBILITY_RADAR_SUN = 0;
+    public static final int VISIBILITY_RADAR_NIGHT = 1;
+    public static final int VISIBILITY_VISIBLE = 2;
+
+    private final String satelliteName;
+    private final String stationName;
+
+    private final double riseJulDate;
+    private final double riseAzimuth;
+    private final double culminationJulDate;
+    private final double culminationAzimuth;
+    private final double maxElevation;
+    private final double setJulDate;
+    private final double setAzimuth;
+    private final int visibility;
+
+    SatellitePass(String satelliteName, String stationName, double riseJulDate, double riseAzimuth,
+            double culminationJulDate, double culminationAzimuth, double maxElevation,
+            double setJulDate, double setAzimuth, int visibility)
+    {
+        this.satelliteName = satelliteName;
+        this.stationName = stationName;
+        this.riseJulDate = riseJulDate;
+        this.riseAzimuth = riseAzimuth;
+        this.culminationJulDate = culminationJulDate;
+        this.culminationAzimuth = culminationAzimuth;
+        this.maxElevation = maxElevation;
+        this.setJulDate = setJulDate;
+        this.setAzimuth = setAzimuth;
+        this.visibility = visibility;
+    } // SatellitePass
+
+    public String getSatelliteName()
+    {
+        return satelliteName;
+    }
+
+    public String getStationName()
+    {
+        return stationName;
+    }
+
+    /**
+     * @return rise time (NaN if already in view at the start of the search)
+     */
+    public double getRiseJulDate()
+    {
+        return riseJulDate;
+    }
+
+    /**
+     * @return azimuth at rise [deg] (NaN if no rise)
+     */
+    public double getRiseAzimuth()
+    {
+        return riseAzimuth;
+    }
+
+    /**
+     * @return time of the highest elevation (inside the search interval)
+     */
+    public double getCulminationJulDate()
+    {
+        return culminationJulDate;
+    }
+
+    /**
+     * @return azimuth at culmination [deg]
+     */
+    public double getCulminationAzimuth()
+    {
+        return culminationAzimuth;
+    }
+
+    /**
+     * @return highest elevation [deg]
+     */
+    public double getMaxElevation()
+    {
+        return maxElevation;
+    }
+
+    /**
+     * @return set time (NaN if still in view at the end of the search)
+     */
+    public double getSetJulDate()
+    {
+        return setJulDate;
+    }
+
+    /**
+     * @return azimuth at set [deg] (NaN if no set)
+     */
+    public double getSetAzimuth()
+    {
+        return setAzimuth;
+    }
+
+    /**
+     * @return true if both the rise and the set are inside the search interval
+     */
+    public boolean isComplete()
+    {
+        return !Double.isNaN(riseJulDate) && !Double.isNaN(setJulDate);
+    }
+
+    /**
+     * @return time from rise to set [sec] (NaN if the pass is not complete)
+     */
+    public double getDurationSec()
+    {
+        return (setJulDate - riseJulDate)*24.0*60.0*60.0;
+    }
+
+    /**
+     * @return VISIBILITY_RADAR_SUN, VISIBILITY_RADAR_NIGHT or VISIBILITY_VISIBLE
+     */
+    public int getVisibility()
+    {
+        return visibility;
+    }
+
+    /**
+     * @return "Radar Sun", "Radar Night" or "Visible"
+     */
+    public String getVisibilityString()
+    {
+        switch(visibility)
+        {
+            case VISIBILITY_VISIBLE:
+                return "Visible";
+            case VISIBILITY_RADAR_NIGHT:
+                return "Radar Night";
+            default:
+                return "Radar Sun";
+        }
+    } // getVisibilityString
+
+    @Override
+    public String toString()
+    {
+        return satelliteName + " - " + stationName + ": rise " + riseJulDate + ", culmination " + culminationJulDate
+                + " (" + maxElevation + " deg), set " + setJulDate + ", " + getVisibilityString();
+    }
+
+} // SatellitePass
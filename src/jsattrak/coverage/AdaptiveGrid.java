@@ -0,0 +1,191 @@
+/*
+ * AdaptiveGrid.java
+ *
+ * Coverage cells refined only where needed: inside an area of interest or
+ * along the edges of coverage, the rest of the grid stays coarse.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.coverage;
+
+/**
+ * A coarse tessellation with some of its cells split into smaller ones
+ * (quadtree style: each level splits a cell in two in longitude and in two
+ * equal-area halves in latitude, so the four children have the same area).
+ * <p>
+ * The cells to split are picked with markArea (cells in an area of interest) or
+ * markBoundaries (cells where a result, e.g. coverage time of a first coarse run,
+ * changes by more than a threshold to a neighbor). Analyzing the refined grid
+ * again resolves the edges of coverage at the fine size while the uniformly
+ * covered (or uncovered) regions keep the coarse cells.
+ * <p>
+ * The cells keep the order of the parent cells, the children of a split cell
+ * follow each other.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class AdaptiveGrid extends CellGrid
+{
+    private final int[] parentCell;
+
+    /**
+     * Creates the cells
+     * @param parent coarse cells
+     * @param refine cells of the parent to split
+     * @param levels number of times to split them (a split cell becomes 4^levels cells)
+     */
+    public AdaptiveGrid(CoverageTessellation parent, boolean[] refine, int levels)
+    {
+        super(split(parent, refine, levels));
+
+        parentCell = new int[getNumCells()];
+        int children = 1 << (2*Math.max(0, levels));
+        int k = 0;
+        for(int p = 0; p < parent.getNumCells(); p++)
+        {
+            int n = refine[p] ? children : 1;
+            for(int c = 0; c < n; c++)
+            {
+                parentCell[k++] = p;
+            }
+        }
+    } // AdaptiveGrid
+
+    // packed bounds of the cells
+    private static double[] split(CoverageTessellation parent, boolean[] refine, int levels)
+    {
+        if(refine.length != parent.getNumCells())
+        {
+            throw new IllegalArgumentException("Refinement flags do not match the number of cells");
+        }
+        levels = Math.max(0, levels);
+        int children = 1 << (2*levels);
+        int total = 0;
+        for(int p = 0; p < refine.length; p++)
+        {
+            total += refine[p] ? children : 1;
+        }
+
+        double[] bounds = new double[4*total];
+        double[] b = new double[4];
+        int k = 0;
+        for(int p = 0; p < refine.length; p++)
+        {
+            parent.getCellBounds(p, b);
+            if(!refine[p])
+            {
+                System.arraycopy(b, 0, bounds, 4*k, 4);
+                k++;
+                continue;
+            }
+
+            // 2^levels x 2^levels children, equal steps in longitude and in sin(latitude)
+            int n = 1 << levels;
+            double sinMin = Math.sin(b[0]*Math.PI/180.0);
+            double sinMax = Math.sin(b[1]*Math.PI/180.0);
+            for(int i = 0; i < n; i++)
+            {
+                double bottom = (i == 0) ? b[0] : Math.asin(sinMin + (sinMax - sinMin)*i/n)*180.0/Math.PI;
+                double top = (i == n-1) ? b[1] : Math.asin(sinMin + (sinMax - sinMin)*(i+1)/n)*180.0/Math.PI;
+                for(int j = 0; j < n; j++)
+                {
+                    bounds[4*k] = bottom;
+                    bounds[4*k+1] = top;
+                    bounds[4*k+2] = b[2] + j*(b[3] - b[2])/n;
+                    bounds[4*k+3] = (j == n-1) ? b[3] : b[2] + (j+1)*(b[3] - b[2])/n;
+                    k++;
+                }
+            }
+        }
+        return bounds;
+    } // split
+
+    /**
+     * Picks the cells that overlap an area of interest
+     * @param grid cells
+     * @param latBounds minimum, maximum latitude of the area [deg]
+     * @param longBounds minimum, maximum longitude of the area [deg]
+     * @return true for each cell to refine
+     */
+    public static boolean[] markArea(CoverageTessellation grid, double[] latBounds, double[] longBounds)
+    {
+        boolean[] refine = new boolean[grid.getNumCells()];
+        double[] b = new double[4];
+        for(int k = 0; k < refine.length; k++)
+        {
+            grid.getCellBounds(k, b);
+            refine[k] = b[1] > latBounds[0] && b[0] < latBounds[1] && b[3] > longBounds[0] && b[2] < longBounds[1];
+        }
+        return refine;
+    } // markArea
+
+    /**
+     * Picks the cells on the edges of a result: both cells of each pair of neighbors whose
+     * values differ by more than the threshold (neighbors are found just outside three points
+     * on each side of a cell)
+     * @param grid cells
+     * @param values value of each cell (e.g. coverage time)
+     * @param threshold largest difference between neighbors that is not refined
+     * @return true for each cell to refine
+     */
+    public static boolean[] markBoundaries(CoverageTessellation grid, double[] values, double threshold)
+    {
+        int numCells = grid.getNumCells();
+        boolean[] refine = new boolean[numCells];
+        double[] b = new double[4];
+        double[] lat = new double[12];
+        double[] lon = new double[12];
+        for(int k = 0; k < numCells; k++)
+        {
+            grid.getCellBounds(k, b);
+            double dLat = 1.0e-6*(b[1] - b[0]);
+            double dLon = 1.0e-6*(b[3] - b[2]);
+            for(int s = 0; s < 3; s++)
+            {
+                double fLat = b[0] + (s + 1)*(b[1] - b[0])/4.0;
+                double fLon = b[2] + (s + 1)*(b[3] - b[2])/4.0;
+                lat[4*s] = b[0] - dLat;   lon[4*s] = fLon;   // south
+                lat[4*s+1] = b[1] + dLat; lon[4*s+1] = fLon; // north
+                lat[4*s+2] = fLat;        lon[4*s+2] = b[2] - dLon; // west
+                lat[4*s+3] = fLat;        lon[4*s+3] = b[3] + dLon; // east
+            }
+            for(int p = 0; p < lat.length; p++)
+            {
+                int n = grid.findCell(lat[p], lon[p]);
+                if(n >= 0 && n != k && Math.abs(values[n] - values[k]) > threshold)
+                {
+                    refine[k] = true;
+                    refine[n] = true;
+                }
+            }
+        }
+        return refine;
+    } // markBoundaries
+
+    /**
+     * @param cell cell index
+     * @return index of the parent cell it was split from (or copied from)
+     */
+    public int getParentCell(int cell)
+    {
+        return parentCell[cell];
+    }
+
+} // AdaptiveGrid
@@ -0,0 +1,437 @@
+/*
+ * CellGrid.java
+ *
+ * Coverage cells of any size given as latitude/longitude rectangles, with an
+ * index by latitude band so the cells seen by a satellite are found from its
+ * visibility cap.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.coverage;
+
+import java.util.Arrays;
+import name.gano.astro.AstroConst;
+
+/**
+ * Coverage cells that are latitude/longitude rectangles of any size (rings of
+ * cells with a different number of cells in each ring, cells split into smaller
+ * ones, ...). Access is tested at the center of area of each cell (sea level,
+ * same Earth model and elevation test as CoverageGrid).
+ * <p>
+ * The cell centers are sorted into latitude bands about one cell high, and by
+ * longitude within each band. addCapFold takes the bands that overlap the
+ * satellite's visibility cap and in each band only tests the cells whose center
+ * longitude is within the widest part of the cap over the band.
+ * <p>
+ * The results are kept in a single row (cell k at [0][k]). Immutable after
+ * construction, so it can be shared by worker threads.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class CellGrid implements CoverageTessellation
+{
+    private final int numCells;
+
+    // cell rectangles and centers [deg]
+    private final double[] latMin;
+    private final double[] latMax;
+    private final double[] lonMin;
+    private final double[] lonMax;
+    private final double[] latCenter;
+    private final double[] lonCenter;
+
+    // packed x,y,z of cell k at 3*k
+    private final double[] pos;    // position [m]
+    private final double[] zenith; // local (geodetic) zenith unit vector
+
+    // smallest radius of a cell center [m] and largest angle between the geodetic and geocentric zenith [rad]
+    private double minRadius = Double.MAX_VALUE;
+    private double maxZenithTilt = 0;
+
+    // latitude bands: cells of band b are bandCells[bandStart[b] .. bandStart[b+1]-1] sorted by center longitude
+    private final int numBands;
+    private final double bandLat0;    // geocentric latitude of the bottom of band 0 [rad]
+    private final double bandHeight;  // [rad]
+    private final int[] bandStart;
+    private final int[] bandCells;
+    private final double[] bandCellLon;   // center longitude of bandCells, in [-PI, PI) [rad]
+    private final double[] bandMinLat;    // range of the geocentric center latitudes in each band [rad]
+    private final double[] bandMaxLat;
+    private final double[] bandMinEdge;   // range of the cell latitudes in each band [deg]
+    private final double[] bandMaxEdge;
+    private final double[] bandHalfWidth; // largest half width in longitude of a cell in each band [deg]
+
+    // round off margin on the cap elevations [rad]
+    private static final double CAP_MARGIN = 1.0e-9;
+
+    /**
+     * Creates the cells
+     * @param bounds minimum, maximum latitude and minimum, maximum longitude of cell k at 4*k .. 4*k+3 [deg]
+     */
+    protected CellGrid(double[] bounds)
+    {
+        numCells = bounds.length/4;
+        latMin = new double[numCells];
+        latMax = new double[numCells];
+        lonMin = new double[numCells];
+        lonMax = new double[numCells];
+        latCenter = new double[numCells];
+        lonCenter = new double[numCells];
+        pos = new double[3*numCells];
+        zenith = new double[3*numCells];
+        double[] centerLat = new double[numCells]; // geocentric [rad]
+        double[] centerLon = new double[numCells]; // [rad]
+
+        double f = AstroConst.f_Earth;
+        double totalArea = 0;
+        double bottom = Double.MAX_VALUE;
+        double top = -Double.MAX_VALUE;
+        for(int k = 0; k < numCells; k++)
+        {
+            latMin[k] = bounds[4*k];
+            latMax[k] = bounds[4*k+1];
+            lonMin[k] = bounds[4*k+2];
+            lonMax[k] = bounds[4*k+3];
+            totalArea += rectangleArea(latMin[k], latMax[k], lonMin[k], lonMax[k]);
+
+            // center of area: half of the cell's area on each side
+            double sinMin = Math.sin(latMin[k]*Math.PI/180.0);
+            double sinMax = Math.sin(latMax[k]*Math.PI/180.0);
+            latCenter[k] = Math.asin((sinMin + sinMax)/2.0)*180.0/Math.PI;
+            lonCenter[k] = (lonMin[k] + lonMax[k])/2.0;
+
+            // position and zenith (see CoverageGrid)
+            double lat = latCenter[k]*Math.PI/180.0;
+            double lon = lonCenter[k]*Math.PI/180.0;
+            double sinLat = Math.sin(lat);
+            double cosLat = Math.cos(lat);
+            double sinLon = Math.sin(lon);
+            double cosLon = Math.cos(lon);
+            double C = 1.0 / Math.sqrt( 1.0+f*(f-2.0)*sinLat*sinLat );
+            double S = (1.0-f)*(1.0-f) * C;
+
+            pos[3*k] = AstroConst.R_Earth * C * cosLat * cosLon;
+            pos[3*k+1] = AstroConst.R_Earth * C * cosLat * sinLon;
+            pos[3*k+2] = AstroConst.R_Earth * S * sinLat;
+            zenith[3*k] = cosLat * cosLon;
+            zenith[3*k+1] = cosLat * sinLon;
+            zenith[3*k+2] = sinLat;
+
+            double xy = AstroConst.R_Earth * C * cosLat;
+            double z = AstroConst.R_Earth * S * sinLat;
+            double radius = Math.sqrt(xy*xy + z*z);
+            centerLat[k] = Math.atan2(z, xy);
+            centerLon[k] = wrap(lon);
+            minRadius = Math.min(minRadius, radius);
+            maxZenithTilt = Math.max(maxZenithTilt, Math.abs(lat - centerLat[k]));
+            bottom = Math.min(bottom, centerLat[k]);
+            top = Math.max(top, centerLat[k]);
+        }
+
+        // bands about as high as an average cell
+        double cellSize = (numCells > 0) ? Math.sqrt(4.0*Math.PI*totalArea/numCells) : Math.PI;
+        numBands = (numCells > 0) ? Math.max(1, Math.min(numCells, (int)Math.ceil((top - bottom)/cellSize))) : 1;
+        bandLat0 = (numCells > 0) ? bottom : 0;
+        bandHeight = (numCells > 0 && top > bottom) ? (top - bottom)/numBands : Math.PI;
+
+        // sort the cells into the bands (counting sort), then by longitude within each band
+        int[] cellBand = new int[numCells];
+        bandStart = new int[numBands+1];
+        for(int k = 0; k < numCells; k++)
+        {
+            cellBand[k] = bandOf(centerLat[k]);
+            bandStart[cellBand[k]+1]++;
+        }
+        for(int b = 0; b < numBands; b++)
+        {
+            bandStart[b+1] += bandStart[b];
+        }
+        int[] next = Arrays.copyOf(bandStart, numBands);
+        bandCells = new int[numCells];
+        for(int k = 0; k < numCells; k++)
+        {
+            bandCells[next[cellBand[k]]++] = k;
+        }
+
+        bandCellLon = new double[numCells];
+        bandMinLat = new double[numBands];
+        bandMaxLat = new double[numBands];
+        bandMinEdge = new double[numBands];
+        bandMaxEdge = new double[numBands];
+        bandHalfWidth = new double[numBands];
+        for(int b = 0; b < numBands; b++)
+        {
+            int from = bandStart[b];
+            int to = bandStart[b+1];
+            sortByLongitude(from, to, centerLon);
+
+            bandMinLat[b] = Double.MAX_VALUE;
+            bandMaxLat[b] = -Double.MAX_VALUE;
+            bandMinEdge[b] = Double.MAX_VALUE;
+            bandMaxEdge[b] = -Double.MAX_VALUE;
+            for(int n = from; n < to; n++)
+            {
+                int k = bandCells[n];
+                bandCellLon[n] = centerLon[k];
+                bandMinLat[b] = Math.min(bandMinLat[b], centerLat[k]);
+                bandMaxLat[b] = Math.max(bandMaxLat[b], centerLat[k]);
+                bandMinEdge[b] = Math.min(bandMinEdge[b], latMin[k]);
+                bandMaxEdge[b] = Math.max(bandMaxEdge[b], latMax[k]);
+                bandHalfWidth[b] = Math.max(bandHalfWidth[b], (lonMax[k] - lonMin[k])/2.0);
+            }
+        }
+    } // CellGrid
+
+    private int bandOf(double geocentricLat)
+    {
+        int b = (int)Math.floor((geocentricLat - bandLat0)/bandHeight);
+        return Math.max(0, Math.min(numBands-1, b));
+    }
+
+    // sorts bandCells[from .. to-1] by center longitude (insertion sort, bands hold few cells)
+    private void sortByLongitude(int from, int to, double[] centerLon)
+    {
+        for(int n = from + 1; n < to; n++)
+        {
+            int k = bandCells[n];
+            int m = n - 1;
+            while(m >= from && centerLon[bandCells[m]] > centerLon[k])
+            {
+                bandCells[m+1] = bandCells[m];
+                m--;
+            }
+            bandCells[m+1] = k;
+        }
+    } // sortByLongitude
+
+    // angle in [-PI, PI)
+    private static double wrap(double angle)
+    {
+        double a = angle - 2.0*Math.PI*Math.floor((angle + Math.PI)/(2.0*Math.PI));
+        return (a >= Math.PI) ? a - 2.0*Math.PI : a;
+    }
+
+    /**
+     * @param latMin minimum latitude [deg]
+     * @param latMax maximum latitude [deg]
+     * @param lonMin minimum longitude [deg]
+     * @param lonMax maximum longitude [deg]
+     * @return area of the latitude/longitude rectangle as a fraction of the surface of a sphere
+     */
+    public static double rectangleArea(double latMin, double latMax, double lonMin, double lonMax)
+    {
+        double dSin = Math.sin(latMax*Math.PI/180.0) - Math.sin(latMin*Math.PI/180.0);
+        return dSin*(lonMax - lonMin)*Math.PI/180.0/(4.0*Math.PI);
+    }
+
+    public boolean isVisible(int cell, double[] satEarthFixed, double sinElevationLimit)
+    {
+        return CoverageGrid.isVisible(pos, zenith, cell, satEarthFixed, sinElevationLimit);
+    }
+
+    public void addCapFold(double[] satEarthFixed, double elevationLimit, double sinElevationLimit, int[] fold)
+    {
+        double x = satEarthFixed[0];
+        double y = satEarthFixed[1];
+        double z = satEarthFixed[2];
+        double rxy = Math.sqrt(x*x + y*y);
+        double r = Math.sqrt(rxy*rxy + z*z);
+        if(!(r > 0) || numCells == 0)
+        {
+            return;
+        }
+        double satSinLat = z/r;
+        double satCosLat = rxy/r;
+        double satLon = Math.atan2(y, x);
+        double satLat = Math.atan2(z, rxy);
+
+        // cells in this cap may see the satellite (see CoverageGrid.addCapFold)
+        double outer = CoverageGrid.capAngle(minRadius, r, elevationLimit - maxZenithTilt - CAP_MARGIN);
+        if(Double.isNaN(outer))
+        {
+            return; // satellite below the horizon everywhere
+        }
+        double cosOuter = Math.cos(outer);
+
+        // the widest part of the cap is where cos(dLon) is smallest, at sin(lat) = satSinLat/cosOuter
+        double widest = (Math.abs(satSinLat) < Math.abs(cosOuter)) ? Math.asin(satSinLat/cosOuter) : Double.NaN;
+
+        int bFrom = bandOf(satLat - outer);
+        int bTo = bandOf(satLat + outer);
+        for(int b = bFrom; b <= bTo; b++)
+        {
+            int from = bandStart[b];
+            int to = bandStart[b+1];
+            double lo = bandMinLat[b];
+            double hi = bandMaxLat[b];
+            if(from == to || lo - satLat > outer || satLat - hi > outer)
+            {
+                continue; // band outside the cap
+            }
+
+            // widest span of the cap over the band: at its ends, nearest the satellite or where the cap is widest
+            double half = bandHalfWidth(Math.max(lo, Math.min(hi, satLat)), satSinLat, satCosLat, cosOuter);
+            half = Math.max(half, bandHalfWidth(lo, satSinLat, satCosLat, cosOuter));
+            half = Math.max(half, bandHalfWidth(hi, satSinLat, satCosLat, cosOuter));
+            if(!Double.isNaN(widest) && widest > lo && widest < hi)
+            {
+                half = Math.max(half, bandHalfWidth(widest, satSinLat, satCosLat, cosOuter));
+            }
+            if(half < 0)
+            {
+                continue;
+            }
+
+            if(half >= Math.PI)
+            {
+                // whole band
+                for(int n = from; n < to; n++)
+                {
+                    int k = bandCells[n];
+                    if(isVisible(k, satEarthFixed, sinElevationLimit))
+                    {
+                        fold[k]++;
+                    }
+                }
+                continue;
+            }
+
+            // the span can cross +-180 deg, try it shifted by a turn both ways (cell longitudes are in [-PI, PI))
+            for(int turn = -1; turn <= 1; turn++)
+            {
+                double center = satLon + turn*2.0*Math.PI;
+                double west = center - half;
+                double east = center + half;
+                if(east < -Math.PI || west >= Math.PI)
+                {
+                    continue;
+                }
+                for(int n = lowerBound(from, to, west); n < to && bandCellLon[n] <= east; n++)
+                {
+                    int k = bandCells[n];
+                    if(isVisible(k, satEarthFixed, sinElevationLimit))
+                    {
+                        fold[k]++;
+                    }
+                }
+            }
+        } // for each band
+    } // addCapFold
+
+    // half width of the cap at a geocentric latitude [rad], -1 if the latitude is outside the cap
+    private static double bandHalfWidth(double lat, double satSinLat, double satCosLat, double cosCap)
+    {
+        double half = CoverageGrid.halfWidth(Math.sin(lat), Math.cos(lat), satSinLat, satCosLat, cosCap);
+        return Double.isNaN(half) ? -1 : half;
+    }
+
+    // first entry of bandCellLon[from .. to-1] at or above lon
+    private int lowerBound(int from, int to, double lon)
+    {
+        int lo = from;
+        int hi = to;
+        while(lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if(bandCellLon[mid] < lon)
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo;
+    } // lowerBound
+
+    public int findCell(double lat, double lon)
+    {
+        for(int b = 0; b < numBands; b++)
+        {
+            if(lat < bandMinEdge[b] || lat > bandMaxEdge[b])
+            {
+                continue;
+            }
+            // cells whose center is within the widest cell of the band
+            double lonRad = lon*Math.PI/180.0;
+            double reach = bandHalfWidth[b]*Math.PI/180.0;
+            for(int turn = -1; turn <= 1; turn++)
+            {
+                double center = wrap(lonRad) + turn*2.0*Math.PI;
+                for(int n = lowerBound(bandStart[b], bandStart[b+1], center - reach); n < bandStart[b+1] && bandCellLon[n] <= center + reach; n++)
+                {
+                    int k = bandCells[n];
+                    if(lat >= latMin[k] && lat <= latMax[k] && contains(lonMin[k], lonMax[k], lon))
+                    {
+                        return k;
+                    }
+                }
+            }
+        }
+        return -1;
+    } // findCell
+
+    // longitude inside [lonMin, lonMax] allowing for whole turns
+    private static boolean contains(double lonMin, double lonMax, double lon)
+    {
+        double l = lon - 360.0*Math.floor((lon - lonMin)/360.0); // in [lonMin, lonMin+360)
+        return l <= lonMax;
+    }
+
+    public int getNumCells()
+    {
+        return numCells;
+    }
+
+    public int getRows()
+    {
+        return 1;
+    }
+
+    public int getColumns()
+    {
+        return numCells;
+    }
+
+    public double getCellLatitude(int cell)
+    {
+        return latCenter[cell];
+    }
+
+    public double getCellLongitude(int cell)
+    {
+        return lonCenter[cell];
+    }
+
+    public void getCellBounds(int cell, double[] bounds)
+    {
+        bounds[0] = latMin[cell];
+        bounds[1] = latMax[cell];
+        bounds[2] = lonMin[cell];
+        bounds[3] = lonMax[cell];
+    }
+
+    public double getCellArea(int cell)
+    {
+        return rectangleArea(latMin[cell], latMax[cell], lonMin[cell], lonMax[cell]);
+    }
+
+} // CellGrid
@@ -27,14 +27,27 @@ package jsattrak.coverage;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import jsattrak.gui.J2dEarthLabel2;
 import jsattrak.objects.AbstractSatellite;
 import jsattrak.objects.GroundStation;
+import jsattrak.utilities.DaemonThreadFactory;
+import name.gano.astro.AstroConst;
 import name.gano.astro.GeoFunctions;
+import name.gano.astro.Sidereal;
 import name.gano.astro.time.Time;
 
 /**
@@ -43,13 +56,57 @@ import name.gano.astro.time.Time;
  */
 public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependent
 {
+    // access algorithms
+    /** search outwards row by row from the panel under the satellite until the elevation drops below the limit */
+    public static final int ACCESS_FLOOD_FILL = 0;
+    /** mark the panels inside the satellite's visibility cap (see CoverageGrid.addCapAccess) */
+    public static final int ACCESS_SPHERICAL_CAP = 1;
+    
+    // data layers that can be displayed (see CoverageStatistics)
+    /** cumulative coverage time */
+    public static final int LAYER_COVERAGE_TIME = 0;
+    /** number of accesses */
+    public static final int LAYER_NUM_ACCESSES = 1;
+    /** mean gap (revisit time) */
+    public static final int LAYER_MEAN_GAP = 2;
+    /** longest gap */
+    public static final int LAYER_MAX_GAP = 3;
+    /** time average gap */
+    public static final int LAYER_TIME_AVERAGE_GAP = 4;
+    /** time with at least displayFold satellites in view */
+    public static final int LAYER_FOLD_TIME = 5;
+    /** largest number of satellites in view at once */
+    public static final int LAYER_MAX_FOLD = 6;
+    
+    // grid types (see CoverageTessellation)
+    /** latPanels x longPanels panels of equal size in latitude and longitude (CoverageGrid) */
+    public static final int GRID_LAT_LONG = 0;
+    /** equal-area cells in rings of constant latitude (EqualAreaGrid) */
+    public static final int GRID_EQUAL_AREA = 1;
+    
     // data arrays
-    private  double[][] coverageCumTime;  // cumulative coverage time array [latPanels x longPanels] in days
+    private  double[][] coverageCumTime;  // cumulative coverage time array [rows x columns] in days (see CoverageTessellation, [latPanels x longPanels] for GRID_LAT_LONG)
      // in degrees
     private double[] latPanelMidPoints; // middle point latitude of each division/panel
     private double[] lonPanelMidPoints; // middle point longitude of each division/panel
     private double[] latGridPoints; // grid end points for latitude
     private double[] lonGridPoints; // grid end points for longitude
+    private transient CoverageGrid coverageGrid; // position and zenith of the panel mid points (built with the mid points)
+    private transient CoverageTessellation tessellation; // cells the results are kept for (coverageGrid for GRID_LAT_LONG)
+    private transient CoverageTessellation refinedTessellation; // cells from refineCoverageBoundaries, used instead of the grid settings
+    private CoverageStatistics coverageStatistics; // accesses, gaps and fold of each panel
+    private transient int[] stepFold; // satellites in view of each cell at the current step
+    private transient CoverageRecorder recorder; // time history of the access of each cell (null if not recording)
+    
+    // image of the displayed layer (see getCoverageImage), rebuilt only when displayVersion changes
+    private transient long displayVersion = 0; // changed whenever the data, layer, color map or alpha changes
+    private transient long imageVersion = -1;
+    private transient BufferedImage coverageImage;
+    private transient int[] coverageImagePixels; // ARGB, row 0 at the maximum latitude
+    private transient CoverageTessellation imageCells; // cells the image size was picked for
+    private transient double[] imageSector; // minimum, maximum latitude, minimum, maximum longitude of the image [deg]
+    private int maxImageWidth = 4096; // [pixels] (cells smaller than a pixel share pixels)
+    private int maxImageHeight = 2048;
    
     private double minNotZeroVal = 1;  // current maximum and minimum (NOT ZERO) values 
     private double maxVal = 100;
@@ -72,11 +129,21 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
     private double[] latBounds = {-90.0, 90.0}; // minimum,maxium latitude to use in coverage anaylsis
     private double[] longBounds = {-180.0, 180.0}; // minimum,maxium longitude to use in coverage anaylsis
     
+    private int gridType = GRID_LAT_LONG; // how the coverage area is split into cells
+    private double equalAreaCellSize = 5.0; // cell size for GRID_EQUAL_AREA [deg]
+    private double[] refineLatBounds = null; // area of interest with smaller cells [deg] (null for none)
+    private double[] refineLongBounds = null;
+    private int refineLevels = 0; // cells in the area of interest are split into 4^refineLevels cells
+    
     private int alpha = 150; //151; // tranparency of colored panels, 0=can't see it, 255=solid
     
     private boolean dynamicUpdating = true; // if dynamic updating from GUI time stepping is enabled
     private boolean plotCoverageGrid = false; // plot panel grid and center points of panels
     private double elevationLimit = 15; //15; // elevation limit for ground coverage [degrees] (must be higher for this to count as coverage
+    private int accessAlgorithm = ACCESS_SPHERICAL_CAP; // how the panels seen by each satellite are found
+    private int numFoldBins = 8; // fold time kept for 0 .. numFoldBins-1 (or more) satellites in view
+    private int displayLayer = LAYER_COVERAGE_TIME; // data shown in the 2D and 3D windows
+    private int displayFold = 2; // number of satellites for LAYER_FOLD_TIME
     private NumberFormat colorBarNumberFormat = new DecimalFormat("0.00E0");
     private boolean showColorBar = true; // Color bar settings
     private int pixelsFromBottom = 20;
@@ -88,6 +155,14 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
     Color colorbarBGcolor = new Color(255, 255, 255, 180);
     private Color colorBarTextcolor = Color.BLACK;
     
+    // multi-threading: satellites are split between workers, each with its own access array
+    private boolean parallelAnalysis = true;
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private int minSatsPerThread = 4; // fewer satellites are not worth the hand off
+    private transient ExecutorService executor;
+    private transient int executorThreads = 0;
+    private transient int[][] workerFold; // [worker][cell]
+    
     // default constructor
     public CoverageAnalyzer()
     {
@@ -142,8 +217,6 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
     // initalized all parameters (used at class construction to create all arrays, etc)
     private void iniParamters()
     {
-        // cumulative time create new array (default 0)
-        coverageCumTime = new double[latPanels][longPanels];
         // mid points
         latPanelMidPoints = new double[latPanels];
         lonPanelMidPoints = new double[longPanels];
@@ -169,11 +242,107 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
             }
         }
         
+        // fixed geometry of the panel mid points for the access tests
+        coverageGrid = new CoverageGrid(latBounds, longBounds, latPanels, longPanels);
+        tessellation = createTessellation();
+        
+        // cumulative time create new array (default 0)
+        coverageCumTime = new double[tessellation.getRows()][tessellation.getColumns()];
+        coverageStatistics = new CoverageStatistics(tessellation.getRows(), tessellation.getColumns(), numFoldBins);
+        displayVersion++;
+        
         // clear last mjd update
         lastMJD = -1;
         
     }// iniParamters
     
+    // cells for the grid settings
+    private CoverageTessellation createTessellation()
+    {
+        if(refinedTessellation != null)
+        {
+            return refinedTessellation;
+        }
+        
+        CoverageTessellation cells = coverageGrid;
+        if(gridType == GRID_EQUAL_AREA)
+        {
+            cells = new EqualAreaGrid(latBounds, longBounds, equalAreaCellSize);
+        }
+        if(refineLevels > 0 && refineLatBounds != null && refineLongBounds != null)
+        {
+            cells = new AdaptiveGrid(cells, AdaptiveGrid.markArea(cells, refineLatBounds, refineLongBounds), refineLevels);
+        }
+        return cells;
+    } // createTessellation
+
+    /**
+     * Called when the analyzer is loaded from a saved scenario (XStream does not run the constructor or the field
+     * initializers): defaults the settings scenarios from older versions do not have and rebuilds the cells.
+     * The saved coverage data is kept if it still matches the cells (refined cells are not saved), otherwise it is cleared.
+     * @return this analyzer
+     */
+    private Object readResolve()
+    {
+        // settings missing from older scenarios (saved before the worker threads, they have none of the settings below)
+        boolean olderVersion = (numThreads < 1);
+        if(olderVersion)
+        {
+            numThreads = Runtime.getRuntime().availableProcessors();
+            parallelAnalysis = true;
+            accessAlgorithm = ACCESS_SPHERICAL_CAP;
+            displayFold = 2;
+        }
+        if(minSatsPerThread < 1)
+        {
+            minSatsPerThread = 4;
+        }
+        if(numFoldBins < 1)
+        {
+            numFoldBins = 8;
+        }
+        if(equalAreaCellSize <= 0)
+        {
+            equalAreaCellSize = 5.0;
+        }
+        if(maxImageWidth < 1)
+        {
+            maxImageWidth = 4096;
+        }
+        if(maxImageHeight < 1)
+        {
+            maxImageHeight = 2048;
+        }
+        if(satsUsedInCoverage == null)
+        {
+            satsUsedInCoverage = new Vector<String>();
+        }
+
+        // cells (transient), then the saved data if it still fits them
+        double[][] savedCumTime = coverageCumTime;
+        CoverageStatistics savedStatistics = coverageStatistics;
+        double savedLastMJD = lastMJD;
+        refinedTessellation = null;
+        stepFold = null;
+        coverageImage = null;
+        imageCells = null;
+        imageVersion = -1;
+        iniParamters();
+        
+        if(savedCumTime != null && savedCumTime.length == tessellation.getRows() 
+                && savedCumTime[0].length == tessellation.getColumns() && savedStatistics != null
+                && savedStatistics.getLatPanels() == tessellation.getRows()
+                && savedStatistics.getLongPanels() == tessellation.getColumns()
+                && savedStatistics.getNumFoldBins() == numFoldBins)
+        {
+            coverageCumTime = savedCumTime;
+            coverageStatistics = savedStatistics;
+            lastMJD = savedLastMJD;
+        }
+        
+        return this;
+    } // readResolve
+    
     // test main function
     public static void main(String[] args)
     {
@@ -224,256 +393,309 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
         double timeDiffDays = currentJulianDate.getMJD() - lastMJD;
         lastMJD = currentJulianDate.getMJD();
         
-        // create temp array for time cumlation (so we don't double count sat coverage)
-        // each panel either has access or it doesn't for the current time step -- boolean 
-        boolean[][] tempAcessArray = new boolean[latPanels][longPanels];
+        // number of satellites seeing each panel for this time step (so we don't double count sat coverage,
+        // each panel either has access or it doesn't for the current time step)
+        if(stepFold == null || stepFold.length != tessellation.getNumCells())
+        {
+            stepFold = new int[tessellation.getNumCells()];
+        }
+        int[] fold = stepFold;
+        Arrays.fill(fold, 0);
         
         // === do coverage anaylsis, for each satellite ===
+        AbstractSatellite[] sats = new AbstractSatellite[satsUsedInCoverage.size()];
+        int nSats = 0;
         for(String satName : satsUsedInCoverage)
         {
             // get sat Object
             AbstractSatellite currentSat = satHash.get(satName);
-            
-            // check to see if satellite is in lat/long AOI coverage box
-            if(currentSat.getLatitude()*180/Math.PI  >= latBounds[0]  && 
-               currentSat.getLatitude()*180/Math.PI  <= latBounds[1]  &&
-               currentSat.getLongitude()*180/Math.PI >= longBounds[0] &&
-               currentSat.getLongitude()*180/Math.PI <= longBounds[1]    )
+            if(currentSat != null)
             {
-                
-                // find closest panel under satellite and the index of that panel
-                double latPercentile = (currentSat.getLatitude()*180/Math.PI-latBounds[0]) / (latBounds[1]-latBounds[0]);
-                int latIndex = (int)Math.floor(latPercentile*latPanels);
-                double longPercentile = (currentSat.getLongitude()*180/Math.PI-longBounds[0]) / (longBounds[1]-longBounds[0]);
-                int longIndex = (int)Math.floor(longPercentile*longPanels);
-                
-                // Coverage assumes sat doesn't have a shaped sensor and it can look straight down (nadir)
-                // debug for now mark point as access added
-                double[] aer = new double[3];
-//                aer = GeoFunctions.calculate_AER(currentJulianDate.getJulianDate(), 
-//                        new double[]{latPanelMidPoints[latIndex],lonPanelMidPoints[longIndex],0},  // sea level
-//                        currentSat.getPosMOD());
-//                
-//                // see if sat sub-point panel has access (otherwise nothing does)
-//                if(aer[1] >= elevationLimit)
-//                {
-//                    tempAcessArray[latIndex][longIndex] = true; // can't assume access here!
-//                }
-                
-                // Search up=====================================================
-                // search upwards until no access (careful of lat >90)
-                int i = latIndex; // includes satellite sub point
-                double tempElevation2=0; // used in searching to the left and right
-                do
-                {
-                    // take care of when i >= latPanels (reflection for longitude index and make lat go down instead of up (and stay at top one iter)
-                    
-                    aer = GeoFunctions.calculate_AER(currentJulianDate.getJulianDate(), 
-                        new double[]{getLatPanelMidPoints()[i],getLonPanelMidPoints()[longIndex],0},  // sea level
-                        currentSat.getTEMEPos());
-                    
-                    if(aer[1] >= elevationLimit)
-                    {
-                        tempAcessArray[i][longIndex] = true;
-                        // search to the left =============================
-                        int j=longIndex-1;
-                        int longSearchCount = 0;
-                        int jWrappedIndex = j; // updated so seach can wrap around map
-                        do
-                        {
-                            // take car of i and j with wrap arounds
-                            if(j < 0)
-                            {
-                                jWrappedIndex = longPanels + j;
-                            }
-                            else if(j >= longPanels)
-                            {
-                                jWrappedIndex = j - longPanels;
-                            }
-                            else
-                            {
-                                jWrappedIndex = j;
-                            }
-                            
-                            tempElevation2 = GeoFunctions.calculate_AER(currentJulianDate.getJulianDate(), 
-                                new double[]{getLatPanelMidPoints()[i],getLonPanelMidPoints()[jWrappedIndex],0},  // sea level
-                                currentSat.getTEMEPos())[1];
-                            if(tempElevation2 >= elevationLimit)
-                            {
-                                tempAcessArray[i][jWrappedIndex] = true;
-                            }
-                            
-                            j--;
-                            longSearchCount++; // make sure we don't get stuck on seaching a row over and over
-                        }while(tempElevation2 >= elevationLimit && longSearchCount < longPanels); 
-                        // search to the left =============================
-                        // search to the Right =============================
-                        j=longIndex+1;
-                        longSearchCount = 0;
-                        jWrappedIndex = j; // updated so seach can wrap around map
-                        do
-                        {
-                            // take car of i and j with wrap arounds
-                            if(j < 0)
-                            {
-                                jWrappedIndex = longPanels + j;
-                            }
-                            else if(j >= longPanels)
-                            {
-                                jWrappedIndex = j - longPanels;
-                            }
-                            else
-                            {
-                                jWrappedIndex = j;
-                            }
-                            
-                            tempElevation2 = GeoFunctions.calculate_AER(currentJulianDate.getJulianDate(), 
-                                new double[]{getLatPanelMidPoints()[i],getLonPanelMidPoints()[jWrappedIndex],0},  // sea level
-                                currentSat.getTEMEPos())[1];
-                            if(tempElevation2 >= elevationLimit)
-                            {
-                                tempAcessArray[i][jWrappedIndex] = true;
-                            }
-                            
-                            j++;
-                            longSearchCount++; // make sure we don't get stuck on seaching a row over and over
-                        }while(tempElevation2 >= elevationLimit && longSearchCount < longPanels); 
-                        // search to the Right =============================
-                        
-                    }
-                    
-                    i++;
-                }while(aer[1] >= elevationLimit && i < latPanels); // do while - only search up to top of panel
-                // Search up=====================================================
-                // Search down=====================================================
-                // search down until no access (careful of lat >90)
-                i = latIndex - 1; // includes satellite sub point
-                tempElevation2 = 0; // used in searching to the left and right
-                if (i >= 0) // avoid searching down if i is already 0
-                {
-                    do
-                    {
-                        // take care of when i >= latPanels (reflection for longitude index and make lat go down instead of up (and stay at top one iter)
-                        aer = GeoFunctions.calculate_AER(currentJulianDate.getJulianDate(),
-                                new double[]
-                                {
-                                    getLatPanelMidPoints()[i], getLonPanelMidPoints()[longIndex], 0
-                                
-                                }, // sea level
-                                currentSat.getTEMEPos());
-
-                        if (aer[1] >= elevationLimit)
-                        {
-                            tempAcessArray[i][longIndex] = true;
-                            // search to the left =============================
-                            int j = longIndex - 1;
-                            int longSearchCount = 0;
-                            int jWrappedIndex = j; // updated so seach can wrap around map
-
-                            do
-                            {
-                                // take car of i and j with wrap arounds
-                                if (j < 0)
-                                {
-                                    jWrappedIndex = longPanels + j;
-                                }
-                                else if (j >= longPanels)
-                                {
-                                    jWrappedIndex = j - longPanels;
-                                }
-                                else
-                                {
-                                    jWrappedIndex = j;
-                                }
-
-                                tempElevation2 = GeoFunctions.calculate_AER(currentJulianDate.getJulianDate(),
-                                        new double[] {getLatPanelMidPoints()[i], getLonPanelMidPoints()[jWrappedIndex], 0}, // sea level
-                                        currentSat.getTEMEPos())[1];
-                                if (tempElevation2 >= elevationLimit)
-                                {
-                                    tempAcessArray[i][jWrappedIndex] = true;
-                                }
-
-                                j--;
-                                longSearchCount++; // make sure we don't get stuck on seaching a row over and over
-                            }while (tempElevation2 >= elevationLimit && longSearchCount < longPanels);
-                            // search to the left =============================
-                            // search to the Right =============================
-                            j = longIndex + 1;
-                            longSearchCount = 0;
-                            jWrappedIndex = j; // updated so seach can wrap around map
-                            do
-                            {
-                                // take car of i and j with wrap arounds
-                                if (j < 0)
-                                {
-                                    jWrappedIndex = longPanels + j;
-                                }
-                                else if (j >= longPanels)
-                                {
-                                    jWrappedIndex = j - longPanels;
-                                }
-                                else
-                                {
-                                    jWrappedIndex = j;
-                                }
-                                
-                                tempElevation2 = GeoFunctions.calculate_AER(currentJulianDate.getJulianDate(),
-                                        new double[]{getLatPanelMidPoints()[i], getLonPanelMidPoints()[jWrappedIndex], 0}, // sea level
-                                        currentSat.getTEMEPos())[1];
-                                if (tempElevation2 >= elevationLimit)
-                                {
-                                    tempAcessArray[i][jWrappedIndex] = true;
-                                }
-
-                                j++;
-                                longSearchCount++; // make sure we don't get stuck on seaching a row over and over
-                            }
-                            while (tempElevation2 >= elevationLimit && longSearchCount < longPanels);
-                        // search to the Right =============================
-
-                        } // if in elecation limit
-
-                        i--;
-                    }while (aer[1] >= elevationLimit && i >= 0); // do while
-                } // if already at 0 no need to search down
-                // Search down=====================================================
-                
-                
-            }// sat is in coverage AOI           
-        } // for each satellite - Coverage anaylsis
+                sats[nSats++] = currentSat;
+            }
+        }
         
-        // merge temp and timecumarray // and update max and min values
-        minNotZeroVal = Double.MAX_VALUE; // really high to start
-        maxVal = -1; // really low to start
-        for(int i=0;i<latPanels;i++) 
+        // Earth rotation and elevation limit for this step (the same for every satellite and panel)
+        double theta = Sidereal.Greenwich_Mean_Sidereal_Deg(currentJulianDate.getJulianDate()-AstroConst.JDminusMJD)*Math.PI/180.0;
+        double cosTheta = Math.cos(theta);
+        double sinTheta = Math.sin(theta);
+        double sinElevationLimit = Math.sin(elevationLimit*Math.PI/180.0);
+        final boolean capAccess = (accessAlgorithm == ACCESS_SPHERICAL_CAP) || tessellation != coverageGrid; // the search only works on the lat/long grid
+        
+        int nWorkers = Math.min(numThreads, nSats/minSatsPerThread);
+        if(parallelAnalysis && nWorkers > 1)
+        {
+            addAccessParallel(tessellation, cosTheta, sinTheta, sinElevationLimit, capAccess, sats, nSats, nWorkers, fold);
+        }
+        else
+        {
+            for(int k = 0; k < nSats; k++)
+            {
+                addSatelliteAccess(tessellation, cosTheta, sinTheta, sinElevationLimit, capAccess, sats[k], fold);
+            }
+        }
+        
+        // merge temp and timecumarray
+        int rows = tessellation.getRows();
+        int columns = tessellation.getColumns();
+        for(int i=0;i<rows;i++) 
         {
-            for(int j=0;j<longPanels;j++)
+            for(int j=0;j<columns;j++)
             {
                 // DEBUG CLEAR VALUE SO ONLY POINTS CURRENTLY IN VIEW SHOW UP
                 //coverageCumTime[i][j] = 0;
                 
-                if(tempAcessArray[i][j])
+                if(fold[i*columns + j] > 0)
                 {
                     coverageCumTime[i][j] += timeDiffDays;
                 } // if access at this point
                 
-                // update max and min
-                if(getCoverageCumTime()[i][j] > maxVal)
+            } // long panels (j)
+        } // lat panels (i) (merge data)
+        
+        // accesses, gaps and fold
+        coverageStatistics.update(fold, timeDiffDays);
+        
+        // time history
+        if(recorder != null)
+        {
+            try
+            {
+                recorder.recordStep(currentJulianDate.getJulianDate(), timeDiffDays, fold);
+            }
+            catch(IOException e)
+            {
+                System.out.println("Error recording coverage history (recording stopped): " + e.toString());
+                recorder = null;
+            }
+        }
+        
+        // update max and min values
+        updateDisplayRange();
+        
+    } // performCoverageAnalysis
+    
+    // max and min (not zero) values of the displayed layer
+    private void updateDisplayRange()
+    {
+        minNotZeroVal = Double.MAX_VALUE; // really high to start
+        maxVal = -1; // really low to start
+        for(int i=0;i<coverageCumTime.length;i++) 
+        {
+            for(int j=0;j<coverageCumTime[i].length;j++)
+            {
+                double val = getLayerValue(i, j);
+                if(val > maxVal)
                 {
-                    maxVal = getCoverageCumTime()[i][j];
+                    maxVal = val;
                 }
-                if(getCoverageCumTime()[i][j] < minNotZeroVal && getCoverageCumTime()[i][j] > 0)
+                if(val < minNotZeroVal && val > 0)
                 {
-                   minNotZeroVal =  getCoverageCumTime()[i][j];
+                   minNotZeroVal = val;
                 }
-                
-            } // long panels (j)
-        } // lat panels (i) (merge data)
+            }
+        }
+        displayVersion++;
+    } // updateDisplayRange
+    
+    // each worker counts the fold of every nWorkers-th satellite in its own array, the arrays are then summed
+    // into fold (the same counts as the serial loop, whatever the order the workers finish in)
+    private void addAccessParallel(final CoverageTessellation grid, final double cosTheta, final double sinTheta, final double sinElevationLimit,
+            final boolean capAccess, final AbstractSatellite[] sats, final int nSats, final int nWorkers, int[] fold)
+    {
+        if(executor == null || executorThreads != numThreads)
+        {
+            createExecutor();
+        }
         
+        if(workerFold == null || workerFold.length < nWorkers || workerFold[0].length != fold.length)
+        {
+            workerFold = new int[nWorkers][fold.length];
+        }
+        
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(nWorkers);
+        for(int w = 0; w < nWorkers; w++)
+        {
+            final int worker = w;
+            final int[] workerArray = workerFold[w];
+            tasks.add(new Callable<Object>()
+            {
+                public Object call()
+                {
+                    Arrays.fill(workerArray, 0);
+                    for(int k = worker; k < nSats; k += nWorkers)
+                    {
+                        addSatelliteAccess(grid, cosTheta, sinTheta, sinElevationLimit, capAccess, sats[k], workerArray);
+                    }
+                    return null;
+                }
+            });
+        }
+        
+        try
+        {
+            List<Future<Object>> results = executor.invokeAll(tasks);
+            for(Future<Object> f : results)
+            {
+                f.get(); // re-throws any error from the worker
+            }
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        catch(ExecutionException e)
+        {
+            DaemonThreadFactory.printTaskError("coverage analysis", e);
+            return;
+        }
+        
+        // sum reduction
+        for(int w = 0; w < nWorkers; w++)
+        {
+            int[] workerArray = workerFold[w];
+            for(int k = 0; k < fold.length; k++)
+            {
+                fold[k] += workerArray[k];
+            }
+        }
+    } // addAccessParallel
+    
+    private void createExecutor()
+    {
+        if(executor != null)
+        {
+            executor.shutdown();
+        }
+        
+        executorThreads = numThreads;
+        executor = Executors.newFixedThreadPool(numThreads, new DaemonThreadFactory("JSatTrak-coverage-"));
+    } // createExecutor
+    
+    /**
+     * Stops the worker threads (a new pool is created if needed later)
+     */
+    public void shutdown()
+    {
+        if(executor != null)
+        {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+    
+    // adds one to the fold of every panel the satellite can see (above the elevation limit), either from its visibility
+    // cap or searching outwards from the panel under the satellite (row by row up and down, each row left and right)
+    private void addSatelliteAccess(CoverageTessellation cells, double cosTheta, double sinTheta, double sinElevationLimit, boolean capAccess, AbstractSatellite currentSat, int[] fold)
+    {
+        // satellite in the Earth fixed frame of the grid
+        double[] satPos = new double[3];
+        CoverageGrid.toEarthFixed(cosTheta, sinTheta, currentSat.getTEMEPos(), satPos);
+        
+        if(capAccess)
+        {
+            // also counts panels in the coverage area seen by satellites outside of it
+            cells.addCapFold(satPos, elevationLimit*Math.PI/180.0, sinElevationLimit, fold);
+            return;
+        }
+        CoverageGrid grid = (CoverageGrid)cells; // the search is only used on the lat/long grid
+        
+        // check to see if satellite is in lat/long AOI coverage box
+        if(currentSat.getLatitude()*180/Math.PI  >= latBounds[0]  && 
+           currentSat.getLatitude()*180/Math.PI  <= latBounds[1]  &&
+           currentSat.getLongitude()*180/Math.PI >= longBounds[0] &&
+           currentSat.getLongitude()*180/Math.PI <= longBounds[1]    )
+        {
+            
+            // find closest panel under satellite and the index of that panel
+            double latPercentile = (currentSat.getLatitude()*180/Math.PI-latBounds[0]) / (latBounds[1]-latBounds[0]);
+            int latIndex = (int)Math.floor(latPercentile*latPanels);
+            double longPercentile = (currentSat.getLongitude()*180/Math.PI-longBounds[0]) / (longBounds[1]-longBounds[0]);
+            int longIndex = (int)Math.floor(longPercentile*longPanels);
+            
+            // Coverage assumes sat doesn't have a shaped sensor and it can look straight down (nadir)
+            boolean visible;
+            
+            // Search up=====================================================
+            // search upwards until no access (careful of lat >90)
+            int i = latIndex; // includes satellite sub point
+            do
+            {
+                visible = grid.isVisible(i, longIndex, satPos, sinElevationLimit);
+                if(visible)
+                {
+                    fold[i*longPanels + longIndex]++;
+                    searchRow(grid, i, longIndex, satPos, sinElevationLimit, fold);
+                }
+                
+                i++;
+            }while(visible && i < latPanels); // do while - only search up to top of panel
+            // Search up=====================================================
+            // Search down=====================================================
+            // search down until no access (careful of lat >90)
+            i = latIndex - 1; // includes satellite sub point
+            if (i >= 0) // avoid searching down if i is already 0
+            {
+                do
+                {
+                    visible = grid.isVisible(i, longIndex, satPos, sinElevationLimit);
+                    if (visible)
+                    {
+                        fold[i*longPanels + longIndex]++;
+                        searchRow(grid, i, longIndex, satPos, sinElevationLimit, fold);
+                    } // if in elecation limit
 
+                    i--;
+                }while (visible && i >= 0); // do while
+            } // if already at 0 no need to search down
+            // Search down=====================================================
+            
+        }// sat is in coverage AOI
+    } // addSatelliteAccess
+    
+    // searches row i to the left then to the right of panel longIndex (already counted) until no access, wrapping
+    // around the map, the right search stops at the panels the left search reached so no panel is counted twice
+    private void searchRow(CoverageGrid grid, int i, int longIndex, double[] satPos, double sinElevationLimit, int[] fold)
+    {
+        int rowStart = i*longPanels;
         
-    } // performCoverageAnalysis
+        // search to the left =============================
+        int left = 0; // panels searched to the left
+        boolean visible2 = true;
+        while(visible2 && left < longPanels-1)
+        {
+            left++;
+            int j = longIndex - left;
+            if(j < 0)
+            {
+                j += longPanels;
+            }
+            visible2 = grid.isVisible(i, j, satPos, sinElevationLimit);
+            if(visible2)
+            {
+                fold[rowStart + j]++;
+            }
+        }
+        
+        // search to the Right =============================
+        int right = 0; // panels searched to the right
+        visible2 = true;
+        while(visible2 && left + right < longPanels-1)
+        {
+            right++;
+            int j = longIndex + right;
+            if(j >= longPanels)
+            {
+                j -= longPanels;
+            }
+            visible2 = grid.isVisible(i, j, satPos, sinElevationLimit);
+            if(visible2)
+            {
+                fold[rowStart + j]++;
+            }
+        }
+    } // searchRow
     
     // draw 2d
     public void draw2d(Graphics2D g2, J2dEarthLabel2 earthLabel, int totWidth, int totHeight, int imgWidth, int imgHeight, double zoomFac, double cLat, double cLong)
@@ -481,8 +703,25 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
         int[] xy = new int[2];
         int[] xy_old = new int[2];
         
+        double[] bounds = new double[4];
+        
         // draw in grid lines for lat and long of coverage area
-        if (plotCoverageGrid)
+        if (plotCoverageGrid && tessellation != coverageGrid)
+        {
+            // outline and center point of each cell
+            g2.setColor(new Color(0.0f, 1.0f, 0.0f, 0.2f));
+            for(int k = 0; k < tessellation.getNumCells(); k++)
+            {
+                tessellation.getCellBounds(k, bounds);
+                xy = earthLabel.findXYfromLL(bounds[0], bounds[2], totWidth, totHeight, imgWidth, imgHeight, zoomFac, cLat, cLong);
+                xy_old = earthLabel.findXYfromLL(bounds[1], bounds[3], totWidth, totHeight, imgWidth, imgHeight, zoomFac, cLat, cLong);
+                g2.drawRect(Math.min(xy[0], xy_old[0]), Math.min(xy[1], xy_old[1]), Math.abs(xy_old[0]-xy[0]), Math.abs(xy_old[1]-xy[1]));
+                
+                xy = earthLabel.findXYfromLL(tessellation.getCellLatitude(k), tessellation.getCellLongitude(k), totWidth, totHeight, imgWidth, imgHeight, zoomFac, cLat, cLong);
+                g2.drawRect(xy[0], xy[1], 1, 1);
+            }
+        }
+        else if (plotCoverageGrid)
         {
             g2.setColor(new Color(0.0f, 1.0f, 0.0f, 0.2f));
             for (double lat : getLatGridPoints())
@@ -515,35 +754,13 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
                 }
             }
         } // graw grid and center points
-        // fill in color scaled panels based on cumulative Coverage time
-        // should combine with above... just use alpha =0.0 when panel is blank
-        int xmax, xmin, ymax, ymin;
-        for(int i=0;i<getLatPanelMidPoints().length;i++)
-        {
-            for(int j=0;j<getLonPanelMidPoints().length;j++)
-            {
-                xy = earthLabel.findXYfromLL(getLatGridPoints()[i], getLonGridPoints()[j],totWidth,totHeight,imgWidth,imgHeight,zoomFac,cLat,cLong);
-                xy_old = earthLabel.findXYfromLL(getLatGridPoints()[i+1], getLonGridPoints()[j+1],totWidth,totHeight,imgWidth,imgHeight,zoomFac,cLat,cLong);
-                
-                xmax = Math.max(xy[0], xy_old[0]);
-                xmin = Math.min(xy[0], xy_old[0]);
-                ymax = Math.max(xy[1], xy_old[1]);
-                ymin = Math.min(xy[1], xy_old[1]);
-                
-                // color based on: coverageCumTime[i][j]
-                // dummy way for now black or white
-                if(getCoverageCumTime()[i][j]>0)
-                {
-                    g2.setColor( colorMap.getColor(getCoverageCumTime()[i][j], minNotZeroVal, maxVal, alpha)  );
-                    g2.fillRect(xmin, ymin, xmax-xmin,ymax-ymin);//xy_old[0]-xy[0], xy_old[1]-xy[1]);
-                }
-                else
-                {
-                    // don't draw anything
-                }
-                
-            } // for lon panels
-        } // for lat panels
+        // color scaled cells of the displayed layer (coverageCumTime by default): one cached image
+        // stretched over the coverage area, the map is equirectangular like the image
+        BufferedImage image = getCoverageImage();
+        double[] sector = getCoverageImageSector();
+        xy = earthLabel.findXYfromLL(sector[1], sector[2], totWidth, totHeight, imgWidth, imgHeight, zoomFac, cLat, cLong);
+        xy_old = earthLabel.findXYfromLL(sector[0], sector[3], totWidth, totHeight, imgWidth, imgHeight, zoomFac, cLat, cLong);
+        g2.drawImage(image, xy[0], xy[1], xy_old[0], xy_old[1], 0, 0, image.getWidth(), image.getHeight(), null);
         
         // Draw color bar if wanted!!
         if(showColorBar)
@@ -564,12 +781,12 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
             int textHeight = 10;
             g2.setColor( colorBarTextcolor );
             g2.drawLine(pixelsFromLeft-1, totHeight-pixelsFromBottom+colorBarTextSpacing, pixelsFromLeft-1,totHeight-pixelsFromBottom-colorBarHeight);
-            g2.drawString(colorBarNumberFormat.format(minNotZeroVal*24*60*60) + " sec", pixelsFromLeft-1, totHeight-pixelsFromBottom+colorBarTextSpacing+textHeight);
+            g2.drawString(getLowerBoundLabel(), pixelsFromLeft-1, totHeight-pixelsFromBottom+colorBarTextSpacing+textHeight);
             
             // at 100%
             g2.setColor( Color.BLACK );
             g2.drawLine(pixelsFromLeft+colorBarLen, totHeight-pixelsFromBottom+colorBarTextSpacing, pixelsFromLeft+colorBarLen,totHeight-pixelsFromBottom-colorBarHeight);
-            g2.drawString(colorBarNumberFormat.format(maxVal*24*60*60), pixelsFromLeft+colorBarLen, totHeight-pixelsFromBottom+colorBarTextSpacing+textHeight);
+            g2.drawString(getUpperBoundLabel(), pixelsFromLeft+colorBarLen, totHeight-pixelsFromBottom+colorBarTextSpacing+textHeight);
             
         } // showColorBar
         
@@ -581,6 +798,101 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
         
     } // draw 3d
     
+    /**
+     * Image of the displayed layer over the coverage area (see getCoverageImageSector): one pixel per
+     * lat/long panel (cells of other grids cover whole pixels, about 4 by 4 pixels for the smallest cell),
+     * colored with the color map and alpha, transparent where the value is 0. The image is cached and only
+     * redrawn when the data, displayed layer, color map or alpha changed since the last call.
+     * @return image (premultiplied alpha, as textures are blended), row 0 at the maximum latitude and column 0 at the minimum longitude
+     */
+    public synchronized BufferedImage getCoverageImage()
+    {
+        if(coverageImage != null && imageCells == tessellation && imageVersion == displayVersion)
+        {
+            return coverageImage;
+        }
+        
+        double[] bounds = new double[4];
+        if(coverageImage == null || imageCells != tessellation)
+        {
+            // pixel size from the smallest cell
+            imageSector = new double[] {latBounds[0], latBounds[1], longBounds[0], longBounds[1]};
+            double minHeight = Double.MAX_VALUE;
+            double minWidth = Double.MAX_VALUE;
+            for(int k = 0; k < tessellation.getNumCells(); k++)
+            {
+                tessellation.getCellBounds(k, bounds);
+                minHeight = Math.min(minHeight, bounds[1] - bounds[0]);
+                minWidth = Math.min(minWidth, bounds[3] - bounds[2]);
+            }
+            // cells that do not line up in rows and columns get several pixels, so their edges are close to exact
+            int pixelsPerCell = (tessellation == coverageGrid) ? 1 : 4;
+            int width = pixelsPerCell*(int)Math.ceil((imageSector[3] - imageSector[2])/minWidth - 1.0e-3);
+            int height = pixelsPerCell*(int)Math.ceil((imageSector[1] - imageSector[0])/minHeight - 1.0e-3);
+            width = Math.max(1, Math.min(maxImageWidth, width));
+            height = Math.max(1, Math.min(maxImageHeight, height));
+            
+            coverageImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+            coverageImagePixels = new int[width*height];
+            imageCells = tessellation;
+        }
+        
+        int width = coverageImage.getWidth();
+        int height = coverageImage.getHeight();
+        double pixelsPerLat = height/(imageSector[1] - imageSector[0]);
+        double pixelsPerLon = width/(imageSector[3] - imageSector[2]);
+        Arrays.fill(coverageImagePixels, 0);
+        for(int k = 0; k < tessellation.getNumCells(); k++)
+        {
+            double val = getCellLayerValue(k);
+            if(val > 0)
+            {
+                // pixels whose centers are in the cell (at least one)
+                tessellation.getCellBounds(k, bounds);
+                int x0 = Math.max(0, (int)Math.round((bounds[2] - imageSector[2])*pixelsPerLon));
+                int x1 = Math.min(width, Math.max(x0 + 1, (int)Math.round((bounds[3] - imageSector[2])*pixelsPerLon)));
+                int y0 = Math.max(0, (int)Math.round((imageSector[1] - bounds[1])*pixelsPerLat));
+                int y1 = Math.min(height, Math.max(y0 + 1, (int)Math.round((imageSector[1] - bounds[0])*pixelsPerLat)));
+                
+                int argb = premultiplied(colorMap.getColor(val, minNotZeroVal, maxVal, alpha));
+                for(int y = y0; y < y1; y++)
+                {
+                    Arrays.fill(coverageImagePixels, y*width + x0, y*width + x1, argb);
+                }
+            }
+        } // for each cell
+        coverageImage.getRaster().setDataElements(0, 0, width, height, coverageImagePixels);
+        
+        imageVersion = displayVersion;
+        return coverageImage;
+    } // getCoverageImage
+    
+    // ARGB with the color scaled by alpha
+    private static int premultiplied(Color c)
+    {
+        int a = c.getAlpha();
+        return (a << 24) | ((c.getRed()*a/255) << 16) | ((c.getGreen()*a/255) << 8) | (c.getBlue()*a/255);
+    }
+    
+    /**
+     * @return minimum, maximum latitude and minimum, maximum longitude the coverage image covers [deg]
+     */
+    public synchronized double[] getCoverageImageSector()
+    {
+        getCoverageImage();
+        return imageSector.clone();
+    }
+    
+    /**
+     * Changes every time the coverage image needs to be redrawn (new data, layer, color map or alpha),
+     * so users of the image (e.g. textures) only need to update when it changes
+     * @return version of the displayed data
+     */
+    public long getDisplayVersion()
+    {
+        return displayVersion;
+    }
+    
     // Settings ==================================
     
     public void addSatToCoverageAnaylsis(String satName)
@@ -627,6 +939,7 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
     public void setColorMap(ColorMap colorMap)
     {
         this.colorMap = colorMap;
+        displayVersion++;
     }
     
     public ColorMap getColorMap()
@@ -642,6 +955,7 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
     public void setLatPanels(int latPanels)
     {
         this.latPanels = latPanels;
+        refinedTessellation = null;
     }
 
     public int getLongPanels()
@@ -652,6 +966,7 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
     public void setLongPanels(int longPanels)
     {
         this.longPanels = longPanels;
+        refinedTessellation = null;
     }
 
     public double[] getLatBounds()
@@ -662,6 +977,7 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
     public void setLatBounds(double[] latBounds)
     {
         this.latBounds = latBounds;
+        refinedTessellation = null;
     }
 
     public double[] getLongBounds()
@@ -672,6 +988,7 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
     public void setLongBounds(double[] longBounds)
     {
         this.longBounds = longBounds;
+        refinedTessellation = null;
     }
 
     public int getAlpha()
@@ -682,6 +999,7 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
     public void setAlpha(int alpha)
     {
         this.alpha = alpha;
+        displayVersion++;
     }
 
     public boolean isDynamicUpdating()
@@ -831,7 +1149,71 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
     
     public Color getColorForIndex(int i, int j)
     {
-        return colorMap.getColor(getCoverageCumTime()[i][j], minNotZeroVal, maxVal);
+        return colorMap.getColor(getLayerValue(i, j), minNotZeroVal, maxVal);
+    }
+    
+    /**
+     * @param cell cell index (see getTessellation)
+     * @return color of the displayed layer for the cell
+     */
+    public Color getColorForCell(int cell)
+    {
+        return colorMap.getColor(getCellLayerValue(cell), minNotZeroVal, maxVal);
+    }
+    
+    /**
+     * Value of the displayed layer for a panel (times in days)
+     * @param i latitude panel index
+     * @param j longitude panel index
+     * @return value, panels with 0 are not drawn
+     */
+    public double getLayerValue(int i, int j)
+    {
+        switch(displayLayer)
+        {
+            case LAYER_NUM_ACCESSES: return coverageStatistics.getNumAccesses(i, j);
+            case LAYER_MEAN_GAP: return coverageStatistics.getMeanGap(i, j);
+            case LAYER_MAX_GAP: return coverageStatistics.getMaxGap(i, j);
+            case LAYER_TIME_AVERAGE_GAP: return coverageStatistics.getTimeAverageGap(i, j);
+            case LAYER_FOLD_TIME: return coverageStatistics.getTimeAtLeastFold(i, j, displayFold);
+            case LAYER_MAX_FOLD: return coverageStatistics.getMaxFold(i, j);
+            default: return coverageCumTime[i][j];
+        }
+    } // getLayerValue
+    
+    /**
+     * Value of the displayed layer for a cell (times in days)
+     * @param cell cell index (see getTessellation)
+     * @return value, cells with 0 are not drawn
+     */
+    public double getCellLayerValue(int cell)
+    {
+        int columns = tessellation.getColumns();
+        return getLayerValue(cell / columns, cell % columns);
+    }
+    
+    /**
+     * Mean of the displayed layer over the coverage area, each cell weighted by its area
+     * (so the small lat/long panels near the poles do not count as much as the ones at the equator)
+     * @return area weighted mean (times in days)
+     */
+    public double getAreaWeightedMean()
+    {
+        double sum = 0;
+        double area = 0;
+        for(int k = 0; k < tessellation.getNumCells(); k++)
+        {
+            double a = tessellation.getCellArea(k);
+            sum += a*getCellLayerValue(k);
+            area += a;
+        }
+        return (area > 0) ? sum/area : 0;
+    } // getAreaWeightedMean
+    
+    // true if the displayed layer is a time (shown in seconds)
+    private boolean isTimeLayer()
+    {
+        return displayLayer != LAYER_NUM_ACCESSES && displayLayer != LAYER_MAX_FOLD;
     }
 
     public double getMinNotZeroVal()
@@ -846,11 +1228,19 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
     
     public String getLowerBoundLabel()
     {
+        if(!isTimeLayer())
+        {
+            return colorBarNumberFormat.format(minNotZeroVal);
+        }
         return colorBarNumberFormat.format(minNotZeroVal*24*60*60) + " sec";
     }
     
     public String getUpperBoundLabel()
     {
+        if(!isTimeLayer())
+        {
+            return colorBarNumberFormat.format(maxVal);
+        }
         return colorBarNumberFormat.format(maxVal*24*60*60);
     }
 
@@ -861,5 +1251,268 @@ public class CoverageAnalyzer implements JSatTrakRenderable,JSatTrakTimeDependen
     public double getLastMJD() {
         return lastMJD;
     }
+
+    /**
+     * Replaces the coverage data with the results of a finished batch job (run with this grid)
+     * @param job finished coverage job
+     */
+    public void setCoverageData(CoverageJob job)
+    {
+        iniParamters(); // cells for the current settings
+        
+        double[][] jobCumTime = job.getCoverageCumTime();
+        if(jobCumTime == null || job.getTessellation().getNumCells() != tessellation.getNumCells() 
+                || jobCumTime.length != tessellation.getRows() || jobCumTime[0].length != tessellation.getColumns())
+        {
+            System.out.println("Coverage job results do not match the coverage grid");
+            return;
+        }
+        
+        for(int i=0;i<coverageCumTime.length;i++)
+        {
+            System.arraycopy(jobCumTime[i], 0, coverageCumTime[i], 0, coverageCumTime[i].length);
+        }
+        coverageStatistics = job.getStatistics();
+        startTime.set(Time.convertJD2Calendar(job.getStartJulDate()).getTimeInMillis());
+        lastMJD = job.getLastJulDate() - AstroConst.JDminusMJD;
+        
+        // max and min (not zero) values
+        updateDisplayRange();
+    } // setCoverageData
+    
+    /**
+     * Replaces the coverage data with an interval of a recorded coverage history (same cells as this analyzer),
+     * no satellites are propagated. The fold layers only show 1 for cells with access (the history keeps access only).
+     * @param history coverage history
+     * @param fromStep step before the interval (-1 for the start of the recording)
+     * @param toStep last step of the interval (fromStep = toStep-1 shows the access at toStep)
+     * @throws IOException if the history can not be read
+     */
+    public void setCoverageData(CoverageHistory history, int fromStep, int toStep) throws IOException
+    {
+        iniParamters(); // cells for the current settings
+        
+        if(history.getNumCells() != tessellation.getNumCells() || history.getRows() != tessellation.getRows())
+        {
+            System.out.println("Coverage history does not match the coverage grid");
+            return;
+        }
+        
+        coverageCumTime = history.getCoverageTime(fromStep, toStep);
+        coverageStatistics = history.getStatistics(fromStep, toStep, numFoldBins);
+        startTime.set(Time.convertJD2Calendar(history.getJulDate(fromStep)).getTimeInMillis());
+        lastMJD = history.getJulDate(toStep) - AstroConst.JDminusMJD;
+        
+        // max and min (not zero) values
+        updateDisplayRange();
+    } // setCoverageData
+    
+    /**
+     * @return recorder of the coverage time history, null if not recording
+     */
+    public CoverageRecorder getRecorder()
+    {
+        return recorder;
+    }
+    
+    /**
+     * Records the access of every cell at each following step (the caller closes the recorder when done)
+     * @param recorder coverage history recorder for the cells of this analyzer, null to stop recording
+     */
+    public void setRecorder(CoverageRecorder recorder)
+    {
+        if(recorder != null && recorder.getNumCells() != tessellation.getNumCells())
+        {
+            System.out.println("Coverage history recorder does not match the coverage grid");
+            return;
+        }
+        this.recorder = recorder;
+    }
+    
+    /**
+     * @return accesses, gaps and fold of each panel
+     */
+    public CoverageStatistics getCoverageStatistics()
+    {
+        return coverageStatistics;
+    }
+    
+    /**
+     * @return cells the coverage data is kept for, the data arrays are [getRows()][getColumns()]
+     */
+    public CoverageTessellation getTessellation()
+    {
+        return tessellation;
+    }
+    
+    public int getGridType()
+    {
+        return gridType;
+    }
+    
+    /**
+     * Sets the grid type (takes effect when the coverage data is cleared, drops any refineCoverageBoundaries cells)
+     * @param gridType GRID_LAT_LONG or GRID_EQUAL_AREA
+     */
+    public void setGridType(int gridType)
+    {
+        this.gridType = gridType;
+        refinedTessellation = null;
+    }
+    
+    public double getEqualAreaCellSize()
+    {
+        return equalAreaCellSize;
+    }
+    
+    /**
+     * @param equalAreaCellSize size of the cells of GRID_EQUAL_AREA [deg] (takes effect when the coverage data is cleared)
+     */
+    public void setEqualAreaCellSize(double equalAreaCellSize)
+    {
+        this.equalAreaCellSize = equalAreaCellSize;
+        refinedTessellation = null;
+    }
+    
+    /**
+     * Sets an area of interest with smaller cells (takes effect when the coverage data is cleared)
+     * @param refineLatBounds minimum, maximum latitude [deg] (null for none)
+     * @param refineLongBounds minimum, maximum longitude [deg]
+     * @param refineLevels cells that overlap the area are split into 4^refineLevels cells (0 for none)
+     */
+    public void setAreaRefinement(double[] refineLatBounds, double[] refineLongBounds, int refineLevels)
+    {
+        this.refineLatBounds = refineLatBounds;
+        this.refineLongBounds = refineLongBounds;
+        this.refineLevels = refineLevels;
+        refinedTessellation = null;
+    }
+    
+    public double[] getRefineLatBounds()
+    {
+        return refineLatBounds;
+    }
+    
+    public double[] getRefineLongBounds()
+    {
+        return refineLongBounds;
+    }
+    
+    public int getRefineLevels()
+    {
+        return refineLevels;
+    }
+    
+    /**
+     * Splits the cells along the edges of the displayed layer (cells whose value differs from a neighbor by more than
+     * the threshold) and clears the coverage data, so the analysis can be run again with fine cells only where
+     * coverage changes. Changing the grid settings goes back to the unrefined cells.
+     * @param threshold largest difference of the displayed layer between neighbors that is not refined (times in days)
+     * @param levels number of times to split the cells (each becomes 4^levels cells)
+     */
+    public void refineCoverageBoundaries(double threshold, int levels)
+    {
+        double[] values = new double[tessellation.getNumCells()];
+        for(int k = 0; k < values.length; k++)
+        {
+            values[k] = getCellLayerValue(k);
+        }
+        refinedTessellation = new AdaptiveGrid(tessellation, AdaptiveGrid.markBoundaries(tessellation, values, threshold), levels);
+        iniParamters();
+    } // refineCoverageBoundaries
+    
+    public int getDisplayLayer()
+    {
+        return displayLayer;
+    }
+    
+    /**
+     * @param displayLayer data shown in the 2D and 3D windows, one of the LAYER_ constants
+     */
+    public void setDisplayLayer(int displayLayer)
+    {
+        this.displayLayer = displayLayer;
+        updateDisplayRange();
+    }
+    
+    public int getDisplayFold()
+    {
+        return displayFold;
+    }
+    
+    /**
+     * @param displayFold number of satellites for LAYER_FOLD_TIME
+     */
+    public void setDisplayFold(int displayFold)
+    {
+        this.displayFold = displayFold;
+        updateDisplayRange();
+    }
+    
+    public int getNumFoldBins()
+    {
+        return numFoldBins;
+    }
+    
+    /**
+     * Number of fold time bins (takes effect when the coverage data is cleared)
+     * @param numFoldBins fold time is kept for 0 .. numFoldBins-1 (or more) satellites in view
+     */
+    public void setNumFoldBins(int numFoldBins)
+    {
+        this.numFoldBins = numFoldBins;
+    }
+
+    public int getAccessAlgorithm()
+    {
+        return accessAlgorithm;
+    }
+
+    /**
+     * @param accessAlgorithm ACCESS_SPHERICAL_CAP or ACCESS_FLOOD_FILL
+     */
+    public void setAccessAlgorithm(int accessAlgorithm)
+    {
+        this.accessAlgorithm = accessAlgorithm;
+    }
+
+    public boolean isParallelAnalysis()
+    {
+        return parallelAnalysis;
+    }
+
+    /**
+     * @param parallelAnalysis if true the satellites are split between worker threads (same results as serial)
+     */
+    public void setParallelAnalysis(boolean parallelAnalysis)
+    {
+        this.parallelAnalysis = parallelAnalysis;
+    }
+
+    public int getNumThreads()
+    {
+        return numThreads;
+    }
+
+    /**
+     * @param numThreads number of worker threads used in parallel mode (pool is re-created on the next step)
+     */
+    public void setNumThreads(int numThreads)
+    {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    public int getMinSatsPerThread()
+    {
+        return minSatsPerThread;
+    }
+
+    /**
+     * @param minSatsPerThread minimum number of satellites for each worker (fewer threads are used for small constellations)
+     */
+    public void setMinSatsPerThread(int minSatsPerThread)
+    {
+        this.minSatsPerThread = Math.max(1, minSatsPerThread);
+    }
     
 } // CoverageAnalyzer
@@ -0,0 +1,356 @@
+/*
+ * CoverageCheckpoint.java
+ *
+ * Saved state of a batch coverage job (its definition and the coverage
+ * accumulated so far) so a long run can be continued after the program was
+ * closed or crashed.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.coverage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Coverage job checkpoint file (see CoverageJob.setCheckpointFile and CoverageJob.resume).
+ * <p>
+ * File layout (little endian): MAGIC, the job definition (start julian date, time
+ * step [days], number of steps, elevation limit [deg], cell rows, columns and count,
+ * a key of the cell bounds and the satellite keys), the number of steps done, the
+ * number of steps with access of every cell, the statistics of the steps done and a
+ * CRC32 of everything before it. A file cut short by a crash fails the CRC and is
+ * not read, the writer replaces the file only once the new one is complete.
+ * <p>
+ * A satellite's key is its name and TLE lines (TLE satellites) or its name (others),
+ * the keys are kept sorted so the order the satellites were given in does not matter.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class CoverageCheckpoint
+{
+    static final long MAGIC = 0x4A5354434B503031L; // "JSTCKP01"
+
+    private final double startJulDate;
+    private final double stepDays;
+    private final int numSteps;
+    private final double elevationLimit;
+    private final int rows;
+    private final int columns;
+    private final int numCells;
+    private final long cellsKey;
+    private final String[] satelliteKeys;
+    private final int stepsDone;
+    private final long[] accessSteps;
+    private final CoverageStatistics statistics;
+
+    private CoverageCheckpoint(ByteBuffer buf) throws IOException
+    {
+        if(buf.getLong() != MAGIC)
+        {
+            throw new IOException("Not a coverage checkpoint file");
+        }
+        startJulDate = buf.getDouble();
+        stepDays = buf.getDouble();
+        numSteps = buf.getInt();
+        elevationLimit = buf.getDouble();
+        rows = buf.getInt();
+        columns = buf.getInt();
+        numCells = buf.getInt();
+        cellsKey = buf.getLong();
+
+        satelliteKeys = new String[buf.getInt()];
+        for(int s = 0; s < satelliteKeys.length; s++)
+        {
+            byte[] bytes = new byte[buf.getInt()];
+            buf.get(bytes);
+            satelliteKeys[s] = new String(bytes, "UTF-8");
+        }
+
+        stepsDone = buf.getInt();
+        accessSteps = new long[numCells];
+        buf.asLongBuffer().get(accessSteps);
+        buf.position(buf.position() + 8*numCells);
+        statistics = CoverageStatistics.read(buf);
+    } // CoverageCheckpoint
+
+    /**
+     * Reads a checkpoint file
+     * @param checkpointFile file written by a coverage job
+     * @return the checkpoint
+     * @throws IOException if the file can not be read or is not a complete checkpoint
+     */
+    public static CoverageCheckpoint read(File checkpointFile) throws IOException
+    {
+        FileInputStream in = new FileInputStream(checkpointFile);
+        try
+        {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if(size < 12 || size > Integer.MAX_VALUE)
+            {
+                throw new IOException("Not a coverage checkpoint file: " + checkpointFile);
+            }
+            ByteBuffer buf = ByteBuffer.allocate((int)size);
+            while(buf.hasRemaining() && channel.read(buf) >= 0)
+            {
+                // read all of it
+            }
+            buf.flip();
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+
+            // CRC of the data
+            CRC32 crc = new CRC32();
+            crc.update(buf.array(), 0, buf.limit() - 8);
+            if(buf.getLong(buf.limit() - 8) != crc.getValue())
+            {
+                throw new IOException("Coverage checkpoint file is incomplete or damaged: " + checkpointFile);
+            }
+            buf.limit(buf.limit() - 8);
+
+            return new CoverageCheckpoint(buf);
+        }
+        catch(RuntimeException e)
+        {
+            // e.g. buffer underflow
+            throw new IOException("Not a coverage checkpoint file: " + checkpointFile + " (" + e + ")");
+        }
+        finally
+        {
+            in.close();
+        }
+    } // read
+
+    /**
+     * Binary form of a checkpoint (see write)
+     * @return buffer ready to be written
+     */
+    static ByteBuffer encode(double startJulDate, double stepDays, int numSteps, double elevationLimit,
+            CoverageTessellation cells, long cellsKey, String[] satelliteKeys, int stepsDone, long[] accessSteps, CoverageStatistics statistics)
+    {
+        byte[][] keys = new byte[satelliteKeys.length][];
+        int size = 8 + 8 + 8 + 4 + 8 + 4*3 + 8 + 4;
+        for(int s = 0; s < keys.length; s++)
+        {
+            try
+            {
+                keys[s] = satelliteKeys[s].getBytes("UTF-8");
+            }
+            catch(UnsupportedEncodingException e)
+            {
+                throw new IllegalStateException(e); // UTF-8 is always there
+            }
+            size += 4 + keys[s].length;
+        }
+        size += 4 + 8*accessSteps.length + statistics.getByteSize() + 8;
+
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        buf.putLong(MAGIC);
+        buf.putDouble(startJulDate);
+        buf.putDouble(stepDays);
+        buf.putInt(numSteps);
+        buf.putDouble(elevationLimit);
+        buf.putInt(cells.getRows());
+        buf.putInt(cells.getColumns());
+        buf.putInt(cells.getNumCells());
+        buf.putLong(cellsKey);
+        buf.putInt(keys.length);
+        for(byte[] key : keys)
+        {
+            buf.putInt(key.length);
+            buf.put(key);
+        }
+        buf.putInt(stepsDone);
+        buf.asLongBuffer().put(accessSteps);
+        buf.position(buf.position() + 8*accessSteps.length);
+        statistics.write(buf);
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putLong(crc.getValue());
+        buf.flip();
+        return buf;
+    } // encode
+
+    /**
+     * Writes an encoded checkpoint to a new file next to the checkpoint file, then replaces the checkpoint file with it
+     * @param checkpointFile file to write
+     * @param data encoded checkpoint
+     * @throws IOException if the file can not be written
+     */
+    static void write(File checkpointFile, ByteBuffer data) throws IOException
+    {
+        File tmpFile = new File(checkpointFile.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmpFile);
+        try
+        {
+            FileChannel channel = out.getChannel();
+            ByteBuffer buf = data.duplicate();
+            while(buf.hasRemaining())
+            {
+                channel.write(buf);
+            }
+            channel.force(false);
+        }
+        finally
+        {
+            out.close();
+        }
+
+        if(!tmpFile.renameTo(checkpointFile))
+        {
+            // some platforms do not rename over an existing file
+            checkpointFile.delete();
+            if(!tmpFile.renameTo(checkpointFile))
+            {
+                throw new IOException("Could not replace coverage checkpoint file: " + checkpointFile);
+            }
+        }
+    } // write
+
+    /**
+     * Key of the bounds of all cells, the same cells always give the same key
+     * @param cells cells
+     * @return key
+     */
+    public static long cellsKey(CoverageTessellation cells)
+    {
+        // 64 bit FNV-1a of the bounds
+        long key = 0xcbf29ce484222325L;
+        double[] b = new double[4];
+        for(int k = 0; k < cells.getNumCells(); k++)
+        {
+            cells.getCellBounds(k, b);
+            for(int n = 0; n < 4; n++)
+            {
+                key = (key ^ Double.doubleToLongBits(b[n])) * 0x100000001b3L;
+            }
+        }
+        return key;
+    } // cellsKey
+
+    public double getStartJulDate()
+    {
+        return startJulDate;
+    }
+
+    public double getStepDays()
+    {
+        return stepDays;
+    }
+
+    /**
+     * @return time steps of the whole job
+     */
+    public int getNumSteps()
+    {
+        return numSteps;
+    }
+
+    /**
+     * @return julian date of the last time step of the job
+     */
+    public double getStopJulDate()
+    {
+        return startJulDate + numSteps*stepDays;
+    }
+
+    public double getElevationLimit()
+    {
+        return elevationLimit;
+    }
+
+    public int getRows()
+    {
+        return rows;
+    }
+
+    public int getColumns()
+    {
+        return columns;
+    }
+
+    public int getNumCells()
+    {
+        return numCells;
+    }
+
+    public long getCellsKey()
+    {
+        return cellsKey;
+    }
+
+    /**
+     * @return sorted keys of the satellites of the job
+     */
+    public String[] getSatelliteKeys()
+    {
+        return satelliteKeys.clone();
+    }
+
+    /**
+     * @return time steps done (steps 1 .. stepsDone of the job)
+     */
+    public int getStepsDone()
+    {
+        return stepsDone;
+    }
+
+    /**
+     * @return julian date of the last time step done
+     */
+    public double getLastJulDate()
+    {
+        return startJulDate + stepsDone*stepDays;
+    }
+
+    /**
+     * @return true if all time steps of the job are done
+     */
+    public boolean isComplete()
+    {
+        return stepsDone >= numSteps;
+    }
+
+    /**
+     * @return number of steps with access of cell k, over the steps done
+     */
+    public long[] getAccessSteps()
+    {
+        return accessSteps.clone();
+    }
+
+    /**
+     * @return accesses, gaps and fold of each cell over the steps done
+     */
+    public CoverageStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+} // CoverageCheckpoint
@@ -0,0 +1,517 @@
+/*
+ * CoverageGrid.java
+ *
+ * Fixed geometry of the coverage analysis grid points, so the access test of
+ * each panel does not need any trig or allocations.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.coverage;
+
+import name.gano.astro.AstroConst;
+import name.gano.astro.Sidereal;
+
+/**
+ * Earth fixed (mean sidereal) position and local zenith unit vector of the
+ * middle point of every coverage panel (at sea level), computed once.
+ * <p>
+ * The positions use the same Earth model as GeoFunctions.calculateECIposition
+ * and the zenith is the Z axis of the SEZ frame used by GeoFunctions.calculate_AER,
+ * so for a satellite position rotated into the Earth fixed frame once per time
+ * step (toEarthFixed) isVisible gives the same answer as comparing the
+ * calculate_AER elevation to the limit.
+ * <p>
+ * addCapAccess marks every panel that can see a satellite without searching: the
+ * visibility cap (Earth central angle from the satellite radius and the elevation
+ * limit) gives for each latitude row the span of longitudes that is surely visible
+ * and the span that may be visible, only panels between the two are tested with isVisible.
+ * addCapFold does the same but counts the satellites in view of each panel.
+ * <p>
+ * As a CoverageTessellation panel [i][j] is cell i*longPanels + j.
+ * <p>
+ * Immutable after construction, so it can be shared by worker threads.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class CoverageGrid implements CoverageTessellation
+{
+    private final int latPanels;
+    private final int longPanels;
+
+    // packed x,y,z for panel [i][j] at 3*(i*longPanels + j)
+    private final double[] pos;    // position [m]
+    private final double[] zenith; // local (geodetic) zenith unit vector
+
+    // for each latitude row: geocentric latitude [rad] and its sin/cos
+    private final double[] rowLat;
+    private final double[] rowSinLat;
+    private final double[] rowCosLat;
+
+    // bounds over all rows of the radius [m] and of the angle between the geodetic and geocentric zenith [rad]
+    private double minRadius = Double.MAX_VALUE;
+    private double maxRadius = 0;
+    private double maxZenithTilt = 0;
+
+    // round off margin on the cap elevations [rad]
+    private static final double CAP_MARGIN = 1.0e-9;
+
+    // longitude of panel j is lon0 + j*dLon [rad]
+    private final double lon0;
+    private final double dLon;
+
+    // panel mid points and edges [deg]
+    private final double[] latPanelMidPoints;
+    private final double[] lonPanelMidPoints;
+    private final double[] latGridPoints;
+    private final double[] lonGridPoints;
+
+    /**
+     * Creates the grid geometry for equally sized panels (same panels as CoverageAnalyzer)
+     * @param latBounds minimum, maximum latitude [deg]
+     * @param longBounds minimum, maximum longitude [deg]
+     * @param latPanels number of panels in latitude
+     * @param longPanels number of panels in longitude
+     */
+    public CoverageGrid(double[] latBounds, double[] longBounds, int latPanels, int longPanels)
+    {
+        this(midPoints(gridPoints(latBounds, latPanels)), midPoints(gridPoints(longBounds, longPanels)),
+                gridPoints(latBounds, latPanels), gridPoints(longBounds, longPanels));
+    }
+
+    /**
+     * Creates the grid geometry, the panel edges are half way between the (equally spaced) mid points
+     * (a single panel spans 180 deg in latitude or 360 deg in longitude)
+     * @param latPanelMidPoints middle point latitude of each panel [deg]
+     * @param lonPanelMidPoints middle point longitude of each panel [deg]
+     */
+    public CoverageGrid(double[] latPanelMidPoints, double[] lonPanelMidPoints)
+    {
+        this(latPanelMidPoints, lonPanelMidPoints, edgePoints(latPanelMidPoints, 180.0), edgePoints(lonPanelMidPoints, 360.0));
+    }
+
+    private CoverageGrid(double[] latPanelMidPoints, double[] lonPanelMidPoints, double[] latGridPoints, double[] lonGridPoints)
+    {
+        this.latPanelMidPoints = latPanelMidPoints.clone();
+        this.lonPanelMidPoints = lonPanelMidPoints.clone();
+        this.latGridPoints = latGridPoints;
+        this.lonGridPoints = lonGridPoints;
+        latPanels = latPanelMidPoints.length;
+        longPanels = lonPanelMidPoints.length;
+        pos = new double[3*latPanels*longPanels];
+        zenith = new double[3*latPanels*longPanels];
+        rowLat = new double[latPanels];
+        rowSinLat = new double[latPanels];
+        rowCosLat = new double[latPanels];
+
+        // equally spaced longitudes
+        lon0 = lonPanelMidPoints[0]*Math.PI/180.0;
+        dLon = (longPanels > 1) ? (lonPanelMidPoints[longPanels-1] - lonPanelMidPoints[0])/(longPanels-1)*Math.PI/180.0 : 2.0*Math.PI;
+
+        // earth flattening (see GeoFunctions.calculateECIposition)
+        double f = AstroConst.f_Earth;
+        for(int i = 0; i < latPanels; i++)
+        {
+            double lat = latPanelMidPoints[i]*Math.PI/180.0;
+            double sinLat = Math.sin(lat);
+            double cosLat = Math.cos(lat);
+            double C = 1.0 / Math.sqrt( 1.0+f*(f-2.0)*sinLat*sinLat );
+            double S = (1.0-f)*(1.0-f) * C;
+
+            double xy = AstroConst.R_Earth * C * cosLat;
+            double z = AstroConst.R_Earth * S * sinLat;
+            double radius = Math.sqrt(xy*xy + z*z);
+            rowLat[i] = Math.atan2(z, xy);
+            rowSinLat[i] = z/radius;
+            rowCosLat[i] = xy/radius;
+            minRadius = Math.min(minRadius, radius);
+            maxRadius = Math.max(maxRadius, radius);
+            maxZenithTilt = Math.max(maxZenithTilt, Math.abs(lat - rowLat[i]));
+
+            for(int j = 0; j < longPanels; j++)
+            {
+                double lon = lonPanelMidPoints[j]*Math.PI/180.0;
+                double sinLon = Math.sin(lon);
+                double cosLon = Math.cos(lon);
+                int k = 3*(i*longPanels + j);
+
+                pos[k] = AstroConst.R_Earth * C * cosLat * cosLon;
+                pos[k+1] = AstroConst.R_Earth * C * cosLat * sinLon;
+                pos[k+2] = AstroConst.R_Earth * S * sinLat;
+
+                zenith[k] = cosLat * cosLon;
+                zenith[k+1] = cosLat * sinLon;
+                zenith[k+2] = sinLat;
+            }
+        }
+    } // CoverageGrid
+
+    // panel edges, as CoverageAnalyzer computes them
+    private static double[] gridPoints(double[] bounds, int panels)
+    {
+        double[] grid = new double[panels+1];
+        for(int i = 0; i < panels+1; i++)
+        {
+            grid[i] = i*(bounds[1]-bounds[0])/(panels)+bounds[0];
+        }
+        return grid;
+    }
+
+    private static double[] midPoints(double[] grid)
+    {
+        double[] mid = new double[grid.length-1];
+        for(int i = 0; i < mid.length; i++)
+        {
+            mid[i] = (grid[i+1]+grid[i])/2.0;
+        }
+        return mid;
+    }
+
+    // edges of equally spaced panels from their mid points
+    private static double[] edgePoints(double[] mid, double singlePanelSize)
+    {
+        int n = mid.length;
+        double step = (n > 1) ? (mid[n-1] - mid[0])/(n-1) : singlePanelSize;
+        double[] grid = new double[n+1];
+        for(int i = 0; i < n+1; i++)
+        {
+            grid[i] = mid[0] + (i - 0.5)*step;
+        }
+        return grid;
+    }
+
+    /**
+     * Rotates an ECI position into the Earth fixed frame of the grid (mean sidereal time)
+     * @param julDate julian date
+     * @param eciPos ECI position [m]
+     * @param earthFixed array of length 3 to store the Earth fixed position in [m]
+     */
+    public static void toEarthFixed(double julDate, double[] eciPos, double[] earthFixed)
+    {
+        double theta = Sidereal.Greenwich_Mean_Sidereal_Deg(julDate-AstroConst.JDminusMJD)*Math.PI/180.0;
+        toEarthFixed(Math.cos(theta), Math.sin(theta), eciPos, earthFixed);
+    }
+
+    /**
+     * Rotates an ECI position into the Earth fixed frame of the grid (for many satellites at one time)
+     * @param cosTheta cosine of the Greenwich mean sidereal angle
+     * @param sinTheta sine of the Greenwich mean sidereal angle
+     * @param eciPos ECI position [m]
+     * @param earthFixed array of length 3 to store the Earth fixed position in [m]
+     */
+    public static void toEarthFixed(double cosTheta, double sinTheta, double[] eciPos, double[] earthFixed)
+    {
+        double x = eciPos[0];
+        double y = eciPos[1];
+        earthFixed[0] = cosTheta*x + sinTheta*y;
+        earthFixed[1] = -sinTheta*x + cosTheta*y;
+        earthFixed[2] = eciPos[2];
+    }
+
+    /**
+     * Checks if a satellite is above the elevation limit seen from the middle of a panel
+     * @param i latitude panel index
+     * @param j longitude panel index
+     * @param satEarthFixed Earth fixed satellite position [m] (see toEarthFixed)
+     * @param sinElevationLimit sine of the elevation limit
+     * @return true if the elevation is at or above the limit
+     */
+    public boolean isVisible(int i, int j, double[] satEarthFixed, double sinElevationLimit)
+    {
+        return isVisible(i*longPanels + j, satEarthFixed, sinElevationLimit);
+    }
+
+    public boolean isVisible(int cell, double[] satEarthFixed, double sinElevationLimit)
+    {
+        return isVisible(pos, zenith, cell, satEarthFixed, sinElevationLimit);
+    }
+
+    // elevation test of the point with packed position and zenith at 3*cell (shared with CellGrid)
+    static boolean isVisible(double[] pos, double[] zenith, int cell, double[] satEarthFixed, double sinElevationLimit)
+    {
+        int k = 3*cell;
+        double rx = satEarthFixed[0] - pos[k];
+        double ry = satEarthFixed[1] - pos[k+1];
+        double rz = satEarthFixed[2] - pos[k+2];
+
+        // sin(elevation) = (r . zenith)/|r|, compared squared to avoid the square root
+        double rZ = rx*zenith[k] + ry*zenith[k+1] + rz*zenith[k+2];
+        double range2 = rx*rx + ry*ry + rz*rz;
+        double limit2 = sinElevationLimit*sinElevationLimit*range2;
+
+        if(sinElevationLimit >= 0)
+        {
+            return rZ >= 0 && rZ*rZ >= limit2;
+        }
+        return rZ >= 0 || rZ*rZ <= limit2;
+    } // isVisible
+
+    /**
+     * Marks every panel with the satellite at or above the elevation limit (panels already marked are left alone)
+     * @param satEarthFixed Earth fixed satellite position [m] (see toEarthFixed)
+     * @param elevationLimit elevation limit [rad]
+     * @param sinElevationLimit sine of the elevation limit
+     * @param access [latPanels][longPanels] panels to mark
+     */
+    public void addCapAccess(double[] satEarthFixed, double elevationLimit, double sinElevationLimit, boolean[][] access)
+    {
+        addCap(satEarthFixed, elevationLimit, sinElevationLimit, access, null);
+    }
+
+    /**
+     * Adds one to the fold (number of satellites in view) of every panel with the satellite at or above the elevation limit
+     * @param satEarthFixed Earth fixed satellite position [m] (see toEarthFixed)
+     * @param elevationLimit elevation limit [rad]
+     * @param sinElevationLimit sine of the elevation limit
+     * @param fold number of satellites in view of panel [i][j] at i*longPanels + j
+     */
+    public void addCapFold(double[] satEarthFixed, double elevationLimit, double sinElevationLimit, int[] fold)
+    {
+        addCap(satEarthFixed, elevationLimit, sinElevationLimit, null, fold);
+    }
+
+    // marks access or counts fold (each panel is visited at most once)
+    private void addCap(double[] satEarthFixed, double elevationLimit, double sinElevationLimit, boolean[][] access, int[] fold)
+    {
+        double x = satEarthFixed[0];
+        double y = satEarthFixed[1];
+        double z = satEarthFixed[2];
+        double rxy = Math.sqrt(x*x + y*y);
+        double r = Math.sqrt(rxy*rxy + z*z);
+        if(!(r > 0))
+        {
+            return;
+        }
+        double satSinLat = z/r;
+        double satCosLat = rxy/r;
+        double satLon = Math.atan2(y, x);
+        double satLat = Math.atan2(z, rxy);
+
+        // cap radius: the geodetic zenith is tilted from the radial direction so the elevation can differ
+        // by up to the tilt, panels in the outer cap may see the satellite, the ones in the inner cap surely do
+        double outer = capAngle(minRadius, r, elevationLimit - maxZenithTilt - CAP_MARGIN);
+        if(Double.isNaN(outer))
+        {
+            return; // satellite below the horizon everywhere
+        }
+        double inner = capAngle(maxRadius, r, elevationLimit + maxZenithTilt + CAP_MARGIN);
+        double cosOuter = Math.cos(outer);
+        double cosInner = Double.isNaN(inner) ? 2.0 : Math.cos(inner); // no inner cap: nothing is surely visible
+
+        for(int i = 0; i < latPanels; i++)
+        {
+            if(Math.abs(rowLat[i] - satLat) > outer)
+            {
+                continue; // row outside the cap
+            }
+
+            double outerHalf = rowHalfWidth(i, satSinLat, satCosLat, cosOuter);
+            if(Double.isNaN(outerHalf))
+            {
+                continue;
+            }
+            double innerHalf = rowHalfWidth(i, satSinLat, satCosLat, cosInner);
+            if(Double.isNaN(innerHalf))
+            {
+                innerHalf = -1;
+            }
+
+            if(outerHalf >= Math.PI)
+            {
+                // whole row
+                for(int j = 0; j < longPanels; j++)
+                {
+                    double dl = lon0 + j*dLon - satLon;
+                    while(dl > Math.PI)
+                    {
+                        dl -= 2.0*Math.PI;
+                    }
+                    while(dl < -Math.PI)
+                    {
+                        dl += 2.0*Math.PI;
+                    }
+                    dl = Math.abs(dl);
+                    markPanel(i, j, dl <= innerHalf, satEarthFixed, sinElevationLimit, access, fold);
+                }
+                continue;
+            }
+
+            // the span can cross +-180 deg, try the center longitude shifted by a turn both ways
+            for(int turn = -1; turn <= 1; turn++)
+            {
+                double center = satLon + turn*2.0*Math.PI;
+                int jFrom = Math.max(0, (int)Math.ceil((center - outerHalf - lon0)/dLon));
+                int jTo = Math.min(longPanels-1, (int)Math.floor((center + outerHalf - lon0)/dLon));
+                for(int j = jFrom; j <= jTo; j++)
+                {
+                    double dl = Math.abs(lon0 + j*dLon - center);
+                    markPanel(i, j, dl <= innerHalf, satEarthFixed, sinElevationLimit, access, fold);
+                }
+            }
+        } // for each row
+    } // addCapAccess
+
+    private void markPanel(int i, int j, boolean inside, double[] satEarthFixed, double sinElevationLimit, boolean[][] access, int[] fold)
+    {
+        if(fold != null)
+        {
+            if(inside || isVisible(i, j, satEarthFixed, sinElevationLimit))
+            {
+                fold[i*longPanels + j]++;
+            }
+        }
+        else if(!access[i][j] && (inside || isVisible(i, j, satEarthFixed, sinElevationLimit)))
+        {
+            access[i][j] = true;
+        }
+    }
+
+    // Earth central angle of the visibility cap for a point at radius rho and a satellite at radius r [rad], NaN if empty
+    static double capAngle(double rho, double r, double elevation)
+    {
+        double c = rho*Math.cos(elevation)/r;
+        if(c >= 1.0)
+        {
+            return Double.NaN;
+        }
+        double angle = Math.acos(c) - elevation;
+        return (angle < 0) ? Double.NaN : angle;
+    }
+
+    // half width in longitude of the part of row i within the cap [rad] (>= PI for the whole row), NaN if none
+    private double rowHalfWidth(int i, double satSinLat, double satCosLat, double cosCap)
+    {
+        return halfWidth(rowSinLat[i], rowCosLat[i], satSinLat, satCosLat, cosCap);
+    }
+
+    // half width in longitude of the part of the (geocentric) latitude circle within the cap [rad] (>= PI for all of it), NaN if none
+    static double halfWidth(double sinLat, double cosLat, double satSinLat, double satCosLat, double cosCap)
+    {
+        // cos(central angle) = sinLat*satSinLat + cosLat*satCosLat*cos(dLon) >= cos(cap angle)
+        double a = sinLat*satSinLat;
+        double b = cosLat*satCosLat;
+        if(b < 1.0e-12)
+        {
+            return (a >= cosCap) ? Math.PI : Double.NaN; // pole
+        }
+        double c = (cosCap - a)/b;
+        if(c > 1.0)
+        {
+            return Double.NaN;
+        }
+        if(c <= -1.0)
+        {
+            return Math.PI;
+        }
+        return Math.acos(c);
+    } // halfWidth
+
+    public int getLatPanels()
+    {
+        return latPanels;
+    }
+
+    public int getLongPanels()
+    {
+        return longPanels;
+    }
+
+    public int getNumCells()
+    {
+        return latPanels*longPanels;
+    }
+
+    public int getRows()
+    {
+        return latPanels;
+    }
+
+    public int getColumns()
+    {
+        return longPanels;
+    }
+
+    public double getCellLatitude(int cell)
+    {
+        return latPanelMidPoints[cell / longPanels];
+    }
+
+    public double getCellLongitude(int cell)
+    {
+        return lonPanelMidPoints[cell % longPanels];
+    }
+
+    public void getCellBounds(int cell, double[] bounds)
+    {
+        int i = cell / longPanels;
+        int j = cell % longPanels;
+        bounds[0] = latGridPoints[i];
+        bounds[1] = latGridPoints[i+1];
+        bounds[2] = lonGridPoints[j];
+        bounds[3] = lonGridPoints[j+1];
+    }
+
+    public double getCellArea(int cell)
+    {
+        int i = cell / longPanels;
+        int j = cell % longPanels;
+        return CellGrid.rectangleArea(latGridPoints[i], latGridPoints[i+1], lonGridPoints[j], lonGridPoints[j+1]);
+    }
+
+    public int findCell(double lat, double lon)
+    {
+        int i = findIndex(latGridPoints, lat);
+        if(i < 0)
+        {
+            return -1;
+        }
+        for(int turn = -1; turn <= 1; turn++)
+        {
+            int j = findIndex(lonGridPoints, lon + turn*360.0);
+            if(j >= 0)
+            {
+                return i*longPanels + j;
+            }
+        }
+        return -1;
+    } // findCell
+
+    // panel with grid[i] <= x < grid[i+1] (the last one includes its upper edge), -1 if outside
+    private static int findIndex(double[] grid, double x)
+    {
+        int n = grid.length - 1;
+        if(!(x >= grid[0] && x <= grid[n]))
+        {
+            return -1;
+        }
+        int i = (int)Math.floor((x - grid[0])/(grid[n] - grid[0])*n);
+        i = Math.max(0, Math.min(n-1, i));
+        // round off at the edges
+        while(i > 0 && x < grid[i])
+        {
+            i--;
+        }
+        while(i < n-1 && x >= grid[i+1])
+        {
+            i++;
+        }
+        return i;
+    } // findIndex
+
+} // CoverageGrid
@@ -0,0 +1,351 @@
+/*
+ * CoverageHistory.java
+ *
+ * Reads a coverage time history file written by CoverageRecorder: access of
+ * every cell at any step, coverage time and statistics over any interval,
+ * without propagating any satellites.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Coverage time history file reader (see CoverageRecorder for the layout).
+ * <p>
+ * Steps are numbered from 0 (the first step after the start), step -1 stands
+ * for the start of the recording. The blocks of the file are mapped read only
+ * when first used, nothing of the history is copied into the heap.
+ * <p>
+ * The cumulative coverage time after a step is the keyframe of its block plus
+ * at most keyframeInterval steps. The statistics of an interval are found by
+ * replaying its steps into a CoverageStatistics, the history only keeps access
+ * (not the number of satellites) so the fold is 1 for every cell with access.
+ * Not thread safe.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class CoverageHistory
+{
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int rows;
+    private final int columns;
+    private final int numCells;
+    private final int words;
+    private final int keyframeInterval;
+    private final int recordSize;
+    private final long blockSize;
+    private final int numSteps;
+    private final double startJulDate;
+
+    private final MappedByteBuffer[] blocks;
+
+    /**
+     * Opens a history file
+     * @param historyFile file written by CoverageRecorder
+     * @throws IOException if the file can not be read or is not a complete coverage history
+     */
+    public CoverageHistory(File historyFile) throws IOException
+    {
+        file = new RandomAccessFile(historyFile, "r");
+        channel = file.getChannel();
+        if(channel.size() < CoverageRecorder.HEADER_SIZE)
+        {
+            close();
+            throw new IOException("Not a coverage history file: " + historyFile);
+        }
+
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, CoverageRecorder.HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if(header.getLong(0) != CoverageRecorder.MAGIC || header.getInt(CoverageRecorder.OFFSET_COMPLETE) != 1)
+        {
+            close();
+            throw new IOException("Not a complete coverage history file: " + historyFile);
+        }
+        rows = header.getInt(CoverageRecorder.OFFSET_ROWS);
+        columns = header.getInt(CoverageRecorder.OFFSET_COLUMNS);
+        keyframeInterval = header.getInt(CoverageRecorder.OFFSET_KEYFRAME_INTERVAL);
+        numSteps = header.getInt(CoverageRecorder.OFFSET_NUM_STEPS);
+        startJulDate = header.getDouble(CoverageRecorder.OFFSET_START_JULDATE);
+
+        numCells = rows*columns;
+        words = (numCells + 63)/64;
+        recordSize = 16 + 8*words;
+        blockSize = 8L*numCells + (long)keyframeInterval*recordSize;
+        blocks = new MappedByteBuffer[Math.max(1, (numSteps + keyframeInterval - 1)/keyframeInterval)];
+    } // CoverageHistory
+
+    private MappedByteBuffer block(int b) throws IOException
+    {
+        if(blocks[b] == null)
+        {
+            blocks[b] = channel.map(FileChannel.MapMode.READ_ONLY, CoverageRecorder.HEADER_SIZE + b*blockSize, blockSize);
+            blocks[b].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return blocks[b];
+    }
+
+    // offset of the record of a step in its block
+    private int recordOffset(int step)
+    {
+        return (int)(8L*numCells + (long)(step % keyframeInterval)*recordSize);
+    }
+
+    private void checkStep(int step)
+    {
+        if(step < -1 || step >= numSteps)
+        {
+            throw new IndexOutOfBoundsException("Step " + step + " of " + numSteps);
+        }
+    }
+
+    /**
+     * @param step step index
+     * @return julian date of the step (the start for step -1)
+     * @throws IOException if the file can not be read
+     */
+    public double getJulDate(int step) throws IOException
+    {
+        checkStep(step);
+        if(step < 0)
+        {
+            return startJulDate;
+        }
+        return block(step / keyframeInterval).getDouble(recordOffset(step));
+    }
+
+    /**
+     * @param step step index
+     * @return time since the previous step [days]
+     * @throws IOException if the file can not be read
+     */
+    public double getTimeStepDays(int step) throws IOException
+    {
+        checkStep(step);
+        return (step < 0) ? 0 : block(step / keyframeInterval).getDouble(recordOffset(step) + 8);
+    }
+
+    /**
+     * Finds the step of a time
+     * @param julDate julian date
+     * @return the last step at or before the time, -1 if it is before the first step
+     * @throws IOException if the file can not be read
+     */
+    public int findStep(double julDate) throws IOException
+    {
+        int lo = 0;
+        int hi = numSteps;
+        while(lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if(getJulDate(mid) <= julDate)
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo - 1;
+    } // findStep
+
+    /**
+     * Access of every cell at a step
+     * @param step step index
+     * @param access array of numCells to fill, true where at least one satellite was in view
+     * @throws IOException if the file can not be read
+     */
+    public void getAccess(int step, boolean[] access) throws IOException
+    {
+        checkStep(step);
+        if(step < 0)
+        {
+            Arrays.fill(access, false);
+            return;
+        }
+        MappedByteBuffer block = block(step / keyframeInterval);
+        int pos = recordOffset(step) + 16;
+        for(int w = 0; w < words; w++)
+        {
+            long bits = block.getLong(pos + 8*w);
+            int end = Math.min(numCells, 64*(w + 1));
+            for(int k = 64*w; k < end; k++)
+            {
+                access[k] = ((bits >>> (k & 63)) & 1L) != 0;
+            }
+        }
+    } // getAccess
+
+    /**
+     * Cumulative coverage time after a step
+     * @param step step index (-1 for the start of the recording)
+     * @param cumTime array of numCells to fill [days]
+     * @throws IOException if the file can not be read
+     */
+    public void getCumulativeTime(int step, double[] cumTime) throws IOException
+    {
+        checkStep(step);
+
+        // keyframe before the step, then the steps of its block up to it
+        int b = (step + 1)/keyframeInterval;
+        if(b >= blocks.length)
+        {
+            b = blocks.length - 1;
+        }
+        MappedByteBuffer block = block(b);
+        for(int k = 0; k < numCells; k++)
+        {
+            cumTime[k] = block.getDouble(8*k);
+        }
+        for(int s = b*keyframeInterval; s <= step; s++)
+        {
+            addStep(block, s, cumTime);
+        }
+    } // getCumulativeTime
+
+    // adds the time step to the cells with access at step s of the block
+    private void addStep(MappedByteBuffer block, int s, double[] cumTime)
+    {
+        int pos = recordOffset(s);
+        double dt = block.getDouble(pos + 8);
+        pos += 16;
+        for(int w = 0; w < words; w++)
+        {
+            long bits = block.getLong(pos + 8*w);
+            while(bits != 0)
+            {
+                cumTime[64*w + Long.numberOfTrailingZeros(bits)] += dt;
+                bits &= bits - 1;
+            }
+        }
+    } // addStep
+
+    /**
+     * Coverage time of every cell over the steps fromStep+1 .. toStep
+     * @param fromStep step before the interval (-1 for the start of the recording)
+     * @param toStep last step of the interval
+     * @return coverage time [rows][columns] in days
+     * @throws IOException if the file can not be read
+     */
+    public double[][] getCoverageTime(int fromStep, int toStep) throws IOException
+    {
+        double[] before = new double[numCells];
+        double[] after = new double[numCells];
+        getCumulativeTime(fromStep, before);
+        getCumulativeTime(toStep, after);
+
+        double[][] time = new double[rows][columns];
+        for(int i = 0; i < rows; i++)
+        {
+            for(int j = 0; j < columns; j++)
+            {
+                int k = i*columns + j;
+                time[i][j] = after[k] - before[k];
+            }
+        }
+        return time;
+    } // getCoverageTime
+
+    /**
+     * Replays the steps fromStep+1 .. toStep into new statistics (fold is 1 for cells with access)
+     * @param fromStep step before the interval (-1 for the start of the recording)
+     * @param toStep last step of the interval
+     * @param numFoldBins number of fold time bins
+     * @return accesses and gaps of every cell over the interval
+     * @throws IOException if the file can not be read
+     */
+    public CoverageStatistics getStatistics(int fromStep, int toStep, int numFoldBins) throws IOException
+    {
+        checkStep(fromStep);
+        checkStep(toStep);
+        CoverageStatistics stats = new CoverageStatistics(rows, columns, numFoldBins);
+        int[] fold = new int[numCells];
+        for(int s = fromStep + 1; s <= toStep; s++)
+        {
+            MappedByteBuffer block = block(s / keyframeInterval);
+            int pos = recordOffset(s);
+            double dt = block.getDouble(pos + 8);
+            pos += 16;
+            for(int w = 0; w < words; w++)
+            {
+                long bits = block.getLong(pos + 8*w);
+                int end = Math.min(numCells, 64*(w + 1));
+                for(int k = 64*w; k < end; k++)
+                {
+                    fold[k] = (int)((bits >>> (k & 63)) & 1L);
+                }
+            }
+            stats.update(fold, dt);
+        }
+        return stats;
+    } // getStatistics
+
+    /**
+     * Closes the file (the mapped blocks are released when they are garbage collected)
+     */
+    public void close() throws IOException
+    {
+        channel.close();
+        file.close();
+    }
+
+    public int getNumSteps()
+    {
+        return numSteps;
+    }
+
+    public int getRows()
+    {
+        return rows;
+    }
+
+    public int getColumns()
+    {
+        return columns;
+    }
+
+    public int getNumCells()
+    {
+        return numCells;
+    }
+
+    public int getKeyframeInterval()
+    {
+        return keyframeInterval;
+    }
+
+    /**
+     * @return julian date the recording starts at (before step 0)
+     */
+    public double getStartJulDate()
+    {
+        return startJulDate;
+    }
+
+} // CoverageHistory
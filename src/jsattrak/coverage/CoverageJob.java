@@ -0,0 +1,793 @@
+/*
+ * CoverageJob.java
+ *
+ * Headless batch coverage analysis: the time interval is split into chunks
+ * that run on a thread pool, each with its own propagators, and the per panel
+ * results are merged at the end. Does not touch the scenario's satellites.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import jsattrak.objects.AbstractSatellite;
+import jsattrak.objects.SatelliteTleSGP4;
+import jsattrak.utilities.DaemonThreadFactory;
+import jsattrak.utilities.TLE;
+import name.gano.astro.AstroConst;
+import name.gano.astro.Sidereal;
+import name.gano.astro.propogators.sgp4_cssi.SGP4SatData;
+import name.gano.astro.propogators.sgp4_cssi.SGP4batch;
+import name.gano.astro.propogators.sgp4_cssi.SGP4unit;
+import name.gano.astro.propogators.sgp4_cssi.SGP4utils;
+
+/**
+ * Cumulative coverage of a lat/long grid (or any CoverageTessellation) over a time
+ * interval, computed without the GUI and without changing the scenario's satellites.
+ * <p>
+ * Same results as stepping CoverageAnalyzer.performCoverageAnalysis from start to
+ * stop: at every time start + k*step (k = 1, 2, .. up to stop) each panel seeing at
+ * least one satellite at or above the elevation limit gets one step of coverage
+ * time. Access is found with CoverageTessellation.addCapFold, the figures of merit
+ * (accesses, gaps, fold) are kept in a CoverageStatistics.
+ * <p>
+ * The steps are split into chunks run on a thread pool. Each chunk propagates its
+ * own copy of the satellites (TLE satellites are re-initialized from their TLE into
+ * an SGP4batch, other satellites are asked for calculateTemePositionFromUT which
+ * does not change them), counts the steps each panel has access in and keeps its
+ * own statistics. The counts are summed and the statistics appended in time order
+ * when all chunks are done, so the result does not depend on the number of threads
+ * or the order the chunks finish in.
+ * <p>
+ * The satellites are read when the job is created, run() can be called from any
+ * thread (it blocks until done or cancelled). If a CoverageRecorder is set, each
+ * chunk also writes the access of its steps to it (step k of the job is written
+ * as step k-1 of the history).
+ * <p>
+ * If a checkpoint file is set, the chunks are merged in time order as they finish
+ * and, at most every checkpointInterval seconds, the merged results are copied into
+ * a buffer that a background thread writes to the file (see CoverageCheckpoint),
+ * so the run does not wait for the disk. A last checkpoint is written when the job
+ * ends (finished or cancelled). A new job with the same definition can continue
+ * from the checkpoint with resume().
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class CoverageJob
+{
+    /**
+     * Progress of a running job (called from the worker threads)
+     */
+    public interface ProgressListener
+    {
+        /**
+         * @param stepsDone time steps finished so far (all chunks)
+         * @param totalSteps time steps of the job
+         */
+        void progress(long stepsDone, long totalSteps);
+    }
+
+    // time interval
+    private final double startJulDate;
+    private final double stepDays;
+    private final int numSteps; // steps after the start time
+
+    // grid and elevation limit
+    private final CoverageTessellation grid;
+    private final double elevationLimit; // degrees
+
+    // satellites as read at creation
+    private final TLE[] tles;
+    private final AbstractSatellite[] otherSats; // non TLE satellites
+
+    // threading
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private int chunksPerThread = 4; // more chunks than threads to balance the load
+    private int minStepsPerChunk = 16; // smaller chunks are not worth re-initializing the propagators
+    private int numFoldBins = 8; // fold time kept for 0 .. numFoldBins-1 (or more) satellites in view
+
+    private CoverageRecorder recorder; // time history (null if not recording)
+    
+    // checkpoints
+    private File checkpointFile; // null for none
+    private double checkpointInterval = 60.0; // shortest time between checkpoints [sec]
+    private int checkpointStepsPerChunk = 1000; // largest chunk when checkpointing (a checkpoint only holds finished chunks)
+    private ExecutorService checkpointWriter;
+    private Future<?> checkpointWrite; // last checkpoint handed to the writer
+    private long lastCheckpointMillis;
+    
+    // state to resume from (see resume)
+    private int firstStep = 1;
+    private long[] resumeAccessSteps;
+    private CoverageStatistics resumeStatistics;
+    private ProgressListener progressListener;
+    private final AtomicLong stepsDone = new AtomicLong();
+    private volatile boolean cancelled = false;
+    private volatile boolean failed = false; // a chunk threw an error, the other chunks stop
+
+    // results
+    private long[] accessSteps; // number of steps with access of each cell
+    private double[][] coverageCumTime;
+    private CoverageStatistics statistics;
+
+    // results of one chunk of time steps
+    private static class ChunkResult
+    {
+        final long[] counts;
+        final CoverageStatistics statistics;
+
+        ChunkResult(long[] counts, CoverageStatistics statistics)
+        {
+            this.counts = counts;
+            this.statistics = statistics;
+        }
+    }
+
+    /**
+     * Creates a coverage job
+     * @param startJulDate start julian date (no coverage is counted at the start time itself)
+     * @param stopJulDate stop julian date (last time step is at or before this)
+     * @param timeStepSec time step [sec]
+     * @param latBounds minimum, maximum latitude of the grid [deg]
+     * @param longBounds minimum, maximum longitude of the grid [deg]
+     * @param latPanels number of panels in latitude
+     * @param longPanels number of panels in longitude
+     * @param elevationLimit elevation limit for coverage [deg]
+     * @param satellites satellites giving coverage
+     */
+    public CoverageJob(double startJulDate, double stopJulDate, double timeStepSec,
+            double[] latBounds, double[] longBounds, int latPanels, int longPanels,
+            double elevationLimit, Collection<AbstractSatellite> satellites)
+    {
+        // same panels as CoverageAnalyzer
+        this(startJulDate, stopJulDate, timeStepSec, new CoverageGrid(latBounds, longBounds, latPanels, longPanels), elevationLimit, satellites);
+    }
+
+    /**
+     * Creates a coverage job for any cells
+     * @param startJulDate start julian date (no coverage is counted at the start time itself)
+     * @param stopJulDate stop julian date (last time step is at or before this)
+     * @param timeStepSec time step [sec]
+     * @param cells cells to find the coverage of (e.g. CoverageAnalyzer.getTessellation())
+     * @param elevationLimit elevation limit for coverage [deg]
+     * @param satellites satellites giving coverage
+     */
+    public CoverageJob(double startJulDate, double stopJulDate, double timeStepSec,
+            CoverageTessellation cells, double elevationLimit, Collection<AbstractSatellite> satellites)
+    {
+        if(!(timeStepSec > 0))
+        {
+            throw new IllegalArgumentException("Time step must be positive: " + timeStepSec);
+        }
+
+        this.startJulDate = startJulDate;
+        this.stepDays = timeStepSec/(24.0*60.0*60.0);
+        this.numSteps = (stopJulDate > startJulDate) ? (int)Math.floor((stopJulDate - startJulDate)/stepDays + 1.0e-9) : 0;
+        this.elevationLimit = elevationLimit;
+
+        grid = cells;
+
+        List<TLE> tleList = new ArrayList<TLE>();
+        List<AbstractSatellite> otherList = new ArrayList<AbstractSatellite>();
+        for(AbstractSatellite sat : satellites)
+        {
+            if(sat instanceof SatelliteTleSGP4)
+            {
+                tleList.add(((SatelliteTleSGP4)sat).getTle());
+            }
+            else
+            {
+                otherList.add(sat);
+            }
+        }
+        tles = tleList.toArray(new TLE[tleList.size()]);
+        otherSats = otherList.toArray(new AbstractSatellite[otherList.size()]);
+    } // CoverageJob
+
+    /**
+     * Runs the job, blocks until all time steps are done
+     * @return true if finished, false if cancelled, interrupted or a chunk failed (see isFailed), the checkpoint
+     *         then keeps the steps done before
+     */
+    public boolean run()
+    {
+        int rows = grid.getRows();
+        int columns = grid.getColumns();
+        stepsDone.set(firstStep - 1);
+
+        // split the steps firstStep..numSteps into chunks
+        int stepsLeft = numSteps - firstStep + 1;
+        int nThreads = Math.max(1, numThreads);
+        int nChunks = Math.max(1, Math.min(nThreads*chunksPerThread, stepsLeft/Math.max(1, minStepsPerChunk)));
+        int chunkSize = Math.max(1, (stepsLeft + nChunks - 1) / nChunks);
+        if(checkpointFile != null)
+        {
+            chunkSize = Math.min(chunkSize, Math.max(1, checkpointStepsPerChunk));
+        }
+
+        List<Callable<ChunkResult>> tasks = new ArrayList<Callable<ChunkResult>>();
+        List<Integer> chunkEnds = new ArrayList<Integer>();
+        for(int from = firstStep; from <= numSteps; from += chunkSize)
+        {
+            final int chunkFrom = from;
+            final int chunkTo = Math.min(numSteps, from + chunkSize - 1);
+            tasks.add(new Callable<ChunkResult>()
+            {
+                public ChunkResult call()
+                {
+                    return runChunk(chunkFrom, chunkTo);
+                }
+            });
+            chunkEnds.add(chunkTo);
+        }
+
+        // results so far (of the checkpoint resumed from)
+        long[] counts = new long[grid.getNumCells()];
+        CoverageStatistics stats = new CoverageStatistics(rows, columns, numFoldBins);
+        if(resumeAccessSteps != null)
+        {
+            System.arraycopy(resumeAccessSteps, 0, counts, 0, counts.length);
+            stats.append(resumeStatistics);
+        }
+        int lastStepMerged = firstStep - 1;
+        lastCheckpointMillis = System.currentTimeMillis();
+        if(checkpointFile != null)
+        {
+            checkpointWriter = createExecutor(1, "JSatTrak-coverage-checkpoint-");
+        }
+        
+        if(nThreads == 1 || tasks.size() == 1)
+        {
+            for(int c = 0; c < tasks.size(); c++)
+            {
+                try
+                {
+                    if(!addChunk(counts, stats, tasks.get(c).call()))
+                    {
+                        break; // cancelled, only steps without a gap before them are merged
+                    }
+                    lastStepMerged = chunkEnds.get(c);
+                    checkpoint(counts, stats, lastStepMerged, false);
+                }
+                catch(Exception e)
+                {
+                    DaemonThreadFactory.printTaskError("coverage job", e);
+                    failed = true;
+                    break;
+                }
+            }
+        }
+        else
+        {
+            ExecutorService executor = createExecutor(Math.min(nThreads, tasks.size()), "JSatTrak-coverage-job-");
+            try
+            {
+                // merged in time order as they finish
+                List<Future<ChunkResult>> results = new ArrayList<Future<ChunkResult>>();
+                for(Callable<ChunkResult> task : tasks)
+                {
+                    results.add(executor.submit(task));
+                }
+                for(int c = 0; c < results.size(); c++)
+                {
+                    if(!addChunk(counts, stats, results.get(c).get())) // re-throws any error from the chunk (in time order)
+                    {
+                        break; // cancelled, later chunks that finished would leave a gap in the merged steps
+                    }
+                    lastStepMerged = chunkEnds.get(c);
+                    checkpoint(counts, stats, lastStepMerged, false);
+                }
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            }
+            catch(ExecutionException e)
+            {
+                DaemonThreadFactory.printTaskError("coverage job", e);
+                failed = true;
+            }
+            finally
+            {
+                executor.shutdown();
+            }
+        }
+
+        // last checkpoint (steps up to the first missing chunk), waits for it to be written
+        checkpoint(counts, stats, lastStepMerged, true);
+        if(checkpointWriter != null)
+        {
+            checkpointWriter.shutdown();
+            checkpointWriter = null;
+        }
+
+        if(cancelled || failed)
+        {
+            return false;
+        }
+
+        accessSteps = counts;
+        statistics = stats;
+        coverageCumTime = new double[rows][columns];
+        for(int i = 0; i < rows; i++)
+        {
+            for(int j = 0; j < columns; j++)
+            {
+                coverageCumTime[i][j] = counts[i*columns + j]*stepDays;
+            }
+        }
+        return true;
+    } // run
+
+    // chunks have to be added in time order, false if the chunk was cancelled
+    private static boolean addChunk(long[] total, CoverageStatistics stats, ChunkResult chunk)
+    {
+        if(chunk == null)
+        {
+            return false; // cancelled
+        }
+        for(int k = 0; k < total.length; k++)
+        {
+            total[k] += chunk.counts[k];
+        }
+        stats.append(chunk.statistics);
+        return true;
+    }
+
+    // checkpoint of the merged steps 1..lastStep: copied into a buffer here, written by the checkpoint writer thread
+    // (skipped if the interval has not passed or the last one is still being written, unless last is true)
+    private void checkpoint(long[] counts, CoverageStatistics stats, int lastStep, boolean last)
+    {
+        if(checkpointWriter == null)
+        {
+            return;
+        }
+        if(!last && (System.currentTimeMillis() - lastCheckpointMillis < checkpointInterval*1000.0
+                || (checkpointWrite != null && !checkpointWrite.isDone())))
+        {
+            return;
+        }
+        lastCheckpointMillis = System.currentTimeMillis();
+
+        final ByteBuffer data = CoverageCheckpoint.encode(startJulDate, stepDays, numSteps, elevationLimit,
+                grid, CoverageCheckpoint.cellsKey(grid), getSatelliteKeys(), lastStep, counts, stats);
+        final File file = checkpointFile;
+        checkpointWrite = checkpointWriter.submit(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    CoverageCheckpoint.write(file, data);
+                }
+                catch(IOException e)
+                {
+                    System.out.println("Error writing coverage checkpoint: " + e.toString());
+                }
+            }
+        });
+
+        if(last)
+        {
+            try
+            {
+                checkpointWrite.get();
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch(ExecutionException e)
+            {
+                System.out.println("Error writing coverage checkpoint: " + e.getCause());
+            }
+        }
+    } // checkpoint
+
+    /**
+     * Continues from a checkpoint of a job with the same definition: run() then only does the
+     * steps after the checkpoint's and the results are for the whole job
+     * @param checkpoint checkpoint of a job with the same start, time step, stop, elevation limit, cells,
+     * satellites and fold bins
+     * @return false (and nothing changed) if the checkpoint is for a different job
+     */
+    public boolean resume(CoverageCheckpoint checkpoint)
+    {
+        String mismatch = null;
+        if(Math.abs(checkpoint.getStartJulDate() - startJulDate) > 1.0e-9 || Math.abs(checkpoint.getStepDays() - stepDays) > 1.0e-9*stepDays
+                || checkpoint.getNumSteps() != numSteps)
+        {
+            mismatch = "time interval";
+        }
+        else if(checkpoint.getElevationLimit() != elevationLimit)
+        {
+            mismatch = "elevation limit";
+        }
+        else if(checkpoint.getNumCells() != grid.getNumCells() || checkpoint.getRows() != grid.getRows()
+                || checkpoint.getCellsKey() != CoverageCheckpoint.cellsKey(grid))
+        {
+            mismatch = "coverage cells";
+        }
+        else if(!Arrays.equals(checkpoint.getSatelliteKeys(), getSatelliteKeys()))
+        {
+            mismatch = "satellites";
+        }
+        else if(checkpoint.getStatistics().getNumFoldBins() != Math.max(2, numFoldBins))
+        {
+            mismatch = "fold bins";
+        }
+        if(mismatch != null)
+        {
+            System.out.println("Coverage checkpoint is for a different job (" + mismatch + ")");
+            return false;
+        }
+
+        firstStep = checkpoint.getStepsDone() + 1;
+        resumeAccessSteps = checkpoint.getAccessSteps();
+        resumeStatistics = checkpoint.getStatistics();
+        return true;
+    } // resume
+
+    // sorted keys of the satellites (see CoverageCheckpoint)
+    private String[] getSatelliteKeys()
+    {
+        String[] keys = new String[tles.length + otherSats.length];
+        for(int s = 0; s < tles.length; s++)
+        {
+            keys[s] = tles[s].getSatName() + "\n" + tles[s].getLine1() + "\n" + tles[s].getLine2();
+        }
+        for(int s = 0; s < otherSats.length; s++)
+        {
+            keys[tles.length + s] = otherSats[s].getName();
+        }
+        Arrays.sort(keys);
+        return keys;
+    } // getSatelliteKeys
+
+    // counts the steps with access of each panel for the times start + k*step, k = from..to
+    private ChunkResult runChunk(int from, int to)
+    {
+        long[] counts = new long[grid.getNumCells()];
+        int[] fold = new int[grid.getNumCells()];
+        CoverageStatistics stats = new CoverageStatistics(grid.getRows(), grid.getColumns(), numFoldBins);
+
+        // own propagators (SGP4 writes into the deep space satellite data)
+        SGP4batch batch = createBatch();
+        int nTle = batch.getSize();
+        double[] pos = new double[3*nTle]; // km
+        double[] vel = new double[3*nTle];
+
+        double elevationLimitRad = elevationLimit*Math.PI/180.0;
+        double sinElevationLimit = Math.sin(elevationLimitRad);
+        double[] temePos = new double[3];
+        double[] satEarthFixed = new double[3];
+
+        for(int k = from; k <= to; k++)
+        {
+            if(cancelled || failed)
+            {
+                return null;
+            }
+
+            double julDate = startJulDate + k*stepDays;
+            double theta = Sidereal.Greenwich_Mean_Sidereal_Deg(julDate-AstroConst.JDminusMJD)*Math.PI/180.0;
+            double cosTheta = Math.cos(theta);
+            double sinTheta = Math.sin(theta);
+
+            batch.sgp4Prop2JD(julDate, pos, vel);
+            for(int s = 0; s < nTle; s++)
+            {
+                if(batch.getError(s) != 0)
+                {
+                    continue; // e.g. decayed
+                }
+                temePos[0] = pos[3*s]*1000.0;
+                temePos[1] = pos[3*s+1]*1000.0;
+                temePos[2] = pos[3*s+2]*1000.0;
+                CoverageGrid.toEarthFixed(cosTheta, sinTheta, temePos, satEarthFixed);
+                grid.addCapFold(satEarthFixed, elevationLimitRad, sinElevationLimit, fold);
+            }
+            for(AbstractSatellite sat : otherSats)
+            {
+                double[] p = sat.calculateTemePositionFromUT(julDate);
+                if(p == null || (p[0] == 0 && p[1] == 0 && p[2] == 0))
+                {
+                    continue; // outside of the ephemeris
+                }
+                CoverageGrid.toEarthFixed(cosTheta, sinTheta, p, satEarthFixed);
+                grid.addCapFold(satEarthFixed, elevationLimitRad, sinElevationLimit, fold);
+            }
+
+            // time history
+            if(recorder != null)
+            {
+                try
+                {
+                    recorder.writeStep(k - firstStep, julDate, stepDays, fold);
+                }
+                catch(IOException e)
+                {
+                    System.out.println("Error recording coverage history: " + e.toString());
+                    cancelled = true;
+                    return null;
+                }
+            }
+
+            // count and clear for the next step
+            stats.update(fold, stepDays);
+            for(int p = 0; p < fold.length; p++)
+            {
+                if(fold[p] > 0)
+                {
+                    counts[p]++;
+                    fold[p] = 0;
+                }
+            }
+
+            long done = stepsDone.incrementAndGet();
+            ProgressListener listener = progressListener;
+            if(listener != null)
+            {
+                listener.progress(done, numSteps);
+            }
+        } // for each step
+
+        return new ChunkResult(counts, stats);
+    } // runChunk
+
+    // new SGP4 data for every TLE (bad TLEs are left out)
+    private SGP4batch createBatch()
+    {
+        // options - hard coded (as SatelliteTleSGP4)
+        char opsmode = SGP4utils.OPSMODE_IMPROVED;
+        SGP4unit.Gravconsttype gravconsttype = SGP4unit.Gravconsttype.wgs72;
+
+        List<SGP4SatData> data = new ArrayList<SGP4SatData>();
+        for(TLE tle : tles)
+        {
+            SGP4SatData d = new SGP4SatData();
+            if(SGP4utils.readTLEandIniSGP4(tle.getSatName(), tle.getLine1(), tle.getLine2(), opsmode, gravconsttype, d))
+            {
+                data.add(d);
+            }
+            else
+            {
+                System.out.println("Error loading TLE for coverage: " + tle.getSatName() + ", error code: " + d.error);
+            }
+        }
+        return new SGP4batch(data.toArray(new SGP4SatData[data.size()]));
+    } // createBatch
+
+    private static ExecutorService createExecutor(int nThreads, String threadName)
+    {
+        return Executors.newFixedThreadPool(nThreads, new DaemonThreadFactory(threadName));
+    } // createExecutor
+
+    /**
+     * Stops a running job (run() returns false)
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * @return true if a chunk of the last run failed with an error (run() returned false without being cancelled)
+     */
+    public boolean isFailed()
+    {
+        return failed;
+    }
+
+    /**
+     * @return cumulative coverage time of each cell [rows][columns] in days (see CoverageTessellation), null until run() finishes
+     */
+    public double[][] getCoverageCumTime()
+    {
+        return coverageCumTime;
+    }
+
+    /**
+     * @return accesses, gaps and fold of each panel, null until run() finishes
+     */
+    public CoverageStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * @param i row index (latitude panel index of a lat/long grid)
+     * @param j column index (longitude panel index of a lat/long grid)
+     * @return number of time steps the cell had access, 0 until run() finishes
+     */
+    public long getAccessSteps(int i, int j)
+    {
+        return (accessSteps == null) ? 0 : accessSteps[i*grid.getColumns() + j];
+    }
+
+    public CoverageTessellation getTessellation()
+    {
+        return grid;
+    }
+
+    public double getStartJulDate()
+    {
+        return startJulDate;
+    }
+
+    /**
+     * @return julian date of the last time step
+     */
+    public double getLastJulDate()
+    {
+        return startJulDate + numSteps*stepDays;
+    }
+
+    public double getStepDays()
+    {
+        return stepDays;
+    }
+
+    public int getNumSteps()
+    {
+        return numSteps;
+    }
+
+    public long getStepsDone()
+    {
+        return stepsDone.get();
+    }
+
+    public double getElevationLimit()
+    {
+        return elevationLimit;
+    }
+
+    public CoverageRecorder getRecorder()
+    {
+        return recorder;
+    }
+
+    /**
+     * @param recorder new coverage history for the same cells and start date to write the steps to (the caller closes it), null for none;
+     * a resumed job writes the steps after the checkpoint, from step 0 (start the history at the checkpoint's last date and cumulative time)
+     */
+    public void setRecorder(CoverageRecorder recorder)
+    {
+        this.recorder = recorder;
+    }
+
+    public File getCheckpointFile()
+    {
+        return checkpointFile;
+    }
+
+    /**
+     * @param checkpointFile file to write checkpoints to while running (see resume), null for none
+     */
+    public void setCheckpointFile(File checkpointFile)
+    {
+        this.checkpointFile = checkpointFile;
+    }
+
+    public double getCheckpointInterval()
+    {
+        return checkpointInterval;
+    }
+
+    /**
+     * @param checkpointInterval shortest time between checkpoints [sec]
+     */
+    public void setCheckpointInterval(double checkpointInterval)
+    {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    public int getCheckpointStepsPerChunk()
+    {
+        return checkpointStepsPerChunk;
+    }
+
+    /**
+     * @param checkpointStepsPerChunk largest number of time steps in a chunk when checkpointing (checkpoints only hold finished chunks)
+     */
+    public void setCheckpointStepsPerChunk(int checkpointStepsPerChunk)
+    {
+        this.checkpointStepsPerChunk = checkpointStepsPerChunk;
+    }
+
+    /**
+     * @return first time step run (after the checkpoint resumed from, 1 if not resumed)
+     */
+    public int getFirstStep()
+    {
+        return firstStep;
+    }
+
+    public void setProgressListener(ProgressListener progressListener)
+    {
+        this.progressListener = progressListener;
+    }
+
+    public int getNumThreads()
+    {
+        return numThreads;
+    }
+
+    /**
+     * @param numThreads number of worker threads (1 runs all chunks in the calling thread)
+     */
+    public void setNumThreads(int numThreads)
+    {
+        this.numThreads = numThreads;
+    }
+
+    public int getChunksPerThread()
+    {
+        return chunksPerThread;
+    }
+
+    public void setChunksPerThread(int chunksPerThread)
+    {
+        this.chunksPerThread = chunksPerThread;
+    }
+
+    public int getNumFoldBins()
+    {
+        return numFoldBins;
+    }
+
+    /**
+     * @param numFoldBins fold time is kept for 0 .. numFoldBins-1 (or more) satellites in view
+     */
+    public void setNumFoldBins(int numFoldBins)
+    {
+        this.numFoldBins = numFoldBins;
+    }
+
+    public int getMinStepsPerChunk()
+    {
+        return minStepsPerChunk;
+    }
+
+    public void setMinStepsPerChunk(int minStepsPerChunk)
+    {
+        this.minStepsPerChunk = minStepsPerChunk;
+    }
+
+} // CoverageJob
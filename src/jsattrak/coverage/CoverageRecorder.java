@@ -0,0 +1,275 @@
+/*
+ * CoverageRecorder.java
+ *
+ * Writes the access of every coverage cell at every time step to a memory
+ * mapped file, so coverage can be replayed or post-processed later (see
+ * CoverageHistory) without keeping the history in the heap or re-running
+ * the analysis.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Coverage time history file writer.
+ * <p>
+ * File layout (little endian): a header of HEADER_SIZE bytes, then blocks of
+ * keyframeInterval time steps. Each block starts with a keyframe, the cumulative
+ * coverage time of every cell before the block's first step (one double per cell
+ * [days]), followed by one record per step: the julian date, the time since the
+ * previous step [days] and the access bitmap (cell k is bit k%64 of long k/64).
+ * A step is found from its index alone, the reader finds the step of a time by
+ * a binary search on the record dates.
+ * <p>
+ * The file is mapped one block at a time, only the running cumulative time
+ * (one double per cell) is kept in the heap. Steps can be written in any order
+ * and from several threads (each step once), the keyframes are filled in by
+ * close(), which must be called for the file to be readable.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class CoverageRecorder
+{
+    // header
+    static final long MAGIC = 0x4A5354434F563031L; // "JSTCOV01"
+    static final int HEADER_SIZE = 64;
+    static final int OFFSET_ROWS = 8;
+    static final int OFFSET_COLUMNS = 12;
+    static final int OFFSET_KEYFRAME_INTERVAL = 16;
+    static final int OFFSET_NUM_STEPS = 20;
+    static final int OFFSET_START_JULDATE = 24;
+    static final int OFFSET_COMPLETE = 32;
+
+    // largest block mapped at once [bytes]
+    private static final long MAX_BLOCK_SIZE = 256L*1024*1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int rows;
+    private final int columns;
+    private final int numCells;
+    private final int words; // longs in the access bitmap
+    private final int keyframeInterval;
+    private final int recordSize; // bytes
+    private final long blockSize; // bytes
+    private final double startJulDate;
+    private final double[] initialCumTime; // [days] of cell k
+
+    private final List<MappedByteBuffer> blocks = new ArrayList<MappedByteBuffer>();
+    private int numSteps = 0; // one more than the last step written
+    private boolean closed = false;
+
+    /**
+     * Creates (or overwrites) a history file
+     * @param historyFile file to write
+     * @param cells cells of the analysis (sets the size of the bitmaps)
+     * @param startJulDate julian date the recording starts at (before the first step)
+     * @param initialCumTime cumulative coverage time at the start [rows][columns] in days, null for 0
+     * @param keyframeInterval time steps between cumulative coverage keyframes (reduced for very large grids)
+     * @throws IOException if the file can not be created
+     */
+    public CoverageRecorder(File historyFile, CoverageTessellation cells, double startJulDate, double[][] initialCumTime, int keyframeInterval) throws IOException
+    {
+        this.rows = cells.getRows();
+        this.columns = cells.getColumns();
+        this.numCells = cells.getNumCells();
+        this.words = (numCells + 63)/64;
+        this.recordSize = 16 + 8*words;
+        this.startJulDate = startJulDate;
+
+        int interval = Math.max(1, keyframeInterval);
+        while(interval > 1 && 8L*numCells + (long)interval*recordSize > MAX_BLOCK_SIZE)
+        {
+            interval /= 2;
+        }
+        this.keyframeInterval = interval;
+        this.blockSize = 8L*numCells + (long)interval*recordSize;
+
+        this.initialCumTime = new double[numCells];
+        if(initialCumTime != null)
+        {
+            for(int i = 0; i < rows; i++)
+            {
+                System.arraycopy(initialCumTime[i], 0, this.initialCumTime, i*columns, columns);
+            }
+        }
+
+        file = new RandomAccessFile(historyFile, "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+    } // CoverageRecorder
+
+    /**
+     * Adds the next time step
+     * @param julDate julian date of the step
+     * @param timeStepDays time since the previous step [days]
+     * @param fold number of satellites in view of each cell (cells with access have fold > 0)
+     * @throws IOException if the file can not be written
+     */
+    public void recordStep(double julDate, double timeStepDays, int[] fold) throws IOException
+    {
+        int step;
+        synchronized(this)
+        {
+            step = numSteps++;
+        }
+        writeStep(step, julDate, timeStepDays, fold);
+    }
+
+    /**
+     * Writes a time step, steps can be written in any order (and from different threads) but each only once
+     * @param step step index (0 is the first step after the start)
+     * @param julDate julian date of the step
+     * @param timeStepDays time since the previous step [days]
+     * @param fold number of satellites in view of each cell (cells with access have fold > 0)
+     * @throws IOException if the file can not be written
+     */
+    public void writeStep(int step, double julDate, double timeStepDays, int[] fold) throws IOException
+    {
+        MappedByteBuffer block = block(step / keyframeInterval, step + 1);
+        int pos = (int)(8L*numCells + (long)(step % keyframeInterval)*recordSize);
+
+        // absolute puts only (the buffer's position is shared with the other threads)
+        block.putDouble(pos, julDate);
+        block.putDouble(pos + 8, timeStepDays);
+        pos += 16;
+        for(int w = 0; w < words; w++)
+        {
+            long bits = 0;
+            int end = Math.min(numCells, 64*(w + 1));
+            for(int k = 64*w; k < end; k++)
+            {
+                if(fold[k] > 0)
+                {
+                    bits |= 1L << (k & 63);
+                }
+            }
+            block.putLong(pos + 8*w, bits);
+        }
+    } // writeStep
+
+    // the mapped block, mapping it (and growing the file) if needed
+    private synchronized MappedByteBuffer block(int b, int stepsNeeded) throws IOException
+    {
+        if(closed)
+        {
+            throw new IOException("Coverage history is closed");
+        }
+        while(blocks.size() <= b)
+        {
+            MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + blocks.size()*blockSize, blockSize);
+            block.order(ByteOrder.LITTLE_ENDIAN);
+            blocks.add(block);
+        }
+        numSteps = Math.max(numSteps, stepsNeeded);
+        return blocks.get(b);
+    } // block
+
+    /**
+     * Writes the keyframes and the header and closes the file (the file is left a whole number of blocks long)
+     * @throws IOException if the file can not be written
+     */
+    public synchronized void close() throws IOException
+    {
+        if(closed)
+        {
+            return;
+        }
+
+        // keyframes: running cumulative coverage time, block by block
+        double[] cum = initialCumTime.clone();
+        int numBlocks = (numSteps + keyframeInterval - 1)/keyframeInterval;
+        if(numBlocks == 0)
+        {
+            block(0, 0);
+            numBlocks = 1;
+        }
+        for(int b = 0; b < numBlocks; b++)
+        {
+            MappedByteBuffer block = blocks.get(b);
+            for(int k = 0; k < numCells; k++)
+            {
+                block.putDouble(8*k, cum[k]);
+            }
+            int stepsInBlock = Math.min(keyframeInterval, numSteps - b*keyframeInterval);
+            for(int s = 0; s < stepsInBlock; s++)
+            {
+                int pos = (int)(8L*numCells + (long)s*recordSize);
+                double dt = block.getDouble(pos + 8);
+                pos += 16;
+                for(int w = 0; w < words; w++)
+                {
+                    long bits = block.getLong(pos + 8*w);
+                    while(bits != 0)
+                    {
+                        cum[64*w + Long.numberOfTrailingZeros(bits)] += dt;
+                        bits &= bits - 1;
+                    }
+                }
+            }
+            block.force();
+        }
+
+        // header last, marked complete
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(0, MAGIC);
+        header.putInt(OFFSET_ROWS, rows);
+        header.putInt(OFFSET_COLUMNS, columns);
+        header.putInt(OFFSET_KEYFRAME_INTERVAL, keyframeInterval);
+        header.putInt(OFFSET_NUM_STEPS, numSteps);
+        header.putDouble(OFFSET_START_JULDATE, startJulDate);
+        header.putInt(OFFSET_COMPLETE, 1);
+        header.force();
+
+        closed = true;
+        blocks.clear();
+        channel.close();
+        file.close();
+    } // close
+
+    /**
+     * @return number of steps written so far (one more than the last step index)
+     */
+    public synchronized int getNumSteps()
+    {
+        return numSteps;
+    }
+
+    public int getKeyframeInterval()
+    {
+        return keyframeInterval;
+    }
+
+    public int getNumCells()
+    {
+        return numCells;
+    }
+
+} // CoverageRecorder
@@ -0,0 +1,470 @@
+/*
+ * CoverageStatistics.java
+ *
+ * Streaming per panel coverage figures of merit (accesses, revisit gaps and
+ * number of satellites in view), updated once per coverage time step without
+ * keeping any history.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.coverage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Coverage figures of merit for every panel of a coverage grid, kept as a few
+ * primitive arrays (memory grows with the number of panels, not with the number
+ * of time steps).
+ * <p>
+ * Each update gives the number of satellites in view of every panel (fold) at a
+ * time step and the time since the previous step, the same convention as the
+ * cumulative coverage time: the state at a step holds for the time since the
+ * step before. For each panel this keeps:
+ * <ul>
+ * <li>the number of accesses (times coverage starts, a panel covered at the first step counts one)</li>
+ * <li>the gaps (intervals without coverage): the one before the first access, the
+ * ones between accesses (count, sum, sum of squares, max) and the one still open</li>
+ * <li>the time with n satellites in view for n = 0 .. numFoldBins-1 (the last bin is n or more) and the max fold</li>
+ * </ul>
+ * The gap statistics include the gaps at the start and end of the analysis.
+ * The time average gap is the sum of the squared gaps over the analysis time,
+ * the average time left until the next access is half of it.
+ * <p>
+ * Statistics of consecutive time intervals can be combined with append, so the
+ * intervals can be analyzed on separate threads. Not thread safe.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class CoverageStatistics
+{
+    private final int latPanels;
+    private final int longPanels;
+    private final int numFoldBins;
+
+    private int steps = 0; // number of updates
+    private double totalTime = 0; // [days]
+
+    // per panel, panel [i][j] at i*longPanels + j (fold time at (i*longPanels + j)*numFoldBins + n)
+    private final int[] accessCount;
+    private final boolean[] coveredFirst; // covered at the first step
+    private final boolean[] coveredLast;  // covered at the last step
+    private final double[] leadingGap;    // gap before the first access [days] (only if there was an access)
+    private final double[] currentGap;    // gap since the last access, or since the start if there was none [days]
+    private final int[] gapCount;         // gaps between two accesses
+    private final double[] gapSum;        // [days]
+    private final double[] gapSumSq;      // [days^2]
+    private final double[] maxGap;        // [days]
+    private final int[] maxFold;
+    private final double[] foldTime;      // [days]
+
+    /**
+     * Creates empty statistics
+     * @param latPanels number of latitude panels
+     * @param longPanels number of longitude panels
+     * @param numFoldBins number of fold time bins (at least 2), the last bin counts that many satellites or more
+     */
+    public CoverageStatistics(int latPanels, int longPanels, int numFoldBins)
+    {
+        this.latPanels = latPanels;
+        this.longPanels = longPanels;
+        this.numFoldBins = Math.max(2, numFoldBins);
+
+        int n = latPanels*longPanels;
+        accessCount = new int[n];
+        coveredFirst = new boolean[n];
+        coveredLast = new boolean[n];
+        leadingGap = new double[n];
+        currentGap = new double[n];
+        gapCount = new int[n];
+        gapSum = new double[n];
+        gapSumSq = new double[n];
+        maxGap = new double[n];
+        maxFold = new int[n];
+        foldTime = new double[n*this.numFoldBins];
+    } // CoverageStatistics
+
+    // for loading scenarios (XStream replaces all the fields)
+    private CoverageStatistics()
+    {
+        this(0, 0, 2);
+    } // CoverageStatistics
+
+    /**
+     * Adds a time step
+     * @param fold number of satellites in view of panel [i][j] at i*longPanels + j
+     * @param timeStepDays time since the previous step [days]
+     */
+    public void update(int[] fold, double timeStepDays)
+    {
+        boolean first = (steps == 0);
+        int lastBin = numFoldBins - 1;
+        for(int k = 0; k < fold.length; k++)
+        {
+            int f = fold[k];
+            if(f > 0)
+            {
+                if(!coveredLast[k])
+                {
+                    // coverage starts - close the gap before it
+                    accessCount[k]++;
+                    if(accessCount[k] == 1)
+                    {
+                        leadingGap[k] = currentGap[k];
+                    }
+                    else
+                    {
+                        addGap(k, currentGap[k]);
+                    }
+                    currentGap[k] = 0;
+                    coveredLast[k] = true;
+                }
+                if(f > maxFold[k])
+                {
+                    maxFold[k] = f;
+                }
+            }
+            else
+            {
+                coveredLast[k] = false;
+                currentGap[k] += timeStepDays;
+            }
+
+            if(first)
+            {
+                coveredFirst[k] = (f > 0);
+            }
+            foldTime[k*numFoldBins + Math.min(f, lastBin)] += timeStepDays;
+        }
+
+        steps++;
+        totalTime += timeStepDays;
+    } // update
+
+    private void addGap(int k, double gap)
+    {
+        gapCount[k]++;
+        gapSum[k] += gap;
+        gapSumSq[k] += gap*gap;
+        if(gap > maxGap[k])
+        {
+            maxGap[k] = gap;
+        }
+    }
+
+    /**
+     * Adds the statistics of the time interval that directly follows this one (same grid and fold bins),
+     * the result is the same as if its steps had been added with update
+     * @param next statistics of the next time interval
+     */
+    public void append(CoverageStatistics next)
+    {
+        if(next.latPanels != latPanels || next.longPanels != longPanels || next.numFoldBins != numFoldBins)
+        {
+            throw new IllegalArgumentException("Coverage statistics of different grids can not be combined");
+        }
+        if(next.steps == 0)
+        {
+            return;
+        }
+
+        boolean empty = (steps == 0);
+        for(int k = 0; k < accessCount.length; k++)
+        {
+            if(empty)
+            {
+                coveredFirst[k] = next.coveredFirst[k];
+            }
+
+            if(next.accessCount[k] == 0)
+            {
+                // no coverage in the next interval - the open gap goes on
+                currentGap[k] += next.currentGap[k];
+            }
+            else
+            {
+                // the open gap here and the gap before the first access there are one gap
+                double joined = currentGap[k] + next.leadingGap[k];
+                int accesses = accessCount[k] + next.accessCount[k];
+                if(coveredLast[k] && next.coveredFirst[k])
+                {
+                    accesses--; // the same access
+                }
+                if(accessCount[k] == 0)
+                {
+                    leadingGap[k] = joined;
+                }
+                else if(joined > 0)
+                {
+                    addGap(k, joined);
+                }
+                accessCount[k] = accesses;
+
+                gapCount[k] += next.gapCount[k];
+                gapSum[k] += next.gapSum[k];
+                gapSumSq[k] += next.gapSumSq[k];
+                maxGap[k] = Math.max(maxGap[k], next.maxGap[k]);
+                currentGap[k] = next.currentGap[k];
+            }
+            coveredLast[k] = next.coveredLast[k];
+            maxFold[k] = Math.max(maxFold[k], next.maxFold[k]);
+        }
+        for(int k = 0; k < foldTime.length; k++)
+        {
+            foldTime[k] += next.foldTime[k];
+        }
+
+        steps += next.steps;
+        totalTime += next.totalTime;
+    } // append
+
+    /**
+     * @return size of the binary form written by write [bytes]
+     */
+    int getByteSize()
+    {
+        int n = accessCount.length;
+        return 4*3 + 4 + 8 + n*(4 + 1 + 1 + 8 + 8 + 4 + 8 + 8 + 8 + 4) + 8*foldTime.length;
+    }
+
+    /**
+     * Writes the statistics in a compact binary form (see read)
+     * @param buf buffer with getByteSize() bytes left
+     */
+    void write(ByteBuffer buf)
+    {
+        buf.putInt(latPanels);
+        buf.putInt(longPanels);
+        buf.putInt(numFoldBins);
+        buf.putInt(steps);
+        buf.putDouble(totalTime);
+        for(int k = 0; k < accessCount.length; k++)
+        {
+            buf.putInt(accessCount[k]);
+            buf.put((byte)(coveredFirst[k] ? 1 : 0));
+            buf.put((byte)(coveredLast[k] ? 1 : 0));
+            buf.putDouble(leadingGap[k]);
+            buf.putDouble(currentGap[k]);
+            buf.putInt(gapCount[k]);
+            buf.putDouble(gapSum[k]);
+            buf.putDouble(gapSumSq[k]);
+            buf.putDouble(maxGap[k]);
+            buf.putInt(maxFold[k]);
+        }
+        for(int k = 0; k < foldTime.length; k++)
+        {
+            buf.putDouble(foldTime[k]);
+        }
+    } // write
+
+    /**
+     * Reads statistics written by write
+     * @param buf buffer positioned at the statistics
+     * @return the statistics
+     */
+    static CoverageStatistics read(ByteBuffer buf)
+    {
+        CoverageStatistics stats = new CoverageStatistics(buf.getInt(), buf.getInt(), buf.getInt());
+        stats.steps = buf.getInt();
+        stats.totalTime = buf.getDouble();
+        for(int k = 0; k < stats.accessCount.length; k++)
+        {
+            stats.accessCount[k] = buf.getInt();
+            stats.coveredFirst[k] = buf.get() != 0;
+            stats.coveredLast[k] = buf.get() != 0;
+            stats.leadingGap[k] = buf.getDouble();
+            stats.currentGap[k] = buf.getDouble();
+            stats.gapCount[k] = buf.getInt();
+            stats.gapSum[k] = buf.getDouble();
+            stats.gapSumSq[k] = buf.getDouble();
+            stats.maxGap[k] = buf.getDouble();
+            stats.maxFold[k] = buf.getInt();
+        }
+        for(int k = 0; k < stats.foldTime.length; k++)
+        {
+            stats.foldTime[k] = buf.getDouble();
+        }
+        return stats;
+    } // read
+
+    /**
+     * @return number of time steps added
+     */
+    public int getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * @return time analyzed [days]
+     */
+    public double getTotalTime()
+    {
+        return totalTime;
+    }
+
+    public int getLatPanels()
+    {
+        return latPanels;
+    }
+
+    public int getLongPanels()
+    {
+        return longPanels;
+    }
+
+    public int getNumFoldBins()
+    {
+        return numFoldBins;
+    }
+
+    /**
+     * @param i latitude panel index
+     * @param j longitude panel index
+     * @return number of accesses
+     */
+    public int getNumAccesses(int i, int j)
+    {
+        return accessCount[i*longPanels + j];
+    }
+
+    /**
+     * @param i latitude panel index
+     * @param j longitude panel index
+     * @return number of gaps, including the ones at the start and end
+     */
+    public int getNumGaps(int i, int j)
+    {
+        int k = i*longPanels + j;
+        int n = gapCount[k];
+        if(accessCount[k] > 0 && leadingGap[k] > 0)
+        {
+            n++;
+        }
+        if(currentGap[k] > 0)
+        {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * @param i latitude panel index
+     * @param j longitude panel index
+     * @return longest gap [days]
+     */
+    public double getMaxGap(int i, int j)
+    {
+        int k = i*longPanels + j;
+        double max = Math.max(maxGap[k], currentGap[k]);
+        return (accessCount[k] > 0) ? Math.max(max, leadingGap[k]) : max;
+    }
+
+    /**
+     * @param i latitude panel index
+     * @param j longitude panel index
+     * @return mean gap (mean revisit time) [days], 0 if there were no gaps
+     */
+    public double getMeanGap(int i, int j)
+    {
+        int n = getNumGaps(i, j);
+        return (n > 0) ? sumGaps(i*longPanels + j, false)/n : 0;
+    }
+
+    /**
+     * @param i latitude panel index
+     * @param j longitude panel index
+     * @return time average gap: sum of the squared gaps over the analysis time [days]
+     */
+    public double getTimeAverageGap(int i, int j)
+    {
+        return (totalTime > 0) ? sumGaps(i*longPanels + j, true)/totalTime : 0;
+    }
+
+    // sum of all gaps (or of their squares) including the ones at the start and end
+    private double sumGaps(int k, boolean squared)
+    {
+        double lead = (accessCount[k] > 0) ? leadingGap[k] : 0;
+        double open = currentGap[k];
+        if(squared)
+        {
+            return gapSumSq[k] + lead*lead + open*open;
+        }
+        return gapSum[k] + lead + open;
+    }
+
+    /**
+     * @param i latitude panel index
+     * @param j longitude panel index
+     * @return largest number of satellites in view at once
+     */
+    public int getMaxFold(int i, int j)
+    {
+        return maxFold[i*longPanels + j];
+    }
+
+    /**
+     * @param i latitude panel index
+     * @param j longitude panel index
+     * @param fold number of satellites in view (numFoldBins-1 counts that many or more)
+     * @return time with exactly fold satellites in view [days]
+     */
+    public double getFoldTime(int i, int j, int fold)
+    {
+        return foldTime[(i*longPanels + j)*numFoldBins + Math.min(fold, numFoldBins - 1)];
+    }
+
+    /**
+     * @param i latitude panel index
+     * @param j longitude panel index
+     * @param fold number of satellites
+     * @return time with at least fold satellites in view [days] (fold >= numFoldBins is not resolved and gives the last bin)
+     */
+    public double getTimeAtLeastFold(int i, int j, int fold)
+    {
+        int base = (i*longPanels + j)*numFoldBins;
+        double t = 0;
+        for(int n = Math.min(Math.max(fold, 0), numFoldBins - 1); n < numFoldBins; n++)
+        {
+            t += foldTime[base + n];
+        }
+        return t;
+    }
+
+    /**
+     * @param i latitude panel index
+     * @param j longitude panel index
+     * @return time averaged number of satellites in view (the last bin counted as numFoldBins-1)
+     */
+    public double getMeanFold(int i, int j)
+    {
+        if(!(totalTime > 0))
+        {
+            return 0;
+        }
+        int base = (i*longPanels + j)*numFoldBins;
+        double sum = 0;
+        for(int n = 1; n < numFoldBins; n++)
+        {
+            sum += n*foldTime[base + n];
+        }
+        return sum/totalTime;
+    }
+
+} // CoverageStatistics
@@ -0,0 +1,107 @@
+/*
+ * CoverageTessellation.java
+ *
+ * The cells of the Earth's surface a coverage analysis keeps results for.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.coverage;
+
+/**
+ * Cells of a coverage analysis, numbered 0 .. getNumCells()-1. Every cell is a
+ * latitude/longitude rectangle and access is tested at one point in it (its
+ * center).
+ * <p>
+ * The results of each cell are kept in [rows][columns] arrays with cell k at
+ * [k / columns][k % columns]: the uniform lat/long grid (CoverageGrid) keeps its
+ * rows of latitude panels, other tessellations use a single row.
+ * <p>
+ * Implementations are immutable after construction, so they can be shared by
+ * worker threads.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public interface CoverageTessellation
+{
+    /**
+     * @return number of cells
+     */
+    int getNumCells();
+
+    /**
+     * @return rows of the result arrays
+     */
+    int getRows();
+
+    /**
+     * @return columns of the result arrays (rows*columns = number of cells)
+     */
+    int getColumns();
+
+    /**
+     * @param cell cell index
+     * @return latitude of the point access is tested at [deg]
+     */
+    double getCellLatitude(int cell);
+
+    /**
+     * @param cell cell index
+     * @return longitude of the point access is tested at [deg]
+     */
+    double getCellLongitude(int cell);
+
+    /**
+     * @param cell cell index
+     * @param bounds array of length 4 to store the minimum, maximum latitude and minimum, maximum longitude in [deg]
+     */
+    void getCellBounds(int cell, double[] bounds);
+
+    /**
+     * @param cell cell index
+     * @return area of the cell as a fraction of the surface of a sphere
+     */
+    double getCellArea(int cell);
+
+    /**
+     * @param lat latitude [deg]
+     * @param lon longitude [deg]
+     * @return index of the cell containing the point, -1 if none
+     */
+    int findCell(double lat, double lon);
+
+    /**
+     * Checks if a satellite is above the elevation limit seen from a cell
+     * @param cell cell index
+     * @param satEarthFixed Earth fixed satellite position [m] (see CoverageGrid.toEarthFixed)
+     * @param sinElevationLimit sine of the elevation limit
+     * @return true if the elevation is at or above the limit
+     */
+    boolean isVisible(int cell, double[] satEarthFixed, double sinElevationLimit);
+
+    /**
+     * Adds one to the fold (number of satellites in view) of every cell with the satellite at or above the elevation limit
+     * @param satEarthFixed Earth fixed satellite position [m] (see CoverageGrid.toEarthFixed)
+     * @param elevationLimit elevation limit [rad]
+     * @param sinElevationLimit sine of the elevation limit
+     * @param fold number of satellites in view of each cell
+     */
+    void addCapFold(double[] satEarthFixed, double elevationLimit, double sinElevationLimit, int[] fold);
+
+} // CoverageTessellation
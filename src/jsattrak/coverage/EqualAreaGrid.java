@@ -0,0 +1,115 @@
+/*
+ * EqualAreaGrid.java
+ *
+ * Coverage cells of equal area in rings of constant latitude, so the number of
+ * cells does not grow towards the poles the way lat/long panels do.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.coverage;
+
+/**
+ * Iso-latitude equal-area tessellation (like HEALPix and the zonal equal area
+ * partitions): the area is split into rings of constant latitude, each ring into
+ * equal cells in longitude, with fewer cells in the rings nearer the poles.
+ * <p>
+ * A ring at latitude lat gets round(longitude span*cos(lat)/cell size) cells, then
+ * the ring edges are moved (in sin(latitude), which is proportional to area) so
+ * every cell has exactly the same area. The cells stay close to square,
+ * about cellSize degrees on a side. A global grid has about 2/PI of the cells of
+ * lat/long panels of the same size at the equator.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class EqualAreaGrid extends CellGrid
+{
+    private final int numRings;
+
+    /**
+     * Creates the cells
+     * @param latBounds minimum, maximum latitude [deg]
+     * @param longBounds minimum, maximum longitude [deg]
+     * @param cellSize size of a cell (side at the equator) [deg]
+     */
+    public EqualAreaGrid(double[] latBounds, double[] longBounds, double cellSize)
+    {
+        super(rings(latBounds, longBounds, cellSize));
+        numRings = ringCount(latBounds, cellSize);
+    }
+
+    private static int ringCount(double[] latBounds, double cellSize)
+    {
+        return Math.max(1, (int)Math.round((latBounds[1] - latBounds[0])/cellSize));
+    }
+
+    // packed cell bounds, ring by ring from the minimum latitude
+    private static double[] rings(double[] latBounds, double[] longBounds, double cellSize)
+    {
+        if(!(cellSize > 0))
+        {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        int rings = ringCount(latBounds, cellSize);
+        double lonSpan = longBounds[1] - longBounds[0];
+        double ringHeight = (latBounds[1] - latBounds[0])/rings;
+
+        // cells in each ring for rings of equal height
+        int[] ringCells = new int[rings];
+        int total = 0;
+        for(int i = 0; i < rings; i++)
+        {
+            double lat = latBounds[0] + (i + 0.5)*ringHeight;
+            ringCells[i] = Math.max(1, (int)Math.round(lonSpan*Math.cos(lat*Math.PI/180.0)/cellSize));
+            total += ringCells[i];
+        }
+
+        // ring edges so each ring has an area in proportion to its number of cells
+        double sinMin = Math.sin(latBounds[0]*Math.PI/180.0);
+        double sinMax = Math.sin(latBounds[1]*Math.PI/180.0);
+        double[] bounds = new double[4*total];
+        double bottom = latBounds[0];
+        int done = 0;
+        int k = 0;
+        for(int i = 0; i < rings; i++)
+        {
+            done += ringCells[i];
+            double top = (i == rings-1) ? latBounds[1] : Math.asin(sinMin + (sinMax - sinMin)*done/total)*180.0/Math.PI;
+            for(int j = 0; j < ringCells[i]; j++)
+            {
+                bounds[4*k] = bottom;
+                bounds[4*k+1] = top;
+                bounds[4*k+2] = longBounds[0] + j*lonSpan/ringCells[i];
+                bounds[4*k+3] = longBounds[0] + (j+1)*lonSpan/ringCells[i];
+                k++;
+            }
+            bottom = top;
+        }
+        return bounds;
+    } // rings
+
+    /**
+     * @return number of rings of constant latitude
+     */
+    public int getNumRings()
+    {
+        return numRings;
+    }
+
+} // EqualAreaGrid
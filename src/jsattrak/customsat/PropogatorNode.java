@@ -86,6 +86,14 @@ public class PropogatorNode extends CustomTreeTableNode implements OrbitProblem
     // private variables used internally only
     private double JD_TT0; // JD_TT at initial time (Julian Date)
     Vector<StateVector> ephemeris;
+
+    // scratch storage for deriv (reused every call, created on first use)
+    private transient double[][] derivT;    // TOD transformation matrix
+    private transient double[][] derivE;    // body-fixed transformation matrix
+    private transient double[][] derivWork; // 3x3 work matrix
+    private transient double[][] derivV;    // harmonic functions work arrays
+    private transient double[][] derivW;
+    private transient double[] derivTmp;    // single perturbation acceleration
     
     // USED FOR GOAL CALCULATIONS
     StateVector lastStateVector = null; // last state -- to calculate goal properties
@@ -460,9 +468,20 @@ public class PropogatorNode extends CustomTreeTableNode implements OrbitProblem
      */
     public double[] deriv(double[] var, double[] vel, double t)
     {
-        double[] acc = new double[3];
-        double[][] E = new double[3][3];
-        double[][] T = new double[3][3];
+        double[] acc = new double[3]; // returned array is kept by the integrator
+
+        // scratch storage, everything else is computed in place
+        if (derivT == null || derivV.length < n_max + 2)
+        {
+            derivT = new double[3][3];
+            derivE = new double[3][3];
+            derivWork = new double[3][3];
+            derivV = new double[n_max + 2][n_max + 2];
+            derivW = new double[n_max + 2][n_max + 2];
+            derivTmp = new double[3];
+        }
+        double[][] E = derivE;
+        double[][] T = derivT;
 
         // CAREFUL on time, should use TT then convert to UTC later or something??
         // otherwise UTC time is not uniform length??
@@ -476,15 +495,17 @@ public class PropogatorNode extends CustomTreeTableNode implements OrbitProblem
 
         // careful if Mjd_TT > J2000.0 - should be take care of in PrecMatrix_Equ_Mjd
         // good use of PrecMatrix_Equ_Mjd - followed by nutation to get TOD
-        T = MathUtils.mult(CoordinateConversion.NutMatrix(Mjd_TT), CoordinateConversion.PrecMatrix_Equ_Mjd(AstroConst.MJD_J2000, Mjd_TT));
+        // T = NutMatrix * PrecMatrix (E is used to hold the nutation matrix)
+        CoordinateConversion.PrecMatrix_Equ_Mjd(AstroConst.MJD_J2000, Mjd_TT, T, derivWork);
+        MathUtils.mult(CoordinateConversion.NutMatrix(Mjd_TT, E, derivWork), T, T);
         //E = CoordinateConversion.GHAMatrix(Mjd_UT1);
-        E = MathUtils.mult(CoordinateConversion.GHAMatrix(Mjd_UT1), T);
+        MathUtils.mult(CoordinateConversion.GHAMatrix(Mjd_UT1, derivWork), T, E);
 
         // Acceleration due to harmonic gravity field
-        acc = GravityField.AccelHarmonic(var, E, AstroConst.GM_Earth, AstroConst.R_Earth, AstroConst.CS, n_max, m_max);
+        GravityField.AccelHarmonic(var, E, AstroConst.GM_Earth, AstroConst.R_Earth, AstroConst.CS, n_max, m_max, derivV, derivW, acc);
 
         // Luni-solar perturbations 
-        double[] r_Sun = new double[3];
+        double[] r_Sun = null;
         if (includeSunPert || includeSolRadPress)
         {
             r_Sun = Sun.calculateSunPositionLowTT(Mjd_TT);
@@ -492,26 +513,25 @@ public class PropogatorNode extends CustomTreeTableNode implements OrbitProblem
         
         if (includeSunPert)
         {
-            acc = MathUtils.add(acc, GravityField.AccelPointMass(var, r_Sun, AstroConst.GM_Sun));
+            MathUtils.add(acc, GravityField.AccelPointMass(var, r_Sun, AstroConst.GM_Sun, derivTmp), acc);
         }
 
-        double[] r_Moon = new double[3];
         if (includeLunarPert)
         {
-            r_Moon = Moon.MoonPosition(Mjd_TT);
-            acc = MathUtils.add(acc, GravityField.AccelPointMass(var, r_Moon, AstroConst.GM_Moon));
+            double[] r_Moon = Moon.MoonPosition(Mjd_TT);
+            MathUtils.add(acc, GravityField.AccelPointMass(var, r_Moon, AstroConst.GM_Moon, derivTmp), acc);
         }
 
         // Solar radiation pressure
         if (includeSolRadPress)
         {
-            acc = MathUtils.add(acc, MathUtils.scale(Sun.AccelSolrad(var, r_Sun, area, mass, CR, AstroConst.P_Sol, AstroConst.AU), Sun.Illumination(var, r_Sun)));
+            MathUtils.addScaled(acc, Sun.AccelSolrad(var, r_Sun, area, mass, CR, AstroConst.P_Sol, AstroConst.AU, derivTmp), Sun.Illumination(var, r_Sun));
         }
 
         // Atmospheric drag [uses, altitude]
         if (includeAtmosDrag)
         {
-            acc = MathUtils.add(acc, Atmosphere.AccelDrag(Mjd_TT, var, vel, T, area, mass, CD));
+            MathUtils.add(acc, Atmosphere.AccelDrag(Mjd_TT, var, vel, T, area, mass, CD, derivTmp), acc);
         }
 
         return acc;
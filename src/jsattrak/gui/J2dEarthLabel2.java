@@ -31,6 +31,7 @@ import java.util.Vector;
 import javax.swing.*;
 import jsattrak.coverage.JSatTrakRenderable;
 import jsattrak.objects.AbstractSatellite;
+import jsattrak.objects.GroundTrackGeometry;
 import name.gano.astro.AstroConst;
 import name.gano.astro.GeoFunctions;
 import name.gano.astro.bodies.Sun;
@@ -269,7 +270,7 @@ public class J2dEarthLabel2 extends JLabel  implements java.io.Serializable
         
         
         // paint Groundtracks of all the SATS that have LLA Stored -----
-        double[] LLA = new double[2];
+        double[] LLA = new double[3];
         double[] LLA_old = new double[2];
         
         Double nanDbl = new Double(Double.NaN);
@@ -278,15 +279,18 @@ public class J2dEarthLabel2 extends JLabel  implements java.io.Serializable
         {
             if( sat.getShowGroundTrack() && sat.getGroundTrackIni() && sat.getPlot2D())
             {                
+                // all points from one snapshot, converted once and shared by all windows
+                GroundTrackGeometry gt = sat.getGroundTrackGeometry();
+                
                 //System.out.println("Plotting node:"+i);
                 // okay plot LLA's of the satellite
                 g2.setPaint( sat.getSatColor() );
                 
                 ///// LEAD track:
                 // first Lead point
-                if(sat.getNumGroundTrackLeadPts() > 1)
+                if(gt.getNumLeadPts() > 1)
                 {
-                    LLA = sat.getGroundTrackLlaLeadPt(0);
+                    gt.getLeadLla(0, LLA);
                     
                     xy_old = findXYfromLL(LLA[0]*180.0/Math.PI, LLA[1]*180.0/Math.PI, w, h, imageWidth, imageHeight);
                     LLA_old[0] = LLA[0];
@@ -294,8 +298,8 @@ public class J2dEarthLabel2 extends JLabel  implements java.io.Serializable
                     //LLA_old[2] = LLA[2];
                     
                     // faster performance to draw allpoints at once useing drawPolyLine
-                    int[] xPts = new int[sat.getNumGroundTrackLeadPts()];
-                    int[] yPts = new int[sat.getNumGroundTrackLeadPts()];
+                    int[] xPts = new int[gt.getNumLeadPts()];
+                    int[] yPts = new int[gt.getNumLeadPts()];
                     int ptsCount = 0; // points to draw stored up (reset when discontinutiy is hit)
                     
                     // first point
@@ -303,9 +307,9 @@ public class J2dEarthLabel2 extends JLabel  implements java.io.Serializable
                     yPts[ptsCount] = xy_old[1];
                     ptsCount++;
                     
-                    for(int j=1;j<sat.getNumGroundTrackLeadPts();j++)
+                    for(int j=1;j<gt.getNumLeadPts();j++)
                     {
-                        LLA = sat.getGroundTrackLlaLeadPt(j);
+                        gt.getLeadLla(j, LLA);
                         
                         xy = findXYfromLL(LLA[0]*180.0/Math.PI, LLA[1]*180.0/Math.PI, w, h, imageWidth, imageHeight);
                         
@@ -403,9 +407,9 @@ public class J2dEarthLabel2 extends JLabel  implements java.io.Serializable
                 
                  ///// Lag track:
                 // first Lag point
-                if(sat.getNumGroundTrackLagPts() > 0)
+                if(gt.getNumLagPts() > 0)
                 {
-                    LLA = sat.getGroundTrackLlaLagPt(0);
+                    gt.getLagLla(0, LLA);
                     
                     xy_old = findXYfromLL(LLA[0]*180.0/Math.PI, LLA[1]*180.0/Math.PI, w, h, imageWidth, imageHeight);
                     LLA_old[0] = LLA[0];
@@ -413,8 +417,8 @@ public class J2dEarthLabel2 extends JLabel  implements java.io.Serializable
                     //LLA_old[2] = LLA[2];
                     
                     // faster performance to draw allpoints at once useing drawPolyLine
-                    int[] xPts = new int[sat.getNumGroundTrackLeadPts()];
-                    int[] yPts = new int[sat.getNumGroundTrackLeadPts()];
+                    int[] xPts = new int[gt.getNumLagPts()];
+                    int[] yPts = new int[gt.getNumLagPts()];
                     int ptsCount = 0; // points to draw stored up (reset when discontinutiy is hit)
                     
                     // first point
@@ -422,9 +426,9 @@ public class J2dEarthLabel2 extends JLabel  implements java.io.Serializable
                     yPts[ptsCount] = xy_old[1];
                     ptsCount++;
                     
-                    for(int j=1;j<sat.getNumGroundTrackLagPts();j++)
+                    for(int j=1;j<gt.getNumLagPts();j++)
                     {
-                        LLA = sat.getGroundTrackLlaLagPt(j);
+                        gt.getLagLla(j, LLA);
                         
                         xy = findXYfromLL(LLA[0]*180.0/Math.PI, LLA[1]*180.0/Math.PI, w, h, imageWidth, imageHeight);
                         
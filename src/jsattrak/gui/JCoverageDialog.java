@@ -24,6 +24,7 @@ package jsattrak.gui;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
 import java.util.GregorianCalendar;
@@ -39,6 +40,10 @@ import javax.swing.SwingWorker;
 import jsattrak.coverage.ColorMap;
 import jsattrak.coverage.CoolColorMap;
 import jsattrak.coverage.CoverageAnalyzer;
+import jsattrak.coverage.CoverageCheckpoint;
+import jsattrak.coverage.CoverageJob;
+import jsattrak.coverage.CoverageStatistics;
+import jsattrak.coverage.CoverageTessellation;
 import jsattrak.coverage.GrayColorMap;
 import jsattrak.coverage.HotColorMap;
 import jsattrak.objects.AbstractSatellite;
@@ -115,6 +120,9 @@ public class JCoverageDialog extends javax.swing.JPanel
         {
             colorMapComboBox.setSelectedIndex(0);
         }
+        
+        // displayed data (combo box in the order of the CoverageAnalyzer.LAYER_ constants)
+        displayLayerComboBox.setSelectedIndex(ca.getDisplayLayer());
 
         // 2D windows
         Vector<Integer> selectedWindows = new Vector<Integer>();
@@ -196,6 +204,8 @@ public class JCoverageDialog extends javax.swing.JPanel
         jLabel9 = new javax.swing.JLabel();
         colorMapComboBox = new javax.swing.JComboBox();
         colorMapLabel = new jsattrak.coverage.ColorMapLabel();
+        displayLabel = new javax.swing.JLabel();
+        displayLayerComboBox = new javax.swing.JComboBox();
         jPanel11 = new javax.swing.JPanel();
         jLabel8 = new javax.swing.JLabel();
         jScrollPane3 = new javax.swing.JScrollPane();
@@ -509,6 +519,11 @@ public class JCoverageDialog extends javax.swing.JPanel
 
         colorMapLabel.setBorder(javax.swing.BorderFactory.createLineBorder(new java.awt.Color(0, 0, 0)));
 
+        displayLabel.setText("Display:");
+
+        displayLayerComboBox.setModel(new javax.swing.DefaultComboBoxModel(new String[] { "Coverage Time", "Accesses", "Mean Gap", "Max Gap", "Time Avg. Gap", "Time 2+ Fold", "Max Fold" }));
+        displayLayerComboBox.setToolTipText("Coverage data shown in the 2D and 3D windows");
+
         javax.swing.GroupLayout jPanel10Layout = new javax.swing.GroupLayout(jPanel10);
         jPanel10.setLayout(jPanel10Layout);
         jPanel10Layout.setHorizontalGroup(
@@ -535,6 +550,11 @@ public class JCoverageDialog extends javax.swing.JPanel
                 .addContainerGap()
                 .addComponent(colorMapLabel, javax.swing.GroupLayout.PREFERRED_SIZE, 120, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addContainerGap(21, Short.MAX_VALUE))
+            .addGroup(jPanel10Layout.createSequentialGroup()
+                .addComponent(displayLabel)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(displayLayerComboBox, 0, 88, Short.MAX_VALUE)
+                .addContainerGap())
         );
         jPanel10Layout.setVerticalGroup(
             jPanel10Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
@@ -553,7 +573,11 @@ public class JCoverageDialog extends javax.swing.JPanel
                     .addComponent(jLabel9)
                     .addComponent(colorMapComboBox, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                .addComponent(colorMapLabel, javax.swing.GroupLayout.DEFAULT_SIZE, 25, Short.MAX_VALUE))
+                .addComponent(colorMapLabel, javax.swing.GroupLayout.DEFAULT_SIZE, 25, Short.MAX_VALUE)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                .addGroup(jPanel10Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(displayLabel)
+                    .addComponent(displayLayerComboBox, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)))
         );
 
         jPanel11.setBorder(javax.swing.BorderFactory.createTitledBorder("2D Windows"));
@@ -935,12 +959,17 @@ private void runButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIR
         return;
     }
     
-    // SEG v4.1.7 - bug custom satellites do not work with the UnoptimizedDeepCopy
-    //final Hashtable<String, AbstractSatellite> tempSatHash = (Hashtable<String, AbstractSatellite>)UnoptimizedDeepCopy.copy(app.getSatHash());
-    //SEG v4.1.7 - instead - just clone the hashtable, and store the current "time" so it can be returned upon finish
-    //             the reason it has to be returned to the current time is that the clone is not a deep copy and the objects will change their current time and settings.
-    final Hashtable<String, AbstractSatellite> tempSatHash = (Hashtable<String, AbstractSatellite>) app.getSatHash().clone();
-    final double startAppJulTime = app.getCurrentJulTime(); // SEG v4.1.7
+    // the batch job propagates its own copies of the satellites, so the scenario (and its time) is not touched
+    // and the time steps can be split between threads
+    final Vector<AbstractSatellite> coverageSats = new Vector<AbstractSatellite>();
+    for(String satName : ca.getSatVector())
+    {
+        AbstractSatellite sat = app.getSatHash().get(satName);
+        if(sat != null)
+        {
+            coverageSats.add(sat);
+        }
+    }
     
     final double timeStep = app.getCurrentTimeStep(); // timestep to use in calculations SECONDS
 
@@ -949,6 +978,44 @@ private void runButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIR
     this.saveSettings();
     ca.setDynamicUpdating(false); // in sure false
     ca.clearCoverageData(startJulianDate);
+    
+    CoverageJob newJob = new CoverageJob(startJulianDate.getJulianDate(), stopJulianDate.getJulianDate(), timeStep,
+            ca.getTessellation(), ca.getElevationLimit(), coverageSats);
+    
+    // an unfinished run of the same cells and satellites (e.g. the program was closed) can be continued
+    final File checkpointFile = new File(System.getProperty("user.dir"), "coverage.checkpoint");
+    if(checkpointFile.exists())
+    {
+        try
+        {
+            CoverageCheckpoint checkpoint = CoverageCheckpoint.read(checkpointFile);
+            CoverageJob resumeJob = new CoverageJob(checkpoint.getStartJulDate(), checkpoint.getStopJulDate(), checkpoint.getStepDays()*24.0*60.0*60.0,
+                    ca.getTessellation(), ca.getElevationLimit(), coverageSats);
+            if(!checkpoint.isComplete() && resumeJob.resume(checkpoint))
+            {
+                Time resumeStart = new Time();
+                resumeStart.set(Time.convertJD2Calendar(checkpoint.getStartJulDate()).getTimeInMillis());
+                Time resumeStop = new Time();
+                resumeStop.set(Time.convertJD2Calendar(checkpoint.getStopJulDate()).getTimeInMillis());
+                
+                int answer = JOptionPane.showConfirmDialog(app, "An unfinished coverage run of these satellites was found:\n"
+                        + resumeStart.getDateTimeStr() + " to " + resumeStop.getDateTimeStr() + ", "
+                        + Math.round(100.0*checkpoint.getStepsDone()/checkpoint.getNumSteps()) + "% done.\n\nContinue that run?",
+                        "Resume Coverage", JOptionPane.YES_NO_OPTION);
+                if(answer == JOptionPane.YES_OPTION)
+                {
+                    newJob = resumeJob;
+                }
+            }
+        }
+        catch(IOException e)
+        {
+            System.out.println("Error reading coverage checkpoint: " + e.toString());
+        }
+    }
+    
+    final CoverageJob job = newJob;
+    job.setCheckpointFile(checkpointFile); // checkpoints while running
 
     // create a thread to do calulations in background
     SwingWorker<Object, Integer> worker = new SwingWorker<Object, Integer>()
@@ -958,39 +1025,20 @@ private void runButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIR
 
         {
             // perform all of the process in the background!
-            // what happens when sat isn't propogated as far as date?
-            // make a new Time object - to track progress
-
-            Time currentTime = new Time();
-            currentTime.set(startJulianDate.getCurrentGregorianCalendar().getTimeInMillis());
-
-            currentTime.addSeconds(timeStep);// add first time step (inital time already included in clear data)
-            while(currentTime.getMJD() <= stopJulianDate.getMJD())
+            job.setProgressListener(new CoverageJob.ProgressListener()
             {
-                // update position of satellites
-                for(AbstractSatellite sat : tempSatHash.values())
+                public void progress(long stepsDone, long totalSteps)
                 {
-                    sat.propogate2JulDate(currentTime.getJulianDate());
-                } // propgate each sat
-                
-                // update coverage
-                ca.performCoverageAnalysis(currentTime, tempSatHash);
-                
-                //Update progress bar
-                publish( (int)Math.round(100*(1.0-(stopJulianDate.getMJD()-currentTime.getMJD())/(stopJulianDate.getMJD()-startJulianDate.getMJD()))) );
-                //runProgressBar.setValue( (int)Math.round(100*(1.0-(stopJulianDate.getMJD()-currentTime.getMJD())/(stopJulianDate.getMJD()-startJulianDate.getMJD()))) );
-                
-                // increment time
-                currentTime.addSeconds(timeStep);
-            } // for time loop
-
-            // now propogate all satellites to the current time  
-  
-            // NEED TO ADD TIME START AND STOP TO CA OBJECT - to SAVE IN DIALOG AND SO USER KNOWS!!!!
-
+                    //Update progress bar
+                    publish( (int)Math.round(100.0*stepsDone/totalSteps) );
+                }
+            });
             
-            // SEG v4.1.7 - return to inital time within app
-            app.setTime(startAppJulTime);
+            if(job.run())
+            {
+                ca.setCoverageData(job);
+                checkpointFile.delete(); // done, nothing to resume
+            }
 
             return null;
         } //doInBackground
@@ -1010,6 +1058,13 @@ private void runButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIR
         protected void done()
         {
             runProgressBar.setValue(0); // update progress bar
+            
+            if(job.isFailed())
+            {
+                // partial results are not shown, the checkpoint is kept so the run can be continued
+                JOptionPane.showMessageDialog(app, "Error in the coverage analysis, see the console for details.\n"
+                        + "The steps done so far are kept and the run can be continued.", "ERROR", JOptionPane.ERROR_MESSAGE);
+            }
 
             app.forceRepainting();
         } // done -- update GUI at the finish of process
@@ -1079,20 +1134,37 @@ private void exportDataButtonActionPerformed(java.awt.event.ActionEvent evt) {//
             
             fileSaveAs = file.getAbsolutePath();
             
-            // export text file (mid points) lat [deg] \t long [deg] \t coverage time [sec]
+            // export text file (cell mid points) lat [deg] \t long [deg] \t coverage time [sec]
             try
             {
                 PrintWriter out = new PrintWriter(new FileWriter(fileSaveAs));
                 
                 // first line
-                out.println("Latitude [deg] \t Longitude [deg] \t Coverage Time [sec]");
+                CoverageStatistics stats = ca.getCoverageStatistics();
+                String header = "Latitude [deg] \t Longitude [deg] \t Coverage Time [sec]"
+                        + " \t Accesses \t Mean Gap [sec] \t Max Gap [sec] \t Time Avg. Gap [sec] \t Max Fold \t Mean Fold";
+                for(int n = 0; n < stats.getNumFoldBins(); n++)
+                {
+                    header += " \t Time " + n + (n == stats.getNumFoldBins()-1 ? "+" : "") + " Fold [sec]";
+                }
+                out.println(header);
                 
-                for(int i = 0; i<ca.getLatPanels(); i++)
+                double secPerDay = 24.0*60.0*60.0;
+                CoverageTessellation cells = ca.getTessellation();
+                for(int k = 0; k<cells.getNumCells(); k++)
                 {
-                    for(int j=0; j<ca.getLongPanels(); j++)
+                    // row and column of the data arrays (lat/long panel [i][j] of a lat/long grid)
+                    int i = k / cells.getColumns();
+                    int j = k % cells.getColumns();
+                    String line = cells.getCellLatitude(k) + " \t" + cells.getCellLongitude(k) + " \t" + ca.getCoverageCumTime()[i][j]*secPerDay
+                            + " \t" + stats.getNumAccesses(i, j) + " \t" + stats.getMeanGap(i, j)*secPerDay
+                            + " \t" + stats.getMaxGap(i, j)*secPerDay + " \t" + stats.getTimeAverageGap(i, j)*secPerDay
+                            + " \t" + stats.getMaxFold(i, j) + " \t" + stats.getMeanFold(i, j);
+                    for(int n = 0; n < stats.getNumFoldBins(); n++)
                     {
-                        out.println(ca.getLatPanelMidPoints()[i] + " \t" + ca.getLonPanelMidPoints()[j] + " \t" + ca.getCoverageCumTime()[i][j]);
+                        line += " \t" + stats.getFoldTime(i, j, n)*secPerDay;
                     }
+                    out.println(line);
                 }
                 
                 out.close();
@@ -1144,6 +1216,8 @@ private void exportDataButtonActionPerformed(java.awt.event.ActionEvent evt) {//
     private javax.swing.JComboBox colorMapComboBox;
     private jsattrak.coverage.ColorMapLabel colorMapLabel;
     private javax.swing.JTextArea dataSummaryTextArea;
+    private javax.swing.JLabel displayLabel;
+    private javax.swing.JComboBox displayLayerComboBox;
     private javax.swing.JCheckBox dyanmicUpdateCheckBox;
     private javax.swing.JButton exportDataButton;
     private javax.swing.JButton jButton2;
@@ -1289,6 +1363,8 @@ private void exportDataButtonActionPerformed(java.awt.event.ActionEvent evt) {//
                     ca.setColorMap(new GrayColorMap());
                     break;
             } // colormap switch
+            
+            ca.setDisplayLayer(displayLayerComboBox.getSelectedIndex());
 
             // 2D windows save which one(s) to use as a display
             // twoDWindowList
@@ -75,6 +75,7 @@ import jguiserver.GuiServer;
 import jsattrak.coverage.CoverageAnalyzer;
 import jsattrak.coverage.JSatTrakTimeDependent;
 import jsattrak.objects.AbstractSatellite;
+import jsattrak.objects.CatalogPropagator;
 import jsattrak.objects.CustomSatellite;
 import jsattrak.objects.SatelliteTleSGP4;
 import jsattrak.utilities.ConsoleDialog;
@@ -184,6 +185,9 @@ public class JSatTrak extends javax.swing.JFrame implements InternalFrameListene
     // time dependent objects that should be update when time is updated -- NEED TO BE SAVED?
     Vector<JSatTrakTimeDependent> timeDependentObjects = new Vector<JSatTrakTimeDependent>();
     
+     // propagates all the satellites each time step
+     private CatalogPropagator catalogPropagator = new CatalogPropagator();
+     
      // coverage anaylzer tool (default null, until tool opened)
      private CoverageAnalyzer coverageAnalyzer;
      
@@ -1933,11 +1937,8 @@ public class JSatTrak extends javax.swing.JFrame implements InternalFrameListene
         // update date box:
         dateTextField.setText( currentJulianDate.getDateTimeStr() );//String.format("%tc",cal) );
         
-        // now propogate all satellites to the current time  
-        for (AbstractSatellite sat : satHash.values() )
-        {
-            sat.propogate2JulDate( currentJulianDate.getJulianDate() );
-        } // propgate each sat
+        // now propogate all satellites to the current time (TLE sats in one batch)
+        catalogPropagator.propogate2JulDate(satHash, currentJulianDate.getJulianDate());
         
         // update ground stations to the current time  
         for (GroundStation gs : gsHash.values() )
@@ -3473,6 +3474,11 @@ private void lookFeelMenuItemActionPerformed(java.awt.event.ActionEvent evt) {//
         this.wwjOfflineMode = wwjOfflineMode;
     }
 
+    public CatalogPropagator getCatalogPropagator()
+    {
+        return catalogPropagator;
+    }
+
 //    public void setGsHash(Hashtable<String, GroundStation> gsHash)
 //    {
 //        this.gsHash = gsHash;
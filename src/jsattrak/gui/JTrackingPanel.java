@@ -30,17 +30,18 @@ import java.io.File;
 import java.io.FileWriter;
 import java.text.DecimalFormat;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Hashtable;
 import javax.swing.JFileChooser;
 import javax.swing.JTable.PrintMode;
 import javax.swing.ListSelectionModel;
 import javax.swing.table.DefaultTableModel;
+import jsattrak.analysis.PassPredictor;
+import jsattrak.analysis.SatellitePass;
 import jsattrak.objects.AbstractSatellite;
+import jsattrak.objects.GroundTrackSnapshot;
 import jsattrak.utilities.CustomFileFilter;
 import name.gano.astro.AER;
-import name.gano.astro.AstroConst;
-import name.gano.astro.MathUtils;
-import name.gano.astro.bodies.Sun;
 import name.gano.astro.coordinates.CoordinateConversion;
 import name.gano.astro.time.Time;
 import name.gano.file.FileUtilities;
@@ -56,8 +57,7 @@ public class JTrackingPanel extends javax.swing.JPanel
     Hashtable<String,GroundStation> gsHash;
     
     // data to tell if Lead/Lag data should be updated
-    double oldLeadX = -1;
-    double oldLagX = -1;
+    GroundTrackSnapshot oldTrack = null; // ground track the lead/lag AER was calculated from
     
     String timeAsString;
     
@@ -193,50 +193,28 @@ public class JTrackingPanel extends javax.swing.JPanel
             // see if we even need to bother - lead data option selected in both 2D and polar plot
             if (jPolarPlotLabel.isShowLeadLagData() && sat.getShowGroundTrack())
             {
-                boolean updateLeadData = false;
-                boolean updateLagData = false;
+                // one snapshot for lead and lag - the same object until the track slides or is rebuilt
+                GroundTrackSnapshot gt = sat.getGroundTrackSnapshot();
+                boolean trackChanged = (gt != oldTrack);
+                oldTrack = gt;
 
                 // need to update lead data?
-                if (jPolarPlotLabel.getAerLead() == null || jPolarPlotLabel.getAerLead().length < 1)
-                {
-                    updateLeadData = true;
-                    oldLeadX = sat.getTemePosLead()[0][0];
-                }
-                else
-                {
-                    if (oldLeadX != sat.getTemePosLead()[0][0])
-                    {
-                        updateLeadData = true;
-                        oldLeadX = sat.getTemePosLead()[0][0];
-                    }
-                }
+                boolean updateLeadData = trackChanged || jPolarPlotLabel.getAerLead() == null || jPolarPlotLabel.getAerLead().length < 1;
 
                 // need to update lag data?
-                if (jPolarPlotLabel.getAerLag() == null || jPolarPlotLabel.getAerLag().length < 1)
-                {
-                    updateLagData = true;
-                    oldLagX = sat.getTemePosLag()[0][0];
-                }
-                else
-                {
-                    if (oldLagX != sat.getTemePosLag()[0][0])
-                    {
-                        updateLagData = true;
-                        oldLagX = sat.getTemePosLag()[0][0];
-                    }
-                }
+                boolean updateLagData = trackChanged || jPolarPlotLabel.getAerLag() == null || jPolarPlotLabel.getAerLag().length < 1;
 
                 // update Lead data if needed
                 if (updateLeadData) //|| check to see if lead/lag data has been updated..
                 {
-                    jPolarPlotLabel.setAerLead(AER.calculate_AER(new double[]{gs.getLatitude(), gs.getLongitude(), gs.getAltitude()}, sat.getTemePosLead(), sat.getTimeLead()));
+                    jPolarPlotLabel.setAerLead(AER.calculate_AER(new double[]{gs.getLatitude(), gs.getLongitude(), gs.getAltitude()}, gt.getLeadTemeArray(), gt.getLeadTimes()));
                 //System.out.println("Lead updated");
                 }
 
                 // update lag data if needed
                 if (updateLagData) //|| heck to see if lead/lag data has been updated..
                 {
-                    jPolarPlotLabel.setAerLag(AER.calculate_AER(new double[]{gs.getLatitude(), gs.getLongitude(), gs.getAltitude()}, sat.getTemePosLag(), sat.getTimeLag()));
+                    jPolarPlotLabel.setAerLag(AER.calculate_AER(new double[]{gs.getLatitude(), gs.getLongitude(), gs.getAltitude()}, gt.getLagTemeArray(), gt.getLagTimes()));
                 //System.out.println("Lag updated");
                 }
 
@@ -730,8 +708,9 @@ public class JTrackingPanel extends javax.swing.JPanel
             AbstractSatellite sat = satHash.get(satComboBox.getSelectedItem().toString());
             if (jPolarPlotLabel.isShowLeadLagData() && sat.getShowGroundTrack())
             {
-                jPolarPlotLabel.setAerLead(AER.calculate_AER(new double[]{gs.getLatitude(), gs.getLongitude(), gs.getAltitude()}, sat.getTemePosLead(), sat.getTimeLead()));
-                jPolarPlotLabel.setAerLag(AER.calculate_AER(new double[]{gs.getLatitude(), gs.getLongitude(), gs.getAltitude()}, sat.getTemePosLag(), sat.getTimeLag()));
+                GroundTrackSnapshot gt = sat.getGroundTrackSnapshot();
+                jPolarPlotLabel.setAerLead(AER.calculate_AER(new double[]{gs.getLatitude(), gs.getLongitude(), gs.getAltitude()}, gt.getLeadTemeArray(), gt.getLeadTimes()));
+                jPolarPlotLabel.setAerLag(AER.calculate_AER(new double[]{gs.getLatitude(), gs.getLongitude(), gs.getAltitude()}, gt.getLagTemeArray(), gt.getLagTimes()));
             }
         }
         
@@ -777,218 +756,61 @@ public class JTrackingPanel extends javax.swing.JPanel
             passTableModel.removeRow(0);
         }
         
-        // Sun sun
-        
-//        // elevation data used in seach
-//        double h0=0,h1=0,h2=0;
-//        
-//        // intially calculate elevations at 0/1 time points
-//        // AER.calculate_AER(new double[]{gs.getLatitude(), gs.getLongitude(), gs.getAltitude()}, sat.getModPosLead(), sat.getTimeLead())
-//        double time0 = jdStart - timeStepSec/(60.0*60.0*24.0);
-//        h0 = AER.calculate_AER(gs.getLla_deg_m(), sat.calculateMODPositionFromUT(time0) , time0)[1];
-//        double time1 = jdStart;
-//        h1 = AER.calculate_AER(gs.getLla_deg_m(), sat.calculateMODPositionFromUT(time1) , time1)[1];
-//        double time2 = jdStart + timeStepSec/(60.0*60.0*24.0);; // declare var
-//        
-//        System.out.println(time0 + "," + h0 );
-//        System.out.println(time1 + "," + h1 );
-//        
-//        // use quadratic fit to search for zeros
-//        for(double jd = jdStart; jd <= jdStart + timeSpanDays; jd += timeStepSec/(60.0*60.0*24.0))
-//        {
-//            time0 = time1;
-//            time1 = time2;
-//            time2 = jd + timeStepSec/(60.0*60.0*24.0);
-//            
-//            // calculate elevations at each time step (if needed)
-//            h0 = h1;
-//            h1 = h2;
-//            // calculate the elevation at this newly visited point
-//            h2 = AER.calculate_AER(gs.getLla_deg_m(), sat.calculateMODPositionFromUT(time2) , time2)[1];
-//            System.out.println(time2 + "," + h2 );
-//            
-//            // create a quadratic interpolator
-//            QuadraticInterpolatorSimp qis = new QuadraticInterpolatorSimp(time0, h0, time1, h1, time2, h2);
-//            
-////            if(qis.getRootCountInDomain() == 1)
-////            {
-////                System.out.println("Event(1): " + qis.getLowerRoot() );
-////            }else if(qis.getRootCountInDomain() == 2)
-////            {
-////                System.out.println("Event(2a): " + qis.getLowerRoot() );
-////                System.out.println("Event(2b): " + qis.getUpperRoot() );
-////            }
-//            
-//        } // for loop seaching for rise/set events
-        
-        
-        Sun internalSun = new Sun(jdStart - AstroConst.JDminusMJD); // new sun for internal calculations of Visibility
-        
-        // linear search
-        double time0, h0;
-        double time1 = jdStart;
-        double h1 = AER.calculate_AER(gs.getLla_deg_m(), sat.calculateTemePositionFromUT(time1) , time1)[1] - gs.getElevationConst();
-        
-        int passCount = 0;
-        
-        if(h1 > 0)
+        // pass prediction for this pair (the engine is shared with batch predictions)
+        ArrayList<AbstractSatellite> sats = new ArrayList<AbstractSatellite>();
+        sats.add(sat);
+        ArrayList<GroundStation> stations = new ArrayList<GroundStation>();
+        stations.add(gs);
+        PassPredictor predictor = new PassPredictor(jdStart, jdStart + timeSpanDays, sats, stations);
+        predictor.setTimeStepSec(timeStepSec);
+        predictor.setNumThreads(1);
+        if(!predictor.run())
         {
-            passCount++;
-            passTableModel.addRow(new Object[] {passCount,"--","","",""});
+            return; // failed, the error is printed by the predictor
         }
         
-        double lastRise = 0;
-        
-        for(double jd = jdStart; jd <= jdStart + timeSpanDays; jd += timeStepSec/(60.0*60.0*24.0))
+        DecimalFormat fmt2Dig = new DecimalFormat("00.000");
+        int passCount = 0;
+        for(SatellitePass pass : predictor.getPasses())
         {
-            time0 = time1;
-            time1 = jd + timeStepSec/(60.0*60.0*24.0);
-            
-            // calculate elevations at each time step (if needed)
-            h0 = h1;
-            // calculate the elevation at this newly visited point
-            h1 = AER.calculate_AER(gs.getLla_deg_m(), sat.calculateTemePositionFromUT(time1) , time1)[1] - gs.getElevationConst();
+            passCount++;
             
-            // rise
-            if(h0<=0 && h1 >0)
+            // use Time object to convert Julian date to string using program settings (i.e. time zone)
+            String riseTimeStr = "--";
+            String riseAzStr = "";
+            if(!Double.isNaN(pass.getRiseJulDate()))
             {
-                double riseTime =  findSatRiseSetRoot(sat, gs, time0, time1, h0, h1);
-                //System.out.println("Rise at " + riseTime  + " (" + time0 + "," + time1 + ")"); 
-                
-                lastRise = riseTime; // save
-                
-                // add to table
-                passCount++;
-                // use Time object to convert Julian date to string using program settings (i.e. time zone)
-                String crossTimeStr = currentJulianDate.convertJD2String(riseTime);
-                
-                passTableModel.addRow(new Object[] {passCount,crossTimeStr,"","","","",""});
-
-                // calculate using the rise time - the Azimuth
-                double az = AER.calculate_AER(gs.getLla_deg_m(), sat.calculateTemePositionFromUT(riseTime) , riseTime)[0];
-                if(azComboBox.getSelectedIndex() == 0)
-                {
-                    passTableModel.setValueAt(""+String.format("%.1f", az), passTableModel.getRowCount()-1, 2);
-                }
-                else
-                {
-                    // is AZ in degrees or radians?
-                    passTableModel.setValueAt(CoordinateConversion.degrees2CompassPoints(az), passTableModel.getRowCount()-1, 2);
-                }
+                riseTimeStr = currentJulianDate.convertJD2String(pass.getRiseJulDate());
+                riseAzStr = azimuthString(pass.getRiseAzimuth());
             }
-            
-            // set
-            if(h1<=0 && h0 >0)
+            String setTimeStr = "";
+            String setAzStr = "";
+            if(!Double.isNaN(pass.getSetJulDate()))
             {
-                double setTime =  findSatRiseSetRoot(sat, gs, time0, time1, h0, h1);
-                //System.out.println("Set at " + setTime  + " (" + time0 + "," + time1 + ")"); 
-                
-                // add to table
-                String crossTimeStr = currentJulianDate.convertJD2String(setTime);
-                passTableModel.setValueAt(crossTimeStr, passTableModel.getRowCount()-1, 3); // last row, 3rd column (2)
-                
-                // calculate using the set time - the Azimuth
-                double az = AER.calculate_AER(gs.getLla_deg_m(), sat.calculateTemePositionFromUT(setTime) , setTime)[0];
-                if(azComboBox.getSelectedIndex() == 0)
-                {
-                    passTableModel.setValueAt(""+String.format("%.1f", az), passTableModel.getRowCount()-1, 4);
-                }
-                else
-                {
-                    // is AZ in degrees or radians?
-                    passTableModel.setValueAt(CoordinateConversion.degrees2CompassPoints(az), passTableModel.getRowCount()-1, 4);
-                } // azimuth
-
-
-                // add duration
-                if(lastRise > 0)
-                {
-                    DecimalFormat fmt2Dig = new DecimalFormat("00.000");
-                    
-                    double duration = (setTime - lastRise)*24.0*60.0*60.0; // seconds
-                    String durStr = fmt2Dig.format( duration );
-                    passTableModel.setValueAt(durStr, passTableModel.getRowCount()-1, 5); // last row, 4rd column (3)
-                }
-                
-                // determine visibility
-                if(lastRise > 0)
-                {
-                    // Visiable, Radar Night, Radar Night
-                    
-                    // use the time 1/2 between rise and set for viz calculations
-                    // DOES NOT CHECK FOR VIS NEAR END POINTS SO COULD MISS SOME PARTIAL PASS VISIBILITY
-                                        
-                    double julDateVizCalc = (setTime - lastRise)/2.0 + lastRise;
-                    
-                    // SAVE to hash - for use later
-                    passHash.put(new Integer(passCount), new Double(julDateVizCalc));
-                    
-                    // twilight offset
-                    // 7 seems good
-                    // 6 is used by heavens-above.com
-                    double twilightOffset = 6; // degrees extra required for darkness
-                    
-                    // set the suns time 
-                    internalSun.setCurrentMJD( julDateVizCalc - AstroConst.JDminusMJD );
-                    
-                    // MOD - sun dot site positions to determine if station is in sunlight
-                    double[] gsECI = AER.calculateECIposition(julDateVizCalc, gs.getLla_deg_m());
-                    double sunDotSite = MathUtils.dot(internalSun.getCurrentPositionTEME(),gsECI );
-                    
-                    // TEST - find angle between sun -> center of Earth -> Ground Station
-                    double sinFinalSigmaGS = MathUtils.norm( MathUtils.cross(internalSun.getCurrentPositionTEME(), gsECI) )
-                             / ( MathUtils.norm(internalSun.getCurrentPositionTEME()) * MathUtils.norm(gsECI)  );
-                    double finalSigmaGS = Math.asin(sinFinalSigmaGS)*180.0/Math.PI; // in degrees
-                    
-                    if(sunDotSite > 0 || (90.0-finalSigmaGS) < twilightOffset )
-                    {
-                        passTableModel.setValueAt("Radar Sun", passTableModel.getRowCount()-1, 6); // last row, 5rd column (4)
-                    } // sun light
-                    else
-                    {
-                        // now we know the site is in darkness - need to figure out if the satelite is in light
-                        // use predict algorithm from Vallado 2nd ed.
-                        double[] satMOD = sat.calculateTemePositionFromUT(julDateVizCalc);
-                        double sinFinalSigma = MathUtils.norm( MathUtils.cross(internalSun.getCurrentPositionTEME(), satMOD) )
-                                / ( MathUtils.norm(internalSun.getCurrentPositionTEME()) * MathUtils.norm(satMOD)  );
-                        double finalSigma = Math.asin(sinFinalSigma);
-                        double dist = MathUtils.norm(satMOD) * Math.cos( finalSigma - Math.PI/2.0);
-                        
-                        if(dist > AstroConst.R_Earth_mean) // changed to mean 30/March/2009 SEG
-                        {
-                            // sat is in sunlight!
-                            passTableModel.setValueAt("Visible", passTableModel.getRowCount()-1, 6); // last row, 5rd column (4)
-                        }
-                        else  // Radar Night (both in darkness)
-                        {
-                            passTableModel.setValueAt("Radar Night", passTableModel.getRowCount()-1, 6); // last row, 5rd column (4)
-                        }
-                        
-                    } // site in dark
-                    
-                } // visibility (with last rise)             
-                
-            } // set
+                setTimeStr = currentJulianDate.convertJD2String(pass.getSetJulDate());
+                setAzStr = azimuthString(pass.getSetAzimuth());
+            }
+            String durStr = pass.isComplete() ? fmt2Dig.format(pass.getDurationSec()) : "";
             
+            passTableModel.addRow(new Object[] {passCount,riseTimeStr,riseAzStr,setTimeStr,setAzStr,durStr,pass.getVisibilityString()});
             
-        }// linear seach
+            // SAVE to hash - for use later (time 1/2 between rise and set, the visibility is calculated there)
+            double from = Double.isNaN(pass.getRiseJulDate()) ? predictor.getStartJulDate() : pass.getRiseJulDate();
+            double to = Double.isNaN(pass.getSetJulDate()) ? predictor.getStopJulDate() : pass.getSetJulDate();
+            passHash.put(new Integer(passCount), new Double((to - from)/2.0 + from));
+        } // passes
         
-        // if visible only checked remove other items from the list
-        if(visibleOnlyCheckBox.isSelected())
+        // if visible only checked remove other items from the list (pass numbers are kept)
+        if(onlyVisible)
         {
-            
             int vizColumn = 6;  // vis text column
             for(int i=passTableModel.getRowCount()-1; i>=0;i-- )
             {
-               
               if(!passTableModel.getValueAt(i, vizColumn).toString().equalsIgnoreCase("Visible"))
               {
                   passTableModel.removeRow(i);
               }
             }
-            
-            
-            
         } // remove non-visible
         
         
@@ -1170,45 +992,18 @@ public class JTrackingPanel extends javax.swing.JPanel
                 
     } // go2pass
     
-    // bisection method, crossing time should be bracketed by time0 and time1
-    private double findSatRiseSetRoot(AbstractSatellite sat, GroundStation gs, double time0, double time1, double f0, double f1)
+    // azimuth as shown in the pass table (degrees or compass points)
+    private String azimuthString(double az)
     {
-        double tol = (1.157407E-5)/4; // 1/4 a sec (in units of a day)
-        
-        int iterCount = 0;
-        
-        while(Math.abs(time1-time0) > 2*tol)
+        if(azComboBox.getSelectedIndex() == 0)
         {
-            //Calculate midpoint of domain
-            double timeMid = (time1 + time0) / 2.0;
-            double fmid = AER.calculate_AER(gs.getLla_deg_m(), sat.calculateTemePositionFromUT(timeMid) , timeMid)[1] - gs.getElevationConst();
-            
-            if( f0 * fmid > 0) // same sign
-            {
-                // replace f0 with fmid
-                f0 = fmid;
-                time0 = timeMid;
-                
-            }else  // else replace f1 with fmid
-            {
-                f1 = fmid;
-                time1 = timeMid;
-            }
-            
-            iterCount++;
-        } // while not in tolerance
-        
-        // return best gues using linear interpolation between last two points
-        double a = (f1-f0)/(time1-time0);
-        double b = f1-a*time1;
-        double riseTime = -b/a;
-        
-        //System.out.println("Bisection Iters: " + iterCount);
-        
-        return riseTime; // return best guess  -typically:  (time0 + time1)/2.0;
-        //return (time0 + time1)/2.0;
-        
-    } // findSatRiseSetRoot
+            return ""+String.format("%.1f", az);
+        }
+        else
+        {
+            return CoordinateConversion.degrees2CompassPoints(az);
+        }
+    } // azimuthString
     
     
     // Variables declaration - do not modify//GEN-BEGIN:variables
@@ -32,21 +32,46 @@ import name.gano.worldwind.modelloader.WWModel3D_new;
  */
 public abstract class AbstractSatellite implements Serializable 
 {
+    // render geometry of the current ground track snapshot, shared by all windows
+    private transient volatile GroundTrackGeometry groundTrackGeometry;
+
 
     /**
-     * Calculate J2K position of this sat at a given JulDateTime (doesn't save the time) - can be useful for event searches or optimization
+     * Calculate J2K position of this sat at a given JulDateTime (doesn't save the time) - can be useful for event searches or optimization.
+     * The TEME/J2000 rotation may be interpolated (see TemeJ2kCache.teme_j2kInterpolated, about 3e-11 rad),
+     * so the result can differ from the propagated J2K position at the same time by about a millimeter at GEO distance
      * @param julDate - julian date
      * @return j2k position of satellite in meters
      */
     public abstract double[] calculateJ2KPositionFromUT(double julDate);
 
     /**
-     * Calculate TEME of date position of this sat at a given JulDateTime (doesn't save the time) - can be useful for event searches or optimization
+     * Calculate TEME of date position of this sat at a given JulDateTime (doesn't save the time) - can be useful for event searches or optimization.
+     * As for calculateJ2KPositionFromUT the TEME/J2000 rotation may be interpolated
      * @param julDate - julian date
      * @return j2k position of satellite in meters
      */
     public abstract double[] calculateTemePositionFromUT(double julDate);
 
+    /**
+     * Calculate TEME of date positions of this sat at a series of times (doesn't save the time).
+     * This default version calls calculateTemePositionFromUT for each time, propagators that can
+     * fill the output without allocating per point override it.
+     * @param julDates julian dates
+     * @param count number of dates from julDates to use
+     * @param temePos return array of TEME positions in meters, size 3*count, point i at [3i..3i+2]
+     */
+    public void calculateTemePositionsFromUT(double[] julDates, int count, double[] temePos)
+    {
+        for(int i = 0; i < count; i++)
+        {
+            double[] pos = calculateTemePositionFromUT(julDates[i]);
+            temePos[3*i] = pos[0];
+            temePos[3*i+1] = pos[1];
+            temePos[3*i+2] = pos[2];
+        }
+    }
+
     public abstract double getAltitude();
 
     public abstract double getCurrentJulDate();
@@ -67,6 +92,29 @@ public abstract class AbstractSatellite implements Serializable
 
     public abstract double[] getGroundTrackXyzLeadPt(int index);
 
+    /**
+     * @return immutable copy of the current ground track, renderers should draw all points from one snapshot
+     */
+    public abstract GroundTrackSnapshot getGroundTrackSnapshot();
+
+    /**
+     * Render geometry of the current ground track, rebuilt only when a new snapshot is published
+     * so every open window draws from the same buffers
+     * @return geometry of the current ground track snapshot
+     */
+    public GroundTrackGeometry getGroundTrackGeometry()
+    {
+        GroundTrackSnapshot gt = getGroundTrackSnapshot();
+        GroundTrackGeometry geometry = groundTrackGeometry;
+        if(geometry == null || geometry.getSnapshot() != gt)
+        {
+            // two windows asking at once may both build it, either one is kept
+            geometry = new GroundTrackGeometry(gt);
+            groundTrackGeometry = geometry;
+        }
+        return geometry;
+    }
+
     public abstract double[] getJ2000Position();
 
     public abstract double[] getJ2000Velocity();
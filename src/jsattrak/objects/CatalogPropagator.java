@@ -0,0 +1,334 @@
+/*
+ * CatalogPropagator.java
+ *=====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ *
+ * Propagates all the satellites of a scenario to a given time, TLE satellites
+ * are propagated together with the batch SGP4 propagator. The satellites can
+ * be split into chunks that are propagated on a thread pool.
+ */
+
+package jsattrak.objects;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import jsattrak.utilities.DaemonThreadFactory;
+import name.gano.astro.propogators.sgp4_cssi.SGP4SatData;
+import name.gano.astro.propogators.sgp4_cssi.SGP4batch;
+
+/**
+ * Propagates every satellite in the scenario hash to a Julian Date. All
+ * SatelliteTleSGP4 objects are packed into one SGP4batch which is rebuilt
+ * only when the satellite list (or a satellite's TLE) changes.
+ * <p>
+ * In parallel mode the satellites are split into chunks run on a fixed thread
+ * pool, propogate2JulDate returns only when every chunk is done (a barrier) so
+ * ground stations, time dependent objects and repaints can safely follow.
+ * Each satellite is only touched by one worker, including sliding its ground
+ * track (full ground track rebuilds are handed to the GroundTrackWorker).
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class CatalogPropagator
+{
+    // use batch SGP4 propagation (otherwise each sat is propagated on its own)
+    private boolean useBatchSGP4 = true;
+
+    // propagate chunks of satellites on a thread pool
+    private boolean parallelPropagation = true;
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private int minSatsPerChunk = 32; // smaller scenarios are not worth the hand off
+    private int chunksPerThread = 4; // more chunks than threads to balance ground track re-inis
+
+    // batch data - rebuilt when the set of TLE sats changes
+    private SGP4batch sgp4Batch;
+    private SatelliteTleSGP4[] batchSats = new SatelliteTleSGP4[0];
+    private AbstractSatellite[] otherSats = new AbstractSatellite[0]; // non TLE satellites
+    private double[] batchPos = new double[0]; // TEME [km]
+    private double[] batchVel = new double[0]; // TEME [km/s]
+
+    // thread pool and the chunk tasks (built with the batch)
+    private ExecutorService executor;
+    private int executorThreads = 0;
+    private List<Callable<Object>> chunkTasks = new ArrayList<Callable<Object>>();
+    private double chunkJulDate; // time the chunk tasks propagate to (set before each invokeAll)
+
+    /**
+     * Propagates all satellites to the given time
+     * @param satHash satellites of the scenario
+     * @param julDate julian date
+     */
+    public void propogate2JulDate(Hashtable<String,AbstractSatellite> satHash, double julDate)
+    {
+        if(!useBatchSGP4)
+        {
+            for (AbstractSatellite sat : satHash.values() )
+            {
+                sat.propogate2JulDate( julDate );
+            }
+            return;
+        }
+
+        if(!isBatchCurrent(satHash))
+        {
+            rebuildBatch(satHash);
+        }
+
+        int nSats = batchSats.length + otherSats.length;
+        if(parallelPropagation && numThreads > 1 && nSats >= 2*minSatsPerChunk)
+        {
+            propogateParallel(julDate);
+        }
+        else
+        {
+            propogateRange(julDate, 0, nSats);
+        }
+    } // propogate2JulDate
+
+    // propagates the satellites with (combined) index from - to-1, TLE sats are indexed first then the others
+    private void propogateRange(double julDate, int from, int to)
+    {
+        int nTle = batchSats.length;
+
+        // propagate TLE sats in one pass
+        int tleTo = Math.min(to, nTle);
+        if(from < tleTo)
+        {
+            sgp4Batch.sgp4Prop2JD(julDate, batchPos, batchVel, from, tleTo);
+
+            // push states back into the satellite objects
+            for(int i = from; i < tleTo; i++)
+            {
+                batchSats[i].propogate2JulDate(julDate, batchPos, batchVel, i, sgp4Batch.getError(i));
+            }
+        }
+
+        // any other type of satellite
+        for(int i = Math.max(from, nTle); i < to; i++)
+        {
+            otherSats[i-nTle].propogate2JulDate( julDate );
+        }
+    } // propogateRange
+
+    // runs all the chunk tasks on the pool and waits for them to finish
+    private void propogateParallel(double julDate)
+    {
+        if(executor == null || executorThreads != numThreads)
+        {
+            createExecutor();
+        }
+
+        chunkJulDate = julDate;
+
+        try
+        {
+            List<Future<Object>> results = executor.invokeAll(chunkTasks);
+            for(Future<Object> f : results)
+            {
+                f.get(); // re-throws any error from the chunk
+            }
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch(ExecutionException e)
+        {
+            DaemonThreadFactory.printTaskError("satellite propagation", e);
+        }
+    } // propogateParallel
+
+    private void createExecutor()
+    {
+        if(executor != null)
+        {
+            executor.shutdown();
+        }
+
+        executorThreads = numThreads;
+        executor = Executors.newFixedThreadPool(numThreads, new DaemonThreadFactory("JSatTrak-propagator-"));
+
+        buildChunkTasks();
+    } // createExecutor
+
+    // splits all satellites into chunks for the pool
+    private void buildChunkTasks()
+    {
+        chunkTasks = new ArrayList<Callable<Object>>();
+
+        int nSats = batchSats.length + otherSats.length;
+        int nChunks = Math.max(1, Math.min(numThreads*chunksPerThread, nSats/minSatsPerChunk));
+        int chunkSize = (nSats + nChunks - 1) / nChunks;
+
+        for(int from = 0; from < nSats; from += chunkSize)
+        {
+            final int chunkFrom = from;
+            final int chunkTo = Math.min(nSats, from + chunkSize);
+            chunkTasks.add(new Callable<Object>()
+            {
+                public Object call()
+                {
+                    propogateRange(chunkJulDate, chunkFrom, chunkTo);
+                    return null;
+                }
+            });
+        }
+    } // buildChunkTasks
+
+    // checks that the batch holds exactly the sats in the hash (same order and same SGP4 data)
+    private boolean isBatchCurrent(Hashtable<String,AbstractSatellite> satHash)
+    {
+        if(sgp4Batch == null)
+        {
+            return false;
+        }
+
+        int k = 0;
+        int m = 0;
+        for (AbstractSatellite sat : satHash.values() )
+        {
+            if(sat instanceof SatelliteTleSGP4)
+            {
+                if(k >= batchSats.length || batchSats[k] != sat
+                        || sgp4Batch.getSatData(k) != batchSats[k].getSGP4SatData())
+                {
+                    return false;
+                }
+                k++;
+            }
+            else
+            {
+                if(m >= otherSats.length || otherSats[m] != sat)
+                {
+                    return false;
+                }
+                m++;
+            }
+        }
+
+        return k == batchSats.length && m == otherSats.length;
+    } // isBatchCurrent
+
+    private void rebuildBatch(Hashtable<String,AbstractSatellite> satHash)
+    {
+        int count = 0;
+        for (AbstractSatellite sat : satHash.values() )
+        {
+            if(sat instanceof SatelliteTleSGP4)
+            {
+                count++;
+            }
+        }
+
+        batchSats = new SatelliteTleSGP4[count];
+        otherSats = new AbstractSatellite[satHash.size()-count];
+        SGP4SatData[] data = new SGP4SatData[count];
+        int k = 0;
+        int m = 0;
+        for (AbstractSatellite sat : satHash.values() )
+        {
+            if(sat instanceof SatelliteTleSGP4)
+            {
+                batchSats[k] = (SatelliteTleSGP4)sat;
+                data[k] = batchSats[k].getSGP4SatData();
+                k++;
+            }
+            else
+            {
+                otherSats[m++] = sat;
+            }
+        }
+
+        sgp4Batch = new SGP4batch(data);
+        batchPos = new double[3*count];
+        batchVel = new double[3*count];
+
+        buildChunkTasks();
+    } // rebuildBatch
+
+    /**
+     * Forces the batch to be rebuilt on the next propagation
+     */
+    public void reset()
+    {
+        sgp4Batch = null;
+    }
+
+    /**
+     * Stops the worker threads (a new pool is created if needed later)
+     */
+    public void shutdown()
+    {
+        if(executor != null)
+        {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    public boolean isParallelPropagation()
+    {
+        return parallelPropagation;
+    }
+
+    public void setParallelPropagation(boolean parallelPropagation)
+    {
+        this.parallelPropagation = parallelPropagation;
+    }
+
+    public int getNumThreads()
+    {
+        return numThreads;
+    }
+
+    /**
+     * @param numThreads number of worker threads used in parallel mode (pool is re-created on the next step)
+     */
+    public void setNumThreads(int numThreads)
+    {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    public int getMinSatsPerChunk()
+    {
+        return minSatsPerChunk;
+    }
+
+    public void setMinSatsPerChunk(int minSatsPerChunk)
+    {
+        this.minSatsPerChunk = Math.max(1, minSatsPerChunk);
+        buildChunkTasks();
+    }
+
+    public boolean isUseBatchSGP4()
+    {
+        return useBatchSGP4;
+    }
+
+    public void setUseBatchSGP4(boolean useBatchSGP4)
+    {
+        this.useBatchSGP4 = useBatchSGP4;
+    }
+
+} // CatalogPropagator
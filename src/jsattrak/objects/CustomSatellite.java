@@ -38,6 +38,7 @@ import name.gano.astro.time.Time;
 import name.gano.math.interpolation.LagrangeInterp;
 import name.gano.swingx.treetable.CustomTreeTableNode;
 import name.gano.astro.coordinates.J2kCoordinateConversion;
+import name.gano.astro.coordinates.TemeJ2kCache;
 import name.gano.worldwind.modelloader.WWModel3D_new;
 import net.java.joglutils.model.ModelFactory;
 import org.jdesktop.swingx.treetable.DefaultTreeTableModel;
@@ -52,6 +53,8 @@ public class CustomSatellite  extends AbstractSatellite
     private int ephemerisIncrement = 30; // number of rows added at a time to improve speed of memory allocation
     // internal ephemeris (Time store in TT)
     private Vector<StateVector> ephemeris = new Vector<StateVector>(ephemerisIncrement, ephemerisIncrement); // array to store ephemeris
+    private transient volatile EphemerisIndex ephemerisIndex; // times of the ephemeris for the interpolation search (rebuilt when the ephemeris changes)
+    private transient volatile int ephemerisCursor; // first node at or after the last time looked up (a hint, checked before use)
     //====================================
     
     
@@ -89,12 +92,12 @@ public class CustomSatellite  extends AbstractSatellite
     private double groundTrackLeadPeriodMultiplier = 2.0;  // how far forward to draw ground track - in terms of periods
     private double groundTrackLagPeriodMultiplier = 1.0;  // how far behind to draw ground track - in terms of periods
     
-    double[][] latLongLead; // leading lat/long coordinates for ground track
-    double[][] latLongLag; // laging lat/long coordinates for ground track
-    private double[][] temePosLead; // leading Mean of date position coordinates for ground track
-    private double[][] temePosLag; // laging Mean of date position coordinates for ground track
-    private double[]   timeLead; // array for holding times associated with lead coordinates (Jul Date) - UTC?
-    private double[]   timeLag; // array - times associated with lag coordinates (Jul Date)
+    private transient volatile GroundTrackBuffer groundTrack; // lead/lag lat/long/alt, TEME positions and times (null if not initialized)
+    private transient GroundTrackBuffer.PointSource groundTrackSource; // interpolates ground track points from the ephemeris
+    private transient volatile long groundTrackEpoch; // id of the latest full rebuild request, results of older requests are discarded
+    private transient double groundTrackRequestJD; // time of the latest rebuild request
+    private transient double groundTrackRequestStep; // point spacing of the latest rebuild request [days] (0 = none)
+    private transient int groundTrackRequestCapacity; // total points of the latest rebuild request
     
     boolean groundTrackIni = false; // if ground track has been initialized    
     
@@ -181,64 +184,27 @@ public class CustomSatellite  extends AbstractSatellite
         // save date
         this.currentJulianDate = julDate; // UTC
         
-        double tempTime, maxTime, minTime;
-		
 	double currentMJDtime = julDate - AstroConst.JDminusMJD;
         
         // CAREFUL ON TIMES... TIME IN EPHMERIS IN TT NOT UTC!!
         
         double deltaTT2UTC = Time.deltaT(currentMJDtime); // = TT - UTC
+        double timeSecEpoch = julDate + deltaTT2UTC; // in TT 
 
 
         // find the nodes closest to the current time
         if (ephemeris.size() > 0) //
         {
-            //double epochkMJD = tleEpochJD - AstroConst.JDminusMJD;
-
-            // in UTC
-            minTime = ephemeris.get(0).state[0] - deltaTT2UTC;
-            maxTime = ephemeris.get( ephemeris.size()-1).state[0] - deltaTT2UTC;
-
-            // see if the current time in inside of the ephemeris range
-            if (julDate <= maxTime && julDate >= minTime)
+            // middle node of the interpolation (-1 if the current time is outside of the ephemeris range)
+            int i2 = findInterpolationIndex(timeSecEpoch);
+            
+            if (i2 > 0)
             {
-
-                /// very simple search (slow!)
-                StateVector tempState = ephemeris.elementAt(1); // first item
-                tempTime = ephemeris.get(1).state[0]- deltaTT2UTC;
-                
-                int i = 1;
-                // find where in the ephemeris to interpolat around
-                
-                while (tempTime < julDate) // not <= causes out of bounds errors
-                {
-                    i++;
-                    tempState = ephemeris.get(i); // first item
-                    tempTime = tempState.state[0]- deltaTT2UTC;
-                }
-
-                int i1, i2, i3; // indexes for interpolation
-                if (i == 1) // start case
-                {
-                    i1 = 0;
-                    i2 = 1;
-                    i3 = 2;
-                }
-                else if (i == ephemeris.size() - 1) // other end
-                {
-                    i3 = ephemeris.size() - 1;
-                    i2 = ephemeris.size() - 2;
-                    i1 = ephemeris.size() - 3;
-                }
-                else
-                {
-                    i1 = i - 1;
-                    i2 = i;
-                    i3 = i + 1;
-                }
+                int i1 = i2 - 1; // indexes for interpolation
+                int i3 = i2 + 1;
 
                 // X,Y,Z position
-                tempState = ephemeris.get(i1); // first item
+                StateVector tempState = ephemeris.get(i1); // first item
                 double t1 = tempState.state[0];///86400+epochkMJD;
                 double x1 = tempState.state[1];
                 double y1 = tempState.state[2];
@@ -254,8 +220,6 @@ public class CustomSatellite  extends AbstractSatellite
                 double y3 = tempState.state[2];
                 double z3 = tempState.state[3];
 
-                double timeSecEpoch = julDate + deltaTT2UTC; // in TT 
-                
                 if(j2kPos == null)
                 {
                     j2kPos = new double[3];
@@ -300,7 +264,7 @@ public class CustomSatellite  extends AbstractSatellite
                 // revised calculations:
                 double mjd = julDate-AstroConst.JDminusMJD;
                 double ttt = (mjd-AstroConst.MJD_J2000) /36525.0;
-                double[][] A = J2kCoordinateConversion.teme_j2k(J2kCoordinateConversion.Direction.from,ttt, 24, 2, 'a');
+                double[][] A = TemeJ2kCache.getSharedCache().teme_j2k(J2kCoordinateConversion.Direction.from,ttt);
                 // rotate position and velocity
                 posTEME = J2kCoordinateConversion.matvecmult( A, j2kPos);
                 velTEME = J2kCoordinateConversion.matvecmult( A, j2kVel);
@@ -309,34 +273,25 @@ public class CustomSatellite  extends AbstractSatellite
 
                 
                 
-                // save old lat/long for ascending node check
-                double[] oldLLA = new double[3];
-                if(lla != null)
-                {
-                    oldLLA = lla.clone(); // copy old LLA
-                }
-                
                 // current LLA
                 lla = GeoFunctions.GeodeticLLA(posTEME, currentMJDtime);
 
-                // Check to see if the ascending node has been passed
+                // update the ground track (points outside of the ephemeris are NaN)
                 if (showGroundTrack == true)
                 {
-                    if (groundTrackIni == false || oldLLA == null) // update ground track needed
+                    GroundTrackBuffer gt = groundTrack;
+                    if (groundTrackIni && gt != null && gt.getEpoch() == groundTrackEpoch && gt.canSlideTo(julDate))
                     {
-                        initializeGroundTrack();
+                        // slide the window - only the newly exposed points are calculated
+                        gt.moveTo(julDate, getGroundTrackSource());
                     }
-                    else if (oldLLA[0] < 0 && lla[0] >= 0) // check for ascending node pass
-                    {
-                        //System.out.println("Ascending NODE passed: " + tle.getSatName() );
-                        initializeGroundTrack(); // for new ini each time
-
-                    } // ascending node passed
-                    // ELSE if current time is not in the lead/lag interval reinintialize it
-                    else if(timeLead[timeLead.length-1]<julDate ||  timeLag[0]>julDate)
+                    else if (groundTrackIni == false || !groundTrackRequestCovers(julDate))
                     {
+                        // full rebuild needed (first time, new ephemeris or settings, or a jump in time larger than the track)
+                        // done in the background - the old track is kept until the new one is swapped in
                         initializeGroundTrack();
                     }
+                    // else a rebuild that covers this time is still running
 
                 } // if show ground track is true
                 
@@ -356,13 +311,7 @@ public class CustomSatellite  extends AbstractSatellite
                     lla = null;
 
                     // clear ground track
-                    groundTrackIni = false;
-                    latLongLead = null; // save some space
-                    latLongLag = null; // sace some space
-                    temePosLag = null;
-                    temePosLead = null;
-                    timeLead = null;
-                    timeLag = null;
+                    discardGroundTrack(); // save some space
                 }
                 
                 //isInTime = false;
@@ -393,7 +342,9 @@ public class CustomSatellite  extends AbstractSatellite
     }
     
      /**
-     * Calculate MOD position of this sat at a given JulDateTime (doesn't save the time) - can be useful for event searches or optimization
+     * Calculate MOD position of this sat at a given JulDateTime (doesn't save the time) - can be useful for event searches or optimization.
+     * The J2000 -> TEME rotation is interpolated between cached matrices (TemeJ2kCache.teme_j2kInterpolated, about 3e-11 rad
+     * or a millimeter at GEO distance), propogate2JulDate uses the exact rotation
      * @param julDate - julian date
      * @return j2k position of satellite in meters
      */
@@ -410,7 +361,7 @@ public class CustomSatellite  extends AbstractSatellite
                 // revised calculations:
                 double mjd = julDate-AstroConst.JDminusMJD;
                 double ttt = (mjd-AstroConst.MJD_J2000) /36525.0;
-                double[][] A = J2kCoordinateConversion.teme_j2k(J2kCoordinateConversion.Direction.from,ttt, 24, 2, 'a');
+                double[][] A = TemeJ2kCache.getSharedCache().teme_j2kInterpolated(J2kCoordinateConversion.Direction.from,ttt);
                 // rotate position and velocity
                 ptPos = J2kCoordinateConversion.matvecmult( A, j2kPosTemp);
 
@@ -430,61 +381,24 @@ public class CustomSatellite  extends AbstractSatellite
     {
         double[] ptPos = new double[3];
 
-        double tempTime, maxTime, minTime;
-
         // CAREFUL ON TIMES... TIME IN EPHMERIS IN TT NOT UTC!!  
         double deltaTT2UTC = Time.deltaT(julDate - AstroConst.JDminusMJD); // = TT - UTC
+        double timeSecEpoch = julDate + deltaTT2UTC; // in TT 
 
 
         // find the nodes closest to the current time
         if (ephemeris.size() > 0) //
         {
-            //double epochkMJD = tleEpochJD? - AstroConst.JDminusMJD;
-
-            // in UTC
-            minTime = ephemeris.get(0).state[0] - deltaTT2UTC;
-            maxTime = ephemeris.get(ephemeris.size() - 1).state[0] - deltaTT2UTC;
+            // middle node of the interpolation (-1 if the time is outside of the ephemeris range)
+            int i2 = findInterpolationIndex(timeSecEpoch);
 
-            // see if the current time in inside of the ephemeris range
-            if (julDate <= maxTime && julDate >= minTime)
+            if (i2 > 0)
             {
-
-                /// very simple search (slow!)
-                StateVector tempState = ephemeris.elementAt(1); // first item
-                tempTime = ephemeris.get(1).state[0] - deltaTT2UTC;
-
-                int i = 1;
-                // find where in the ephemeris to interpolat around
-
-                while (tempTime < julDate) // not <= causes out of bounds errors
-                {
-                    i++;
-                    tempState = ephemeris.get(i); // first item
-                    tempTime = tempState.state[0] - deltaTT2UTC;
-                }
-
-                int i1, i2, i3; // indexes for interpolation
-                if (i == 1) // start case
-                {
-                    i1 = 0;
-                    i2 = 1;
-                    i3 = 2;
-                }
-                else if (i == ephemeris.size() - 1) // other end
-                {
-                    i3 = ephemeris.size() - 1;
-                    i2 = ephemeris.size() - 2;
-                    i1 = ephemeris.size() - 3;
-                }
-                else
-                {
-                    i1 = i - 1;
-                    i2 = i;
-                    i3 = i + 1;
-                }
+                int i1 = i2 - 1; // indexes for interpolation
+                int i3 = i2 + 1;
 
                 // X,Y,Z position
-                tempState = ephemeris.get(i1); // first item
+                StateVector tempState = ephemeris.get(i1); // first item
                 double t1 = tempState.state[0];///86400+epochkMJD;
                 double x1 = tempState.state[1];
                 double y1 = tempState.state[2];
@@ -500,8 +414,6 @@ public class CustomSatellite  extends AbstractSatellite
                 double y3 = tempState.state[2];
                 double z3 = tempState.state[3];
 
-                double timeSecEpoch = julDate + deltaTT2UTC; // in TT 
-
                 // interpolate J2K position
                 ptPos[0] = LagrangeInterp.Lagrange3pt(timeSecEpoch, t1, x1, t2, x2, t3, x3);
                 ptPos[1] = LagrangeInterp.Lagrange3pt(timeSecEpoch, t1, y1, t2, y2, t3, y3);
@@ -519,6 +431,100 @@ public class CustomSatellite  extends AbstractSatellite
 
     } // calculatePositionFromUT
     
+    // times (TT) of an ephemeris, the Vector they were read from and its size to see if it has changed since
+    private static final class EphemerisIndex
+    {
+        final Vector<StateVector> source;
+        final double[] times;
+
+        EphemerisIndex(Vector<StateVector> source)
+        {
+            this.source = source;
+            synchronized(source)
+            {
+                times = new double[source.size()];
+                for(int i = 0; i < times.length; i++)
+                {
+                    times[i] = source.get(i).state[0];
+                }
+            }
+        }
+
+        // true if the ephemeris is the one indexed and looks unchanged (same size, first and last times), catches nodes
+        // being added while propagating, an ephemeris changed in place is re-indexed by setEphemeris
+        boolean matches(Vector<StateVector> e)
+        {
+            if(e != source)
+            {
+                return false;
+            }
+            synchronized(e)
+            {
+                int n = e.size();
+                return n == times.length && n > 0 && e.get(0).state[0] == times[0] && e.get(n - 1).state[0] == times[n - 1];
+            }
+        }
+    } // EphemerisIndex
+    
+    /**
+     * Finds the middle node of the 3 point interpolation around a time: i such that nodes
+     * i-1, i, i+1 are used, as the linear search it replaces (the first node at or after the time
+     * from node 1 on, moved in from the ends). The last node found is tried first, then the next
+     * one, so a time moving forward (animation, time sweeps) takes constant time, otherwise it is
+     * a binary search of the times.
+     * @param ttJulDate julian date (TT)
+     * @return middle node index, -1 if the time is outside of the ephemeris (or it has less than 3 nodes)
+     */
+    private int findInterpolationIndex(double ttJulDate)
+    {
+        EphemerisIndex index = ephemerisIndex;
+        if(index == null || !index.matches(ephemeris))
+        {
+            index = new EphemerisIndex(ephemeris);
+            ephemerisIndex = index;
+        }
+        
+        double[] times = index.times;
+        int n = times.length;
+        if(n < 3 || !(ttJulDate >= times[0] && ttJulDate <= times[n - 1]))
+        {
+            return -1;
+        }
+        
+        // first node at or after the time (from node 1)
+        int i;
+        int cursor = ephemerisCursor;
+        if(cursor >= 1 && cursor < n && times[cursor] >= ttJulDate && (cursor == 1 || times[cursor - 1] < ttJulDate))
+        {
+            i = cursor; // same bracket as last time
+        }
+        else if(cursor >= 1 && cursor + 1 < n && times[cursor + 1] >= ttJulDate && times[cursor] < ttJulDate)
+        {
+            i = cursor + 1; // next bracket
+        }
+        else
+        {
+            int lo = 1;
+            int hi = n - 1;
+            while(lo < hi)
+            {
+                int mid = (lo + hi) >>> 1;
+                if(times[mid] < ttJulDate)
+                {
+                    lo = mid + 1;
+                }
+                else
+                {
+                    hi = mid;
+                }
+            }
+            i = lo;
+        }
+        ephemerisCursor = i;
+        
+        return Math.min(i, n - 2); // the last node is the end of the interpolation
+    } // findInterpolationIndex
+    
     private void initializeGroundTrack()
     {
         //System.out.println("Ground Track Ini");
@@ -576,109 +582,139 @@ public class CustomSatellite  extends AbstractSatellite
         //          as this is just for graphical updates should be okay (no mid-course corrections assumed)
         
         //lastAscendingNodeTime = outJul;
-        // assume last ascending node is now
-        lastAscendingNodeTime = currentJulianDate;
+        // track is centered on the current time and slides with it (see GroundTrackBuffer)
         
-        double leadEndTime = lastAscendingNodeTime + groundTrackLeadPeriodMultiplier*periodMin/(60.0*24); // Julian Date for last lead point (furthest in future)
-        double lagEndTime = lastAscendingNodeTime - groundTrackLagPeriodMultiplier*periodMin/(60.0*24); // Julian Date for the last lag point (furthest in past)
+        // time between ground track points (in fractions of a day)
+        final double stepDays = (periodMin/(60.0*24.0)) / grnTrkPointsPerPeriod;
         
-        // fill in lead/lag arrays
-        fillGroundTrack(lastAscendingNodeTime,leadEndTime,lagEndTime);
+        if( Double.isNaN(stepDays) || Double.isInfinite(stepDays) || stepDays <= 0 )
+        {
+            // no closed orbit - no ground track, try again next update
+            discardGroundTrack();
+            return;
+        }
         
+        // number of points so the lead/lag cover the requested number of periods (both include the current point)
+        final int ptsLead = (int)Math.ceil(grnTrkPointsPerPeriod*groundTrackLeadPeriodMultiplier) + 1;
+        final int ptsLag = (int)Math.ceil(grnTrkPointsPerPeriod*groundTrackLagPeriodMultiplier) + 1;
+        
+        final double julDate = currentJulianDate;
+        final long epoch = nextGroundTrackEpoch();
+        groundTrackRequestJD = julDate;
+        groundTrackRequestStep = stepDays;
+        groundTrackRequestCapacity = ptsLead + ptsLag - 1;
         groundTrackIni = true;
-        return;
+        
+        // fill in lead/lag points in the background, swapped in when complete
+        GroundTrackWorker.getSharedWorker().submit(new Runnable()
+        {
+            public void run()
+            {
+                if(epoch != groundTrackEpoch)
+                {
+                    return; // a newer rebuild was requested already
+                }
+                
+                try
+                {
+                    publishGroundTrack(new GroundTrackBuffer(epoch, julDate, stepDays, ptsLead, ptsLag, getGroundTrackSource()));
+                }
+                catch(RuntimeException e)
+                {
+                    // ephemeris changed while the track was built (a new rebuild is requested with the new ephemeris)
+                    System.out.println("Ground track rebuild failed for " + name + ": " + e);
+                }
+            }
+        });
         
     } // initializeGroundTrack
     
+    // true if the latest rebuild request will give a track that can slide to julDate (same test as GroundTrackBuffer.canSlideTo)
+    private boolean groundTrackRequestCovers(double julDate)
+    {
+        if(groundTrackRequestStep <= 0)
+        {
+            return false;
+        }
+        double k = Math.floor((julDate - groundTrackRequestJD)/groundTrackRequestStep);
+        return Math.abs(k) < groundTrackRequestCapacity;
+    }
     
-    // END -- functions to be fixed ===================
+    private synchronized long nextGroundTrackEpoch()
+    {
+        return ++groundTrackEpoch;
+    }
     
-    // fill in the Ground Track given Jul Dates for 
-    // 
-    private void fillGroundTrack(double lastAscendingNodeTime, double leadEndTime, double lagEndTime)
+    // swaps in a rebuilt ground track, unless a newer rebuild was requested since (the result is stale)
+    private synchronized void publishGroundTrack(GroundTrackBuffer gt)
     {
-        // points in the lead direction
-        int ptsLead = (int)Math.ceil(grnTrkPointsPerPeriod*groundTrackLeadPeriodMultiplier);
-        latLongLead = new double[ptsLead][3];        
-        temePosLead =  new double[ptsLead][3];
-        timeLead = new double[ptsLead];
-                
-        for(int i=0;i<ptsLead;i++)
+        if(gt.getEpoch() == groundTrackEpoch)
         {
-            double ptTime = lastAscendingNodeTime + i*(leadEndTime-lastAscendingNodeTime)/(ptsLead-1);
-            
-            // make sure the time is in ephemeris -- TIMES IN ARE UTC epeheris time is TT
-            // make that time correction
-            double deltaTT2UTC = Time.deltaT(ptTime - AstroConst.JDminusMJD); // = TT - UTC
-            if (ptTime >= ephemeris.firstElement().state[0] - deltaTT2UTC && ptTime <= ephemeris.lastElement().state[0] - deltaTT2UTC)
-            {
-                // PUT HERE calculate lat lon
-                double[] ptLlaXyz = calculateLatLongAltXyz(ptTime);
-
-                latLongLead[i][0] = ptLlaXyz[0]; // save lat
-                latLongLead[i][1] = ptLlaXyz[1]; // save long
-                latLongLead[i][2] = ptLlaXyz[2]; // save altitude
-
-                temePosLead[i][0] = ptLlaXyz[3]; // x
-                temePosLead[i][1] = ptLlaXyz[4]; // y
-                temePosLead[i][2] = ptLlaXyz[5]; // z
-            }
-            else // give value of NaN - so it can be detected and not used
+            groundTrack = gt;
+        }
+    }
+    
+    // drops the ground track and any rebuild still running
+    private synchronized void discardGroundTrack()
+    {
+        groundTrackEpoch++;
+        groundTrack = null;
+        groundTrackIni = false;
+        groundTrackRequestStep = 0;
+    }
+    
+    // only reads the ephemeris so the same source is used by the propagation thread and the ground track worker
+    private GroundTrackBuffer.PointSource getGroundTrackSource()
+    {
+        GroundTrackBuffer.PointSource src = groundTrackSource;
+        if(src == null)
+        {
+            src = new GroundTrackBuffer.PointSource()
             {
-                latLongLead[i][0] = Double.NaN; // save lat
-                latLongLead[i][1] = Double.NaN; // save long
-                latLongLead[i][2] = Double.NaN; // save altitude
-
-                temePosLead[i][0] = Double.NaN; // x
-                temePosLead[i][1] = Double.NaN; // y
-                temePosLead[i][2] = Double.NaN; // z
-            }
-            
-            timeLead[i] = ptTime; // save time
-            
-        } // for each lead point
-        
-        // points in the lag direction
-        int ptsLag = (int)Math.ceil(grnTrkPointsPerPeriod*groundTrackLagPeriodMultiplier);
-        latLongLag = new double[ptsLag][3];
-        temePosLag = new double[ptsLag][3];
-        timeLag = new double[ptsLag];
+                public void calculatePoints(double[] times, int count, double[] temePos, double[] lla)
+                {
+                    fillGroundTrackPoints(times, count, temePos, lla);
+                }
+            };
+            groundTrackSource = src;
+        }
+        return src;
+    }
+    
+    
+    // END -- functions to be fixed ===================
+    
+    // interpolates the TEME position at all the times of a ground track and fills in lat/long/alt (packed x,y,z / lat,long,alt)
+    // in one batch, points outside of the ephemeris are given NaN so they can be detected and not used
+    private void fillGroundTrackPoints(double[] times, int count, double[] pos, double[] ptLla)
+    {
+        double[] mjd = new double[count];
         
-        for(int i=0;i<ptsLag;i++)
+        for(int i=0;i<count;i++)
         {
-            double ptTime = lastAscendingNodeTime + i * (lagEndTime - lastAscendingNodeTime) / (ptsLag - 1);
-
+            double ptTime = times[i];
+            mjd[i] = ptTime - AstroConst.JDminusMJD;
+            
             // make sure the time is in ephemeris -- TIMES IN ARE UTC epeheris time is TT
             // make that time correction
-            double deltaTT2UTC = Time.deltaT(ptTime - AstroConst.JDminusMJD); // = TT - UTC
+            double deltaTT2UTC = Time.deltaT(mjd[i]); // = TT - UTC
             if (ptTime >= ephemeris.firstElement().state[0] - deltaTT2UTC && ptTime <= ephemeris.lastElement().state[0] - deltaTT2UTC)
             {
-
-                double[] ptLlaXyz = calculateLatLongAltXyz(ptTime);
-
-                latLongLag[i][0] = ptLlaXyz[0]; // save lat
-                latLongLag[i][1] = ptLlaXyz[1]; // save long
-                latLongLag[i][2] = ptLlaXyz[2]; // save alt
-
-                temePosLag[i][0] = ptLlaXyz[3]; // x
-                temePosLag[i][1] = ptLlaXyz[4]; // y
-                temePosLag[i][2] = ptLlaXyz[5]; // z
+                double[] ptPos = calculateTemePositionFromUT(ptTime);
+                pos[3*i] = ptPos[0];
+                pos[3*i+1] = ptPos[1];
+                pos[3*i+2] = ptPos[2];
             }
             else // give value of NaN - so it can be detected and not used
             {
-                latLongLag[i][0] = Double.NaN; // save lat
-                latLongLag[i][1] = Double.NaN; // save long
-                latLongLag[i][2] = Double.NaN; // save alt
-
-                temePosLag[i][0] = Double.NaN; // x
-                temePosLag[i][1] = Double.NaN; // y
-                temePosLag[i][2] = Double.NaN; // z
+                pos[3*i] = Double.NaN;
+                pos[3*i+1] = Double.NaN;
+                pos[3*i+2] = Double.NaN;
             }
-            
-            timeLag[i] = ptTime;
-            
-        } // for each lag point
-    } // fillGroundTrack
+        }
+        
+        GeoFunctions.GeodeticLLA(pos, mjd, count, ptLla);
+    } // fillGroundTrackPoints
     
     // takes in JulDate
     private double[] calculateLatLongAltXyz(double julDate)
@@ -731,13 +767,7 @@ public class CustomSatellite  extends AbstractSatellite
         
         if(showGrndTrk == false)
         {
-            groundTrackIni = false; 
-            latLongLead = new double[][] {{}}; // save some space
-            latLongLag = new double[][] {{}}; // sace some space
-            temePosLag = new double[][] {{}};
-            temePosLead = new double[][] {{}};
-            timeLead = new double[] {};
-            timeLag = new double[] {};
+            discardGroundTrack(); // save some space
         }
         else
         {
@@ -836,38 +866,38 @@ public class CustomSatellite  extends AbstractSatellite
     
     public int getNumGroundTrackLeadPts()
     {
-        if(latLongLead != null)
-            return latLongLead.length;
-        else
-            return 0;
+        return getGroundTrackSnapshot().getNumLeadPts();
     }
         
     public int getNumGroundTrackLagPts()
     {
-        if(latLongLag != null)
-            return latLongLag.length;
-        else
-            return 0;
+        return getGroundTrackSnapshot().getNumLagPts();
     }
         
     public double[] getGroundTrackLlaLeadPt(int index)
     {
-        return new double[] {latLongLead[index][0],latLongLead[index][1],latLongLead[index][2]};
+        return getGroundTrackSnapshot().getLeadLla(index);
     }
     
     public double[] getGroundTrackLlaLagPt(int index)
     {
-        return new double[] {latLongLag[index][0],latLongLag[index][1],latLongLag[index][2]};
+        return getGroundTrackSnapshot().getLagLla(index);
     }
     
     public double[] getGroundTrackXyzLeadPt(int index)
     {
-        return new double[] {getTemePosLead()[index][0],getTemePosLead()[index][1],getTemePosLead()[index][2]};
+        return getGroundTrackSnapshot().getLeadTeme(index);
     }
     
     public double[] getGroundTrackXyzLagPt(int index)
     {
-        return new double[] {getTemePosLag()[index][0],getTemePosLag()[index][1],getTemePosLag()[index][2]};
+        return getGroundTrackSnapshot().getLagTeme(index);
+    }
+    
+    public GroundTrackSnapshot getGroundTrackSnapshot()
+    {
+        GroundTrackBuffer gt = groundTrack;
+        return (gt == null) ? GroundTrackSnapshot.EMPTY : gt.getSnapshot();
     }
         
     public String getName()
@@ -1033,25 +1063,25 @@ public class CustomSatellite  extends AbstractSatellite
     // laging lat/long coordinates for ground track
     public double[][] getTemePosLead()
     {
-        return temePosLead;
+        return getGroundTrackSnapshot().getLeadTemeArray();
     }
 
     // leading Mean of date position coordinates for ground track
     public double[][] getTemePosLag()
     {
-        return temePosLag;
+        return getGroundTrackSnapshot().getLagTemeArray();
     }
 
     public // laging Mean of date position coordinates for ground track
     double[] getTimeLead()
     {
-        return timeLead;
+        return getGroundTrackSnapshot().getLeadTimes();
     }
 
     public // array for holding times associated with lead coordinates (Jul Date)
     double[] getTimeLag()
     {
-        return timeLag;
+        return getGroundTrackSnapshot().getLagTimes();
     }
 
     public // array to store ephemeris
@@ -1067,11 +1097,15 @@ public class CustomSatellite  extends AbstractSatellite
         return ephemeris;
     }
     
-    // set ephemeris
+    // set ephemeris (also call this after changing the ephemeris in place, e.g. after a new propagation)
     public void setEphemeris(Vector<StateVector> e)
     {
         this.ephemeris = e;
         
+        // the nodes may have moved even if the size and end times are the same, the times are read again on the next lookup
+        ephemerisIndex = null;
+        ephemerisCursor = 0;
+        
 //        // fill out all needed arrays (such as lead or lag etc) in MOD coordinates as needed
 //        // latLongLead // lla
 //        // modPosLead  // x/y/z
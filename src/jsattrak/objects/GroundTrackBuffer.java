@@ -0,0 +1,414 @@
+/*
+ * GroundTrackBuffer.java
+ *=====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ *
+ * Sliding window ground track: points are kept on a fixed time grid in a ring
+ * buffer, as time moves only the newly exposed points at the leading (or
+ * trailing) edge are computed.
+ */
+
+package jsattrak.objects;
+
+/**
+ * Ring buffer of ground track points equally spaced in time.
+ * <p>
+ * The track is split at the last grid point at or before the current time:
+ * lead point i is i steps after the split point and lag point i is i steps
+ * before it (lead point 0 and lag point 0 are the same point). When time moves
+ * forward by m steps, m points are dropped from the end of the lag and m new
+ * points are computed at the end of the lead (and the other way around when
+ * time moves backwards). Only a jump larger than the whole window needs all
+ * points to be recomputed.
+ * <p>
+ * The buffer is only moved by the thread propagating its satellite, other
+ * threads (renderers) read it through getSnapshot() which returns an immutable
+ * copy that is rebuilt only after the track changed. A full build can be done
+ * on any thread (see GroundTrackWorker) as long as the PointSource is not
+ * shared with the propagating thread.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class GroundTrackBuffer
+{
+    /**
+     * Calculates ground track points (TEME position and lat/long/alt) for a set of times
+     */
+    public interface PointSource
+    {
+        /**
+         * @param times julian dates of the points
+         * @param count number of points
+         * @param temePos packed TEME positions [x0,y0,z0,x1,...] to fill in [m]
+         * @param lla packed lat/long/alt [lat0,lon0,alt0,lat1,...] to fill in [rad,rad,m]
+         */
+        public void calculatePoints(double[] times, int count, double[] temePos, double[] lla);
+    }
+
+    private final long epoch; // id of the rebuild request that created this buffer
+    private long version = 0; // incremented every time points change
+    private double origin;    // julian date of grid point 0
+    private double stepDays;  // time between points [days]
+    private int numLead;      // points in the lead (including the split point)
+    private int numLag;       // points in the lag (including the split point)
+    private int capacity;     // numLead + numLag - 1
+    private long split;       // grid index of the split point
+
+    // ring storage, grid index k is kept in slot floorMod(k, capacity)
+    private double[] times;
+    private double[] temePos; // packed x,y,z
+    private double[] lla;     // packed lat,long,alt
+
+    // last snapshot handed out (null when points changed since)
+    private GroundTrackSnapshot snapshot;
+
+    // statistics
+    private long pointsComputed = 0;
+    private int rebuilds = 0;
+
+    /**
+     * Creates a ground track around julDate, all points are computed
+     * @param epoch id of the rebuild request (see getEpoch())
+     * @param julDate current time (the split point)
+     * @param stepDays time between points [days]
+     * @param numLead number of lead points (including the split point) >= 1
+     * @param numLag number of lag points (including the split point) >= 1
+     * @param source calculates the points
+     */
+    public GroundTrackBuffer(long epoch, double julDate, double stepDays, int numLead, int numLag, PointSource source)
+    {
+        this(epoch, julDate, julDate, stepDays, numLead, numLag, source);
+    }
+
+    /**
+     * Creates a ground track around julDate on a grid through gridOrigin (e.g. an ascending node), all points are computed
+     * @param epoch id of the rebuild request (see getEpoch())
+     * @param julDate current time
+     * @param gridOrigin julian date of a grid point, the split point is the last grid point at or before julDate
+     * @param stepDays time between points [days]
+     * @param numLead number of lead points (including the split point) >= 1
+     * @param numLag number of lag points (including the split point) >= 1
+     * @param source calculates the points
+     */
+    public GroundTrackBuffer(long epoch, double julDate, double gridOrigin, double stepDays, int numLead, int numLag, PointSource source)
+    {
+        this.epoch = epoch;
+        this.origin = gridOrigin;
+        this.stepDays = stepDays;
+        this.numLead = Math.max(1, numLead);
+        this.numLag = Math.max(1, numLag);
+        this.capacity = this.numLead + this.numLag - 1;
+
+        times = new double[capacity];
+        temePos = new double[3*capacity];
+        lla = new double[3*capacity];
+
+        split = (long)Math.floor((julDate - origin)/stepDays);
+        long kFrom = split - this.numLag + 1;
+        storeRange(kFrom, calculateRange(kFrom, split + this.numLead - 1, source));
+        rebuilds++;
+    }
+
+    /**
+     * Slides the window so the split point is the last grid point at or before julDate,
+     * only points that were not already in the window are computed. The points are
+     * computed before the buffer is locked, readers only wait for them to be stored.
+     * @param julDate current time
+     * @param source calculates the points
+     * @return true if the track changed
+     */
+    public boolean moveTo(double julDate, PointSource source)
+    {
+        long oldSplit;
+        synchronized(this)
+        {
+            oldSplit = split;
+        }
+
+        long newSplit = (long)Math.floor((julDate - origin)/stepDays);
+        long delta = newSplit - oldSplit;
+
+        if(delta == 0)
+        {
+            return false;
+        }
+
+        long kFrom;
+        long kTo;
+        boolean rebuild = false;
+        if(Math.abs(delta) >= capacity)
+        {
+            // jump larger than the window - nothing can be reused
+            kFrom = newSplit - numLag + 1;
+            kTo = newSplit + numLead - 1;
+            rebuild = true;
+        }
+        else if(delta > 0)
+        {
+            // new points at the leading edge overwrite the oldest lag points
+            kFrom = oldSplit + numLead;
+            kTo = newSplit + numLead - 1;
+        }
+        else
+        {
+            // moving backwards - new points at the trailing edge
+            kFrom = newSplit - numLag + 1;
+            kTo = oldSplit - numLag;
+        }
+
+        double[][] points = calculateRange(kFrom, kTo, source);
+
+        synchronized(this)
+        {
+            if(split != oldSplit)
+            {
+                return false; // moved by another thread meanwhile, the points no longer fit
+            }
+            split = newSplit;
+            storeRange(kFrom, points);
+            if(rebuild)
+            {
+                rebuilds++;
+            }
+        }
+
+        return true;
+    } // moveTo
+
+    /**
+     * @param julDate time
+     * @return true if moveTo(julDate) can reuse points, false if every point would have to be recomputed
+     */
+    public synchronized boolean canSlideTo(double julDate)
+    {
+        long newSplit = (long)Math.floor((julDate - origin)/stepDays);
+        return Math.abs(newSplit - split) < capacity;
+    }
+
+    // computes grid points kFrom..kTo (inclusive), returns {times, temePos, lla}
+    private double[][] calculateRange(long kFrom, long kTo, PointSource source)
+    {
+        int count = (int)(kTo - kFrom + 1);
+
+        double[] newTimes = new double[count];
+        double[] newTemePos = new double[3*count];
+        double[] newLla = new double[3*count];
+
+        for(int i = 0; i < count; i++)
+        {
+            newTimes[i] = origin + (kFrom + i)*stepDays;
+        }
+
+        source.calculatePoints(newTimes, count, newTemePos, newLla);
+
+        return new double[][] {newTimes, newTemePos, newLla};
+    } // calculateRange
+
+    // stores points calculated for grid points kFrom.. in the ring (holding the lock)
+    private void storeRange(long kFrom, double[][] points)
+    {
+        double[] newTimes = points[0];
+        int count = newTimes.length;
+
+        for(int i = 0; i < count; i++)
+        {
+            int s = slot(kFrom + i);
+            times[s] = newTimes[i];
+            System.arraycopy(points[1], 3*i, temePos, 3*s, 3);
+            System.arraycopy(points[2], 3*i, lla, 3*s, 3);
+        }
+
+        pointsComputed += count;
+        version++;
+        snapshot = null;
+    } // storeRange
+
+    private int slot(long k)
+    {
+        int s = (int)(k % capacity);
+        return (s < 0) ? s + capacity : s;
+    }
+
+    private int leadSlot(int index)
+    {
+        if(index < 0 || index >= numLead)
+        {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return slot(split + index);
+    }
+
+    private int lagSlot(int index)
+    {
+        if(index < 0 || index >= numLag)
+        {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return slot(split - index);
+    }
+
+    /**
+     * @return number of lead points (including the split point)
+     */
+    public int getNumLead()
+    {
+        return numLead;
+    }
+
+    /**
+     * @return number of lag points (including the split point)
+     */
+    public int getNumLag()
+    {
+        return numLag;
+    }
+
+    /**
+     * @return time between points [days]
+     */
+    public double getStepDays()
+    {
+        return stepDays;
+    }
+
+    /**
+     * @param index lead point index
+     * @return julian date of the lead point
+     */
+    public synchronized double getLeadTime(int index)
+    {
+        return times[leadSlot(index)];
+    }
+
+    /**
+     * @param index lag point index
+     * @return julian date of the lag point
+     */
+    public synchronized double getLagTime(int index)
+    {
+        return times[lagSlot(index)];
+    }
+
+    /**
+     * @param index lead point index
+     * @return lat/long/alt of the lead point [rad,rad,m] (new array)
+     */
+    public synchronized double[] getLeadLla(int index)
+    {
+        int s = 3*leadSlot(index);
+        return new double[] {lla[s], lla[s+1], lla[s+2]};
+    }
+
+    /**
+     * @param index lag point index
+     * @return lat/long/alt of the lag point [rad,rad,m] (new array)
+     */
+    public synchronized double[] getLagLla(int index)
+    {
+        int s = 3*lagSlot(index);
+        return new double[] {lla[s], lla[s+1], lla[s+2]};
+    }
+
+    /**
+     * @param index lead point index
+     * @return TEME position of the lead point [m] (new array)
+     */
+    public synchronized double[] getLeadTeme(int index)
+    {
+        int s = 3*leadSlot(index);
+        return new double[] {temePos[s], temePos[s+1], temePos[s+2]};
+    }
+
+    /**
+     * @param index lag point index
+     * @return TEME position of the lag point [m] (new array)
+     */
+    public synchronized double[] getLagTeme(int index)
+    {
+        int s = 3*lagSlot(index);
+        return new double[] {temePos[s], temePos[s+1], temePos[s+2]};
+    }
+
+    /**
+     * @return immutable copy of the current points (the same object until the track changes)
+     */
+    public synchronized GroundTrackSnapshot getSnapshot()
+    {
+        if(snapshot == null)
+        {
+            double[] leadLla = new double[3*numLead];
+            double[] leadTeme = new double[3*numLead];
+            double[] leadTimes = new double[numLead];
+            for(int i = 0; i < numLead; i++)
+            {
+                int s = slot(split + i);
+                System.arraycopy(lla, 3*s, leadLla, 3*i, 3);
+                System.arraycopy(temePos, 3*s, leadTeme, 3*i, 3);
+                leadTimes[i] = times[s];
+            }
+
+            double[] lagLla = new double[3*numLag];
+            double[] lagTeme = new double[3*numLag];
+            double[] lagTimes = new double[numLag];
+            for(int i = 0; i < numLag; i++)
+            {
+                int s = slot(split - i);
+                System.arraycopy(lla, 3*s, lagLla, 3*i, 3);
+                System.arraycopy(temePos, 3*s, lagTeme, 3*i, 3);
+                lagTimes[i] = times[s];
+            }
+
+            snapshot = new GroundTrackSnapshot(epoch, version, numLead, numLag,
+                    leadLla, lagLla, leadTeme, lagTeme, leadTimes, lagTimes);
+        }
+        return snapshot;
+    } // getSnapshot
+
+    /**
+     * @return id of the rebuild request that created this buffer
+     */
+    public long getEpoch()
+    {
+        return epoch;
+    }
+
+    /**
+     * @return incremented every time points change
+     */
+    public synchronized long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @return total number of points computed (including the initial fill)
+     */
+    public synchronized long getPointsComputed()
+    {
+        return pointsComputed;
+    }
+
+    /**
+     * @return number of times every point had to be computed (initial fill and jumps larger than the window)
+     */
+    public synchronized int getRebuilds()
+    {
+        return rebuilds;
+    }
+
+} // GroundTrackBuffer
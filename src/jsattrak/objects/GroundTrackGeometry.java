@@ -0,0 +1,305 @@
+/*
+ * GroundTrackGeometry.java
+ *=====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ *
+ * Render ready ground track geometry shared by all 2D and 3D windows, built
+ * once per ground track snapshot instead of once per window and frame.
+ */
+
+package jsattrak.objects;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compact, immutable geometry of one ground track snapshot.
+ * <p>
+ * Holds the lead/lag lat/long/alt as packed floats and, built on first use, the
+ * vertices used by the 3D views as direct float buffers ready for glVertexPointer:
+ * the ECI (TEME) orbit trace and the ECEF points on a globe ellipsoid (ground
+ * trace at a fixed altitude or the orbit trace at the track altitude). Points
+ * outside the propagation interval (NaN) are left out of the vertex buffers.
+ * <p>
+ * Get it from AbstractSatellite.getGroundTrackGeometry(), the same object (and
+ * buffers) is returned to every window until the track changes, which also
+ * changes the generation. The buffers are shared: do not change their content
+ * or position.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public final class GroundTrackGeometry
+{
+    private static final AtomicLong nextGeneration = new AtomicLong();
+
+    // maximum number of ellipsoid/altitude combinations kept
+    private static final int MAX_ECEF_ENTRIES = 4;
+
+    private final GroundTrackSnapshot snapshot;
+    private final long generation;
+    private final int numLead;
+    private final int numLag;
+
+    // packed lat,long [rad] and alt [m]
+    private final float[] leadLla;
+    private final float[] lagLla;
+
+    // ECI vertices (built on first use)
+    private FloatBuffer leadEci;
+    private FloatBuffer lagEci;
+
+    // ECEF vertices for each ellipsoid and altitude asked for (built on first use)
+    private final EcefEntry[] ecefEntries = new EcefEntry[MAX_ECEF_ENTRIES];
+    private int nextEcefEntry = 0;
+
+    // vertices on one ellipsoid
+    private static class EcefEntry
+    {
+        final double equatorialRadius;
+        final double eccentricitySquared;
+        final double altitude; // NaN = altitude of the track
+        final FloatBuffer lead;
+        final FloatBuffer lag;
+
+        EcefEntry(double equatorialRadius, double eccentricitySquared, double altitude, FloatBuffer lead, FloatBuffer lag)
+        {
+            this.equatorialRadius = equatorialRadius;
+            this.eccentricitySquared = eccentricitySquared;
+            this.altitude = altitude;
+            this.lead = lead;
+            this.lag = lag;
+        }
+
+        boolean matches(double equatorialRadius, double eccentricitySquared, double altitude)
+        {
+            return this.equatorialRadius == equatorialRadius && this.eccentricitySquared == eccentricitySquared
+                    && (this.altitude == altitude || (Double.isNaN(this.altitude) && Double.isNaN(altitude)));
+        }
+    }
+
+    /**
+     * Creates the geometry of a snapshot (the lat/long/alt are converted now, vertices on first use)
+     * @param snapshot ground track snapshot
+     */
+    public GroundTrackGeometry(GroundTrackSnapshot snapshot)
+    {
+        this.snapshot = snapshot;
+        this.generation = nextGeneration.incrementAndGet();
+        this.numLead = snapshot.getNumLeadPts();
+        this.numLag = snapshot.getNumLagPts();
+
+        leadLla = new float[3*numLead];
+        for(int i = 0; i < numLead; i++)
+        {
+            double[] lla = snapshot.getLeadLla(i);
+            leadLla[3*i] = (float)lla[0];
+            leadLla[3*i+1] = (float)lla[1];
+            leadLla[3*i+2] = (float)lla[2];
+        }
+
+        lagLla = new float[3*numLag];
+        for(int i = 0; i < numLag; i++)
+        {
+            double[] lla = snapshot.getLagLla(i);
+            lagLla[3*i] = (float)lla[0];
+            lagLla[3*i+1] = (float)lla[1];
+            lagLla[3*i+2] = (float)lla[2];
+        }
+    } // GroundTrackGeometry
+
+    /**
+     * @return snapshot this geometry was built from
+     */
+    public GroundTrackSnapshot getSnapshot()
+    {
+        return snapshot;
+    }
+
+    /**
+     * @return unique number of this geometry, a new geometry (new generation) is built every time the track changes
+     */
+    public long getGeneration()
+    {
+        return generation;
+    }
+
+    public int getNumLeadPts()
+    {
+        return numLead;
+    }
+
+    public int getNumLagPts()
+    {
+        return numLag;
+    }
+
+    /**
+     * @param index lead point index
+     * @param lla return array lat/long/alt [rad,rad,m] (single precision)
+     */
+    public void getLeadLla(int index, double[] lla)
+    {
+        copy3(leadLla, index, numLead, lla);
+    }
+
+    /**
+     * @param index lag point index
+     * @param lla return array lat/long/alt [rad,rad,m] (single precision)
+     */
+    public void getLagLla(int index, double[] lla)
+    {
+        copy3(lagLla, index, numLag, lla);
+    }
+
+    /**
+     * @return lead ECI vertices in the World Wind axes (-x,z,y of TEME) [m] (shared - do not modify)
+     */
+    public synchronized FloatBuffer getLeadEciVertices()
+    {
+        if(leadEci == null)
+        {
+            leadEci = eciVertices(true);
+        }
+        return leadEci;
+    }
+
+    /**
+     * @return lag ECI vertices in the World Wind axes (-x,z,y of TEME) [m] (shared - do not modify)
+     */
+    public synchronized FloatBuffer getLagEciVertices()
+    {
+        if(lagEci == null)
+        {
+            lagEci = eciVertices(false);
+        }
+        return lagEci;
+    }
+
+    /**
+     * Lead ECEF vertices on an ellipsoid (same as Globe.computePointFromPosition for an ellipsoidal globe)
+     * @param equatorialRadius ellipsoid equatorial radius [m] (Globe.getEquatorialRadius())
+     * @param eccentricitySquared ellipsoid eccentricity squared (Globe.getEccentricitySquared())
+     * @param altitude altitude of the points [m], NaN to use the altitude of the track
+     * @return vertices (shared - do not modify)
+     */
+    public FloatBuffer getLeadEcefVertices(double equatorialRadius, double eccentricitySquared, double altitude)
+    {
+        return findEcef(equatorialRadius, eccentricitySquared, altitude).lead;
+    }
+
+    /**
+     * Lag ECEF vertices on an ellipsoid (same as Globe.computePointFromPosition for an ellipsoidal globe)
+     * @param equatorialRadius ellipsoid equatorial radius [m] (Globe.getEquatorialRadius())
+     * @param eccentricitySquared ellipsoid eccentricity squared (Globe.getEccentricitySquared())
+     * @param altitude altitude of the points [m], NaN to use the altitude of the track
+     * @return vertices (shared - do not modify)
+     */
+    public FloatBuffer getLagEcefVertices(double equatorialRadius, double eccentricitySquared, double altitude)
+    {
+        return findEcef(equatorialRadius, eccentricitySquared, altitude).lag;
+    }
+
+    private synchronized EcefEntry findEcef(double equatorialRadius, double eccentricitySquared, double altitude)
+    {
+        for(int i = 0; i < MAX_ECEF_ENTRIES; i++)
+        {
+            EcefEntry e = ecefEntries[i];
+            if(e != null && e.matches(equatorialRadius, eccentricitySquared, altitude))
+            {
+                return e;
+            }
+        }
+
+        // replace the oldest entry
+        EcefEntry e = new EcefEntry(equatorialRadius, eccentricitySquared, altitude,
+                ecefVertices(leadLla, numLead, equatorialRadius, eccentricitySquared, altitude),
+                ecefVertices(lagLla, numLag, equatorialRadius, eccentricitySquared, altitude));
+        ecefEntries[nextEcefEntry] = e;
+        nextEcefEntry = (nextEcefEntry + 1) % MAX_ECEF_ENTRIES;
+        return e;
+    } // findEcef
+
+    private FloatBuffer eciVertices(boolean lead)
+    {
+        int n = lead ? numLead : numLag;
+        float[] v = new float[3*n];
+        int count = 0;
+        for(int i = 0; i < n; i++)
+        {
+            double[] xyz = lead ? snapshot.getLeadTeme(i) : snapshot.getLagTeme(i);
+            if(!Double.isNaN(xyz[0])) // NaN check
+            {
+                v[3*count] = (float)-xyz[0];
+                v[3*count+1] = (float)xyz[2];
+                v[3*count+2] = (float)xyz[1];
+                count++;
+            }
+        }
+        return toBuffer(v, count);
+    } // eciVertices
+
+    // geodetic to World Wind cartesian (y is the polar axis, z points to 0 long)
+    private static FloatBuffer ecefVertices(float[] lla, int n, double equatorialRadius, double eccentricitySquared, double altitude)
+    {
+        float[] v = new float[3*n];
+        int count = 0;
+        for(int i = 0; i < n; i++)
+        {
+            double lat = lla[3*i];
+            double lon = lla[3*i+1];
+            double alt = Double.isNaN(altitude) ? lla[3*i+2] : altitude;
+            if(Double.isNaN(lat) || Double.isNaN(lon) || Double.isNaN(alt))
+            {
+                continue;
+            }
+
+            double cosLat = Math.cos(lat);
+            double sinLat = Math.sin(lat);
+            double rpm = equatorialRadius/Math.sqrt(1.0 - eccentricitySquared*sinLat*sinLat); // prime vertical radius
+
+            v[3*count] = (float)((rpm + alt)*cosLat*Math.sin(lon));
+            v[3*count+1] = (float)((rpm*(1.0 - eccentricitySquared) + alt)*sinLat);
+            v[3*count+2] = (float)((rpm + alt)*cosLat*Math.cos(lon));
+            count++;
+        }
+        return toBuffer(v, count);
+    } // ecefVertices
+
+    // direct buffer holding the first count vertices
+    private static FloatBuffer toBuffer(float[] v, int count)
+    {
+        FloatBuffer buf = ByteBuffer.allocateDirect(4*3*count).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        buf.put(v, 0, 3*count);
+        buf.rewind();
+        return buf;
+    }
+
+    private static void copy3(float[] packed, int index, int n, double[] out)
+    {
+        if(index < 0 || index >= n)
+        {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        out[0] = packed[3*index];
+        out[1] = packed[3*index+1];
+        out[2] = packed[3*index+2];
+    }
+
+} // GroundTrackGeometry
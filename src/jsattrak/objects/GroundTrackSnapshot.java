@@ -0,0 +1,224 @@
+/*
+ * GroundTrackSnapshot.java
+ *=====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ *
+ * Immutable copy of a satellite's ground track for the renderers, so a track
+ * can be drawn on any thread while the satellite moves or rebuilds it.
+ */
+
+package jsattrak.objects;
+
+/**
+ * Immutable lead/lag ground track points (lat/long/alt, TEME position and time).
+ * <p>
+ * Renderers should get one snapshot (AbstractSatellite.getGroundTrackSnapshot())
+ * and draw every point from it, the point count and points then always agree even
+ * if the satellite publishes a new track in the meantime.
+ * <p>
+ * The epoch identifies the full rebuild the track came from (it changes when the
+ * TLE, ground track settings or time jump), the version also changes every time
+ * the track slides, so a renderer can cache anything derived from a snapshot
+ * until the version changes.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public final class GroundTrackSnapshot
+{
+    /** snapshot with no points */
+    public static final GroundTrackSnapshot EMPTY = new GroundTrackSnapshot(-1, -1, 0, 0,
+            new double[0], new double[0], new double[0], new double[0], new double[0], new double[0]);
+
+    private final long epoch;
+    private final long version;
+    private final int numLead;
+    private final int numLag;
+
+    // packed lat,long,alt / x,y,z
+    private final double[] leadLla;
+    private final double[] lagLla;
+    private final double[] leadTeme;
+    private final double[] lagTeme;
+    private final double[] leadTimes;
+    private final double[] lagTimes;
+
+    // [n][3] views built on first use (same content, so a race only builds them twice)
+    private volatile double[][] leadTemeArray;
+    private volatile double[][] lagTemeArray;
+
+    // arrays are taken over (not copied) - the caller must not keep them
+    GroundTrackSnapshot(long epoch, long version, int numLead, int numLag,
+            double[] leadLla, double[] lagLla, double[] leadTeme, double[] lagTeme,
+            double[] leadTimes, double[] lagTimes)
+    {
+        this.epoch = epoch;
+        this.version = version;
+        this.numLead = numLead;
+        this.numLag = numLag;
+        this.leadLla = leadLla;
+        this.lagLla = lagLla;
+        this.leadTeme = leadTeme;
+        this.lagTeme = lagTeme;
+        this.leadTimes = leadTimes;
+        this.lagTimes = lagTimes;
+    }
+
+    /**
+     * @return id of the full rebuild this track came from (-1 for EMPTY)
+     */
+    public long getEpoch()
+    {
+        return epoch;
+    }
+
+    /**
+     * @return changes every time the track is rebuilt or slides (-1 for EMPTY)
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public int getNumLeadPts()
+    {
+        return numLead;
+    }
+
+    public int getNumLagPts()
+    {
+        return numLag;
+    }
+
+    /**
+     * @param index lead point index
+     * @return lat/long/alt [rad,rad,m] (new array)
+     */
+    public double[] getLeadLla(int index)
+    {
+        return copy3(leadLla, index, numLead);
+    }
+
+    /**
+     * @param index lag point index
+     * @return lat/long/alt [rad,rad,m] (new array)
+     */
+    public double[] getLagLla(int index)
+    {
+        return copy3(lagLla, index, numLag);
+    }
+
+    /**
+     * @param index lead point index
+     * @return TEME position [m] (new array)
+     */
+    public double[] getLeadTeme(int index)
+    {
+        return copy3(leadTeme, index, numLead);
+    }
+
+    /**
+     * @param index lag point index
+     * @return TEME position [m] (new array)
+     */
+    public double[] getLagTeme(int index)
+    {
+        return copy3(lagTeme, index, numLag);
+    }
+
+    /**
+     * @param index lead point index
+     * @return julian date of the point
+     */
+    public double getLeadTime(int index)
+    {
+        return leadTimes[index];
+    }
+
+    /**
+     * @param index lag point index
+     * @return julian date of the point
+     */
+    public double getLagTime(int index)
+    {
+        return lagTimes[index];
+    }
+
+    /**
+     * @return lead TEME positions [numLead][3] (shared - do not modify)
+     */
+    public double[][] getLeadTemeArray()
+    {
+        double[][] out = leadTemeArray;
+        if(out == null)
+        {
+            out = unpack(leadTeme, numLead);
+            leadTemeArray = out;
+        }
+        return out;
+    }
+
+    /**
+     * @return lag TEME positions [numLag][3] (shared - do not modify)
+     */
+    public double[][] getLagTemeArray()
+    {
+        double[][] out = lagTemeArray;
+        if(out == null)
+        {
+            out = unpack(lagTeme, numLag);
+            lagTemeArray = out;
+        }
+        return out;
+    }
+
+    /**
+     * @return lead times (new array)
+     */
+    public double[] getLeadTimes()
+    {
+        return leadTimes.clone();
+    }
+
+    /**
+     * @return lag times (new array)
+     */
+    public double[] getLagTimes()
+    {
+        return lagTimes.clone();
+    }
+
+    private static double[] copy3(double[] packed, int index, int n)
+    {
+        if(index < 0 || index >= n)
+        {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return new double[] {packed[3*index], packed[3*index+1], packed[3*index+2]};
+    }
+
+    private static double[][] unpack(double[] packed, int n)
+    {
+        double[][] out = new double[n][];
+        for(int i = 0; i < n; i++)
+        {
+            out[i] = new double[] {packed[3*i], packed[3*i+1], packed[3*i+2]};
+        }
+        return out;
+    }
+
+} // GroundTrackSnapshot
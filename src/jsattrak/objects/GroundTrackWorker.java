@@ -0,0 +1,138 @@
+/*
+ * GroundTrackWorker.java
+ *=====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ *
+ * Thread pool for full ground track rebuilds, so a rebuild (new TLE, changed
+ * settings or a jump in time) never holds up propagation or painting.
+ */
+
+package jsattrak.objects;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import jsattrak.utilities.DaemonThreadFactory;
+
+/**
+ * Runs ground track rebuild jobs on a small pool of daemon threads.
+ * <p>
+ * A job builds a new GroundTrackBuffer with its own propagator data and hands it
+ * back to its satellite, which only swaps it in if no newer rebuild was requested
+ * in the meantime (see GroundTrackBuffer.getEpoch()). Until then the satellite
+ * keeps its previous track.
+ * <p>
+ * With background mode off jobs run immediately on the calling thread (useful for
+ * batch runs that need the track right after propagating).
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class GroundTrackWorker
+{
+    // worker used by the satellite objects
+    private static final GroundTrackWorker sharedWorker = new GroundTrackWorker();
+
+    private boolean backgroundEnabled = true;
+    private int numThreads = Math.max(1, Runtime.getRuntime().availableProcessors()-1); // leave a core for painting
+    private ExecutorService executor;
+
+    /**
+     * @return worker used by the satellite objects
+     */
+    public static GroundTrackWorker getSharedWorker()
+    {
+        return sharedWorker;
+    }
+
+    /**
+     * Runs a rebuild job in the background (or right away if background mode is off)
+     * @param job rebuild job
+     */
+    public void submit(Runnable job)
+    {
+        ExecutorService ex = null;
+        synchronized(this)
+        {
+            if(backgroundEnabled)
+            {
+                if(executor == null)
+                {
+                    createExecutor();
+                }
+                ex = executor;
+            }
+        }
+
+        if(ex == null)
+        {
+            job.run();
+        }
+        else
+        {
+            ex.execute(job);
+        }
+    } // submit
+
+    private void createExecutor()
+    {
+        executor = Executors.newFixedThreadPool(numThreads, new DaemonThreadFactory("JSatTrak-groundtrack-", Thread.NORM_PRIORITY-1));
+    } // createExecutor
+
+    /**
+     * Stops the worker threads (a new pool is created if needed later), queued jobs are still run
+     */
+    public synchronized void shutdown()
+    {
+        if(executor != null)
+        {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    public synchronized boolean isBackgroundEnabled()
+    {
+        return backgroundEnabled;
+    }
+
+    /**
+     * @param backgroundEnabled if false rebuild jobs are run right away on the calling thread
+     */
+    public synchronized void setBackgroundEnabled(boolean backgroundEnabled)
+    {
+        this.backgroundEnabled = backgroundEnabled;
+        if(!backgroundEnabled)
+        {
+            shutdown();
+        }
+    }
+
+    public synchronized int getNumThreads()
+    {
+        return numThreads;
+    }
+
+    /**
+     * @param numThreads number of worker threads (pool is re-created on the next job)
+     */
+    public synchronized void setNumThreads(int numThreads)
+    {
+        this.numThreads = Math.max(1, numThreads);
+        shutdown();
+    }
+
+} // GroundTrackWorker
@@ -34,6 +34,8 @@ import name.gano.astro.GeoFunctions;
 import name.gano.astro.Kepler;
 import jsattrak.utilities.TLE;
 import name.gano.astro.coordinates.J2kCoordinateConversion;
+import name.gano.astro.coordinates.TemeJ2kCache;
+import name.gano.astro.propogators.sgp4_cssi.SGP4NodePredictor;
 import name.gano.astro.propogators.sgp4_cssi.SGP4SatData;
 import name.gano.astro.propogators.sgp4_cssi.SGP4unit;
 import name.gano.astro.propogators.sgp4_cssi.SGP4utils;
@@ -73,18 +75,19 @@ public class SatelliteTleSGP4 extends AbstractSatellite
     private boolean fillFootPrint = true;
     private int numPtsFootPrint = 41; // number of points in footprint, used to be 101
     
-    // ground track options  -- grounds tracks draw to asending nodes, re-calculated at acending nodes
+    // ground track options  -- ground track points are equally spaced in time, as time moves the
+    // window slides and only the newly exposed points are calculated (see GroundTrackBuffer)
     boolean showGroundTrack = true;
     private int grnTrkPointsPerPeriod = 81; // equally space in time >=2 // used to be 121
     private double groundTrackLeadPeriodMultiplier = 2.0;  // how far forward to draw ground track - in terms of periods
     private double groundTrackLagPeriodMultiplier = 1.0;  // how far behind to draw ground track - in terms of periods
-    double[][] latLongLead; // leading lat/long coordinates for ground track
-    double[][] latLongLag; // laging lat/long coordinates for ground track
-    private double[][] temePosLead; // leading TEME position coordinates for ground track
-    private double[][] temePosLag; // laging TEME position coordinates for ground track
-    private double[]   timeLead; // array for holding times associated with lead coordinates (Jul Date)
-    private double[]   timeLag; // array - times associated with lag coordinates (Jul Date)
-    boolean groundTrackIni = false; // if ground track has been initialized    
+    private transient volatile GroundTrackBuffer groundTrack; // lead/lag lat/long/alt, TEME positions and times (null if not initialized)
+    private transient GroundTrackPoints groundTrackSource; // calculates new ground track points on the propagation thread
+    private transient volatile long groundTrackEpoch; // id of the latest full rebuild request, results of older requests are discarded
+    private transient double groundTrackRequestJD; // time of the latest rebuild request
+    private transient double groundTrackRequestStep; // point spacing of the latest rebuild request [days] (0 = none)
+    private transient int groundTrackRequestCapacity; // total points of the latest rebuild request
+    boolean groundTrackIni = false; // if ground track has been initialized (or a rebuild requested)
     
     private boolean showName2D = true; // show name in 2D plots
     
@@ -204,6 +207,47 @@ public class SatelliteTleSGP4 extends AbstractSatellite
              velTEME[i] = velTEME[i]*1000.0;
         }
         
+        updateFromTemeState(julDate);
+        
+    } // propogate2JulDate
+    
+    /**
+     * Sets the current time and state of the satellite from a state already
+     * propagated for the whole catalog by SGP4batch (instead of calling SGP4 again)
+     * then updates the J2000 state, LLA and ground track as propogate2JulDate(julDate) does.
+     * @param julDate julian date the batch was propagated to
+     * @param batchPos batch TEME position array [km], size 3*n
+     * @param batchVel batch TEME velocity array [km/s], size 3*n
+     * @param index index of this satellite in the batch
+     * @param errorCode sgp4 error code of this satellite from the batch (0 = ok)
+     */
+    public void propogate2JulDate(double julDate, double[] batchPos, double[] batchVel, int index, int errorCode)
+    {
+        // save date
+        this.currentJulianDate = julDate;
+        
+        if(errorCode != 0)
+        {
+            System.out.println("Error SGP4 Propagation failed for sat: " + sgp4SatData.name + ", JD: " + sgp4SatData.jdsatepoch + ", error code: "+ errorCode);
+        }
+        
+        // scale output to meters
+        for(int i=0;i<3;i++)
+        {
+            // TEME
+             posTEME[i] = batchPos[3*index+i]*1000.0;
+             velTEME[i] = batchVel[3*index+i]*1000.0;
+        }
+        
+        updateFromTemeState(julDate);
+        
+    } // propogate2JulDate
+    
+    // given the TEME state at julDate (already in posTEME/velTEME, meters) compute
+    // the J2000 state, lat/long/alt and update the ground track if needed
+    private void updateFromTemeState(double julDate)
+    {
+        
         //print differene TT-UT
         //System.out.println("TT-UT [days]= " + SDP4TimeUtilities.DeltaT(julDate-2450000)*24.0*60*60);
         
@@ -230,42 +274,52 @@ public class SatelliteTleSGP4 extends AbstractSatellite
         // based on new info about coordinate system, to get the J2K other conversions are needed!
         // precession from rk5 -> mod
         double ttt = (mjd-AstroConst.MJD_J2000) /36525.0;
-        double[][] A = J2kCoordinateConversion.teme_j2k(J2kCoordinateConversion.Direction.to,ttt, 24, 2, 'a');
-        // rotate position and velocity
-        j2kPos = J2kCoordinateConversion.matvecmult( A, posTEME);
-        j2kVel = J2kCoordinateConversion.matvecmult( A, velTEME);
+        // same time for every satellite in a time step - use the shared exact cache
+        double[][] A = TemeJ2kCache.getSharedCache().teme_j2k(J2kCoordinateConversion.Direction.to,ttt);
+        // rotate position and velocity (in place, the getters hand out copies)
+        J2kCoordinateConversion.matvecmult( A, posTEME, j2kPos);
+        J2kCoordinateConversion.matvecmult( A, velTEME, j2kVel);
 
         //System.out.println("Date: " + julDate +", Pos: " + sdp4Prop.itsR[0] + ", " + sdp4Prop.itsR[1] + ", " + sdp4Prop.itsR[2]);
 
-        // save old lat/long for ascending node check
-        double[] oldLLA = lla.clone(); // copy old LLA
-        
         // calculate Lat,Long,Alt - must use Mean of Date (MOD) Position
         lla = GeoFunctions.GeodeticLLA(posTEME,julDate-AstroConst.JDminusMJD); // j2kPos
         
-        // Check to see if the ascending node has been passed
+        // update the ground track
         if(showGroundTrack==true)
         {
-            if(groundTrackIni == false ) // update ground track needed
+            GroundTrackBuffer gt = groundTrack;
+            if(groundTrackIni && gt != null && gt.getEpoch() == groundTrackEpoch)
             {
-                initializeGroundTrack();
+                if(gt.canSlideTo(julDate))
+                {
+                    // slide the window - only the newly exposed points are calculated
+                    gt.moveTo(julDate, getGroundTrackSource());
+                }
+                else
+                {
+                    // jump in time larger than the track
+                    initializeGroundTrack();
+                }
             }
-            else if( oldLLA[0] < 0 && lla[0] >=0) // check for ascending node pass
+            else if(groundTrackIni == false || !groundTrackRequestCovers(julDate))
             {
-                //System.out.println("Ascending NODE passed: " + tle.getSatName() );
-                initializeGroundTrack(); // for new ini each time
-                
-            } // ascending node passed
+                // full rebuild needed (first time, new TLE or settings, or a jump in time larger than the track)
+                // done in the background - the old track is kept until the new one is swapped in
+                initializeGroundTrack();
+            }
+            // else a rebuild that covers this time is still running
             
         } // if show ground track is true
         
         // if 3D model - update its properties -- NOT DONE HERE - done in OrbitModelRenderable (so it can be done for any sat)
                
-    } // propogate2JulDate
+    } // updateFromTemeState
     
     
     
     // initalize the ground track from any starting point, as long as Juldate !=-1
+    // the track is built by the GroundTrackWorker (in the background) and swapped in when complete
     private void initializeGroundTrack()
     {
         if(currentJulianDate == -1)
@@ -274,133 +328,155 @@ public class SatelliteTleSGP4 extends AbstractSatellite
             return;
         }
         
-        // find time of last acending node crossing
-        
-        // initial guess -- the current time        
-        double lastAscendingNodeTime = currentJulianDate; // time of last ascending Node Time
-        
         // calculate period - in minutes
+        // WARNING: period calculation is based on osculating elements may not be 100% accurate
+        //          as this is just for graphical updates should be okay (no mid-course corrections assumed)
         double periodMin = Kepler.CalculatePeriod(AstroConst.GM_Earth,j2kPos,j2kVel)/(60.0);
-        //System.out.println("period [min] = "+periodMin);
-        
-        // time step divisions (in fractions of a day)
-        double fracOfPeriod = 15.0;
-        double timeStep = (periodMin/(60.0*24.0)) / fracOfPeriod;
         
-        // first next guess
-        double newGuess1 = lastAscendingNodeTime - timeStep;
+        // time between ground track points (in fractions of a day)
+        final double stepDays = (periodMin/(60.0*24.0)) / grnTrkPointsPerPeriod;
         
-        // latitude variables
-        double lat0 =  lla[0]; //  current latitude
-        double lat1 = (calculateLatLongAltXyz(newGuess1))[0]; // calculate latitude values       
-        
-        // bracket the crossing using timeStep step sizes
-        while( !( lat0>=0 && lat1<0 ) )
+        if( Double.isNaN(stepDays) || Double.isInfinite(stepDays) || stepDays <= 0 )
         {
-            // move back a step
-            lastAscendingNodeTime = newGuess1;
-            lat0 = lat1;
-            
-            // next guess
-            newGuess1 = lastAscendingNodeTime - timeStep;
-            
-            // calculate latitudes of the new value
-            lat1 = (calculateLatLongAltXyz(newGuess1))[0];
-        } // while searching for ascending node
-        
-              
-        // secand method -- determine within a second!
-        double outJul = secantMethod(lastAscendingNodeTime-timeStep, lastAscendingNodeTime, 1.0/(60.0*60.0*24.0), 20);
-        //System.out.println("Guess 1:" + (lastAscendingNodeTime-timeStep) );
-        //System.out.println("Guess 2:" + (lastAscendingNodeTime));
-        //System.out.println("Answer: " + outJul);
-        
-        // update times: Trust Period Calculations for how far in the future and past to calculate out to
-        // WARNING: period calculation is based on osculating elements may not be 100% accurate
-        //          as this is just for graphical updates should be okay (no mid-course corrections assumed)
-        lastAscendingNodeTime = outJul;
-        double leadEndTime = lastAscendingNodeTime + groundTrackLeadPeriodMultiplier*periodMin/(60.0*24); // Julian Date for last lead point (furthest in future)
-        double lagEndTime = lastAscendingNodeTime - groundTrackLagPeriodMultiplier*periodMin/(60.0*24); // Julian Date for the last lag point (furthest in past)
+            // no closed orbit (e.g. decayed) - no ground track, try again next update
+            discardGroundTrack();
+            return;
+        }
         
-        // fill in lead/lag arrays
-        fillGroundTrack(lastAscendingNodeTime,leadEndTime,lagEndTime);
+        // number of points so the lead/lag cover the requested number of periods (both include the current point)
+        final int ptsLead = (int)Math.ceil(grnTrkPointsPerPeriod*groundTrackLeadPeriodMultiplier) + 1;
+        final int ptsLag = (int)Math.ceil(grnTrkPointsPerPeriod*groundTrackLagPeriodMultiplier) + 1;
         
+        // the grid is spaced by the nodal period so a point falls on every node crossing (see below),
+        // the osculating period if the mean elements have none - the rebuild request uses the same step
+        double nodalPeriodMin = SGP4NodePredictor.nodalPeriod(sgp4SatData);
+        final double gridStep = (nodalPeriodMin > 0) ? (nodalPeriodMin/(60.0*24.0)) / grnTrkPointsPerPeriod : stepDays;
+        
+        final double julDate = currentJulianDate;
+        final TLE jobTle = tle;
+        final long epoch = nextGroundTrackEpoch();
+        groundTrackRequestJD = julDate;
+        groundTrackRequestStep = gridStep;
+        groundTrackRequestCapacity = ptsLead + ptsLag - 1;
         groundTrackIni = true;
-        return;
+        
+        GroundTrackWorker.getSharedWorker().submit(new Runnable()
+        {
+            public void run()
+            {
+                if(epoch != groundTrackEpoch)
+                {
+                    return; // a newer rebuild was requested already
+                }
+                
+                // own SGP4 data - SGP4 writes into it and the propagation thread keeps using sgp4SatData
+                // options - hard coded
+                char opsmode = SGP4utils.OPSMODE_IMPROVED; // OPSMODE_IMPROVED
+                SGP4unit.Gravconsttype gravconsttype = SGP4unit.Gravconsttype.wgs72;
+                SGP4SatData data = new SGP4SatData();
+                if(!SGP4utils.readTLEandIniSGP4(jobTle.getSatName(), jobTle.getLine1(), jobTle.getLine2(), opsmode, gravconsttype, data))
+                {
+                    return;
+                }
+                
+                // lock the grid to the last ascending node (start at the current time if there is no usable node)
+                double gridOrigin = julDate;
+                double nodeJD = SGP4NodePredictor.lastAscendingNode(data, julDate);
+                if(!Double.isNaN(nodeJD))
+                {
+                    gridOrigin = nodeJD;
+                }
+                
+                // fill in lead/lag points
+                publishGroundTrack(new GroundTrackBuffer(epoch, julDate, gridOrigin, gridStep, ptsLead, ptsLag, new GroundTrackPoints(data)));
+            }
+        });
         
     } // initializeGroundTrack
     
-    // fill in the Ground Track given Jul Dates for 
-    // 
-    private void fillGroundTrack(double lastAscendingNodeTime, double leadEndTime, double lagEndTime)
+    // true if the latest rebuild request will give a track that can slide to julDate (same test as GroundTrackBuffer.canSlideTo)
+    private boolean groundTrackRequestCovers(double julDate)
     {
-        // points in the lead direction
-        int ptsLead = (int)Math.ceil(grnTrkPointsPerPeriod*groundTrackLeadPeriodMultiplier);
-        latLongLead = new double[ptsLead][3];        
-        temePosLead =  new double[ptsLead][3];
-        timeLead = new double[ptsLead];
-                
-        for(int i=0;i<ptsLead;i++)
+        if(groundTrackRequestStep <= 0)
         {
-            double ptTime = lastAscendingNodeTime + i*(leadEndTime-lastAscendingNodeTime)/(ptsLead-1);
-            
-           // PUT HERE calculate lat lon
-            double[] ptLlaXyz = calculateLatLongAltXyz(ptTime);
-            
-            latLongLead[i][0] = ptLlaXyz[0]; // save lat
-            latLongLead[i][1] = ptLlaXyz[1]; // save long
-            latLongLead[i][2] = ptLlaXyz[2]; // save altitude
-            
-            temePosLead[i][0] = ptLlaXyz[3]; // x
-            temePosLead[i][1] = ptLlaXyz[4]; // y
-            temePosLead[i][2] = ptLlaXyz[5]; // z
-            
-            timeLead[i] = ptTime; // save time
-            
-        } // for each lead point
-        
-        // points in the lag direction
-        int ptsLag = (int)Math.ceil(grnTrkPointsPerPeriod*groundTrackLagPeriodMultiplier);
-        latLongLag = new double[ptsLag][3];
-        temePosLag = new double[ptsLag][3];
-        timeLag = new double[ptsLag];
-        
-        for(int i=0;i<ptsLag;i++)
+            return false;
+        }
+        double k = Math.floor((julDate - groundTrackRequestJD)/groundTrackRequestStep);
+        return Math.abs(k) < groundTrackRequestCapacity;
+    }
+    
+    private synchronized long nextGroundTrackEpoch()
+    {
+        return ++groundTrackEpoch;
+    }
+    
+    // swaps in a rebuilt ground track, unless a newer rebuild was requested since (the result is stale)
+    private synchronized void publishGroundTrack(GroundTrackBuffer gt)
+    {
+        if(gt.getEpoch() == groundTrackEpoch)
         {
-            double ptTime = lastAscendingNodeTime + i*(lagEndTime-lastAscendingNodeTime)/(ptsLag-1);
-            
-            double[] ptLlaXyz = calculateLatLongAltXyz(ptTime);
-             
-            latLongLag[i][0] = ptLlaXyz[0]; // save lat
-            latLongLag[i][1] = ptLlaXyz[1]; // save long
-            latLongLag[i][2] = ptLlaXyz[2]; // save alt
-            
-            temePosLag[i][0] = ptLlaXyz[3]; // x
-            temePosLag[i][1] = ptLlaXyz[4]; // y
-            temePosLag[i][2] = ptLlaXyz[5]; // z
-            
-            timeLag[i] = ptTime;
-            
-        } // for each lag point
-    } // fillGroundTrack
+            groundTrack = gt;
+        }
+    }
     
-    // takes in JulDate, returns lla and teme position
-    private double[] calculateLatLongAltXyz(double ptTime)
+    // drops the ground track and any rebuild still running
+    private synchronized void discardGroundTrack()
     {
-        double[] ptPos = calculateTemePositionFromUT(ptTime);
-        
-        // get lat and long
-        double[] ptLla = GeoFunctions.GeodeticLLA(ptPos,ptTime-AstroConst.JDminusMJD);
+        groundTrackEpoch++;
+        groundTrack = null;
+        groundTrackIni = false;
+        groundTrackRequestStep = 0;
+    }
+    
+    private GroundTrackPoints getGroundTrackSource()
+    {
+        if(groundTrackSource == null || groundTrackSource.data != sgp4SatData)
+        {
+            groundTrackSource = new GroundTrackPoints(sgp4SatData);
+        }
+        return groundTrackSource;
+    }
+    
+    // calculates ground track points with one SGP4 data object, only use from one thread at a time
+    private static class GroundTrackPoints implements GroundTrackBuffer.PointSource
+    {
+        private final SGP4SatData data;
+        private double[] mjd = new double[0]; // scratch for the batch lat/long/alt
         
-        double[] ptLlaXyz = new double[] {ptLla[0],ptLla[1],ptLla[2],ptPos[0],ptPos[1],ptPos[2]};
+        GroundTrackPoints(SGP4SatData data)
+        {
+            this.data = data;
+        }
         
-        return ptLlaXyz;
-    } // calculateLatLongAlt
+        // propagates all the times in one call and fills in TEME position and lat/long/alt (packed x,y,z / lat,long,alt)
+        public void calculatePoints(double[] times, int count, double[] temePos, double[] ptLla)
+        {
+            boolean propSuccess = SGP4unit.sgp4Prop2JD(data, times, count, temePos, null);
+            if(!propSuccess)
+            {
+                System.out.println("Error (3) SGP4 Propagation failed for sat: " + data.name + ", JD: " + data.jdsatepoch + ", error code: "+ data.error);
+            }
+            scaleKm2M(count, temePos, null);
+            
+            // lat/long/alt of all points in one batch
+            if(mjd.length < count)
+            {
+                mjd = new double[times.length];
+            }
+            for(int i=0;i<count;i++)
+            {
+                mjd[i] = times[i]-AstroConst.JDminusMJD;
+            }
+            GeoFunctions.GeodeticLLA(temePos, mjd, count, ptLla);
+        }
+    } // GroundTrackPoints
     
     // 
     
     /**
-     * Calculate J2K position of this sat at a given JulDateTime (doesn't save the time) - can be useful for event searches or optimization
+     * Calculate J2K position of this sat at a given JulDateTime (doesn't save the time) - can be useful for event searches or optimization.
+     * The TEME -> J2000 rotation is interpolated between cached matrices (TemeJ2kCache.teme_j2kInterpolated, about 3e-11 rad
+     * or a millimeter at GEO distance), propogate2JulDate uses the exact rotation
      * @param julDate - julian date
      * @return j2k position of satellite in meters
      */
@@ -414,7 +490,8 @@ public class SatelliteTleSGP4 extends AbstractSatellite
         // get position information back out - convert to J2000
         // precession from rk5 -> mod
         double ttt = (mjd-AstroConst.MJD_J2000) /36525.0;
-        double[][] A = J2kCoordinateConversion.teme_j2k(J2kCoordinateConversion.Direction.to,ttt, 24, 2, 'a');
+        // used for dense time searches - interpolate between cached matrices
+        double[][] A = TemeJ2kCache.getSharedCache().teme_j2kInterpolated(J2kCoordinateConversion.Direction.to,ttt);
         // rotate position
         double[] j2kPosI = J2kCoordinateConversion.matvecmult( A, ptPos);
         
@@ -453,57 +530,74 @@ public class SatelliteTleSGP4 extends AbstractSatellite
     } // calculatePositionFromUT
     
     
-    //---------------------------------------
-    //  SECANT Routines to find Crossings of the Equator (hopefully Ascending Nodes)
-    // xn_1 = date guess 1
-    // xn date guess 2
-    // tol = convergence tolerance
-    // maxIter = maximum iterations allowed
-    // RETURNS: double = julian date of crossing
-    private double secantMethod(double xn_1, double xn, double tol, int maxIter)
+    /**
+     * Calculate TEME of date positions of this sat at a series of times (doesn't save the time),
+     * the SGP4 data is reused and nothing is allocated per point
+     * @param julDates julian dates
+     * @param count number of dates from julDates to use
+     * @param temePos return array of TEME positions in meters, size 3*count
+     */
+    @Override
+    public void calculateTemePositionsFromUT(double[] julDates, int count, double[] temePos)
     {
-
-        double d;
+        calculateTemeStatesFromUT(julDates, count, temePos, null);
+    }
+    
+    /**
+     * Calculate TEME of date positions and velocities of this sat at a series of times (doesn't save the time)
+     * @param julDates julian dates
+     * @param count number of dates from julDates to use
+     * @param temePos return array of TEME positions in meters, size 3*count
+     * @param temeVel return array of TEME velocities in meters/sec, size 3*count (can be null)
+     */
+    public void calculateTemeStatesFromUT(double[] julDates, int count, double[] temePos, double[] temeVel)
+    {
+        boolean propSuccess = SGP4unit.sgp4Prop2JD(sgp4SatData, julDates, count, temePos, temeVel);
+        if(!propSuccess)
+        {
+            System.out.println("Error (3) SGP4 Propagation failed for sat: " + sgp4SatData.name + ", JD: " + sgp4SatData.jdsatepoch + ", error code: "+ sgp4SatData.error);
+        }
         
-        // calculate functional values at guesses
-        double fn_1 = latitudeGivenJulianDate(xn_1);
-        double fn = latitudeGivenJulianDate(xn);
+        scaleKm2M(count, temePos, temeVel);
+    } // calculateTemeStatesFromUT
+    
+    /**
+     * Calculate TEME of date positions and velocities of this sat at evenly spaced times
+     * startJulDate + i*stepDays, i = 0..count-1 (doesn't save the time)
+     * @param startJulDate first julian date
+     * @param stepDays time step in days
+     * @param count number of points
+     * @param temePos return array of TEME positions in meters, size 3*count
+     * @param temeVel return array of TEME velocities in meters/sec, size 3*count (can be null)
+     */
+    public void calculateTemeStatesFromUT(double startJulDate, double stepDays, int count, double[] temePos, double[] temeVel)
+    {
+        boolean propSuccess = SGP4unit.sgp4Prop2JD(sgp4SatData, startJulDate, stepDays, count, temePos, temeVel);
+        if(!propSuccess)
+        {
+            System.out.println("Error (3) SGP4 Propagation failed for sat: " + sgp4SatData.name + ", JD: " + sgp4SatData.jdsatepoch + ", error code: "+ sgp4SatData.error);
+        }
         
-        for (int n = 1; n <= maxIter; n++)
+        scaleKm2M(count, temePos, temeVel);
+    } // calculateTemeStatesFromUT
+    
+    // scale packed km, km/s output to meters
+    private static void scaleKm2M(int count, double[] pos, double[] vel)
+    {
+        for(int i=0;i<3*count;i++)
         {
-            d = (xn - xn_1) / (fn - fn_1) * fn;
-            if (Math.abs(d) < tol) // convergence check
+            pos[i] = pos[i]*1000.0;
+        }
+        if(vel != null)
+        {
+            for(int i=0;i<3*count;i++)
             {
-                //System.out.println("Iters:"+n);
-                return xn;
+                vel[i] = vel[i]*1000.0;
             }
-            
-            // save past point
-            xn_1 = xn;
-            fn_1 = fn;
-            
-            // new point
-            xn = xn - d;
-            fn = latitudeGivenJulianDate(xn);
         }
-        
-        System.out.println("Warning: Secant Method - Max Iteration limit reached finding Asending Node.");
-        
-        return xn;
-    } // secantMethod
+    } // scaleKm2M
+    
     
-    private double latitudeGivenJulianDate(double julDate)
-    {
-        // computer latiude of the spacecraft at a given date
-        double[] ptPos = calculateTemePositionFromUT(julDate);
-        
-        // get lat and long
-        double[] ptLla = GeoFunctions.GeodeticLLA(ptPos,julDate-AstroConst.JDminusMJD);
-        
-        return ptLla[0]; // pass back latitude
-        
-    } // latitudeGivenJulianDate
-
     //--------------------------------------
     
     public void setShowGroundTrack(boolean showGrndTrk)
@@ -512,13 +606,7 @@ public class SatelliteTleSGP4 extends AbstractSatellite
         
         if(showGrndTrk == false)
         {
-            groundTrackIni = false; 
-            latLongLead = new double[][] {{}}; // save some space
-            latLongLag = new double[][] {{}}; // sace some space
-            temePosLag = new double[][] {{}};
-            temePosLead = new double[][] {{}};
-            timeLead = new double[] {};
-            timeLag = new double[] {};
+            discardGroundTrack(); // save some space
         }
         else
         {
@@ -552,6 +640,22 @@ public class SatelliteTleSGP4 extends AbstractSatellite
         return lla;
     }
     
+    /**
+     * @return SGP4 propagator data of this satellite (a new object is created each time the TLE is updated)
+     */
+    public SGP4SatData getSGP4SatData()
+    {
+        return sgp4SatData;
+    }
+    
+    /**
+     * @return two line element set of this satellite (a new object is set each time the TLE is updated)
+     */
+    public TLE getTle()
+    {
+        return tle;
+    }
+    
     // TT or UTC? = UTC
     public double getSatTleEpochJulDate()
     {
@@ -601,32 +705,46 @@ public class SatelliteTleSGP4 extends AbstractSatellite
     
     public int getNumGroundTrackLeadPts()
     {
-        return latLongLead.length;
+        return getGroundTrackSnapshot().getNumLeadPts();
     }
         
     public int getNumGroundTrackLagPts()
     {
-        return latLongLag.length;
+        return getGroundTrackSnapshot().getNumLagPts();
     }
         
     public double[] getGroundTrackLlaLeadPt(int index)
     {
-        return new double[] {latLongLead[index][0],latLongLead[index][1],latLongLead[index][2]};
+        return getGroundTrackSnapshot().getLeadLla(index);
     }
     
     public double[] getGroundTrackLlaLagPt(int index)
     {
-        return new double[] {latLongLag[index][0],latLongLag[index][1],latLongLag[index][2]};
+        return getGroundTrackSnapshot().getLagLla(index);
     }
     
     public double[] getGroundTrackXyzLeadPt(int index)
     {
-        return new double[] {getTemePosLead()[index][0],getTemePosLead()[index][1],getTemePosLead()[index][2]};
+        return getGroundTrackSnapshot().getLeadTeme(index);
     }
     
     public double[] getGroundTrackXyzLagPt(int index)
     {
-        return new double[] {getTemePosLag()[index][0],getTemePosLag()[index][1],getTemePosLag()[index][2]};
+        return getGroundTrackSnapshot().getLagTeme(index);
+    }
+    
+    public GroundTrackSnapshot getGroundTrackSnapshot()
+    {
+        GroundTrackBuffer gt = groundTrack;
+        return (gt == null) ? GroundTrackSnapshot.EMPTY : gt.getSnapshot();
+    }
+    
+    /**
+     * @return sliding ground track buffer, null if the ground track is not initialized (only move it from the propagation thread)
+     */
+    public GroundTrackBuffer getGroundTrack()
+    {
+        return groundTrack;
     }
     
     
@@ -796,28 +914,28 @@ public class SatelliteTleSGP4 extends AbstractSatellite
         this.show3D = show3D;
     }
 
-    public // laging lat/long coordinates for ground track
+    public // leading TEME position coordinates for ground track
     double[][] getTemePosLead()
     {
-        return temePosLead;
+        return getGroundTrackSnapshot().getLeadTemeArray();
     }
 
-    public // leading Mean of date position coordinates for ground track
+    public // laging TEME position coordinates for ground track
     double[][] getTemePosLag()
     {
-        return temePosLag;
+        return getGroundTrackSnapshot().getLagTemeArray();
     }
 
-    public // laging Mean of date position coordinates for ground track
+    public // times associated with lead coordinates (Jul Date)
     double[] getTimeLead()
     {
-        return timeLead;
+        return getGroundTrackSnapshot().getLeadTimes();
     }
 
-    public // array for holding times associated with lead coordinates (Jul Date)
+    public // times associated with lag coordinates (Jul Date)
     double[] getTimeLag()
     {
-        return timeLag;
+        return getGroundTrackSnapshot().getLagTimes();
     }
     
     // 3D model -------------------------
@@ -0,0 +1,83 @@
+/*
+ * DaemonThreadFactory.java
+ *
+ * Thread factory for the worker pools of the background and batch jobs.
+ *
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+
+package jsattrak.utilities;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates daemon threads named namePrefix + 0, 1, 2, ... so worker pools never keep
+ * the application alive after the last window is closed.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class DaemonThreadFactory implements ThreadFactory
+{
+    private final String namePrefix;
+    private final int priority;
+    private int count = 0;
+
+    /**
+     * @param namePrefix start of the thread names, e.g. "JSatTrak-coverage-"
+     */
+    public DaemonThreadFactory(String namePrefix)
+    {
+        this(namePrefix, Thread.NORM_PRIORITY);
+    }
+
+    /**
+     * @param namePrefix start of the thread names, e.g. "JSatTrak-coverage-"
+     * @param priority priority of the threads
+     */
+    public DaemonThreadFactory(String namePrefix, int priority)
+    {
+        this.namePrefix = namePrefix;
+        this.priority = priority;
+    }
+
+    public synchronized Thread newThread(Runnable r)
+    {
+        Thread t = new Thread(r, namePrefix + (count++));
+        t.setDaemon(true); // never keep the app alive
+        t.setPriority(priority);
+        return t;
+    } // newThread
+
+    /**
+     * Prints the error of a task run by a worker pool (or run in the calling thread)
+     * @param job what the task was doing, e.g. "coverage analysis"
+     * @param error error thrown by the task, an ExecutionException is replaced by its cause
+     */
+    public static void printTaskError(String job, Throwable error)
+    {
+        if(error instanceof ExecutionException && error.getCause() != null)
+        {
+            error = error.getCause();
+        }
+        System.out.println("Error in " + job + ": " + error);
+        error.printStackTrace();
+    } // printTaskError
+
+} // DaemonThreadFactory
@@ -33,9 +33,11 @@ import gov.nasa.worldwind.util.Logging;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Point;
+import java.nio.FloatBuffer;
 import java.util.Hashtable;
 import javax.media.opengl.GL;
 import jsattrak.objects.AbstractSatellite;
+import jsattrak.objects.GroundTrackGeometry;
 import jsattrak.objects.GroundStation;
 import name.gano.worldwind.geom.SphereObject;
 
@@ -93,6 +95,7 @@ public class ECEFModelRenderable implements Renderable
         
         //gl.glEnable(GL.GL_TEXTURE_2D); // removed so the sun shading wouldn't effect line colors
         gl.glPushAttrib(javax.media.opengl.GL.GL_TEXTURE_BIT | javax.media.opengl.GL.GL_ENABLE_BIT | javax.media.opengl.GL.GL_CURRENT_BIT);
+        gl.glPushClientAttrib(GL.GL_CLIENT_VERTEX_ARRAY_BIT);
         gl.glMatrixMode(javax.media.opengl.GL.GL_MODELVIEW);
 
         // Added so that the colors wouldn't depend on sun shading
@@ -105,79 +108,27 @@ public class ECEFModelRenderable implements Renderable
             Color satColor = sat.getSatColor();
             gl.glColor3f( satColor.getRed()/255.0f , satColor.getGreen()/255.0f , satColor.getBlue()/255.0f ); // COLOR
             
+            // cached vertices shared by all windows (rebuilt only when the ground track changes)
+            GroundTrackGeometry gt = sat.getGroundTrackGeometry();
+            
             // GROUND TRACK
             if (sat.isShowGroundTrack3d())
             {
-                
-                //System.out.println("here");
-                
-                Vec4 ptLoc;
                 // ground trace - lag
-                gl.glBegin(GL.GL_LINE_STRIP); //GL_LINE_STRIP
-                for (int i = 0; i < sat.getNumGroundTrackLagPts(); i++)
-                {
-                    // add next Mean of Date lla
-                    double[] lla = sat.getGroundTrackLlaLagPt(i);
-                    
-                    ptLoc = globe.computePointFromPosition(
-                    Angle.fromRadiansLatitude(lla[0]), 
-                    Angle.fromRadiansLongitude(lla[1]), groundTrackAlt);
-                    
-                    gl.glVertex3f( (float)ptLoc.x, (float)ptLoc.y , (float)ptLoc.z);
-                    
-                }
-                gl.glEnd();
+                drawLineStrip(gl, gt.getLagEcefVertices(globe.getEquatorialRadius(), globe.getEccentricitySquared(), groundTrackAlt));
 
                 // plot lead orbit ground track
-                gl.glBegin(GL.GL_LINE_STRIP); //GL_LINE_STRIP
-                for (int i = 0; i < sat.getNumGroundTrackLeadPts(); i++)
-                {
-                    // add next Mean of Date lla
-                    double[] lla = sat.getGroundTrackLlaLeadPt(i);
-                    
-                    ptLoc = globe.computePointFromPosition(
-                    Angle.fromRadiansLatitude(lla[0]), 
-                    Angle.fromRadiansLongitude(lla[1]), groundTrackAlt);
-                    
-                    gl.glVertex3f( (float)ptLoc.x, (float)ptLoc.y , (float)ptLoc.z);
-                }
-                gl.glEnd();
+                drawLineStrip(gl, gt.getLeadEcefVertices(globe.getEquatorialRadius(), globe.getEccentricitySquared(), groundTrackAlt));
             } // show ground trace
             
             // ECEF ORBIT TRACE
             if (sat.isShow3DOrbitTrace() && !sat.isShow3DOrbitTraceECI() )
             {
-                Vec4 ptLoc;
-                // ground trace - lag
-                gl.glBegin(GL.GL_LINE_STRIP); //GL_LINE_STRIP
-                for (int i = 0; i < sat.getNumGroundTrackLagPts(); i++)
-                {
-                    // add next Mean of Date lla
-                    double[] lla = sat.getGroundTrackLlaLagPt(i);
-                    
-                    ptLoc = globe.computePointFromPosition(
-                    Angle.fromRadiansLatitude(lla[0]), 
-                    Angle.fromRadiansLongitude(lla[1]), lla[2]);
-                    
-                    gl.glVertex3f( (float)ptLoc.x, (float)ptLoc.y , (float)ptLoc.z);
-                    
-                }
-                gl.glEnd();
+                // orbit trace - lag (at the altitude of the track)
+                drawLineStrip(gl, gt.getLagEcefVertices(globe.getEquatorialRadius(), globe.getEccentricitySquared(), Double.NaN));
 
-                // plot lead orbit ground track
-                gl.glBegin(GL.GL_LINE_STRIP); //GL_LINE_STRIP
-                for (int i = 0; i < sat.getNumGroundTrackLeadPts(); i++)
-                {
-                    // add next Mean of Date lla
-                    double[] lla = sat.getGroundTrackLlaLeadPt(i);
-                    
-                    ptLoc = globe.computePointFromPosition(
-                    Angle.fromRadiansLatitude(lla[0]), 
-                    Angle.fromRadiansLongitude(lla[1]), lla[2]);
-                    
-                    gl.glVertex3f( (float)ptLoc.x, (float)ptLoc.y , (float)ptLoc.z);
-                }
-                gl.glEnd();
+                // plot lead orbit trace
+                drawLineStrip(gl, gt.getLeadEcefVertices(globe.getEquatorialRadius(), globe.getEccentricitySquared(), Double.NaN));
                 
             } // ecef orbit trace
             
@@ -239,11 +190,26 @@ public class ECEFModelRenderable implements Renderable
 //            } // if pos is not null
 //        }
 //        
+        gl.glPopClientAttrib();
         gl.glPopAttrib();
         
      } // render
     
     
+    // draws packed x,y,z vertices as one line strip
+    private void drawLineStrip(GL gl, FloatBuffer vertices)
+    {
+        int count = vertices.limit()/3;
+        if(count < 2)
+        {
+            return;
+        }
+        gl.glEnableClientState(GL.GL_VERTEX_ARRAY);
+        gl.glVertexPointer(3, GL.GL_FLOAT, 0, vertices);
+        gl.glDrawArrays(GL.GL_LINE_STRIP, 0, count);
+        gl.glDisableClientState(GL.GL_VERTEX_ARRAY);
+    } // drawLineStrip
+    
     private AnnotationAttributes createFontAttribs(Color textColor)
     {
         AnnotationAttributes geoAttr = new AnnotationAttributes();
@@ -38,9 +38,11 @@ import gov.nasa.worldwind.util.Logging;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Point;
+import java.nio.FloatBuffer;
 import java.util.Hashtable;
 import javax.media.opengl.GL;
 import jsattrak.objects.AbstractSatellite;
+import jsattrak.objects.GroundTrackGeometry;
 import name.gano.astro.MathUtils;
 import name.gano.worldwind.geom.Cone;
 import name.gano.worldwind.geom.SphereObject;
@@ -101,6 +103,7 @@ public class OrbitModelRenderable implements Renderable
         
 //        gl.glEnable(GL.GL_TEXTURE_2D); // removed - sun shading disabeled below
         gl.glPushAttrib(javax.media.opengl.GL.GL_TEXTURE_BIT | javax.media.opengl.GL.GL_ENABLE_BIT | javax.media.opengl.GL.GL_CURRENT_BIT);
+        gl.glPushClientAttrib(GL.GL_CLIENT_VERTEX_ARRAY_BIT);
         gl.glMatrixMode(javax.media.opengl.GL.GL_MODELVIEW);
 
         // Added so that the colors wouldn't depend on sun shading
@@ -113,35 +116,16 @@ public class OrbitModelRenderable implements Renderable
             Color satColor = sat.getSatColor();
             gl.glColor3f( satColor.getRed()/255.0f , satColor.getGreen()/255.0f , satColor.getBlue()/255.0f ); // COLOR
             
-            Double nanDbl = new Double(Double.NaN);
-            
             if (sat.isShow3DOrbitTrace() && sat.isShow3DOrbitTraceECI())
             {
+                // cached vertices shared by all windows (rebuilt only when the ground track changes)
+                GroundTrackGeometry gt = sat.getGroundTrackGeometry();
+                
                 // plot lag orbit
-                gl.glBegin(GL.GL_LINE_STRIP); //GL_LINE_STRIP
-                for (int i = 0; i < sat.getNumGroundTrackLagPts(); i++)
-                {
-                    // add next Mean of Date vertex
-                    double[] xyz = sat.getGroundTrackXyzLagPt(i);
-                    if(!nanDbl.equals(xyz[0])) // NaN check
-                    {
-                        gl.glVertex3f((float)-xyz[0], (float)xyz[2], (float)xyz[1]);
-                    }
-                }
-                gl.glEnd();
+                drawLineStrip(gl, gt.getLagEciVertices());
 
                 // plot lead orbit
-                gl.glBegin(GL.GL_LINE_STRIP); //GL_LINE_STRIP
-                for (int i = 0; i < sat.getNumGroundTrackLeadPts(); i++)
-                {
-                    // add next Mean of Date vertex
-                    double[] xyz = sat.getGroundTrackXyzLeadPt(i);
-                    if(!nanDbl.equals(xyz[0])) // NaN check
-                    {
-                        gl.glVertex3f((float)-xyz[0], (float)xyz[2], (float)xyz[1]);
-                    }
-                }
-                gl.glEnd();
+                drawLineStrip(gl, gt.getLeadEciVertices());
             } // show orbit trace
             
             // plot position 
@@ -207,10 +191,25 @@ public class OrbitModelRenderable implements Renderable
         } // for each sat
 
         
+        gl.glPopClientAttrib();
         gl.glPopAttrib();
         
      } // render
     
+    // draws packed x,y,z vertices as one line strip
+    private void drawLineStrip(GL gl, FloatBuffer vertices)
+    {
+        int count = vertices.limit()/3;
+        if(count < 2)
+        {
+            return;
+        }
+        gl.glEnableClientState(GL.GL_VERTEX_ARRAY);
+        gl.glVertexPointer(3, GL.GL_FLOAT, 0, vertices);
+        gl.glDrawArrays(GL.GL_LINE_STRIP, 0, count);
+        gl.glDisableClientState(GL.GL_VERTEX_ARRAY);
+    } // drawLineStrip
+    
     private AnnotationAttributes createFontAttribs(Color textColor)
     {
         AnnotationAttributes geoAttr = new AnnotationAttributes();
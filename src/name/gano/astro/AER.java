@@ -36,73 +36,86 @@ public class AER
      */
     public static double[] calculate_AER(double[] lla_deg_m_GS, double[] eci_pos, double time)
     {
-        double[][] eci_pos_array = new double[][] { {eci_pos[0],eci_pos[1],eci_pos[2]} };
-        double[] times = new double[] {time};
-        
-        double[][] aer = calculate_AER(lla_deg_m_GS, eci_pos_array, times);
-        
-        return  aer[0];
+        return calculate_AER(lla_deg_m_GS, eci_pos, time, new double[3]);
     }
-    
+
     /**
-     * Calculates the Azumuth, Elevation, and Range from Ground Station to set of positions
+     * Overloaded function - Calculates the Azumuth, Elevation, and Range from Ground Station to one position
+     * without allocating
      * @param lla_deg_m_GS Lat/Lon/Alt in degrees and meters of Ground Station
-     * @param eci_pos ECI positions [i][3] for different times  - Mean of Date Position!! (since SGP4 is MOD)
-     * @param times times associated with eci_pos (Julian Date)
-     * @return Azumuth [deg], Elevation [deg], and Range vector [m], [i][3]
+     * @param eci_pos ECI position [3] - Mean of Date Position!! (since SGP4 is MOD)
+     * @param time time associated with eci_pos (Julian Date)
+     * @param aer array of length 3 to store Azumuth [deg], Elevation [deg], and Range [m] in
+     * @return aer
      */
-    public static double[][] calculate_AER(double[] lla_deg_m_GS, double[][] eci_pos, double[] times)
+    public static double[] calculate_AER(double[] lla_deg_m_GS, double[] eci_pos, double time, double[] aer)
     {
-        double[][] aer = new double[times.length][3];
-        
-        // for each element
-        for(int i=0; i<times.length; i++)
-        {
-        
-            // 0th step get local mean Sidereal time
-            // first get mean sidereal time for this station
-            double thetaDeg = Sidereal.Mean_Sidereal_Deg(times[i] - AstroConst.JDminusMJD, lla_deg_m_GS[1]);
-
-            // first calculate ECI position of Station
-            double[] eciGS = calculateECIpositionGivenSidereal(thetaDeg,lla_deg_m_GS);
+        // 0th step get local mean Sidereal time
+        // first get mean sidereal time for this station
+        double thetaDeg = Sidereal.Mean_Sidereal_Deg(time - AstroConst.JDminusMJD, lla_deg_m_GS[1]);
 
-            // find the vector between pos and GS
-            double[] rECI = MathUtils.sub(eci_pos[i], eciGS);
+        // first calculate ECI position of Station (aer is used as temp storage)
+        double[] eciGS = calculateECIpositionGivenSidereal(thetaDeg, lla_deg_m_GS, aer);
 
-            // calculate range
-            aer[i][2] = MathUtils.norm(rECI);
+        // find the vector between pos and GS
+        double rx = eci_pos[0] - eciGS[0];
+        double ry = eci_pos[1] - eciGS[1];
+        double rz = eci_pos[2] - eciGS[2];
 
-            // now transform ECI to topocentric-horizon system (SEZ)  (use Geodetic Lat, not geocentric)
-            double[] rSEZ = eci2sez(rECI, thetaDeg, lla_deg_m_GS[0]); // ECI vec, sidereal in Deg, latitude in deg
+        // calculate range
+        double range = Math.sqrt(rx*rx + ry*ry + rz*rz);
 
-            // compute azimuth [radians] -> Deg
-            //aer[0] = Math.atan(-rSEZ[1]/rSEZ[0]) * 180.0/Math.PI;
-            aer[i][0] = Math.atan2(-rSEZ[0], rSEZ[1]) * 180.0 / Math.PI;
+        // now transform ECI to topocentric-horizon system (SEZ)  (use Geodetic Lat, not geocentric)
+        double sinLat = Math.sin(lla_deg_m_GS[0]*Math.PI/180.0);
+        double cosLat = Math.cos(lla_deg_m_GS[0]*Math.PI/180.0);
+        double sinTheta = Math.sin(thetaDeg*Math.PI/180.0);
+        double cosTheta = Math.cos(thetaDeg*Math.PI/180.0);
+        double rS = sinLat * cosTheta * rx + sinLat * sinTheta * ry - cosLat * rz;
+        double rE = -sinTheta * rx + cosTheta * ry;
+        double rZ = cosLat * cosTheta * rx + cosLat * sinTheta * ry + sinLat * rz;
 
-            //System.out.println("aer[0]_0=" + aer[0] + ", rSEZ[-0,1]=" + (-rSEZ[0]) + ", " +rSEZ[1] );
+        // compute azimuth [radians] -> Deg
+        double az = Math.atan2(-rS, rE) * 180.0 / Math.PI;
 
-            // do conversions so N=0, S=180, NW=270
-            if (aer[i][0] <= 0)
+        // do conversions so N=0, S=180, NW=270
+        if (az <= 0)
+        {
+            az = Math.abs(az) + 90;
+        }
+        else
+        {
+            if (az <= 90)  //(between 0 and 90)
             {
-                aer[i][0] = Math.abs(aer[i][0]) + 90;
+                az = -1.0 * az + 90.0;
             }
-            else
+            else // between 90 and 180
             {
-                if (aer[i][0] <= 90)  //(between 0 and 90)
-                {
-                    aer[i][0] = -1.0 * aer[i][0] + 90.0;
-                }
-                else // between 90 and 180
-                {
-                    aer[i][0] = -1.0 * aer[i][0] + 450.0;
-                }
+                az = -1.0 * az + 450.0;
             }
+        }
 
-            // compute elevation [radians]
-            aer[i][1] = Math.asin(rSEZ[2] / aer[i][2]) * 180.0 / Math.PI;
-
-        //System.out.println("SEZ: " + rSEZ[0] + ", " + rSEZ[1] + ", " + rSEZ[2]);
+        aer[0] = az;
+        aer[1] = Math.asin(rZ / range) * 180.0 / Math.PI; // compute elevation [radians]
+        aer[2] = range;
 
+        return aer;
+    } // calculate_AER
+    
+    /**
+     * Calculates the Azumuth, Elevation, and Range from Ground Station to set of positions
+     * @param lla_deg_m_GS Lat/Lon/Alt in degrees and meters of Ground Station
+     * @param eci_pos ECI positions [i][3] for different times  - Mean of Date Position!! (since SGP4 is MOD)
+     * @param times times associated with eci_pos (Julian Date)
+     * @return Azumuth [deg], Elevation [deg], and Range vector [m], [i][3]
+     */
+    public static double[][] calculate_AER(double[] lla_deg_m_GS, double[][] eci_pos, double[] times)
+    {
+        double[][] aer = new double[times.length][3];
+        
+        // for each element
+        for(int i=0; i<times.length; i++)
+        {
+            calculate_AER(lla_deg_m_GS, eci_pos[i], times[i], aer[i]);
         } // for each position
         return aer;
     } // calculate_AER
@@ -110,13 +123,12 @@ public class AER
     
      // ECI position in meters of a position (tpyically ground site) - Uses Earth Flattening; WGS-84
     // theta is pass in as Degrees!! (it is the local mean sidereal time)
-    private static double[] calculateECIpositionGivenSidereal(double theta, double[] lla_deg_m)
+    private static double[] calculateECIpositionGivenSidereal(double theta, double[] lla_deg_m, double[] eciVec)
     {
         // calc local mean sidereal time
         //double theta = Sidereal.Mean_Sidereal_Deg(currentJulianDate-AstroConst.JDminusMJD, lla_deg_m[1]);
         
         // calculate the ECI j2k position vector of the ground station at the current time
-        double [] eciVec = new double[3];
         
 //        // calculate geocentric latitude - using non spherical earth (in radians)
 //        // http://celestrak.com/columns/v02n03/
@@ -154,22 +166,9 @@ public class AER
         // first get mean sidereal time for this station
         double theta = Sidereal.Mean_Sidereal_Deg(currentJulianDate-AstroConst.JDminusMJD, lla_deg_m[1]);
                      
-        return calculateECIpositionGivenSidereal(theta,lla_deg_m);
+        return calculateECIpositionGivenSidereal(theta,lla_deg_m,new double[3]);
         
     } //calculateECIposition
     
-    // transform ECI to topocentric-horizon system (SEZ) (south-East-Zenith)
-    private static double[] eci2sez(double[] rECI,double thetaDeg,double latDeg)
-    {
-        double[] rSEZ = new double[3]; // new postion in SEZ coorinates
-        
-        //? (the local sidereal time) -> (thetaDeg*Math.PI)
-        //? (the observer's latitude) - > (latDeg*Math.PI)
-        rSEZ[0] = Math.sin(latDeg*Math.PI/180.0) * Math.cos(thetaDeg*Math.PI/180.0) * rECI[0] + Math.sin(latDeg*Math.PI/180.0) * Math.sin(thetaDeg*Math.PI/180.0) * rECI[1] - Math.cos(latDeg*Math.PI/180.0) * rECI[2];
-        rSEZ[1] = -Math.sin(thetaDeg*Math.PI/180.0) * rECI[0] + Math.cos(thetaDeg*Math.PI/180.0) * rECI[1];
-        rSEZ[2] = Math.cos(latDeg*Math.PI/180.0) * Math.cos(thetaDeg*Math.PI/180.0) * rECI[0] + Math.cos(latDeg*Math.PI/180.0) * Math.sin(thetaDeg*Math.PI/180.0) * rECI[1] + Math.sin(latDeg*Math.PI/180.0) * rECI[2];
-        
-        return rSEZ;
-    }
     
 }
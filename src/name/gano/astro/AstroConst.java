@@ -77,6 +77,10 @@ public class AstroConst
      * Astronomical unit [m]; IAU 1976
      */
     public final static double AU = 149597870000.0;      // Astronomical unit [m]; IAU 1976
+    /**
+     * Radius Sun [m]; IAU 1976
+     */
+    public final static double R_Sun = 696000.0E3;       // Radius Sun [m]; IAU 1976
     /**
      * Speed of light  [m/s]; IAU 1976
      */
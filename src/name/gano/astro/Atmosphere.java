@@ -88,6 +88,51 @@ public class Atmosphere
         return MathUtils.mult(T_trp, a_tod);
 
     } // accellDrag
+
+    /**
+     * Computes the acceleration due to the atmospheric drag, same as
+     * AccelDrag(Mjd_TT, r, v, T, Area, mass, CD) but the result is stored in acc
+     * 
+     * @param Mjd_TT Terrestrial Time (Modified Julian Date)
+     * @param r Satellite position vector in the inertial system [m]
+     * @param v Satellite velocity vector in the inertial system [m/s]
+     * @param T Transformation matrix to true-of-date inertial system
+     * @param Area Cross-section [m^2]
+     * @param mass Spacecraft mass [kg]
+     * @param CD Drag coefficient
+     * @param acc array of length 3 to store the acceleration in (different from r and v)
+     * @return acc - Acceleration (a=d^2r/dt^2) [m/s^2]
+     */
+    public static double[] AccelDrag(double Mjd_TT, final double[] r, final double[] v,
+            final double[][] T, double Area, double mass, double CD, double[] acc)
+    {
+        // Earth angular velocity [rad/s] (about z)
+        final double omega = 7.29212e-5;
+
+        // Position and velocity in true-of-date system (acc holds r_tod until the end)
+        double[] r_tod = MathUtils.mult(T, r, acc);
+        double v_tod0 = T[0][0]*v[0] + T[0][1]*v[1] + T[0][2]*v[2];
+        double v_tod1 = T[1][0]*v[0] + T[1][1]*v[1] + T[1][2]*v[2];
+        double v_tod2 = T[2][0]*v[0] + T[2][1]*v[1] + T[2][2]*v[2];
+
+        // Velocity relative to the Earth's atmosphere
+        double v_rel0 = v_tod0 - (0.0*r_tod[2] - omega*r_tod[1]);
+        double v_rel1 = v_tod1 - (omega*r_tod[0] - 0.0*r_tod[2]);
+        double v_rel2 = v_tod2 - (0.0*r_tod[1] - 0.0*r_tod[0]);
+        double v_abs = Math.sqrt(v_rel0*v_rel0 + v_rel1*v_rel1 + v_rel2*v_rel2);
+
+        // Atmospheric density due to modified Harris-Priester model
+        double dens = Density_HP(Mjd_TT, r_tod);
+
+        // Acceleration, back to the ICRF/EME2000 system
+        double f = -0.5 * CD * (Area / mass) * dens * v_abs;
+        acc[0] = v_rel0*f;
+        acc[1] = v_rel1*f;
+        acc[2] = v_rel2*f;
+
+        return MathUtils.multTranspose(T, acc, acc);
+
+    } // accellDrag
     
 
     /**
@@ -24,6 +24,34 @@ package name.gano.astro;
  */
 public class GeoFunctions
 {
+    /** GeodeticLLA solver: iterate on the height of the ellipsoid intersection (original method) */
+    public static final int GEODETIC_ITERATIVE = 0;
+    /** GeodeticLLA solver: non-iterative closed form solution (Vermeille 2002), the default. From 50 km to
+     *  400 000 km altitude it agrees with the iterative method within 1e-12 rad in latitude and 1e-5 m in altitude
+     *  (largest differences seen 2.1e-13 rad and 1.4e-6 m, the convergence tolerance of the iteration), longitude
+     *  is identical - checked by TestGeodeticLLA */
+    public static final int GEODETIC_CLOSED_FORM = 1;
+
+    // solver used by all GeodeticLLA calls
+    private static volatile int geodeticMode = GEODETIC_CLOSED_FORM;
+
+    /**
+     * Sets the geodetic solver used by GeodeticLLA (GEODETIC_CLOSED_FORM by default, it replaced the
+     * iterative solver as the default, see GEODETIC_CLOSED_FORM for how far their results differ)
+     * @param mode GEODETIC_ITERATIVE or GEODETIC_CLOSED_FORM
+     */
+    public static void setGeodeticMode(int mode)
+    {
+        geodeticMode = mode;
+    }
+
+    /**
+     * @return the geodetic solver used by GeodeticLLA (GEODETIC_ITERATIVE or GEODETIC_CLOSED_FORM)
+     */
+    public static int getGeodeticMode()
+    {
+        return geodeticMode;
+    }
     
     // same as below except the function takes Julian Date
     /**
@@ -41,7 +69,72 @@ public class GeoFunctions
         //double daysSinceY2k = (julDate - 2400000.5)-51544.5;
         double daysSinceY2k = mjd - 51544.5;
         
-        return calculateGeodeticLLA(modPos, daysSinceY2k);
+        return calculateGeodeticLLA(modPos, daysSinceY2k, new double[3]);
+    } // GeodeticLLA
+
+    /**
+     * Compute Geodetic Latatude/Longitude/Altitude from Mean of Date position vector and Date,
+     * same as GeodeticLLA(modPos, mjd) but the result is stored in LLA (no allocation)
+     *
+     * @param modPos Mean of date position vector
+     * @param mjd modified julian date
+     * @param LLA array of length 3 to store geodetic [latitude,longitude,altitude] in (may be modPos)
+     * @return LLA
+     */
+    public static double[] GeodeticLLA(double[] modPos, double mjd, double[] LLA)
+    {
+        return calculateGeodeticLLA(modPos, mjd - 51544.5, LLA);
+    } // GeodeticLLA
+
+    /**
+     * Compute Geodetic Latatude/Longitude/Altitude for many points at once (e.g. a ground track)
+     *
+     * @param xyz Mean of date positions packed as [x0,y0,z0,x1,y1,z1,...]
+     * @param mjd modified julian date of each position
+     * @param outLla packed geodetic [lat0,lon0,alt0,lat1,...] (may be xyz), NaN positions give NaN
+     */
+    public static void GeodeticLLA(double[] xyz, double[] mjd, double[] outLla)
+    {
+        GeodeticLLA(xyz, mjd, mjd.length, outLla);
+    } // GeodeticLLA
+
+    /**
+     * Compute Geodetic Latatude/Longitude/Altitude for the first count points of packed arrays
+     *
+     * @param xyz Mean of date positions packed as [x0,y0,z0,x1,y1,z1,...]
+     * @param mjd modified julian date of each position
+     * @param count number of points
+     * @param outLla packed geodetic [lat0,lon0,alt0,lat1,...] (may be xyz)
+     */
+    public static void GeodeticLLA(double[] xyz, double[] mjd, int count, double[] outLla)
+    {
+        boolean closedForm = (geodeticMode == GEODETIC_CLOSED_FORM);
+        for(int i = 0; i < count; i++)
+        {
+            int k = 3*i;
+            double d = mjd[i] - 51544.5;
+            double r2 = xyz[k]*xyz[k] + xyz[k+1]*xyz[k+1] + xyz[k+2]*xyz[k+2];
+            if(r2 == 0.0)
+            {
+                System.out.println(" invalid input in Geodetic constructor");
+                outLla[k] = 0.0;
+                outLla[k+1] = 0.0;
+                outLla[k+2] = -AstroConst.R_Earth;
+                continue;
+            }
+            else if(Double.isNaN(r2) || Double.isInfinite(r2)) // missing point (e.g. outside of an ephemeris or a failed propagation)
+            {
+                outLla[k] = Double.NaN;
+                outLla[k+1] = Double.NaN;
+                outLla[k+2] = Double.NaN;
+                continue;
+            }
+            if(!closedForm || !closedFormLLA(xyz[k], xyz[k+1], xyz[k+2], outLla, k))
+            {
+                iterativeLLA(xyz[k], xyz[k+1], xyz[k+2], outLla, k);
+            }
+            outLla[k+1] = earthFixedLongitude(outLla[k+1], d);
+        }
     } // GeodeticLLA
     
     
@@ -49,31 +142,14 @@ public class GeoFunctions
     // LLA = corrected for time (geographical coordinates)
     // for handling geodetic coordinates
     // r = TEME positions, d = days since Y2K
-    private static double[] calculateGeodeticLLA(double[] r, double d)
+    private static double[] calculateGeodeticLLA(double[] r, double d, double[] LLA)
     {
-        double R_equ= AstroConst.R_Earth; // Equator radius [m]
-        double f    = AstroConst.f_Earth; // Flattening
-        
-        double eps_mach = 2.22E-16; // machine precision (double?)
-        
-        final double  eps     = 1.0e3*eps_mach;   // Convergence criterion
-        final double  epsRequ = eps*R_equ;
-        final double  e2      = f*(2.0-f);        // Square of eccentricity
-        
         final double  X = r[0];                   // Cartesian coordinates
         final double  Y = r[1];
         final double  Z = r[2];
-        final double  rho2 = X*X + Y*Y;           // Square of distance from z-axis
-        
-        // original class vars
-        // double lon;
-        // double lat;
-        //double h;
-        double[] LLA = new double[3];
-        
         
         // Check validity of input data
-        if (MathUtils.norm(r)==0.0)
+        if (X*X + Y*Y + Z*Z==0.0)
         {
             System.out.println(" invalid input in Geodetic constructor");
             LLA[1]=0.0;
@@ -81,6 +157,40 @@ public class GeoFunctions
             LLA[2]=-AstroConst.R_Earth;
             return LLA;
         }
+        else if(Double.isNaN(X*X + Y*Y + Z*Z) || Double.isInfinite(X*X + Y*Y + Z*Z))
+        {
+            // failed propagation, the iteration would never converge
+            LLA[0]=Double.NaN;
+            LLA[1]=Double.NaN;
+            LLA[2]=Double.NaN;
+            return LLA;
+        }
+        
+        if(geodeticMode != GEODETIC_CLOSED_FORM || !closedFormLLA(X, Y, Z, LLA, 0))
+        {
+            iterativeLLA(X, Y, Z, LLA, 0);
+        }
+        
+        // shift based on time
+        LLA[1] = earthFixedLongitude(LLA[1], d);
+        
+        return LLA; //h
+        
+    } // calculateGeodeticLLA
+
+    // iterative solution, stores [lat, long (inertial), alt] in LLA starting at offset
+    private static void iterativeLLA(double X, double Y, double Z, double[] LLA, int offset)
+    {
+        double R_equ= AstroConst.R_Earth; // Equator radius [m]
+        double f    = AstroConst.f_Earth; // Flattening
+        
+        double eps_mach = 2.22E-16; // machine precision (double?)
+        
+        final double  eps     = 1.0e3*eps_mach;   // Convergence criterion
+        final double  epsRequ = eps*R_equ;
+        final double  e2      = f*(2.0-f);        // Square of eccentricity
+        
+        final double  rho2 = X*X + Y*Y;           // Square of distance from z-axis
         
         // Iteration
         double  dZ, dZ_new, SinPhi;
@@ -99,27 +209,61 @@ public class GeoFunctions
         }
         
         // Longitude, latitude, altitude
-        //double[] LLA = new double[3];
-        LLA[1] = Math.atan2( Y, X );  // longitude,  lon
-        LLA[0] = Math.atan2( ZdZ, Math.sqrt(rho2) ); // latitude, lat
-        LLA[2] = Nh - N; // altitute, h
+        LLA[offset+1] = Math.atan2( Y, X );  // longitude,  lon
+        LLA[offset]   = Math.atan2( ZdZ, Math.sqrt(rho2) ); // latitude, lat
+        LLA[offset+2] = Nh - N; // altitute, h
+    } // iterativeLLA
+
+    // closed form solution from: H. Vermeille, "Direct transformation from geocentric coordinates
+    // to geodetic coordinates", Journal of Geodesy (2002) 76:451-454
+    // stores [lat, long (inertial), alt] in LLA starting at offset, returns false (nothing stored)
+    // for points deep inside the Earth (near the evolute of the ellipsoid) where the method does not apply
+    private static boolean closedFormLLA(double X, double Y, double Z, double[] LLA, int offset)
+    {
+        final double a  = AstroConst.R_Earth;     // Equator radius [m]
+        final double f  = AstroConst.f_Earth;     // Flattening
+        final double e2 = f*(2.0-f);              // Square of eccentricity
+        final double e4 = e2*e2;
         
-        //System.out.println("LLA[1]: "+ LLA[1]);
-        //LLA[1] = LLA[1] -(280.4606 +360.9856473*d)*Math.PI/180.0; // shift based on time
-        // add fidelity to the line above
-        LLA[1] = LLA[1] - earthRotationDeg(d)*Math.PI/180.0; // shift based on time
-        double div = Math.floor(LLA[1]/(2*Math.PI));
-        LLA[1] = LLA[1] - div*2*Math.PI;
-        if(LLA[1] > Math.PI)
+        final double rho2 = X*X + Y*Y;
+        final double p = rho2/(a*a);
+        final double q = (1.0-e2)/(a*a)*Z*Z;
+        final double r = (p+q-e4)/6.0;
+        
+        if(r <= 0.0)
         {
-            LLA[1] = LLA[1]- 2.0*Math.PI;
+            return false; // within about 200 km of the center of the Earth
         }
         
-        //System.out.println("LLA[1]a: "+ LLA[1]);
-        
-        return LLA; //h
-        
-    } // calculateGeodeticLLA
+        final double s = e4*p*q/(4.0*r*r*r);
+        final double t = Math.cbrt(1.0 + s + Math.sqrt(s*(2.0+s)));
+        final double u = r*(1.0 + t + 1.0/t);
+        final double v = Math.sqrt(u*u + e4*q);
+        final double w = e2*(u + v - q)/(2.0*v);
+        final double k = Math.sqrt(u + v + w*w) - w;
+        final double D = k*Math.sqrt(rho2)/(k + e2);
+        final double DZ = Math.sqrt(D*D + Z*Z);
+        
+        LLA[offset+1] = Math.atan2( Y, X );                // longitude
+        LLA[offset]   = 2.0*Math.atan2( Z, D + DZ );       // latitude
+        LLA[offset+2] = (k + e2 - 1.0)/k*DZ;               // altitude
+        return true;
+    } // closedFormLLA
+
+    // shifts an inertial longitude [rad] to earth fixed [-pi,pi] given days since Y2K
+    private static double earthFixedLongitude(double lon, double d)
+    {
+        //lon = lon -(280.4606 +360.9856473*d)*Math.PI/180.0; // shift based on time
+        // add fidelity to the line above
+        lon = lon - earthRotationDeg(d)*Math.PI/180.0; // shift based on time
+        double div = Math.floor(lon/(2*Math.PI));
+        lon = lon - div*2*Math.PI;
+        if(lon > Math.PI)
+        {
+            lon = lon- 2.0*Math.PI;
+        }
+        return lon;
+    } // earthFixedLongitude
 
     // SEG 10 June 2009 - help standardize earth Rotations
     private static double earthRotationDeg(double d) // days since y2K
@@ -250,51 +394,69 @@ public class GeoFunctions
      */
     public static double[] calculate_AER(double currentJulianDate,double[] lla_deg_m, double[] eci_pos)
     {
-        double[] aer = new double[3];
-        
+        return calculate_AER(currentJulianDate, lla_deg_m, eci_pos, new double[3]);
+    } // calculate_AER
+
+     /**
+     * calculate the pointing information Azumuth, Elevation, and Range (AER) to 
+     * a satellite from a location on Earth (given Lat, Long, Alt), same as
+     * calculate_AER(currentJulianDate, lla_deg_m, eci_pos) but the result is stored in aer (no allocation)
+      * @param currentJulianDate Julian Date for AER calculation (corresponds to ECI position)
+      * @param lla_deg_m lat long and alt of station in deg/deg/meters (Geodetic)
+      * @param eci_pos ECI position of object in meters (sat)
+      * @param aer array of length 3 to store Azumuth [deg], Elevation [deg], and Range [m] in
+     * @return aer
+     */
+    public static double[] calculate_AER(double currentJulianDate,double[] lla_deg_m, double[] eci_pos, double[] aer)
+    {
         // 0th step get local mean Sidereal time
         // first get mean sidereal time for this station - since we use it twice
         double thetaDeg = Sidereal.Mean_Sidereal_Deg(currentJulianDate-AstroConst.JDminusMJD, lla_deg_m[1]);
         
-        // first calculate ECI position of Station
-        double[] eciGS = calculateECIposition(lla_deg_m,thetaDeg);
+        // first calculate ECI position of Station (aer used as temp storage)
+        double[] eciGS = calculateECIposition(lla_deg_m,thetaDeg,aer);
         
         // find the vector between pos and GS
-        double[] rECI = MathUtils.sub(eci_pos, eciGS);
+        double rx = eci_pos[0] - eciGS[0];
+        double ry = eci_pos[1] - eciGS[1];
+        double rz = eci_pos[2] - eciGS[2];
         
         // calculate range
-        aer[2] = MathUtils.norm(rECI);
+        double range = Math.sqrt(rx*rx + ry*ry + rz*rz);
         
         // now transform ECI to topocentric-horizon system (SEZ)  (use Geodetic Lat, not geocentric)
-        double[] rSEZ = eci2sez(rECI,thetaDeg,lla_deg_m[0]); // ECI vec, sidereal in Deg, latitude in deg
+        // ECI vec, sidereal in Deg, latitude in deg
+        double sinLat = Math.sin(lla_deg_m[0]*Math.PI/180.0);
+        double cosLat = Math.cos(lla_deg_m[0]*Math.PI/180.0);
+        double sinTheta = Math.sin(thetaDeg*Math.PI/180.0);
+        double cosTheta = Math.cos(thetaDeg*Math.PI/180.0);
+        double rS = sinLat * cosTheta * rx + sinLat * sinTheta * ry - cosLat * rz;
+        double rE = -sinTheta * rx + cosTheta * ry;
+        double rZ = cosLat * cosTheta * rx + cosLat * sinTheta * ry + sinLat * rz;
         
         // compute azimuth [radians] -> Deg
-        //aer[0] = Math.atan(-rSEZ[1]/rSEZ[0]) * 180.0/Math.PI;
-        aer[0] = Math.atan2(-rSEZ[0], rSEZ[1]) * 180.0/Math.PI;
-        
-        //System.out.println("aer[0]_0=" + aer[0] + ", rSEZ[-0,1]=" + (-rSEZ[0]) + ", " +rSEZ[1] );
+        double az = Math.atan2(-rS, rE) * 180.0/Math.PI;
         
         // do conversions so N=0, S=180, NW=270
-        if(aer[0] <= 0)
+        if(az <= 0)
         {
-            aer[0] = Math.abs(aer[0]) + 90;
+            az = Math.abs(az) + 90;
         }
         else
         {
-            if(aer[0]<= 90)  //(between 0 and 90)
+            if(az<= 90)  //(between 0 and 90)
             {
-                aer[0] = -1.0*aer[0] + 90.0;
+                az = -1.0*az + 90.0;
             }
             else // between 90 and 180
             {
-                aer[0] = -1.0*aer[0] + 450.0; 
+                az = -1.0*az + 450.0; 
             }
         }
         
-        // compute elevation [radians]
-        aer[1] = Math.asin(rSEZ[2] / aer[2]) * 180.0/Math.PI; 
-        
-        //System.out.println("SEZ: " + rSEZ[0] + ", " + rSEZ[1] + ", " + rSEZ[2]);
+        aer[0] = az;
+        aer[1] = Math.asin(rZ / range) * 180.0/Math.PI; // compute elevation [radians]
+        aer[2] = range;
         
         return aer;
     } // calculate_AER
@@ -308,13 +470,32 @@ public class GeoFunctions
      */
     public static double[] eci2sez(double[] rECI,double thetaDeg,double latDeg)
     {
-        double[] rSEZ = new double[3]; // new postion in SEZ coorinates
-        
+        return eci2sez(rECI, thetaDeg, latDeg, new double[3]);
+    }
+
+    /**
+     * transform ECI to topocentric-horizon system (SEZ) (south-East-Zenith) without allocating
+     * @param rECI position in ECI coordinates (meters)
+     * @param thetaDeg local sidereal time (degrees)
+     * @param latDeg observer's latitude (degrees)
+     * @param rSEZ array of length 3 to store the SEZ position in (may be rECI)
+     * @return rSEZ
+     */
+    public static double[] eci2sez(double[] rECI,double thetaDeg,double latDeg, double[] rSEZ)
+    {
         //? (the local sidereal time) -> (thetaDeg*Math.PI)
         //? (the observer's latitude) - > (latDeg*Math.PI)
-        rSEZ[0] = Math.sin(latDeg*Math.PI/180.0) * Math.cos(thetaDeg*Math.PI/180.0) * rECI[0] + Math.sin(latDeg*Math.PI/180.0) * Math.sin(thetaDeg*Math.PI/180.0) * rECI[1] - Math.cos(latDeg*Math.PI/180.0) * rECI[2];
-        rSEZ[1] = -Math.sin(thetaDeg*Math.PI/180.0) * rECI[0] + Math.cos(thetaDeg*Math.PI/180.0) * rECI[1];
-        rSEZ[2] = Math.cos(latDeg*Math.PI/180.0) * Math.cos(thetaDeg*Math.PI/180.0) * rECI[0] + Math.cos(latDeg*Math.PI/180.0) * Math.sin(thetaDeg*Math.PI/180.0) * rECI[1] + Math.sin(latDeg*Math.PI/180.0) * rECI[2];
+        double sinLat = Math.sin(latDeg*Math.PI/180.0);
+        double cosLat = Math.cos(latDeg*Math.PI/180.0);
+        double sinTheta = Math.sin(thetaDeg*Math.PI/180.0);
+        double cosTheta = Math.cos(thetaDeg*Math.PI/180.0);
+        double x = rECI[0];
+        double y = rECI[1];
+        double z = rECI[2];
+
+        rSEZ[0] = sinLat * cosTheta * x + sinLat * sinTheta * y - cosLat * z;
+        rSEZ[1] = -sinTheta * x + cosTheta * y;
+        rSEZ[2] = cosLat * cosTheta * x + cosLat * sinTheta * y + sinLat * z;
         
         return rSEZ;
     }
@@ -327,9 +508,20 @@ public class GeoFunctions
      * @return ECI position (meters)
      */
     public static double[] calculateECIposition(double[] lla_deg_m, double theta)
+    {
+        return calculateECIposition(lla_deg_m, theta, new double[3]);
+    }
+
+    /**
+     * Calculate ECI position from local mean sidereal time and geodetic lat long alt without allocating
+     * @param lla_deg_m lat long and alt of station in deg/deg/meters (Geodetic)
+     * @param theta local mean sidereal time (Degrees)
+     * @param eciVec array of length 3 to store the ECI position (meters) in
+     * @return eciVec
+     */
+    public static double[] calculateECIposition(double[] lla_deg_m, double theta, double[] eciVec)
     {
         // calculate the ECI j2k position vector of the ground station at the current time
-        double [] eciVec = new double[3];
         
 //        // calculate geocentric latitude - using non spherical earth (in radians)
 //        // http://celestrak.com/columns/v02n03/
@@ -41,6 +41,31 @@ public class GravityField
      * @return Acceleration (a=d^2r/dt^2)
      */
     public static double[] AccelHarmonic(final double[] r, final double[][] E, double GM, double R_ref, final double[][] CS, int n_max, int m_max )
+	{
+	  double[][] V = new double[n_max+2][n_max+2]; // Harmonic functions
+	  double[][] W = new double[n_max+2][n_max+2]; // work array (0..n_max+1,0..n_max+1)
+
+	  return AccelHarmonic(r, E, GM, R_ref, CS, n_max, m_max, V, W, new double[3]);
+	} // AccelHarmonic
+
+    /**
+     * Computes the acceleration due to the harmonic gravity field of the central body,
+     * same as AccelHarmonic(r, E, GM, R_ref, CS, n_max, m_max) but using the given work arrays
+     * so it can be called repeatedly (e.g. by an integrator) without allocating
+     * @param r Satellite position vector in the inertial system
+     * @param E Transformation matrix to body-fixed system
+     * @param GM Gravitational coefficient
+     * @param R_ref Reference radius (equatorial)
+     * @param CS Spherical harmonics coefficients (un-normalized)
+     * @param n_max Maximum degree 
+     * @param m_max Maximum order (m_max<=n_max; m_max=0 for zonals, only)
+     * @param V work array at least [n_max+2][n_max+2]
+     * @param W work array at least [n_max+2][n_max+2]
+     * @param acc array of length 3 to store the acceleration in (may be r)
+     * @return acc - Acceleration (a=d^2r/dt^2)
+     */
+    public static double[] AccelHarmonic(final double[] r, final double[][] E, double GM, double R_ref, final double[][] CS, int n_max, int m_max,
+            double[][] V, double[][] W, double[] acc)
 	{
 	  // Local variables
 	  int      n,m;                           // Loop counters
@@ -48,22 +73,20 @@ public class GravityField
 	  double   x0,y0,z0;                      // Normalized coordinates
 	  double   ax,ay,az;                      // Acceleration vector 
 	  double   C,S;                           // Gravitational coefficients
-	  double[] r_bf = new double[3];          // Body-fixed position
-	  double[] a_bf = new double[3];          // Body-fixed acceleration
-	  
-	  double[][] V = new double[n_max+2][n_max+2]; // Harmonic functions
-	  double[][] W = new double[n_max+2][n_max+2]; // work array (0..n_max+1,0..n_max+1)
+	  double   r_bf0, r_bf1, r_bf2;           // Body-fixed position
 	       
 	  // Body-fixed position 
-	  r_bf = MathUtils.mult(E,r); 
+	  r_bf0 = E[0][0]*r[0] + E[0][1]*r[1] + E[0][2]*r[2];
+	  r_bf1 = E[1][0]*r[0] + E[1][1]*r[1] + E[1][2]*r[2];
+	  r_bf2 = E[2][0]*r[0] + E[2][1]*r[1] + E[2][2]*r[2];
 	  
 	  // Auxiliary quantities
-	  r_sqr =  MathUtils.dot(r_bf,r_bf);               // Square of distance
+	  r_sqr =  r_bf0*r_bf0 + r_bf1*r_bf1 + r_bf2*r_bf2; // Square of distance
 	  rho   =  R_ref*R_ref / r_sqr;
 	    
-	  x0 = R_ref * r_bf[0] / r_sqr;          // Normalized
-	  y0 = R_ref * r_bf[1] / r_sqr;          // coordinates
-	  z0 = R_ref * r_bf[2] / r_sqr;
+	  x0 = R_ref * r_bf0 / r_sqr;            // Normalized
+	  y0 = R_ref * r_bf1 / r_sqr;            // coordinates
+	  z0 = R_ref * r_bf2 / r_sqr;
 	  
 	  
 	  //
@@ -145,15 +168,15 @@ public class GravityField
 	  
 	  // Body-fixed acceleration
 	  double gmr2 = (GM/(R_ref*R_ref));
-	  a_bf[0] = ax*gmr2;
-	  a_bf[1] = ay*gmr2;
-	  a_bf[2] = az*gmr2;
+	  acc[0] = ax*gmr2;
+	  acc[1] = ay*gmr2;
+	  acc[2] = az*gmr2;
 	  
 	  
 	  
 	  // Inertial acceleration 
 	  
-	  return  MathUtils.mult(MathUtils.transpose(E),a_bf);
+	  return  MathUtils.multTranspose(E,acc,acc);
 	         
 	} // AccelHarmonic
     
@@ -179,5 +202,28 @@ public class GravityField
 	   return  MathUtils.scale( MathUtils.add(MathUtils.scale(d,1.0/Math.pow(MathUtils.norm(d),3)) , MathUtils.scale(s,1.0/Math.pow(MathUtils.norm(s),3))),(-GM) );
 
 	}
+
+    /**
+     * Computes the gravitational perturbational acceleration due to a point mass without allocating
+     * @param r Satellite position vector 
+     * @param s Point mass position vector
+     * @param GM Gravitational coefficient of point mass
+     * @param acc array of length 3 to store the acceleration in
+     * @return acc - Acceleration (a=d^2r/dt^2)
+     */
+    public static double[] AccelPointMass(final double[] r, final double[] s, double GM, double[] acc)
+	{
+	   //  Relative position vector of satellite w.r.t. point mass 
+	   MathUtils.sub(r, s, acc);
+
+	   // Acceleration 
+	   double fd = 1.0/Math.pow(MathUtils.norm(acc),3);
+	   double fs = 1.0/Math.pow(MathUtils.norm(s),3);
+	   for(int i=0; i<3; i++)
+	   {
+	       acc[i] = (acc[i]*fd + s[i]*fs)*(-GM);
+	   }
+	   return acc;
+	}
     
 }
@@ -54,6 +54,32 @@ public class MathUtils
 
 	} // mult 3x3 matrices
 
+    /**
+     * multiply two matrices 3x3 without allocating, out may be the same array as a or b
+     *
+     * @param a 3x3 matrix
+     * @param b 3x3 matrix
+     * @param out 3x3 matrix to store a x b in
+     * @return out
+     */
+	public static double[][] mult(double[][] a, double[][] b, double[][] out)
+	{
+		final double b00 = b[0][0], b01 = b[0][1], b02 = b[0][2];
+		final double b10 = b[1][0], b11 = b[1][1], b12 = b[1][2];
+		final double b20 = b[2][0], b21 = b[2][1], b22 = b[2][2];
+
+		for (int i = 0; i < 3; i++) // row (only reads row i of a so out can alias a)
+		{
+			final double ai0 = a[i][0], ai1 = a[i][1], ai2 = a[i][2];
+			out[i][0] = ai0*b00 + ai1*b10 + ai2*b20;
+			out[i][1] = ai0*b01 + ai1*b11 + ai2*b21;
+			out[i][2] = ai0*b02 + ai1*b12 + ai2*b22;
+		}
+
+		return out;
+
+	} // mult 3x3 matrices
+
     /**
      * multiply matrix nxn by vector nx1
      *
@@ -77,6 +103,40 @@ public class MathUtils
 		return c;
 
 	} // mult 3x3 matrices
+
+    /**
+     * multiply matrix 3x3 by vector 3x1 without allocating, out may be the same array as b
+     *
+     * @param a 3x3 matrix
+     * @param b 3x1 vector
+     * @param out 3x1 vector to store a x b in
+     * @return out
+     */
+	public static double[] mult(double[][] a, double[] b, double[] out)
+	{
+		final double b0 = b[0], b1 = b[1], b2 = b[2];
+		out[0] = a[0][0]*b0 + a[0][1]*b1 + a[0][2]*b2;
+		out[1] = a[1][0]*b0 + a[1][1]*b1 + a[1][2]*b2;
+		out[2] = a[2][0]*b0 + a[2][1]*b1 + a[2][2]*b2;
+		return out;
+	} // mult
+
+    /**
+     * multiply the transpose of a 3x3 matrix by a vector without allocating (a^T x b), out may be the same array as b
+     *
+     * @param a 3x3 matrix
+     * @param b 3x1 vector
+     * @param out 3x1 vector to store a^T x b in
+     * @return out
+     */
+	public static double[] multTranspose(double[][] a, double[] b, double[] out)
+	{
+		final double b0 = b[0], b1 = b[1], b2 = b[2];
+		out[0] = a[0][0]*b0 + a[1][0]*b1 + a[2][0]*b2;
+		out[1] = a[0][1]*b0 + a[1][1]*b1 + a[2][1]*b2;
+		out[2] = a[0][2]*b0 + a[1][2]*b1 + a[2][2]*b2;
+		return out;
+	} // multTranspose
 	
 	// dot product for 3D vectors
     /**
@@ -118,6 +178,28 @@ public class MathUtils
 		}
 		return c;
 	}
+
+    /**
+     * transpose of 3x3 matrix without allocating, out may be the same array as a
+     *
+     * @param a 3x3 matrix
+     * @param out 3x3 matrix to store a^T in
+     * @return out
+     */
+	public static double[][] transpose(double[][] a, double[][] out)
+	{
+		final double a01 = a[0][1], a02 = a[0][2], a12 = a[1][2];
+		out[0][0] = a[0][0];
+		out[1][1] = a[1][1];
+		out[2][2] = a[2][2];
+		out[0][1] = a[1][0];
+		out[0][2] = a[2][0];
+		out[1][2] = a[2][1];
+		out[1][0] = a01;
+		out[2][0] = a02;
+		out[2][1] = a12;
+		return out;
+	}
 	
 	
     /**
@@ -137,6 +219,23 @@ public class MathUtils
 		
 		return c;
 	}
+
+    /**
+     * vector subtraction without allocating, out may be the same array as a or b
+     *
+     * @param a vector of length 3
+     * @param b vector of length 3
+     * @param out vector of length 3 to store a-b in
+     * @return out
+     */
+	public static double[] sub(double[] a, double[] b, double[] out)
+	{
+		for(int i=0;i<3;i++)
+		{
+			out[i] = a[i] - b[i];
+		}
+		return out;
+	}
 	
     /**
      * vector addition
@@ -155,6 +254,40 @@ public class MathUtils
 		
 		return c;
 	}
+
+    /**
+     * vector addition without allocating, out may be the same array as a or b
+     *
+     * @param a vector of length 3
+     * @param b vector of length 3
+     * @param out vector of length 3 to store a+b in
+     * @return out
+     */
+	public static double[] add(double[] a, double[] b, double[] out)
+	{
+		for(int i=0;i<3;i++)
+		{
+			out[i] = a[i] + b[i];
+		}
+		return out;
+	}
+
+    /**
+     * adds a scaled vector to a vector in place (a = a + b*scale)
+     *
+     * @param a vector of length 3, updated
+     * @param b vector of length 3
+     * @param scale scalar
+     * @return a
+     */
+	public static double[] addScaled(double[] a, double[] b, double scale)
+	{
+		for(int i=0;i<3;i++)
+		{
+			a[i] += b[i]*scale;
+		}
+		return a;
+	}
 	
 //	vector 2-norm
     /**
@@ -194,6 +327,23 @@ public class MathUtils
 		
 		return c;
 	}
+
+    /**
+     * multiply a vector times a scalar without allocating, out may be the same array as a
+     *
+     * @param a a vector of length 3
+     * @param b scalar
+     * @param out vector of length 3 to store a * b in
+     * @return out
+     */
+	public static double[] scale(double[] a, double b, double[] out)
+	{
+		for(int i=0;i<3;i++)
+		{
+			out[i] = a[i]*b;
+		}
+		return out;
+	}
 	
 	// cross product or 2 3x1 vectors
     /**
@@ -218,6 +368,25 @@ public class MathUtils
 	  return Result;
 	} // cross
 
+    /**
+     * cross product or 2 3x1 vectors without allocating, out may be the same array as left or right
+     *
+     * @param left a vector of length 3
+     * @param right a vector of length 3
+     * @param out vector of length 3 to store left cross right in
+     * @return out
+     */
+	public static double[] cross (final double[] left, final double[] right, double[] out)
+	{
+	  final double x = left[1]*right[2] - left[2]*right[1];
+	  final double y = left[2]*right[0] - left[0]*right[2];
+	  final double z = left[0]*right[1] - left[1]*right[0];
+	  out[0] = x;
+	  out[1] = y;
+	  out[2] = z;
+	  return out;
+	} // cross
+
 
         //
 	// Fractional part of a number (y=x-[x])
@@ -274,10 +443,21 @@ public class MathUtils
      * @return Elementary rotation matrix about x axis
      */
 	public static double[][] R_x(double Angle)
+	{
+		return R_x(Angle, new double[3][3]);
+	}
+
+    /**
+     * Elementary rotation matrix about x axis without allocating
+     *
+     * @param Angle Angle in radians
+     * @param U 3x3 matrix to store the rotation in
+     * @return U
+     */
+	public static double[][] R_x(double Angle, double[][] U)
 	{
 		final double C = Math.cos(Angle);
 		final double S = Math.sin(Angle);
-		double[][] U = new double[3][3];
 		U[0][0] = 1.0;
 		U[0][1] = 0.0;
 		U[0][2] = 0.0;
@@ -298,10 +478,21 @@ public class MathUtils
      * @return Elementary rotation matrix about y axis
      */
 	public static double[][] R_y(double Angle)
+	{
+		return R_y(Angle, new double[3][3]);
+	}
+
+    /**
+     * Elementary rotation matrix about y axis without allocating
+     *
+     * @param Angle Angle in radians
+     * @param U 3x3 matrix to store the rotation in
+     * @return U
+     */
+	public static double[][] R_y(double Angle, double[][] U)
 	{
 		final double C = Math.cos(Angle);
 		final double S = Math.sin(Angle);
-		double[][] U = new double[3][3];
 		U[0][0] = +C;
 		U[0][1] = 0.0;
 		U[0][2] = -S;
@@ -322,10 +513,21 @@ public class MathUtils
      * @return Elementary rotation matrix about z axis
      */
 	public static double[][] R_z(double Angle)
+	{
+		return R_z(Angle, new double[3][3]);
+	}
+
+    /**
+     * Elementary rotation matrix about z axis without allocating
+     *
+     * @param Angle Angle in radians
+     * @param U 3x3 matrix to store the rotation in
+     * @return U
+     */
+	public static double[][] R_z(double Angle, double[][] U)
 	{
 		final double C = Math.cos(Angle);
 		final double S = Math.sin(Angle);
-		double[][] U = new double[3][3];
 		U[0][0] = +C;
 		U[0][1] = +S;
 		U[0][2] = 0.0;
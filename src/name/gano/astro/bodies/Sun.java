@@ -228,6 +228,28 @@ public class Sun
         // Acceleration 
         return MathUtils.scale(d, CR * (Area / mass) * P0 * (AU * AU) / Math.pow(MathUtils.norm(d), 3));
     } // AccelSolrad
+
+    /**
+     * Computes the acceleration due to solar radiation pressure assuming the spacecraft
+     * surface normal to the Sun direction, without allocating
+     * @param r Spacecraft position vector
+     * @param r_Sun Sun position vector
+     * @param Area Cross-section
+     * @param mass Spacecraft mass
+     * @param CR Solar radiation pressure coefficient
+     * @param P0 Solar radiation pressure at 1 AU 
+     * @param AU Length of one Astronomical Unit 
+     * @param acc array of length 3 to store the acceleration in
+     * @return acc - Acceleration (a=d^2r/dt^2)
+     */
+    public static double[] AccelSolrad(final double[] r, final double[] r_Sun, double Area, double mass, double CR, double P0, double AU, double[] acc)
+    {
+        // Relative position vector of spacecraft w.r.t. Sun
+        MathUtils.sub(r, r_Sun, acc);
+
+        // Acceleration 
+        return MathUtils.scale(acc, CR * (Area / mass) * P0 * (AU * AU) / Math.pow(MathUtils.norm(acc), 3), acc);
+    } // AccelSolrad
     
     
 
@@ -242,12 +264,16 @@ public class Sun
     public static double Illumination(final double[] r, final double[] r_Sun)
     {
 
-        double[] e_Sun = MathUtils.scale(r_Sun, 1.0 / MathUtils.norm(r_Sun));   // Sun direction unit vector
-        double s = MathUtils.dot(r, e_Sun);      // Projection of s/c position 
+        double f = 1.0 / MathUtils.norm(r_Sun);
+        double e0 = r_Sun[0]*f, e1 = r_Sun[1]*f, e2 = r_Sun[2]*f; // Sun direction unit vector
+        double s = r[0]*e0 + r[1]*e1 + r[2]*e2;      // Projection of s/c position 
 
         double illuminated = 0.0;
 
-        if (s > 0 || MathUtils.norm(MathUtils.sub(r, MathUtils.scale(e_Sun, s))) > AstroConst.R_Earth)
+        // distance from the shadow axis
+        double d0 = r[0] - e0*s, d1 = r[1] - e1*s, d2 = r[2] - e2*s;
+
+        if (s > 0 || Math.sqrt(d0*d0 + d1*d1 + d2*d2) > AstroConst.R_Earth)
         {
             illuminated = 1.0;
         }
@@ -45,7 +45,7 @@ public class CoordinateConversion
     {
         //double mjd = julDate - AstroConst.JDminusMJD;
         double ttt = (mjd - AstroConst.MJD_J2000) / 36525.0;
-        double[][] A = J2kCoordinateConversion.teme_j2k(J2kCoordinateConversion.Direction.from, ttt, 24, 2, 'a'); // 24 = order(about what STK uses) 2 = all terms, 'a' full nutation matrix
+        double[][] A = TemeJ2kCache.getSharedCache().teme_j2k(J2kCoordinateConversion.Direction.from, ttt); // 24 = order(about what STK uses) 2 = all terms, 'a' full nutation matrix
         // rotate vector
         return J2kCoordinateConversion.matvecmult( A, vecJ2k);
     }
@@ -60,7 +60,7 @@ public class CoordinateConversion
     {
         //double mjd = julDate - AstroConst.JDminusMJD;
         double ttt = (mjd - AstroConst.MJD_J2000) / 36525.0;
-        double[][] A = J2kCoordinateConversion.teme_j2k(J2kCoordinateConversion.Direction.to, ttt, 24, 2, 'a');
+        double[][] A = TemeJ2kCache.getSharedCache().teme_j2k(J2kCoordinateConversion.Direction.to, ttt);
         // rotate vector
         return J2kCoordinateConversion.matvecmult( A, vecTEME);
     }
@@ -236,6 +236,33 @@ public class CoordinateConversion
 	  return MathUtils.mult(MathUtils.mult(MathUtils.R_z(-z), MathUtils.R_y(theta)), MathUtils.R_z(-zeta));
           
         }
+
+    /**
+     * Precession of equatorial coordinates, same as PrecMatrix_Equ_Mjd(Mjd_1, Mjd_2) but without allocating
+     *
+     * @param Mjd_1  Epoch given (Modified Julian Date TT)
+     * @param Mjd_2  Epoch to precess to (Modified Julian Date TT)
+     * @param out 3x3 matrix to store the precession transformation matrix in
+     * @param work 3x3 scratch matrix (different from out)
+     * @return out
+     */
+        public static double[][] PrecMatrix_Equ_Mjd(double Mjd_1, double Mjd_2, double[][] out, double[][] work)
+	{
+	  final double T  = (Mjd_1-AstroConst.MJD_J2000)/36525.0;
+	  final double dT = (Mjd_2-Mjd_1)/36525.0;
+
+	  // Precession angles
+	  double zeta  =  ( (2306.2181+(1.39656-0.000139*T)*T)+
+	                ((0.30188-0.000344*T)+0.017998*dT)*dT )*dT/AstroConst.Arcs;
+	  double z     =  zeta + ( (0.79280+0.000411*T)+0.000205*dT)*dT*dT/AstroConst.Arcs;
+	  double theta =  ( (2004.3109-(0.85330+0.000217*T)*T)-
+	                ((0.42665+0.000217*T)+0.041833*dT)*dT )*dT/AstroConst.Arcs;
+
+	  // Precession matrix
+	  MathUtils.R_z(-z, out);
+	  MathUtils.mult(out, MathUtils.R_y(theta, work), out);
+	  return MathUtils.mult(out, MathUtils.R_z(-zeta, work), out);
+	}
         
 
         /**
@@ -263,6 +290,25 @@ public class CoordinateConversion
 	  return  MathUtils.mult(MathUtils.mult(MathUtils.R_x(-eps-deps_dpsi[0]),MathUtils.R_z(-deps_dpsi[1])),MathUtils.R_x(+eps));
 
 	} // NutMatrix
+
+        /**
+         * Transformation from mean to true equator and equinox, same as NutMatrix(Mjd_TT) but
+         * the matrix is returned in out
+         *
+         * @param Mjd_TT Modified Julian Date (Terrestrial Time)
+         * @param out 3x3 matrix to store the nutation matrix in
+         * @param work 3x3 scratch matrix (different from out)
+         * @return out
+         */
+        public static double[][] NutMatrix(double Mjd_TT, double[][] out, double[][] work)
+	{
+	  double eps = MeanObliquity(Mjd_TT);
+	  double[] deps_dpsi = NutAngles(Mjd_TT);
+
+	  MathUtils.R_x(-eps-deps_dpsi[0], out);
+	  MathUtils.mult(out, MathUtils.R_z(-deps_dpsi[1], work), out);
+	  return MathUtils.mult(out, MathUtils.R_x(+eps, work), out);
+	} // NutMatrix
         
 
       /**
@@ -278,23 +324,8 @@ public class CoordinateConversion
     }
         
 
-        /**
-         * Nutation in longitude and obliquity
-         * @param Mjd_TT Modified Julian Date (Terrestrial Time)
-         * @return Nutation matrix
-         */
-        public static double[] NutAngles(double Mjd_TT) // returns {dpsi,deps}
-	{
-
-	  // Constants
-	  final double T  = (Mjd_TT-AstroConst.MJD_J2000)/36525.0;
-	  final double T2 = T*T;
-	  final double T3 = T2*T;
-	  final double rev = 360.0*3600.0;  // arcsec/revolution
-
-	  final int  N_coeff = 106;
-	  // C[N_coeff][9]
-	  final long C[][] =
+	// NutAngles coefficients C[N_coeff][9] (kept static so they are not re-created on every call)
+	private static final long NutCoeff[][] =
 	  {
 	   //
 	   // l  l' F  D Om    dpsi    *T     deps     *T       #
@@ -407,6 +438,22 @@ public class CoordinateConversion
 	    {  0, 1, 0, 1, 0,      10,    0,       0,    0 }    // 106
 	   };
 
+        /**
+         * Nutation in longitude and obliquity
+         * @param Mjd_TT Modified Julian Date (Terrestrial Time)
+         * @return Nutation matrix
+         */
+        public static double[] NutAngles(double Mjd_TT) // returns {dpsi,deps}
+	{
+
+	  // Constants
+	  final double T  = (Mjd_TT-AstroConst.MJD_J2000)/36525.0;
+	  final double T2 = T*T;
+	  final double T3 = T2*T;
+	  final double rev = 360.0*3600.0;  // arcsec/revolution
+
+	  final int  N_coeff = 106;
+
 	  // Variables
 
 	  double  l, lp, F, D, Om;
@@ -433,9 +480,10 @@ public class CoordinateConversion
 	  
 	  for (int i=0; i<N_coeff; i++) 
 	  {
-	    arg  =  ( C[i][0]*l+C[i][1]*lp+C[i][2]*F+C[i][3]*D+C[i][4]*Om ) / AstroConst.Arcs;
-	    deps_dpsi[1] += ( C[i][5]+C[i][6]*T ) * Math.sin(arg);
-	    deps_dpsi[0] += ( C[i][7]+C[i][8]*T ) * Math.cos(arg);
+	    final long[] C = NutCoeff[i];
+	    arg  =  ( C[0]*l+C[1]*lp+C[2]*F+C[3]*D+C[4]*Om ) / AstroConst.Arcs;
+	    deps_dpsi[1] += ( C[5]+C[6]*T ) * Math.sin(arg);
+	    deps_dpsi[0] += ( C[7]+C[8]*T ) * Math.cos(arg);
 	  }
 	      
 	  deps_dpsi[1] = 1.0E-5 * deps_dpsi[1]/AstroConst.Arcs;
@@ -467,6 +515,17 @@ public class CoordinateConversion
 	  return  MathUtils.R_z( GAST(Mjd_UT1) );
 	}
 
+        /**
+         * Greenwich Hour Angle matrix, same as GHAMatrix(Mjd_UT1) but the matrix is returned in out
+         * @param Mjd_UT1 Modified Julian Date UT1
+         * @param out 3x3 matrix to store the Greenwich Hour Angle matrix in
+         * @return out
+         */
+        public static double[][] GHAMatrix(double Mjd_UT1, double[][] out)
+	{
+	  return  MathUtils.R_z( GAST(Mjd_UT1), out );
+	}
+
         
         /**
          * Greenwich Mean Sidereal Time
@@ -150,10 +150,21 @@ public static double[][] teme_j2k
        //double rj2k[3],  double vj2k[3],  double aj2k[3],
        //iau80data& iau80rec,
        double ttt, int order, int eqeterms, char optteme
+     )
+      {
+        return teme_j2k(direct, ttt, order, eqeterms, optteme, new double[3][3], new double[3][3]);
+      }  // procedure teme_j2k
+
+// same as teme_j2k above but without allocating: the matrix is returned in out,
+// work is a 3x3 scratch matrix (out and work must be different arrays)
+public static double[][] teme_j2k
+     (
+       Direction direct,
+       double ttt, int order, int eqeterms, char optteme,
+       double[][] out, double[][] work
      )
       {
         //std::vector< std::vector<double> >  prec, nutteme, temp[3][3], tempmat, nuttemep, precp;
-        double[][] tempmat = new double[3][3];
 
 //        double psia, wa, epsa, chia, deltapsi, trueeps, meaneps,
 //               omega, thetasa;
@@ -164,29 +175,34 @@ public static double[][] teme_j2k
 //        double[] tempvec1 = new double[3];
 //        double[] tempvec = new double[3];
 
-        double[][] prec = precess ( ttt, Opt.e80);//,  psia,wa,epsa,chia );
-        double[][] nutteme = truemean( ttt,order,eqeterms,optteme );
+        double[][] prec = precess ( ttt, Opt.e80, work);//,  psia,wa,epsa,chia );
+        double[][] nutteme = truemean( ttt,order,eqeterms,optteme, out );
 
-        if (direct == Direction.to)
+        // out = prec * nutteme, out holds nutteme so multiply one column at a time
+        for (int col = 0; col < 3; col++)
           {
-            tempmat = matmult( prec, nutteme, 3, 3, 3 );
-//            double[] rj2k = matvecmult( tempmat, rteme);
-//            double[] vj2k = matvecmult( tempmat, vteme);
-//            double[] aj2k = matvecmult( tempmat, ateme);
+            double n0 = nutteme[0][col];
+            double n1 = nutteme[1][col];
+            double n2 = nutteme[2][col];
+            out[0][col] = prec[0][0]*n0 + prec[0][1]*n1 + prec[0][2]*n2;
+            out[1][col] = prec[1][0]*n0 + prec[1][1]*n1 + prec[1][2]*n2;
+            out[2][col] = prec[2][0]*n0 + prec[2][1]*n1 + prec[2][2]*n2;
           }
-          else
-          {
-            double[][] nuttemep = mattrans(nutteme, 3, 3 );
-            double[][] precp = mattrans(prec, 3, 3 );
+//        double[] rj2k = matvecmult( tempmat, rteme);
+//        double[] vj2k = matvecmult( tempmat, vteme);
+//        double[] aj2k = matvecmult( tempmat, ateme);
 
-            tempmat = matmult( nuttemep, precp, 3, 3, 3 );
+        if (direct != Direction.to)
+          {
+            // nutteme' * prec' = (prec * nutteme)'
+            MathUtils.transpose(out, out);
 
 //            double[] rteme = matvecmult(tempmat, rj2k );
 //            double[] vteme = matvecmult(tempmat, vj2k);
 //            double[] ateme = matvecmult(tempmat, aj2k);
           }
 
-        return tempmat;
+        return out;
       }  // procedure teme_j2k
 
 /* -----------------------------------------------------------------------------
@@ -391,16 +407,17 @@ public static double[][] precess
        //std::vector< std::vector<double> > &prec
      )
      {
-       double[][] prec = new double[3][3];//.resize(3);  // rows
-       //for (std::vector< std::vector<double> >::iterator it=prec.begin(); it != prec.end();++it)
-       //   it->resize(3);
+       return precess(ttt, opt, new double[3][3]);
+     }  // procedure precess
+
+// same as precess above but the matrix is returned in prec (no allocation for e80/e96)
+public static double[][] precess
+     (
+       double ttt,      Opt opt,
+       double[][] prec
+     )
+     {
        //std::vector< std::vector<double> > p1, p2, p3, p4, tr1, tr2;
-       double[][] p1= new double[3][3];
-       double[][] p2= new double[3][3];
-       double[][] p3= new double[3][3];
-       double[][] p4= new double[3][3];
-       double[][] tr1= new double[3][3];
-       double[][] tr2= new double[3][3];
 
        // since not returning these for now
        double psia, wa, epsa, chia;
@@ -478,14 +495,12 @@ public static double[][] precess
          }
          else
          {
-           p1 = rot3mat( -chia );
-           p2 = rot1mat( wa );
-           p3 = rot3mat( psia );
-           p4 = rot1mat( -oblo );
-
-           tr1 = matmult( p4 , p3, 3, 3, 3 );
-           tr2 = matmult( tr1, p2, 3, 3, 3 );
-           prec = matmult( tr2, p1, 3, 3, 3 );
+           // prec = p4 * p3 * p2 * p1
+           double[][] p = new double[3][3];
+           rot1mat( -oblo, prec );                     // p4
+           matmult( prec, rot3mat( psia, p ), prec );  // p3
+           matmult( prec, rot1mat( wa, p ), prec );    // p2
+           matmult( prec, rot3mat( -chia, p ), prec ); // p1
 
          }
 
@@ -554,19 +569,24 @@ public static double[][] nutation
        //std::vector< std::vector<double> > &nut
      )
      {
-       double[][] nut = new double[3][3]; //.resize(3);  // rows
-       //for (std::vector< std::vector<double> >::iterator it=nut.begin(); it != nut.end();++it)
-       //     it->resize(3);
+       return nutation(ttt, ddpsi, ddeps, nutopt, nutTerms, new double[3][3]);
+     }  // procedure nutation
+
+// same as nutation above but the matrix is returned in nut
+public static double[][] nutation
+     (
+       double ttt, double ddpsi, double ddeps,
+       char nutopt, int nutTerms,
+       double[][] nut
+     )
+     {
 
        // return values that need to be returned in an array or something similar
        double deltapsi=0, deltaeps=0, trueeps=0, meaneps=0, omega=0;
 
        double deg2rad, cospsi, sinpsi, coseps, sineps, costrueeps, sintrueeps;
-       // used as return values from fundarg
-       Double l=new Double(0), l1=new Double(0), f=new Double(0), d=new Double(0),
-               lonmer=new Double(0), lonven=new Double(0), lonear=new Double(0),
-               lonmar=new Double(0), lonjup=new Double(0), lonsat=new Double(0),
-               lonurn=new Double(0), lonnep=new Double(0), precrate=new Double(0);
+       // used as return values from fundarg (only the delaunay arguments are needed)
+       double l=0, l1=0, f=0, d=0;
 
 
        int  i;
@@ -590,15 +610,6 @@ public static double[][] nutation
            f = tmp[2];
            d = tmp[3];
            omega = tmp[4];
-           lonmer = tmp[5];
-           lonven = tmp[6];
-           lonear = tmp[7];
-           lonmar = tmp[8];
-           lonjup = tmp[9];
-           lonsat = tmp[10];
-           lonurn = tmp[11];
-           lonnep = tmp[12];
-           precrate = tmp[13];
 
            deltapsi = 0.0;
            deltaeps= 0.0;
@@ -879,6 +890,12 @@ public static double[][]    mattrans
      return mat2;
    }
 
+// 3x3 transpose without allocating, mat2 may be the same array as mat1
+public static double[][] mattrans(double[][] mat1, double[][] mat2)
+   {
+     return MathUtils.transpose(mat1, mat2);
+   }
+
 
 /* -----------------------------------------------------------------------------
 *
@@ -925,6 +942,12 @@ public static double[] matvecmult
      return vecout;
    }
 
+// 3x3 matrix times vector without allocating, vecout may be the same array as vec
+public static double[] matvecmult(double[][] mat, double[] vec, double[] vecout)
+   {
+     return MathUtils.mult(mat, vec, vecout);
+   }
+
 
 /* -----------------------------------------------------------------------------
 *
@@ -985,6 +1008,12 @@ public static double[][] matmult
      return mat3;
    } //matmult
 
+// 3x3 matrix product without allocating, mat3 may be the same array as mat1 or mat2
+public static double[][] matmult(double[][] mat1, double[][] mat2, double[][] mat3)
+   {
+     return MathUtils.mult(mat1, mat2, mat3);
+   } //matmult
+
 
 /* -----------------------------------------------------------------------------
 *
@@ -1041,6 +1070,12 @@ public static double[][] rot1mat
      return outmat;
    }
 
+// same as rot1mat above but the matrix is returned in outmat
+public static double[][] rot1mat(double xval, double[][] outmat)
+   {
+     return MathUtils.R_x(xval, outmat);
+   }
+
 public static double[][]    rot2mat
         (
           double xval//,
@@ -1070,6 +1105,12 @@ public static double[][]    rot2mat
      return outmat;
    }
 
+// same as rot2mat above but the matrix is returned in outmat
+public static double[][] rot2mat(double xval, double[][] outmat)
+   {
+     return MathUtils.R_y(xval, outmat);
+   }
+
 public static double[][] rot3mat
         (
           double xval//,
@@ -1099,6 +1140,12 @@ public static double[][] rot3mat
      return outmat;
    }
 
+// same as rot3mat above but the matrix is returned in outmat
+public static double[][] rot3mat(double xval, double[][] outmat)
+   {
+     return MathUtils.R_z(xval, outmat);
+   }
+
 /* -----------------------------------------------------------------------------
 *
 *                           function truemean
@@ -1155,18 +1202,22 @@ public static double[][] truemean
        //std::vector< std::vector<double> > &nutteme
      )
      {
-       //nutteme.resize(3);  // rows
-       //for (std::vector< std::vector<double> >::iterator it=nutteme.begin(); it != nutteme.end();++it)
-       //     it->resize(3);
-    double[][] nutteme = new double[3][3];
+       return truemean(ttt, order, eqeterms, opt, new double[3][3]);
+     }  // procedure truemean
 
+// same as truemean above but the matrix is returned in nutteme
+public static double[][] truemean
+     (
+       double ttt, int order, int eqeterms, char opt,
+       double[][] nutteme
+     )
+     {
        double deg2rad, l, l1, f, d, omega,
               cospsi, sinpsi, coseps, sineps, costrueeps, sintrueeps, meaneps,
               deltapsi, deltaeps, trueeps;
        int i;
-       double[][] nut = new double[3][3];
-       double[][] st = new double[3][3];
        double  tempval, jdttt, eqe;
+       double  nut00, nut01, nut02, nut10, nut11, nut12, nut20, nut21, nut22;
 
        deg2rad = Math.PI/180.0;
 
@@ -1223,32 +1274,34 @@ public static double[][] truemean
          else
            eqe= deltapsi *  Math.cos(meaneps);
 
-       nut[0][0] =  cospsi;
-       nut[0][1] =  costrueeps * sinpsi;
+       nut00 =  cospsi;
+       nut01 =  costrueeps * sinpsi;
        if (opt == 'b')
-           nut[0][1] = 0.0;
-       nut[0][2] =  sintrueeps * sinpsi;
-       nut[1][0] = -coseps * sinpsi;
+           nut01 = 0.0;
+       nut02 =  sintrueeps * sinpsi;
+       nut10 = -coseps * sinpsi;
        if (opt == 'b')
-           nut[1][0] = 0.0;
-       nut[1][1] =  costrueeps * coseps * cospsi + sintrueeps * sineps;
-       nut[1][2] =  sintrueeps * coseps * cospsi - sineps * costrueeps;
-       nut[2][0] = -sineps * sinpsi;
-       nut[2][1] =  costrueeps * sineps * cospsi - sintrueeps * coseps;
-       nut[2][2] =  sintrueeps * sineps * cospsi + costrueeps * coseps;
+           nut10 = 0.0;
+       nut11 =  costrueeps * coseps * cospsi + sintrueeps * sineps;
+       nut12 =  sintrueeps * coseps * cospsi - sineps * costrueeps;
+       nut20 = -sineps * sinpsi;
+       nut21 =  costrueeps * sineps * cospsi - sintrueeps * coseps;
+       nut22 =  sintrueeps * sineps * cospsi + costrueeps * coseps;
 
-       st[0][0] =  Math.cos(eqe);
-       st[0][1] = -Math.sin(eqe);
-       st[0][2] =  0.0;
-       st[1][0] =  Math.sin(eqe);
-       st[1][1] =  Math.cos(eqe);
-       st[1][2] =  0.0;
-       st[2][0] =  0.0;
-       st[2][1] =  0.0;
-       st[2][2] =  1.0;
+       // st = [cos(eqe) -sin(eqe) 0; sin(eqe) cos(eqe) 0; 0 0 1]
+       double cosst = Math.cos(eqe);
+       double sinst = Math.sin(eqe);
 
        //matmult( st, nut, nutteme, 3, 3, 3 );
-       nutteme = MathUtils.mult(st, nut);
+       nutteme[0][0] = cosst * nut00 - sinst * nut10;
+       nutteme[0][1] = cosst * nut01 - sinst * nut11;
+       nutteme[0][2] = cosst * nut02 - sinst * nut12;
+       nutteme[1][0] = sinst * nut00 + cosst * nut10;
+       nutteme[1][1] = sinst * nut01 + cosst * nut11;
+       nutteme[1][2] = sinst * nut02 + cosst * nut12;
+       nutteme[2][0] = nut20;
+       nutteme[2][1] = nut21;
+       nutteme[2][2] = nut22;
 
        if (opt == 'c')
          {
@@ -0,0 +1,304 @@
+/*
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ *
+ * Cache of the TEME <-> J2000 rotation matrices (J2kCoordinateConversion.teme_j2k)
+ * keyed by time, so the nutation series and precession are only evaluated once
+ * per time for the whole catalog.
+ */
+
+package name.gano.astro.coordinates;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Time keyed cache of the TEME <-> J2000 transformation matrices.
+ * <p>
+ * Two modes are available:
+ * <ul>
+ * <li>exact - teme_j2k(..): the matrix for exactly this time, a small ring of the
+ * most recent times is kept so each animation step computes the matrix once for every satellite.
+ * A miss costs the same as calling teme_j2k directly (the other direction is only
+ * computed when it is asked for).</li>
+ * <li>interpolated - teme_j2kInterpolated(..): matrices are computed at nodes every
+ * nodeStepDays and linearly interpolated in between, for dense time sweeps
+ * (ground tracks, event searches). Nutation/precession change so slowly that with
+ * the default 1 hour node spacing the interpolation error is about 3e-11 rad
+ * (around a millimeter at GEO distance).</li>
+ * </ul>
+ * All methods are thread safe. Returned matrices are shared and must not be modified.
+ * The hit/miss counters are kept per thread (no contention between propagation threads),
+ * the getters return the counts of the calling thread.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class TemeJ2kCache
+{
+    // the shared cache used by the satellite objects
+    private static final TemeJ2kCache sharedCache = new TemeJ2kCache(24, 2, 'a', 1.0/24.0);
+
+    // teme_j2k options (24 terms is about what STK uses, see J2kCoordinateConversion.main)
+    private final int order;
+    private final int eqeterms;
+    private final char optteme;
+
+    // exact mode - ring of recent times
+    private static final int EXACT_SLOTS = 8;
+    private final AtomicReferenceArray<Entry> exactEntries = new AtomicReferenceArray<Entry>(EXACT_SLOTS);
+    private final AtomicInteger nextExactSlot = new AtomicInteger(0);
+
+    // interpolated mode - nodes keyed by index of the node time
+    private final double nodeStepCenturies;
+    private final ConcurrentHashMap<Long,Entry> nodes = new ConcurrentHashMap<Long,Entry>();
+    private int maxNodes = 20000; // about 2 years of hourly nodes
+
+    // statistics of each thread: exact hits, exact misses, interpolated calls, node misses
+    private static final int EXACT_HITS = 0;
+    private static final int EXACT_MISSES = 1;
+    private static final int INTERPOLATED_CALLS = 2;
+    private static final int NODE_MISSES = 3;
+    private final ThreadLocal<long[]> counters = new ThreadLocal<long[]>()
+    {
+        @Override
+        protected long[] initialValue()
+        {
+            return new long[4];
+        }
+    };
+
+    // one cached time, the direction not computed yet is null (the transpose of the other one)
+    private static class Entry
+    {
+        final double ttt;
+        volatile double[][] to;   // TEME -> J2000
+        volatile double[][] from; // J2000 -> TEME
+
+        Entry(double ttt, double[][] to, double[][] from)
+        {
+            this.ttt = ttt;
+            this.to = to;
+            this.from = from;
+        }
+
+        double[][] get(J2kCoordinateConversion.Direction direct)
+        {
+            // threads computing the missing direction at the same time compute the same matrix
+            if(direct == J2kCoordinateConversion.Direction.to)
+            {
+                if(to == null)
+                {
+                    to = J2kCoordinateConversion.mattrans(from, 3, 3);
+                }
+                return to;
+            }
+            if(from == null)
+            {
+                from = J2kCoordinateConversion.mattrans(to, 3, 3);
+            }
+            return from;
+        }
+    }
+
+    /**
+     * Creates a new cache
+     * @param order number of nutation terms (see J2kCoordinateConversion.teme_j2k)
+     * @param eqeterms number of terms for eqe (0,2)
+     * @param optteme option for processing 'a','b','c'
+     * @param nodeStepDays node spacing for the interpolated mode [days]
+     */
+    public TemeJ2kCache(int order, int eqeterms, char optteme, double nodeStepDays)
+    {
+        this.order = order;
+        this.eqeterms = eqeterms;
+        this.optteme = optteme;
+        this.nodeStepCenturies = nodeStepDays/36525.0;
+    }
+
+    /**
+     * @return shared cache using teme_j2k(.., 24, 2, 'a') as everywhere in JSatTrak
+     */
+    public static TemeJ2kCache getSharedCache()
+    {
+        return sharedCache;
+    }
+
+    /**
+     * Exact mode: same as J2kCoordinateConversion.teme_j2k(direct, ttt, order, eqeterms, optteme)
+     * but computed only once per time
+     * @param direct Direction.to (TEME->J2000) or Direction.from (J2000->TEME)
+     * @param ttt julian centuries of tt
+     * @return transformation matrix (shared - do not modify)
+     */
+    public double[][] teme_j2k(J2kCoordinateConversion.Direction direct, double ttt)
+    {
+        for(int i = 0; i < EXACT_SLOTS; i++)
+        {
+            Entry e = exactEntries.get(i);
+            if(e != null && e.ttt == ttt)
+            {
+                counters.get()[EXACT_HITS]++;
+                return e.get(direct);
+            }
+        }
+
+        // miss - compute only this direction and replace the oldest slot (threads missing at the same time compute the same matrix)
+        counters.get()[EXACT_MISSES]++;
+        double[][] a = J2kCoordinateConversion.teme_j2k(direct, ttt, order, eqeterms, optteme);
+        boolean to = (direct == J2kCoordinateConversion.Direction.to);
+        int slot = (nextExactSlot.getAndIncrement() & 0x7fffffff) % EXACT_SLOTS;
+        exactEntries.set(slot, new Entry(ttt, to ? a : null, to ? null : a));
+        return a;
+    } // teme_j2k
+
+    /**
+     * Interpolated mode: linear interpolation between matrices cached at the node times around ttt
+     * @param direct Direction.to (TEME->J2000) or Direction.from (J2000->TEME)
+     * @param ttt julian centuries of tt
+     * @param out 3x3 return matrix
+     */
+    public void teme_j2kInterpolated(J2kCoordinateConversion.Direction direct, double ttt, double[][] out)
+    {
+        counters.get()[INTERPOLATED_CALLS]++;
+
+        double x = ttt/nodeStepCenturies;
+        long k = (long)Math.floor(x);
+        double f = x - k;
+
+        Entry e0 = findNode(k);
+        Entry e1 = findNode(k+1);
+        double[][] a = e0.get(direct);
+        double[][] b = e1.get(direct);
+
+        for(int row = 0; row < 3; row++)
+        {
+            for(int col = 0; col < 3; col++)
+            {
+                out[row][col] = a[row][col] + f*(b[row][col] - a[row][col]);
+            }
+        }
+    } // teme_j2kInterpolated
+
+    /**
+     * Interpolated mode, returning a new matrix (see teme_j2kInterpolated(Direction, double, double[][]))
+     * @param direct Direction.to (TEME->J2000) or Direction.from (J2000->TEME)
+     * @param ttt julian centuries of tt
+     * @return transformation matrix
+     */
+    public double[][] teme_j2kInterpolated(J2kCoordinateConversion.Direction direct, double ttt)
+    {
+        double[][] out = new double[3][3];
+        teme_j2kInterpolated(direct, ttt, out);
+        return out;
+    }
+
+    private Entry findNode(long k)
+    {
+        Long key = Long.valueOf(k);
+        Entry e = nodes.get(key);
+        if(e == null)
+        {
+            counters.get()[NODE_MISSES]++;
+            if(nodes.size() >= maxNodes)
+            {
+                nodes.clear(); // simple bound on memory, nodes are cheap to recompute
+            }
+            double ttt = k*nodeStepCenturies;
+            double[][] to = J2kCoordinateConversion.teme_j2k(J2kCoordinateConversion.Direction.to, ttt, order, eqeterms, optteme);
+            e = new Entry(ttt, to, J2kCoordinateConversion.mattrans(to, 3, 3));
+            nodes.put(key, e);
+        }
+        return e;
+    } // findNode
+
+    /**
+     * Empties the cache (statistics are kept)
+     */
+    public void clear()
+    {
+        for(int i = 0; i < EXACT_SLOTS; i++)
+        {
+            exactEntries.set(i, null);
+        }
+        nodes.clear();
+    }
+
+    /**
+     * Resets the hit/miss counters of the calling thread
+     */
+    public void resetStatistics()
+    {
+        long[] c = counters.get();
+        for(int i = 0; i < c.length; i++)
+        {
+            c[i] = 0;
+        }
+    }
+
+    /**
+     * @return number of exact mode calls of the calling thread that found the time in the cache
+     */
+    public long getExactHits()
+    {
+        return counters.get()[EXACT_HITS];
+    }
+
+    /**
+     * @return number of exact mode calls of the calling thread that had to compute the matrix
+     */
+    public long getExactMisses()
+    {
+        return counters.get()[EXACT_MISSES];
+    }
+
+    /**
+     * @return number of interpolated mode calls of the calling thread
+     */
+    public long getInterpolatedCalls()
+    {
+        return counters.get()[INTERPOLATED_CALLS];
+    }
+
+    /**
+     * @return number of node matrices computed for the interpolated mode by the calling thread
+     */
+    public long getNodeMisses()
+    {
+        return counters.get()[NODE_MISSES];
+    }
+
+    public int getMaxNodes()
+    {
+        return maxNodes;
+    }
+
+    public void setMaxNodes(int maxNodes)
+    {
+        this.maxNodes = maxNodes;
+    }
+
+    @Override
+    public String toString()
+    {
+        long[] c = counters.get();
+        return "TemeJ2kCache exact hits/misses: " + c[EXACT_HITS] + "/" + c[EXACT_MISSES]
+                + ", interpolated calls: " + c[INTERPOLATED_CALLS] + ", node misses: " + c[NODE_MISSES];
+    }
+
+} // TemeJ2kCache
@@ -0,0 +1,336 @@
+/*
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+// Ascending node times for SGP4 satellites: the node is predicted from the
+// secularly drifting mean elements kept by sgp4init (mean anomaly and argument
+// of perigee rates include the J2 drift) and refined with a couple of Newton
+// steps on the osculating argument of latitude. The old search (step back period/15 until
+// the equator crossing is bracketed, then secant) is only used as a fallback.
+package name.gano.astro.propogators.sgp4_cssi;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds the last ascending node (TEME z = 0, going north) at or before a given time.
+ * <p>
+ * The geodetic latitude is zero exactly when the TEME z coordinate is zero, so no
+ * coordinate conversions are needed. Each refinement propagates once and steps by
+ * -u/(du/dt) where u is the osculating argument of latitude (nearly linear in time,
+ * so even the poorly predicted nodes of near equatorial orbits converge quickly).
+ * Typically 2 propagations are needed (3 at most before falling back).
+ * <p>
+ * SGP4unit.sgp4(..) writes into the SGP4SatData, so a satellite's data must not be
+ * used by another thread during a search. Counters are kept over all threads.
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class SGP4NodePredictor
+{
+    private static final double TWOPI = 2.0*Math.PI;
+
+    private static final int MAX_NEWTON_PROPAGATIONS = 3;
+    private static final double NEWTON_TOL_MIN = 1.0e-3; // Newton convergence [minutes] (60 ms, the step after that is far smaller)
+    private static final double MIN_SIN_INCL = 1.0e-5; // orbits closer to the equator have no usable node
+    private static final double LOW_SIN_INCL = 0.05;   // below about 3 deg the node rate matters
+    private static final double SECANT_TOL_MIN = 1.0/60.0; // fallback convergence [minutes] (as the old search)
+    private static final double FALLBACK_STEPS_PER_PERIOD = 15.0;
+    private static final int FALLBACK_MAX_STEPS = 45; // 3 periods
+
+    // statistics
+    private static final AtomicLong searches = new AtomicLong();
+    private static final AtomicLong propagations = new AtomicLong();
+    private static final AtomicLong fallbacks = new AtomicLong();
+    private static final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Nodal period from the secular rates of the mean elements (mean anomaly and argument of perigee, including J2 drift)
+     * @param satrec initialized SGP4 data
+     * @return nodal period [minutes], NaN if not a closed orbit
+     */
+    public static double nodalPeriod(SGP4SatData satrec)
+    {
+        double rate = meanAnomalyRate(satrec) + argpRate(satrec); // rad/min
+        return (rate > 0) ? TWOPI/rate : Double.NaN;
+    }
+
+    // secular rates as applied in SGP4unit (deep space adds the lunar-solar terms from dscom/dsinit)
+    private static double meanAnomalyRate(SGP4SatData satrec)
+    {
+        return (satrec.method == 'd') ? satrec.mdot + satrec.dmdt : satrec.mdot;
+    }
+
+    private static double argpRate(SGP4SatData satrec)
+    {
+        return (satrec.method == 'd') ? satrec.argpdot + satrec.domdt : satrec.argpdot;
+    }
+
+    /**
+     * Time of the last ascending node predicted from the mean elements only (no propagation)
+     * @param satrec initialized SGP4 data
+     * @param julDate julian date to search back from
+     * @return minutes since the TLE epoch of the predicted node (NaN if not a closed orbit)
+     */
+    public static double predictLastAscendingNode(SGP4SatData satrec, double julDate)
+    {
+        double mRate = meanAnomalyRate(satrec);
+        double wRate = argpRate(satrec);
+        double rate = mRate + wRate; // rate of the argument of latitude [rad/min]
+        if(!(rate > 0) || satrec.ecco >= 1.0)
+        {
+            return Double.NaN;
+        }
+
+        double tsince = (julDate - satrec.jdsatepoch)*1440.0;
+        double e = satrec.ecco;
+        double argp = satrec.argpo + wRate*tsince;
+        double m = satrec.mo + mRate*tsince;
+
+        // mean anomaly at the node (true anomaly = -argp)
+        double nu = -argp;
+        double ea = Math.atan2(Math.sqrt(1.0 - e*e)*Math.sin(nu), e + Math.cos(nu));
+        double mNode = ea - e*Math.sin(ea);
+
+        // mean anomaly travelled since the node
+        double dm = (m - mNode) % TWOPI;
+        if(dm < 0)
+        {
+            dm += TWOPI;
+        }
+
+        return tsince - dm/rate;
+    } // predictLastAscendingNode
+
+    /**
+     * Time of the last ascending node at or before julDate
+     * @param satrec initialized SGP4 data (modified by the propagations - do not share between threads)
+     * @param julDate julian date to search back from
+     * @return julian date of the node, NaN if none was found (e.g. equatorial orbits or propagation errors)
+     */
+    public static double lastAscendingNode(SGP4SatData satrec, double julDate)
+    {
+        searches.incrementAndGet();
+
+        double tsince = (julDate - satrec.jdsatepoch)*1440.0;
+        double[] r = new double[3];
+        double[] v = new double[3];
+
+        double seed = predictLastAscendingNode(satrec, julDate);
+        if(!Double.isNaN(seed))
+        {
+            // (short period terms can move the node just past the search time, then the stepping search below finds the previous one)
+            double t = newtonNode(satrec, seed, r, v);
+            if(!Double.isNaN(t) && t <= tsince)
+            {
+                return satrec.jdsatepoch + t/1440.0;
+            }
+        }
+
+        fallbacks.incrementAndGet();
+        double t = steppingSearch(satrec, tsince, r, v);
+        if(Double.isNaN(t))
+        {
+            failures.incrementAndGet();
+            return Double.NaN;
+        }
+        return satrec.jdsatepoch + t/1440.0;
+    } // lastAscendingNode
+
+    // Newton iterations on the argument of latitude starting at t [min since epoch], NaN if not converged
+    // (near the equator the osculating node moves fast, there the rate of u is measured after the first step)
+    private static double newtonNode(SGP4SatData satrec, double t, double[] r, double[] v)
+    {
+        double tPrev = Double.NaN;
+        double uPrev = 0;
+        for(int i = 0; i < MAX_NEWTON_PROPAGATIONS; i++)
+        {
+            propagations.incrementAndGet();
+            if(!SGP4unit.sgp4(satrec, t, r, v))
+            {
+                return Double.NaN; // propagation error
+            }
+
+            // angular momentum and node vector (k x h)
+            double hx = r[1]*v[2] - r[2]*v[1];
+            double hy = r[2]*v[0] - r[0]*v[2];
+            double hz = r[0]*v[1] - r[1]*v[0];
+            double hxy2 = hx*hx + hy*hy;
+            double h2 = hxy2 + hz*hz;
+            if(hxy2 < MIN_SIN_INCL*MIN_SIN_INCL*h2)
+            {
+                return Double.NaN; // equatorial
+            }
+
+            // u measured from the node: cos part along n, sin part along h x n
+            double rn = -hy*r[0] + hx*r[1];
+            double rp = (-hz*(hx*r[0] + hy*r[1]) + hxy2*r[2])/Math.sqrt(h2);
+            double u = Math.atan2(rp, rn); // (-pi, pi]
+            double r2 = r[0]*r[0] + r[1]*r[1] + r[2]*r[2];
+            double uDot = Math.sqrt(h2)/r2*60.0; // rad/min
+
+            if(!Double.isNaN(tPrev) && hxy2 < LOW_SIN_INCL*LOW_SIN_INCL*h2)
+            {
+                double du = u - uPrev;
+                if(du > Math.PI)
+                {
+                    du -= TWOPI;
+                }
+                else if(du < -Math.PI)
+                {
+                    du += TWOPI;
+                }
+                double measured = du/(t - tPrev);
+                if(measured > 0)
+                {
+                    uDot = measured;
+                }
+            }
+
+            double dt = -u/uDot; // minutes
+            tPrev = t;
+            uPrev = u;
+            t += dt;
+            if(Math.abs(dt) < NEWTON_TOL_MIN)
+            {
+                return t;
+            }
+        }
+        return Double.NaN;
+    } // newtonNode
+
+    // the old search: step back period/15 until the crossing is bracketed then secant, NaN if not found
+    private static double steppingSearch(SGP4SatData satrec, double tsince, double[] r, double[] v)
+    {
+        double period = TWOPI/satrec.no; // minutes
+        if(!(period > 0) || Double.isInfinite(period))
+        {
+            return Double.NaN;
+        }
+        double step = period/FALLBACK_STEPS_PER_PERIOD;
+
+        double t0 = tsince;
+        double z0 = z(satrec, t0, r, v);
+        for(int i = 0; i < FALLBACK_MAX_STEPS && !Double.isNaN(z0); i++)
+        {
+            double t1 = t0 - step;
+            double z1 = z(satrec, t1, r, v);
+            if(Double.isNaN(z1))
+            {
+                return Double.NaN;
+            }
+
+            if(z0 >= 0 && z1 < 0)
+            {
+                return secant(satrec, t1, z1, t0, z0, r, v);
+            }
+            t0 = t1;
+            z0 = z1;
+        }
+        return Double.NaN;
+    } // steppingSearch
+
+    private static double secant(SGP4SatData satrec, double xn_1, double fn_1, double xn, double fn, double[] r, double[] v)
+    {
+        for(int n = 1; n <= 20; n++)
+        {
+            double d = (xn - xn_1)/(fn - fn_1)*fn;
+            if(Math.abs(d) < SECANT_TOL_MIN)
+            {
+                return xn;
+            }
+            xn_1 = xn;
+            fn_1 = fn;
+            xn = xn - d;
+            fn = z(satrec, xn, r, v);
+            if(Double.isNaN(fn))
+            {
+                return Double.NaN;
+            }
+        }
+        return xn;
+    } // secant
+
+    private static double z(SGP4SatData satrec, double t, double[] r, double[] v)
+    {
+        propagations.incrementAndGet();
+        return SGP4unit.sgp4(satrec, t, r, v) ? r[2] : Double.NaN;
+    }
+
+    /**
+     * Resets the counters
+     */
+    public static void resetStatistics()
+    {
+        searches.set(0);
+        propagations.set(0);
+        fallbacks.set(0);
+        failures.set(0);
+    }
+
+    /**
+     * @return number of node searches
+     */
+    public static long getSearches()
+    {
+        return searches.get();
+    }
+
+    /**
+     * @return number of SGP4 propagations done by all node searches
+     */
+    public static long getPropagations()
+    {
+        return propagations.get();
+    }
+
+    /**
+     * @return number of searches that needed the stepping/secant fallback
+     */
+    public static long getFallbacks()
+    {
+        return fallbacks.get();
+    }
+
+    /**
+     * @return number of searches that found no node
+     */
+    public static long getFailures()
+    {
+        return failures.get();
+    }
+
+    /**
+     * @return average SGP4 propagations per node search
+     */
+    public static double getPropagationsPerSearch()
+    {
+        long s = searches.get();
+        return (s > 0) ? propagations.get()/(double)s : 0;
+    }
+
+    /**
+     * @return summary of the counters
+     */
+    public static String getStatistics()
+    {
+        return "SGP4NodePredictor searches: " + searches.get() + ", propagations: " + propagations.get()
+                + " (" + getPropagationsPerSearch() + " per search), fallbacks: " + fallbacks.get()
+                + ", failures: " + failures.get();
+    }
+
+} // SGP4NodePredictor
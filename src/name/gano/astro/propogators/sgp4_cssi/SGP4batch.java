@@ -0,0 +1,474 @@
+/*
+ * =====================================================================
+ *   This file is part of JSatTrak.
+ *
+ *   Copyright 2007-2013 Shawn E. Gano
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * =====================================================================
+ */
+// Batch version of the CSSI SGP4 propagator: the near earth coefficients of a
+// whole catalog are packed into primitive column arrays (structure of arrays)
+// so all satellites can be propagated to a single Julian Date in one pass
+// without touching the SGP4SatData objects or allocating anything.
+// Deep space (method 'd') satellites are kept as SGP4SatData references and
+// evaluated with SGP4unit.sgp4(..) inside the same pass.
+package name.gano.astro.propogators.sgp4_cssi;
+
+/**
+ * Propagates many SGP4 satellites to the same Julian Date in one call.
+ * <p>
+ * The near earth part of SGP4unit.sgp4(..) is repeated here verbatim (same
+ * order of operations) so the results are identical to the per object call.
+ * Output is written into caller supplied buffers laid out as
+ * [x0,y0,z0, x1,y1,z1, ...] in km and km/sec (TEME of date).
+ *
+ * @author Shawn E. Gano, shawn@gano.name
+ */
+public class SGP4batch
+{
+    // number of satellites packed
+    private final int n;
+
+    // original data objects (deep space sats are propagated through these)
+    private final SGP4SatData[] satrecs;
+
+    // true if the satellite is propagated with the packed near earth columns
+    private final boolean[] nearEarth;
+
+    // error code of each satellite from the last propagation (0 = ok)
+    private final int[] error;
+
+    /* gravity constants (per sat, as they can differ) */
+    private final double[] xke, j2, radiusearthkm, vkmpersec;
+
+    /* epoch */
+    private final double[] jdsatepoch;
+
+    /* Near Earth columns */
+    private final int[] isimp;
+    private final double[] aycof, con41, cc1, cc4, cc5, d2, d3, d4,
+            delmo, eta, argpdot, omgcof, sinmao, t2cof, t3cof,
+            t4cof, t5cof, x1mth2, x7thm1, mdot, nodedot, xlcof, xmcof,
+            nodecf, bstar, inclo, nodeo, ecco, argpo, mo, no;
+
+    /**
+     * Packs the given (already initialized) satellites into column arrays
+     * @param sats satellites initialized with SGP4utils.readTLEandIniSGP4 or SGP4unit.sgp4init
+     */
+    public SGP4batch(SGP4SatData[] sats)
+    {
+        n = sats.length;
+        satrecs = sats.clone();
+        nearEarth = new boolean[n];
+        error = new int[n];
+
+        xke = new double[n];
+        j2 = new double[n];
+        radiusearthkm = new double[n];
+        vkmpersec = new double[n];
+        jdsatepoch = new double[n];
+
+        isimp = new int[n];
+        aycof = new double[n];
+        con41 = new double[n];
+        cc1 = new double[n];
+        cc4 = new double[n];
+        cc5 = new double[n];
+        d2 = new double[n];
+        d3 = new double[n];
+        d4 = new double[n];
+        delmo = new double[n];
+        eta = new double[n];
+        argpdot = new double[n];
+        omgcof = new double[n];
+        sinmao = new double[n];
+        t2cof = new double[n];
+        t3cof = new double[n];
+        t4cof = new double[n];
+        t5cof = new double[n];
+        x1mth2 = new double[n];
+        x7thm1 = new double[n];
+        mdot = new double[n];
+        nodedot = new double[n];
+        xlcof = new double[n];
+        xmcof = new double[n];
+        nodecf = new double[n];
+        bstar = new double[n];
+        inclo = new double[n];
+        nodeo = new double[n];
+        ecco = new double[n];
+        argpo = new double[n];
+        mo = new double[n];
+        no = new double[n];
+
+        for(int i = 0; i < n; i++)
+        {
+            SGP4SatData s = satrecs[i];
+
+            jdsatepoch[i] = s.jdsatepoch;
+
+            // deep space sats stay on the object based path
+            nearEarth[i] = (s.method != 'd');
+            if(!nearEarth[i])
+            {
+                continue;
+            }
+
+            // [tumin, mu, radiusearthkm, xke, j2, j3, j4, j3oj2]
+            double[] gc = SGP4unit.getgravconst(s.gravconsttype);
+            radiusearthkm[i] = gc[2];
+            xke[i] = gc[3];
+            j2[i] = gc[4];
+            vkmpersec[i] = gc[2] * gc[3] / 60.0;
+
+            isimp[i] = s.isimp;
+            aycof[i] = s.aycof;
+            con41[i] = s.con41;
+            cc1[i] = s.cc1;
+            cc4[i] = s.cc4;
+            cc5[i] = s.cc5;
+            d2[i] = s.d2;
+            d3[i] = s.d3;
+            d4[i] = s.d4;
+            delmo[i] = s.delmo;
+            eta[i] = s.eta;
+            argpdot[i] = s.argpdot;
+            omgcof[i] = s.omgcof;
+            sinmao[i] = s.sinmao;
+            t2cof[i] = s.t2cof;
+            t3cof[i] = s.t3cof;
+            t4cof[i] = s.t4cof;
+            t5cof[i] = s.t5cof;
+            x1mth2[i] = s.x1mth2;
+            x7thm1[i] = s.x7thm1;
+            mdot[i] = s.mdot;
+            nodedot[i] = s.nodedot;
+            xlcof[i] = s.xlcof;
+            xmcof[i] = s.xmcof;
+            nodecf[i] = s.nodecf;
+            bstar[i] = s.bstar;
+            inclo[i] = s.inclo;
+            nodeo[i] = s.nodeo;
+            ecco[i] = s.ecco;
+            argpo[i] = s.argpo;
+            mo[i] = s.mo;
+            no[i] = s.no;
+        }
+    } // SGP4batch
+
+    /**
+     * Propagates every satellite to the given Julian Date (same time convention as SGP4unit.sgp4Prop2JD)
+     * @param jd Julian Date
+     * @param r position return array [km], size 3*getSize(), sat i is at r[3i..3i+2]
+     * @param v velocity return array [km/sec], size 3*getSize()
+     * @return number of satellites that failed to propagate (their position and velocity are set to NaN, except for decayed
+     *         satellites, error 6, which keep the computed state as in SGP4unit.sgp4), see getError(i)
+     */
+    public int sgp4Prop2JD(double jd, double[] r, double[] v)
+    {
+        return sgp4Prop2JD(jd, r, v, 0, n);
+    }
+
+    /**
+     * Propagates the satellites with index from (inclusive) to to (exclusive) to
+     * the given Julian Date. Disjoint ranges can be run from different threads
+     * (deep space satellites still write into their own SGP4SatData as in SGP4unit.sgp4).
+     * @param jd Julian Date
+     * @param r position return array [km], size 3*getSize()
+     * @param v velocity return array [km/sec], size 3*getSize()
+     * @param from first satellite index
+     * @param to one past the last satellite index
+     * @return number of satellites in the range that failed to propagate (their position and velocity are set to NaN,
+     *         except for decayed satellites, error 6)
+     */
+    public int sgp4Prop2JD(double jd, double[] r, double[] v, int from, int to)
+    {
+        int failed = 0;
+        double[] rTemp = null; // scratch for deep space sats (once per call, not per sat)
+        double[] vTemp = null;
+        for(int i = from; i < to; i++)
+        {
+            double tsince = (jd - jdsatepoch[i]) * 24.0 * 60.0;
+
+            if(nearEarth[i])
+            {
+                error[i] = sgp4NearEarth(i, tsince, r, v, 3 * i);
+            }
+            else
+            {
+                if(rTemp == null)
+                {
+                    rTemp = new double[3];
+                    vTemp = new double[3];
+                }
+                error[i] = sgp4DeepSpace(i, tsince, r, v, 3 * i, rTemp, vTemp);
+            }
+
+            if(error[i] != 0)
+            {
+                failed++;
+            }
+            if(error[i] != 0 && error[i] != 6)
+            {
+                // these exits return before the state is written, never leave the last step's state in place
+                // (a decayed satellite, error 6, keeps its computed state as in SGP4unit.sgp4)
+                int k = 3 * i;
+                r[k] = Double.NaN;
+                r[k + 1] = Double.NaN;
+                r[k + 2] = Double.NaN;
+                v[k] = Double.NaN;
+                v[k + 1] = Double.NaN;
+                v[k + 2] = Double.NaN;
+            }
+        }
+        return failed;
+    } // sgp4Prop2JD
+
+    // deep space path - uses the original object based propagator
+    private int sgp4DeepSpace(int i, double tsince, double[] r, double[] v, int k, double[] rTemp, double[] vTemp)
+    {
+        SGP4SatData s = satrecs[i];
+        SGP4unit.sgp4(s, tsince, rTemp, vTemp);
+
+        r[k] = rTemp[0];
+        r[k + 1] = rTemp[1];
+        r[k + 2] = rTemp[2];
+        v[k] = vTemp[0];
+        v[k + 1] = vTemp[1];
+        v[k + 2] = vTemp[2];
+
+        return s.error;
+    } // sgp4DeepSpace
+
+    // near earth part of SGP4unit.sgp4(..) working on the packed columns
+    // returns the sgp4 error code (0 = no error)
+    private int sgp4NearEarth(int i, double t, double[] r, double[] v, int k)
+    {
+        double am, axnl, aynl, betal, cnod,
+                cos2u, coseo1 = 0, cosi, cosip, cossu, cosu,
+                delm, delomg, em, emsq, ecose, el2, eo1,
+                ep, esine, argpm, argpp, argpdf, pl, mrt = 0.0,
+                mvt, rdotl, rl, rvdot, rvdotl, sinim,
+                sin2u, sineo1 = 0, sini, sinip, sinsu, sinu,
+                snod, su, t2, t3, t4, tem5, temp,
+                temp1, temp2, tempa, tempe, templ, u, ux,
+                uy, uz, vx, vy, vz, inclm, mm,
+                nm, nodem, xinc, xincp, xl, xlm, mp,
+                xmdf, xmx, xmy, nodedf, xnode, nodep;
+        int ktr;
+
+        final double twopi = 2.0 * SGP4unit.pi;
+        final double x2o3 = 2.0 / 3.0;
+        final double xkei = xke[i];
+
+        /* ------- update for secular gravity and atmospheric drag ----- */
+        xmdf = mo[i] + mdot[i] * t;
+        argpdf = argpo[i] + argpdot[i] * t;
+        nodedf = nodeo[i] + nodedot[i] * t;
+        argpm = argpdf;
+        mm = xmdf;
+        t2 = t * t;
+        nodem = nodedf + nodecf[i] * t2;
+        tempa = 1.0 - cc1[i] * t;
+        tempe = bstar[i] * cc4[i] * t;
+        templ = t2cof[i] * t2;
+
+        if(isimp[i] != 1)
+        {
+            delomg = omgcof[i] * t;
+            delm = xmcof[i] *
+                    (Math.pow((1.0 + eta[i] * Math.cos(xmdf)), 3) -
+                    delmo[i]);
+            temp = delomg + delm;
+            mm = xmdf + temp;
+            argpm = argpdf - temp;
+            t3 = t2 * t;
+            t4 = t3 * t;
+            tempa = tempa - d2[i] * t2 - d3[i] * t3 -
+                    d4[i] * t4;
+            tempe = tempe + bstar[i] * cc5[i] * (Math.sin(mm) -
+                    sinmao[i]);
+            templ = templ + t3cof[i] * t3 + t4 * (t4cof[i] +
+                    t * t5cof[i]);
+        }
+
+        nm = no[i];
+        em = ecco[i];
+        inclm = inclo[i];
+
+        if(nm <= 0.0)
+        {
+            return 2;
+        }
+        am = Math.pow((xkei / nm), x2o3) * tempa * tempa;
+        nm = xkei / Math.pow(am, 1.5);
+        em = em - tempe;
+
+        if((em >= 1.0) || (em < -0.001))
+        {
+            return 1;
+        }
+        if(em < 1.0e-6)
+        {
+            em = 1.0e-6;
+        }
+        mm = mm + no[i] * templ;
+        xlm = mm + argpm + nodem;
+        emsq = em * em;
+        temp = 1.0 - emsq;
+
+        nodem = (nodem % twopi);
+        argpm = (argpm % twopi);
+        xlm = (xlm % twopi);
+        mm = ((xlm - argpm - nodem) % twopi);
+
+        /* ----------------- compute extra mean quantities ------------- */
+        sinim = Math.sin(inclm);
+        cosip = Math.cos(inclm);
+
+        ep = em;
+        xincp = inclm;
+        argpp = argpm;
+        nodep = nodem;
+        mp = mm;
+        sinip = sinim;
+
+        /* -------------------- long period periodics ------------------ */
+        axnl = ep * Math.cos(argpp);
+        temp = 1.0 / (am * (1.0 - ep * ep));
+        aynl = ep * Math.sin(argpp) + temp * aycof[i];
+        xl = mp + argpp + nodep + temp * xlcof[i] * axnl;
+
+        /* --------------------- solve kepler's equation --------------- */
+        u = ((xl - nodep) % twopi);
+        eo1 = u;
+        tem5 = 9999.9;
+        ktr = 1;
+        while((Math.abs(tem5) >= 1.0e-12) && (ktr <= 10))
+        {
+            sineo1 = Math.sin(eo1);
+            coseo1 = Math.cos(eo1);
+            tem5 = 1.0 - coseo1 * axnl - sineo1 * aynl;
+            tem5 = (u - aynl * coseo1 + axnl * sineo1 - eo1) / tem5;
+            if(Math.abs(tem5) >= 0.95)
+            {
+                tem5 = tem5 > 0.0 ? 0.95 : -0.95;
+            }
+            eo1 = eo1 + tem5;
+            ktr = ktr + 1;
+        }
+
+        /* ------------- short period preliminary quantities ----------- */
+        ecose = axnl * coseo1 + aynl * sineo1;
+        esine = axnl * sineo1 - aynl * coseo1;
+        el2 = axnl * axnl + aynl * aynl;
+        pl = am * (1.0 - el2);
+        if(pl < 0.0)
+        {
+            return 4;
+        }
+
+        rl = am * (1.0 - ecose);
+        rdotl = Math.sqrt(am) * esine / rl;
+        rvdotl = Math.sqrt(pl) / rl;
+        betal = Math.sqrt(1.0 - el2);
+        temp = esine / (1.0 + betal);
+        sinu = am / rl * (sineo1 - aynl - axnl * temp);
+        cosu = am / rl * (coseo1 - axnl + aynl * temp);
+        su = Math.atan2(sinu, cosu);
+        sin2u = (cosu + cosu) * sinu;
+        cos2u = 1.0 - 2.0 * sinu * sinu;
+        temp = 1.0 / pl;
+        temp1 = 0.5 * j2[i] * temp;
+        temp2 = temp1 * temp;
+
+        /* -------------- update for short period periodics ------------ */
+        mrt = rl * (1.0 - 1.5 * temp2 * betal * con41[i]) +
+                0.5 * temp1 * x1mth2[i] * cos2u;
+        su = su - 0.25 * temp2 * x7thm1[i] * sin2u;
+        xnode = nodep + 1.5 * temp2 * cosip * sin2u;
+        xinc = xincp + 1.5 * temp2 * cosip * sinip * cos2u;
+        mvt = rdotl - nm * temp1 * x1mth2[i] * sin2u / xkei;
+        rvdot = rvdotl + nm * temp1 * (x1mth2[i] * cos2u +
+                1.5 * con41[i]) / xkei;
+
+        /* --------------------- orientation vectors ------------------- */
+        sinsu = Math.sin(su);
+        cossu = Math.cos(su);
+        snod = Math.sin(xnode);
+        cnod = Math.cos(xnode);
+        sini = Math.sin(xinc);
+        cosi = Math.cos(xinc);
+        xmx = -snod * cosi;
+        xmy = cnod * cosi;
+        ux = xmx * sinsu + cnod * cossu;
+        uy = xmy * sinsu + snod * cossu;
+        uz = sini * sinsu;
+        vx = xmx * cossu - cnod * sinsu;
+        vy = xmy * cossu - snod * sinsu;
+        vz = sini * cossu;
+
+        /* --------- position and velocity (in km and km/sec) ---------- */
+        r[k] = (mrt * ux) * radiusearthkm[i];
+        r[k + 1] = (mrt * uy) * radiusearthkm[i];
+        r[k + 2] = (mrt * uz) * radiusearthkm[i];
+        v[k] = (mvt * ux + rvdot * vx) * vkmpersec[i];
+        v[k + 1] = (mvt * uy + rvdot * vy) * vkmpersec[i];
+        v[k + 2] = (mvt * uz + rvdot * vz) * vkmpersec[i];
+
+        // sgp4fix for decaying satellites
+        if(mrt < 1.0)
+        {
+            return 6;
+        }
+
+        return 0;
+    } // sgp4NearEarth
+
+    /**
+     * @return number of satellites in this batch
+     */
+    public int getSize()
+    {
+        return n;
+    }
+
+    /**
+     * @param i satellite index
+     * @return SGP4 data object packed at index i
+     */
+    public SGP4SatData getSatData(int i)
+    {
+        return satrecs[i];
+    }
+
+    /**
+     * @param i satellite index
+     * @return sgp4 error code of satellite i from the last propagation (0 = ok, see SGP4unit.sgp4)
+     */
+    public int getError(int i)
+    {
+        return error[i];
+    }
+
+    /**
+     * @param i satellite index
+     * @return true if satellite i uses the packed near earth path, false for deep space
+     */
+    public boolean isNearEarth(int i)
+    {
+        return nearEarth[i];
+    }
+
+} // SGP4batch
@@ -1901,6 +1901,76 @@ public class SGP4unit
 
 
 
+    /**
+     * Propagates one satellite to a series of Julian Dates in a single call,
+     * filling preallocated arrays. No objects are allocated for near earth satellites
+     * so the loop can stay hot for long time sweeps (pass predictions, ground tracks, etc.).
+     * @param satrec satellite SGP4 data object
+     * @param jd array of Julian Dates
+     * @param count number of dates in jd to propagate (from index 0)
+     * @param r position [km] return array, size 3*count, point i at r[3i..3i+2]
+     * @param v velocity [km/sec] return array, size 3*count (can be null if not needed)
+     * @return true if all points were propagated without errors, see satrec.error for the last error code
+     */
+    public static boolean sgp4Prop2JD(SGP4SatData satrec, double[] jd, int count, double[] r, double[] v)
+    {
+        double[] rTemp = new double[3];
+        double[] vTemp = new double[3];
+        boolean allOk = true;
+
+        for(int i = 0; i < count; i++)
+        {
+            double tminSinceEpoch = (jd[i] - satrec.jdsatepoch)*24.0*60.0;
+            allOk &= sgp4SeriesPoint(satrec, tminSinceEpoch, i, r, v, rTemp, vTemp);
+        }
+
+        return allOk;
+    }
+
+    /**
+     * Propagates one satellite to evenly spaced Julian Dates jdStart + i*stepDays, i=0..count-1
+     * filling preallocated arrays (see sgp4Prop2JD(SGP4SatData, double[], int, double[], double[]))
+     * @param satrec satellite SGP4 data object
+     * @param jdStart first Julian Date
+     * @param stepDays time step [days]
+     * @param count number of points
+     * @param r position [km] return array, size 3*count
+     * @param v velocity [km/sec] return array, size 3*count (can be null if not needed)
+     * @return true if all points were propagated without errors
+     */
+    public static boolean sgp4Prop2JD(SGP4SatData satrec, double jdStart, double stepDays, int count, double[] r, double[] v)
+    {
+        double[] rTemp = new double[3];
+        double[] vTemp = new double[3];
+        boolean allOk = true;
+
+        for(int i = 0; i < count; i++)
+        {
+            double tminSinceEpoch = (jdStart + i*stepDays - satrec.jdsatepoch)*24.0*60.0;
+            allOk &= sgp4SeriesPoint(satrec, tminSinceEpoch, i, r, v, rTemp, vTemp);
+        }
+
+        return allOk;
+    }
+
+    // one point of a time series - propagates into the scratch arrays and copies into the packed outputs
+    private static boolean sgp4SeriesPoint(SGP4SatData satrec, double tsince, int i, double[] r, double[] v, double[] rTemp, double[] vTemp)
+    {
+        boolean ok = sgp4(satrec, tsince, rTemp, vTemp);
+
+        r[3*i] = rTemp[0];
+        r[3*i+1] = rTemp[1];
+        r[3*i+2] = rTemp[2];
+        if(v != null)
+        {
+            v[3*i] = vTemp[0];
+            v[3*i+1] = vTemp[1];
+            v[3*i+2] = vTemp[2];
+        }
+
+        return ok;
+    }
+
     /**
      * Similar to sgp4(..) but time parameter is the Julian Date to the propagated to.
      * This method was not orgiinally in the CSSI C++ version.
@@ -2037,7 +2107,7 @@ public class SGP4unit
         twopi = 2.0 * pi;
         x2o3 = 2.0 / 3.0;
         // sgp4fix identify constants and allow alternate values
-        double[] temp5 = getgravconst(satrec.gravconsttype);//, tumin, mu, radiusearthkm, xke, j2, j3, j4, j3oj2 );
+        double[] temp5 = getgravconstCached(satrec.gravconsttype);//, tumin, mu, radiusearthkm, xke, j2, j3, j4, j3oj2 );
         tumin = temp5[0];
         mu = temp5[1];
         radiusearthkm = temp5[2];
@@ -2371,6 +2441,23 @@ public class SGP4unit
         return temp;
     }  // end gstime
 
+    // gravity constants for each Gravconsttype (used by sgp4 so it does not allocate each call),
+    // all filled in when the class is initialized so every thread sees the complete arrays
+    private static final double[][] gravconstCache = new double[Gravconsttype.values().length][];
+    static
+    {
+        for(Gravconsttype whichconst : Gravconsttype.values())
+        {
+            gravconstCache[whichconst.ordinal()] = getgravconst(whichconst);
+        }
+    }
+
+    // returns the shared (do not modify) constant array for the given gravity model
+    private static double[] getgravconstCached(Gravconsttype whichconst)
+    {
+        return gravconstCache[whichconst.ordinal()];
+    }
+
     /* -----------------------------------------------------------------------------
      *
      *                           function getgravconst
@@ -21,29 +21,77 @@
 package name.gano.worldwind.geom;
 
 import gov.nasa.worldwind.geom.Angle;
+import gov.nasa.worldwind.geom.Sector;
 import gov.nasa.worldwind.geom.Vec4;
 import gov.nasa.worldwind.render.DrawContext;
+import gov.nasa.worldwind.render.PreRenderable;
 import gov.nasa.worldwind.render.Renderable;
+import gov.nasa.worldwind.render.SurfaceImage;
 import gov.nasa.worldwind.util.Logging;
 import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
 import javax.media.opengl.GL;
 import jsattrak.coverage.CoverageAnalyzer;
+import jsattrak.coverage.CoverageTessellation;
 
 /**
+ * Coverage data on the globe: the analyzer's coverage image draped on the terrain as one
+ * surface image (the texture is only reloaded when the data changes), plus the cell outlines
+ * when the coverage grid is plotted.
  *
  * @author sgano
  */
-public class CoverageDataGeom implements Renderable 
+public class CoverageDataGeom implements Renderable, PreRenderable
 {
     
 //    Globe globe;
     CoverageAnalyzer ca;
     
+    double maxSegmentWidth = 5.0; // longitude width of the pieces wide cells are outlined in [deg]
+    
+    // draped coverage image
+    private SurfaceImage surfaceImage;
+    private BufferedImage surfaceSource; // image the surface image was made from
+    private double[] surfaceSector;
+    private long surfaceVersion = -1; // display version of the analyzer the texture was loaded for
+    
     public CoverageDataGeom(CoverageAnalyzer ca)
     {
         this.ca = ca;
     }
     
+    public void preRender(DrawContext dc)
+    {
+        if(ca == null)
+        {
+            return;
+        }
+        
+        long version = ca.getDisplayVersion();
+        BufferedImage image = ca.getCoverageImage();
+        double[] sector = ca.getCoverageImageSector();
+        
+        if(surfaceImage == null || image != surfaceSource || !Arrays.equals(sector, surfaceSector))
+        {
+            // new cells: new image and sector
+            if(surfaceSource != null)
+            {
+                dc.getTextureCache().remove(surfaceSource);
+            }
+            surfaceImage = new SurfaceImage(image, Sector.fromDegrees(sector[0], sector[1], sector[2], sector[3]));
+            surfaceSource = image;
+            surfaceSector = sector;
+        }
+        else if(version != surfaceVersion)
+        {
+            // same image redrawn, the texture (cached by image) has to be loaded again
+            dc.getTextureCache().remove(surfaceSource);
+        }
+        surfaceVersion = version;
+        
+        surfaceImage.preRender(dc);
+    } // preRender
     
     public void render(DrawContext dc)
     {
@@ -53,128 +101,64 @@ public class CoverageDataGeom implements Renderable
             Logging.logger().severe(msg);
             throw new IllegalArgumentException(msg);
         }
+        
+        if(ca == null)
+        {
+            return;
+        }
+        
+        // color scaled cells
+        if(surfaceImage != null)
+        {
+            surfaceImage.render(dc);
+        }
+        
+        if(!ca.isPlotCoverageGrid())
+        {
+            return;
+        }
 
         javax.media.opengl.GL gl = dc.getGL();
 
-        gl.glEnable(GL.GL_TEXTURE_2D);
         gl.glPushAttrib(javax.media.opengl.GL.GL_TEXTURE_BIT | javax.media.opengl.GL.GL_ENABLE_BIT | javax.media.opengl.GL.GL_CURRENT_BIT);
+        gl.glDisable(GL.GL_TEXTURE_2D);
         gl.glMatrixMode(javax.media.opengl.GL.GL_MODELVIEW);
 
         // allow for transparency
         gl.glEnable(GL.GL_BLEND);
         gl.glBlendFunc(GL.GL_SRC_ALPHA, GL.GL_ONE_MINUS_SRC_ALPHA);
 
-        Color satColor;
-
-        Double nanDbl = new Double(Double.NaN);
-
         double alt = 100000;
 
-        if(ca != null)
+        CoverageTessellation cells = ca.getTessellation();
+        double[] bounds = new double[4];
+        
+        gl.glColor4f(Color.GREEN.getRed() / 255.0f, Color.GREEN.getGreen() / 255.0f, Color.GREEN.getBlue() / 255.0f,0.2f);
+        for(int k = 0; k < cells.getNumCells(); k++)
         {
-
-            for(int i = 0; i < ca.getLongPanels(); i++)
+            // cell outline, wide cells (e.g. equal-area cells near the poles) are split in longitude
+            // so they follow the globe
+            cells.getCellBounds(k, bounds);
+            int segments = Math.max(1, (int)Math.ceil((bounds[3] - bounds[2])/maxSegmentWidth));
+            
+            gl.glBegin(GL.GL_LINE_STRIP);
+            vertex(dc, gl, bounds[0], bounds[2], alt);
+            for(int s = 0; s <= segments; s++)
             {
-                for(int j = 0; j < ca.getLatPanels(); j++)
-                {
-
-                    if(ca.getCoverageCumTime()[j][i] > 0)
-                    {
-
-                        Vec4 pos1 = dc.getGlobe().computePointFromPosition(
-                                Angle.fromDegrees(ca.getLatGridPoints()[j]), // lat
-                                Angle.fromDegrees(ca.getLonGridPoints()[i]), // lon
-                                alt);
-                        Vec4 pos2 = dc.getGlobe().computePointFromPosition(
-                                Angle.fromDegrees(ca.getLatGridPoints()[j + 1]), // lat
-                                Angle.fromDegrees(ca.getLonGridPoints()[i]), // lon
-                                alt);
-                        Vec4 pos3 = dc.getGlobe().computePointFromPosition(
-                                Angle.fromDegrees(ca.getLatGridPoints()[j + 1]), // lat
-                                Angle.fromDegrees(ca.getLonGridPoints()[i + 1]), // lon
-                                alt);
-                        Vec4 pos4 = dc.getGlobe().computePointFromPosition(
-                                Angle.fromDegrees(ca.getLatGridPoints()[j]), // lat
-                                Angle.fromDegrees(ca.getLonGridPoints()[i + 1]), // lon
-                                alt);
-
-                        satColor = ca.getColorForIndex(j, i);
-                        gl.glColor4f(satColor.getRed() / 255.0f, satColor.getGreen() / 255.0f, satColor.getBlue() / 255.0f, ca.getAlpha() / 255.0f); // COLOR
-
-                        gl.glBegin(GL.GL_QUADS);  // counter clock wise?
-                        //gl.glTexCoord2f(0, 0);
-
-                        gl.glVertex3f((float)pos1.x, (float)pos1.y, (float)pos1.z);
-                        //gl.glTexCoord2f(0, 1);
-                        gl.glVertex3f((float)pos2.x, (float)pos2.y, (float)pos2.z);
-                        //gl.glTexCoord2f(1, 1);
-                        gl.glVertex3f((float)pos3.x, (float)pos3.y, (float)pos3.z);
-                        //gl.glTexCoord2f(1, 0);
-                        gl.glVertex3f((float)pos4.x, (float)pos4.y, (float)pos4.z);
-                        gl.glEnd();
-                        
-                        // if drawing grid
-                        if(ca.isPlotCoverageGrid())
-                        {
-                            gl.glColor4f(Color.GREEN.getRed() / 255.0f, Color.GREEN.getGreen() / 255.0f, Color.GREEN.getBlue() / 255.0f,0.2f);
-                            gl.glBegin(GL.GL_LINE_STRIP);
-                                gl.glVertex3f((float)pos1.x, (float)pos1.y, (float)pos1.z);
-                                gl.glVertex3f((float)pos2.x, (float)pos2.y, (float)pos2.z);
-                                gl.glVertex3f((float)pos3.x, (float)pos3.y, (float)pos3.z);
-                                gl.glVertex3f((float)pos4.x, (float)pos4.y, (float)pos4.z);
-                            gl.glEnd();
-                            
-                            // draw center?
-                            
-                        }// draw coverage grid with point in center
-                        
-                    } // time > 0
-                    else
-                    {
-                        // not, filled but still draw grid
-                        if(ca.isPlotCoverageGrid())
-                        {
-                            Vec4 pos1 = dc.getGlobe().computePointFromPosition(
-                                    Angle.fromDegrees(ca.getLatGridPoints()[j]), // lat
-                                    Angle.fromDegrees(ca.getLonGridPoints()[i]), // lon
-                                    alt);
-                            Vec4 pos2 = dc.getGlobe().computePointFromPosition(
-                                    Angle.fromDegrees(ca.getLatGridPoints()[j + 1]), // lat
-                                    Angle.fromDegrees(ca.getLonGridPoints()[i]), // lon
-                                    alt);
-                            Vec4 pos3 = dc.getGlobe().computePointFromPosition(
-                                    Angle.fromDegrees(ca.getLatGridPoints()[j + 1]), // lat
-                                    Angle.fromDegrees(ca.getLonGridPoints()[i + 1]), // lon
-                                    alt);
-                            Vec4 pos4 = dc.getGlobe().computePointFromPosition(
-                                    Angle.fromDegrees(ca.getLatGridPoints()[j]), // lat
-                                    Angle.fromDegrees(ca.getLonGridPoints()[i + 1]), // lon
-                                    alt);
-                            gl.glColor4f(Color.GREEN.getRed() / 255.0f, Color.GREEN.getGreen() / 255.0f, Color.GREEN.getBlue() / 255.0f,0.2f);
-                            gl.glBegin(GL.GL_LINE_STRIP);
-                                gl.glVertex3f((float)pos1.x, (float)pos1.y, (float)pos1.z);
-                                gl.glVertex3f((float)pos2.x, (float)pos2.y, (float)pos2.z);
-                                gl.glVertex3f((float)pos3.x, (float)pos3.y, (float)pos3.z);
-                                gl.glVertex3f((float)pos4.x, (float)pos4.y, (float)pos4.z);
-                            gl.glEnd();
-                        
-                            // draw center
-                            
-                        }// draw coverage grid with point in center
-                        
-                    }// else (time ==0)
-                    
-                    // 
-
-                } // for lat
-
-            } // for long
-
-        } // not null
-
+                vertex(dc, gl, bounds[1], bounds[2] + s*(bounds[3] - bounds[2])/segments, alt);
+            }
+            vertex(dc, gl, bounds[0], bounds[3], alt);
+            gl.glEnd();
 
+        } // for each cell (lat/long panel [i][j] is cell i*longPanels + j)
         
         gl.glPopAttrib();
         
      } // render
+    
+    private static void vertex(DrawContext dc, GL gl, double lat, double lon, double alt)
+    {
+        Vec4 p = dc.getGlobe().computePointFromPosition(Angle.fromDegrees(lat), Angle.fromDegrees(lon), alt);
+        gl.glVertex3f((float)p.x, (float)p.y, (float)p.z);
+    }
 }